@@ -0,0 +1,160 @@
+package compiler;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import compiler.common.report.*;
+
+/**
+ * The batch compilation of many source files.
+ *
+ * Usage: {@code java compiler.Main --batch [--jobs=N] [option]... file...}
+ *
+ * Each source file is compiled with the same options within a compilation of
+ * its own (see {@link Compilation}), and up to {@code N} source files (by
+ * default, as many as there are processors) are compiled concurrently. As the
+ * source files are compiled in parallel, the functions of each source file are
+ * not (unlike with {@code --jobs} without {@code --batch}).
+ *
+ * Options naming a single output file would make all compilations write the
+ * same file. With {@code --stats}, the statistics of each source file are
+ * written to a file of its own named after the source file, e.g.,
+ * {@code array.stats.json} for {@code array.txt}, and the file name given is
+ * ignored. The option {@code --xml} is ignored, so each phase is logged to a
+ * file named after the source file as without {@code --xml}.
+ *
+ * The output of each compilation is printed out once the compilation is done,
+ * in the order of the source files, followed by a line stating whether the
+ * compilation has been completed and how long it took. The process exits with
+ * status {@code 1} if any compilation has been stopped.
+ */
+public class Batch {
+
+	/** The stack size of the threads running the compilations. */
+	private static final long STACK_SIZE = 1L << 30;
+
+	/** The result of compiling a single source file. */
+	private static class Result {
+
+		/** Everything the compilation has printed out. */
+		final String output;
+
+		/** Whether the compilation has been completed. */
+		final boolean done;
+
+		/** The wall time of the compilation (in ns). */
+		final long nanos;
+
+		Result(String output, boolean done, long nanos) {
+			this.output = output;
+			this.done = done;
+			this.nanos = nanos;
+		}
+
+	}
+
+	/**
+	 * Compiles a single source file.
+	 *
+	 * @param args The command line arguments of the compilation.
+	 * @return The result of the compilation.
+	 */
+	private static Result compile(String[] args) {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		PrintStream out;
+		try {
+			out = new PrintStream(output, false, "UTF-8");
+		} catch (UnsupportedEncodingException __) {
+			throw new Report.InternalError();
+		}
+		long begNanos = System.nanoTime();
+		boolean done;
+		try {
+			done = new Compilation(out, out).run(() -> Main.compile(args));
+		} catch (Throwable throwable) {
+			// Internal errors have already been reported by the compilation.
+			if (!(throwable instanceof Report.InternalError))
+				throwable.printStackTrace(out);
+			done = false;
+		}
+		long nanos = System.nanoTime() - begNanos;
+		out.flush();
+		return new Result(new String(output.toByteArray(), StandardCharsets.UTF_8), done, nanos);
+	}
+
+	/**
+	 * Compiles all source files.
+	 *
+	 * @param args Command line arguments.
+	 */
+	public static void main(String[] args) {
+		int numOfJobs = Runtime.getRuntime().availableProcessors();
+		Vector<String> options = new Vector<String>();
+		Vector<String> srcFileNames = new Vector<String>();
+		boolean stats = false;
+		for (String arg : args) {
+			if (arg.equals("--batch"))
+				continue;
+			if (arg.matches("--jobs=[1-9][0-9]{0,3}")) {
+				numOfJobs = Integer.parseInt(arg.replaceFirst("^[^=]*=", ""));
+				continue;
+			}
+			if (arg.startsWith("--stats=")) {
+				if (!stats && !arg.equals("--stats="))
+					Report.warning("Statistics of each source file are written to <source>.stats.json, not to '"
+							+ arg.replaceFirst("^[^=]*=", "") + "'.");
+				stats = true;
+				continue;
+			}
+			if (arg.startsWith("--xml=")) {
+				Report.warning("Option '" + arg + "' ignored in batch mode.");
+				continue;
+			}
+			if (arg.startsWith("--"))
+				options.add(arg);
+			else
+				srcFileNames.add(arg);
+		}
+		if (srcFileNames.isEmpty()) {
+			Report.warning("Source files not specified.");
+			System.exit(1);
+		}
+
+		long begNanos = System.nanoTime();
+		ExecutorService compilers = Executors.newFixedThreadPool(numOfJobs,
+				runnable -> new Thread(null, runnable, "compiler", STACK_SIZE));
+		Vector<Future<Result>> results = new Vector<Future<Result>>();
+		for (String srcFileName : srcFileNames) {
+			Vector<String> fileArgs = new Vector<String>();
+			fileArgs.add("--jobs=1");
+			fileArgs.addAll(options);
+			if (stats)
+				fileArgs.add("--stats=" + srcFileName.replaceFirst("\\.[^./]*$", "") + ".stats.json");
+			fileArgs.add(srcFileName);
+			results.add(compilers.submit(() -> compile(fileArgs.toArray(new String[0]))));
+		}
+		compilers.shutdown();
+
+		int numOfDone = 0;
+		for (int f = 0; f < srcFileNames.size(); f++) {
+			Result result;
+			try {
+				result = results.get(f).get();
+			} catch (InterruptedException | ExecutionException __) {
+				result = new Result("", false, 0);
+			}
+			System.out.print(result.output);
+			Report.info(String.format("%s: %s in %d ms.", srcFileNames.get(f), result.done ? "completed" : "stopped",
+					result.nanos / 1000000));
+			if (result.done)
+				numOfDone++;
+		}
+		Report.info(String.format("%d of %d source files compiled in %d ms.", numOfDone, srcFileNames.size(),
+				(System.nanoTime() - begNanos) / 1000000));
+		if (numOfDone < srcFileNames.size())
+			System.exit(1);
+	}
+
+}
@@ -0,0 +1,272 @@
+package compiler;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+import compiler.common.report.*;
+import compiler.common.stats.*;
+import compiler.data.abstree.*;
+import compiler.data.asmcode.*;
+import compiler.data.chunk.*;
+import compiler.data.dertree.*;
+import compiler.data.symbol.*;
+import compiler.data.type.*;
+import compiler.phases.cache.*;
+
+/**
+ * The state of a single compilation.
+ *
+ * Everything a compilation produces or keeps track of, i.e., the command line,
+ * the reports and the statistics, the counters of labels and temporary
+ * variables, the names and the types, the trees, the attributes of the
+ * abstract syntax tree and the chunks and the code of the back end, belongs to
+ * a compilation. The phases access the state of the current compilation, so
+ * several source files can be compiled one after another (see {@link Daemon})
+ * or concurrently (see {@link Batch}) within the same JVM without any state
+ * shared between compilations.
+ *
+ * The current compilation is the one run by the current thread (see
+ * {@link #run(BooleanSupplier)}). The functions of a compilation can be
+ * compiled by several threads in parallel (see {@link #forEach(int,
+ * IntConsumer)}).
+ */
+public class Compilation {
+
+	/** The compilation of threads that do not run any compilation. */
+	private static final Compilation standalone = new Compilation(System.out, System.err);
+
+	/** The compilation being run by each thread. */
+	private static final ThreadLocal<Compilation> current = ThreadLocal.withInitial(() -> standalone);
+
+	/**
+	 * Returns the compilation being run by the current thread.
+	 *
+	 * @return The compilation being run (or the default compilation if none is).
+	 */
+	public static Compilation current() {
+		return current.get();
+	}
+
+	/** The stream the output of the compilation is printed to. */
+	public final PrintStream out;
+
+	/** The stream the warnings and errors of the compilation are printed to. */
+	public final PrintStream err;
+
+	/** Values of command line arguments. */
+	public final HashMap<String, String> cmdLine = new HashMap<String, String>();
+
+	/** Reporting to the user. */
+	public final Report report;
+
+	/** Statistics of the phases. */
+	public final Stats stats = new Stats();
+
+	/** Counter of anonymous labels. */
+	private final AtomicLong numOfLabels = new AtomicLong();
+
+	/** Counter of temporary variables. */
+	private final AtomicLong numOfTemps = new AtomicLong();
+
+	/** Counter of nodes of the abstract syntax tree. */
+	private int numOfNodes = 0;
+
+	/** The worker threads (or {@code null} if not started yet). */
+	private ForkJoinPool workers = null;
+
+	/** The values of the attributes of the abstract syntax tree (indexed by attribute ids). */
+	private Object[] attributes = new Object[0];
+
+	/** The names, i.e., the identifiers of the source file. */
+	public final NameTable names = new NameTable();
+
+	/** The canonical types. */
+	public final TypeTable types = new TypeTable();
+
+	/** The derivation tree (if constructed). */
+	public DerTree derTree = null;
+
+	/** The abstract syntax tree. */
+	public AbsTree absTree = null;
+
+	/** The data chunks. */
+	public Vector<DataChunk> dataChunks = new Vector<DataChunk>();
+
+	/** The code chunks. */
+	public Vector<CodeChunk> codeChunks = new Vector<CodeChunk>();
+
+	/** The code of functions. */
+	public Vector<Code> codes = new Vector<Code>();
+
+	/** The cache of the final code (or {@code null} if not compiling incrementally). */
+	public FunCache funCache = null;
+
+	/**
+	 * Constructs a new compilation.
+	 *
+	 * @param out The stream the output of the compilation is printed to.
+	 * @param err The stream the warnings and errors of the compilation are
+	 *            printed to.
+	 */
+	public Compilation(PrintStream out, PrintStream err) {
+		this.out = out;
+		this.err = err;
+		this.report = new Report(out, err);
+	}
+
+	/**
+	 * Runs the compiler within this compilation in the current thread.
+	 *
+	 * @param compiler The compiler.
+	 * @return The result of the compiler.
+	 */
+	public boolean run(BooleanSupplier compiler) {
+		Compilation outer = current.get();
+		current.set(this);
+		try {
+			return compiler.getAsBoolean();
+		} finally {
+			current.set(outer);
+			if (workers != null)
+				workers.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the number of a new anonymous label.
+	 *
+	 * @return The number of a new anonymous label.
+	 */
+	public long newLabel() {
+		return numOfLabels.getAndIncrement();
+	}
+
+	/**
+	 * Returns the number of a new temporary variable.
+	 *
+	 * @return The number of a new temporary variable.
+	 */
+	public long newTemp() {
+		return numOfTemps.getAndIncrement();
+	}
+
+	/**
+	 * Returns the id of a new node of the abstract syntax tree.
+	 *
+	 * @return The id of a new node of the abstract syntax tree.
+	 */
+	public int newNodeId() {
+		return numOfNodes++;
+	}
+
+	/**
+	 * Returns the number of nodes of the abstract syntax tree constructed so
+	 * far.
+	 *
+	 * @return The number of nodes of the abstract syntax tree.
+	 */
+	public int numOfNodes() {
+		return numOfNodes;
+	}
+
+	/**
+	 * Runs a task for each index from {@code 0} to {@code size - 1} and returns
+	 * once all of them are done.
+	 * 
+	 * The tasks are run in parallel by at most {@code --jobs} worker threads (by
+	 * default, as many as there are processors), so they must not depend on one
+	 * another. The worker threads have the default stack size (see
+	 * {@code -Xss}).
+	 *
+	 * @param size The number of tasks.
+	 * @param task The task to run for each index.
+	 */
+	public void forEach(int size, IntConsumer task) {
+		int numOfJobs = cmdLine.get("--jobs") == null ? Runtime.getRuntime().availableProcessors()
+				: Integer.parseInt(cmdLine.get("--jobs"));
+		if ((numOfJobs <= 1) || (size <= 1)) {
+			for (int index = 0; index < size; index++)
+				task.accept(index);
+			return;
+		}
+		if (workers == null)
+			workers = new ForkJoinPool(numOfJobs);
+		// The first exception thrown by any task is rethrown as it is.
+		Thread compiler = Thread.currentThread();
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		workers.invoke(new Tasks(0, size, index -> {
+			if (Thread.currentThread() == compiler) {
+				try {
+					task.accept(index);
+				} catch (Throwable throwable) {
+					failure.compareAndSet(null, throwable);
+				}
+				return;
+			}
+			current.set(this);
+			try {
+				Stats.work(() -> task.accept(index));
+			} catch (Throwable throwable) {
+				failure.compareAndSet(null, throwable);
+			} finally {
+				current.remove();
+			}
+		}));
+		if (failure.get() instanceof RuntimeException)
+			throw (RuntimeException) failure.get();
+		if (failure.get() instanceof Error)
+			throw (Error) failure.get();
+	}
+
+	/**
+	 * The tasks for a range of indices, split in halves until a single index is
+	 * left.
+	 */
+	private static class Tasks extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int beg;
+
+		private final int end;
+
+		private final IntConsumer task;
+
+		Tasks(int beg, int end, IntConsumer task) {
+			this.beg = beg;
+			this.end = end;
+			this.task = task;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - beg == 1)
+				task.accept(beg);
+			else {
+				int mid = (beg + end) / 2;
+				invokeAll(new Tasks(beg, mid, task), new Tasks(mid, end, task));
+			}
+		}
+
+	}
+
+	/**
+	 * Returns the values of an attribute of the abstract syntax tree.
+	 *
+	 * @param id        The id of the attribute.
+	 * @param newValues Creates the values of the attribute the first time they
+	 *                  are needed.
+	 * @return The values of the attribute.
+	 */
+	public Object attribute(int id, Supplier<Object> newValues) {
+		if (id >= attributes.length)
+			attributes = Arrays.copyOf(attributes, id + 1);
+		if (attributes[id] == null)
+			attributes[id] = newValues.get();
+		return attributes[id];
+	}
+
+}
@@ -0,0 +1,135 @@
+package compiler;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.concurrent.*;
+
+import compiler.common.report.*;
+
+/**
+ * The compiler daemon.
+ *
+ * The daemon keeps running and compiles one source file after another within
+ * the same JVM, so all but the first compilation are performed by the code
+ * that has already been loaded and compiled by the JIT compiler. Each source
+ * file is compiled within a compilation of its own (see {@link Compilation}).
+ *
+ * Usage: {@code java compiler.Daemon [--port=N]}
+ *
+ * Without {@code --port} the requests are read from the standard input and the
+ * responses are written to the standard output. Otherwise, the daemon accepts
+ * connections on the specified port of the loopback interface and serves each
+ * of them in a separate thread.
+ *
+ * A request is a single line containing the command line arguments of
+ * {@link Main} separated by tabs (empty lines are ignored); the names of files
+ * are resolved against the working directory of the daemon. The response
+ * consists of everything the compilation has printed out followed by a single
+ * line {@code %exit 0} if the compilation has been completed or
+ * {@code %exit 1} if it has been stopped.
+ */
+public class Daemon {
+
+	/** The stack size of the thread running the compilations. */
+	private static final long STACK_SIZE = 1L << 30;
+
+	/** The thread running the compilations (one at a time). */
+	private final ExecutorService compiler = Executors
+			.newSingleThreadExecutor(runnable -> new Thread(null, runnable, "compiler", STACK_SIZE));
+
+	/**
+	 * Compiles a single source file.
+	 *
+	 * @param request The command line arguments separated by tabs.
+	 * @param out     The stream the output of the compilation is printed to.
+	 * @return {@code true} if the compilation has been completed, {@code false}
+	 *         if it has been stopped.
+	 */
+	private boolean compile(String request, PrintStream out) {
+		String[] args = request.split("\t");
+		Compilation compilation = new Compilation(out, out);
+		Future<Boolean> done = compiler.submit(() -> compilation.run(() -> Main.compile(args)));
+		try {
+			return done.get();
+		} catch (ExecutionException e) {
+			// Internal errors have already been reported by the compilation.
+			if (!(e.getCause() instanceof Report.InternalError))
+				e.getCause().printStackTrace(out);
+			return false;
+		} catch (InterruptedException __) {
+			done.cancel(true);
+			return false;
+		}
+	}
+
+	/**
+	 * Serves the requests until the end of the input.
+	 *
+	 * @param in  The requests.
+	 * @param out The responses.
+	 * @throws IOException If the requests cannot be read.
+	 */
+	private void serve(BufferedReader in, PrintStream out) throws IOException {
+		String request;
+		while ((request = in.readLine()) != null) {
+			if (request.isEmpty())
+				continue;
+			boolean done = compile(request, out);
+			out.println("%exit " + (done ? 0 : 1));
+			out.flush();
+		}
+	}
+
+	/**
+	 * Serves the requests of a single connection.
+	 *
+	 * @param socket The connection.
+	 */
+	private void serve(Socket socket) {
+		try (Socket s = socket;
+				BufferedReader in = new BufferedReader(
+						new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+				PrintStream out = new PrintStream(new BufferedOutputStream(s.getOutputStream()), false,
+						"UTF-8")) {
+			serve(in, out);
+		} catch (IOException __) {
+		}
+	}
+
+	/**
+	 * The daemon's {@code main} method.
+	 *
+	 * @param args Command line arguments.
+	 */
+	public static void main(String[] args) {
+		Integer port = null;
+		for (String arg : args) {
+			if (arg.matches("--port=[0-9]{1,5}") && (port == null)) {
+				port = Integer.parseInt(arg.replaceFirst("^[^=]*=", ""));
+				continue;
+			}
+			Report.warning("Command line argument '" + arg + "' ignored.");
+		}
+
+		Daemon daemon = new Daemon();
+		try {
+			if (port == null)
+				daemon.serve(new BufferedReader(new InputStreamReader(System.in)), System.out);
+			else {
+				try (ServerSocket server = new ServerSocket(port, 0, InetAddress.getLoopbackAddress())) {
+					Report.info("Listening on port " + server.getLocalPort() + ".");
+					while (true) {
+						Socket socket = server.accept();
+						new Thread(() -> daemon.serve(socket), "connection").start();
+					}
+				}
+			}
+		} catch (IOException e) {
+			Report.warning("Daemon stopped: " + e.getMessage());
+		} finally {
+			daemon.compiler.shutdown();
+		}
+	}
+
+}
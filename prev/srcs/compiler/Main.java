@@ -6,11 +6,13 @@ package compiler;
 import java.io.IOException;
 import java.util.*;
 import compiler.common.report.*;
+import compiler.common.stats.*;
 import compiler.phases.lexan.*;
 import compiler.phases.synan.*;
 import compiler.phases.wrapup.Wrapup;
 import compiler.phases.abstr.*;
 import compiler.phases.asmcode.*;
+import compiler.phases.cache.*;
 import compiler.phases.seman.*;
 import compiler.phases.frames.*;
 import compiler.phases.imcgen.*;
@@ -28,29 +30,79 @@ public class Main {
 	/** All valid phases of the compiler. */
 	private static final String phases = "lexan|synan|abstr|seman|frames|imcgen|chunks|asmgen|livean|ralloc";
 
-	/** Values of command line arguments. */
-	private static HashMap<String, String> cmdLine = new HashMap<String, String>();
-
 	/** The number of general-purpose registers. */
 	public static final int numOfRegs = 16;
 
 	/**
-	 * Returns the value of a command line argument.
+	 * Returns the value of a command line argument of the current compilation.
 	 * 
 	 * @param cmdLineArgName The name of the command line argument.
 	 * @return The value of the specified command line argument or {@code null} if
 	 *         the specified command line argument has not been used.
 	 */
 	public static String cmdLineArgValue(String cmdLineArgName) {
-		return cmdLine.get(cmdLineArgName);
+		return Compilation.current().cmdLine.get(cmdLineArgName);
+	}
+
+	/**
+	 * Sets the value of a command line argument of the current compilation, e.g., when phases are run
+	 * without the command line being scanned.
+	 * 
+	 * @param cmdLineArgName  The name of the command line argument.
+	 * @param cmdLineArgValue The value of the command line argument or
+	 *                        {@code null} to remove it.
+	 */
+	public static void cmdLineArgValue(String cmdLineArgName, String cmdLineArgValue) {
+		HashMap<String, String> cmdLine = Compilation.current().cmdLine;
+		if (cmdLineArgValue == null)
+			cmdLine.remove(cmdLineArgName);
+		else
+			cmdLine.put(cmdLineArgName, cmdLineArgValue);
+	}
+
+	/**
+	 * Returns whether any phase following the intermediate code generation is
+	 * logged or dumped.
+	 * 
+	 * @return {@code true} if any phase of the back end is logged or dumped,
+	 *         {@code false} otherwise.
+	 */
+	private static boolean backEndLogged() {
+		HashMap<String, String> cmdLine = Compilation.current().cmdLine;
+		for (String phase : new String[] { "--logged-phase", "--dumped-phase" })
+			if ((cmdLine.get(phase) != null) && cmdLine.get(phase).matches("chunks|asmgen|livean|ralloc|all"))
+				return true;
+		return false;
 	}
 
 	/**
 	 * The compiler's {@code main} method.
 	 * 
+	 * With {@code --batch}, all source files given are compiled concurrently
+	 * (see {@link Batch}).
+	 * 
 	 * @param args Command line arguments.
 	 */
 	public static void main(String[] args) {
+		if (Arrays.asList(args).contains("--batch")) {
+			Batch.main(args);
+			return;
+		}
+		new Compilation(System.out, System.err).run(() -> compile(args));
+	}
+
+	/**
+	 * Compiles a single source file within the current compilation (see
+	 * {@link Compilation}).
+	 * 
+	 * @param args Command line arguments.
+	 * @return {@code true} if the compilation has been completed, {@code false}
+	 *         if it has been stopped.
+	 */
+	public static boolean compile(String[] args) {
+		Compilation compilation = Compilation.current();
+		HashMap<String, String> cmdLine = compilation.cmdLine;
+		boolean done = false;
 		try {
 			Report.info("This is PREV compiler:");
 
@@ -70,12 +122,60 @@ public class Main {
 							continue;
 						}
 					}
+					if (args[argc].matches("--dumped-phase=(" + phases + "|all)")) {
+						if (cmdLine.get("--dumped-phase") == null) {
+							cmdLine.put("--dumped-phase", args[argc].replaceFirst("^[^=]*=", ""));
+							continue;
+						}
+					}
+					if (args[argc].matches("--lexer=(reader|mapped|threaded)")) {
+						if (cmdLine.get("--lexer") == null) {
+							cmdLine.put("--lexer", args[argc].replaceFirst("^[^=]*=", ""));
+							continue;
+						}
+					}
+					if (args[argc].matches("--ralloc=(graph|linear)")) {
+						if (cmdLine.get("--ralloc") == null) {
+							cmdLine.put("--ralloc", args[argc].replaceFirst("^[^=]*=", ""));
+							continue;
+						}
+					}
+					if (args[argc].matches("--jobs=[1-9][0-9]{0,3}")) {
+						if (cmdLine.get("--jobs") == null) {
+							cmdLine.put("--jobs", args[argc].replaceFirst("^[^=]*=", ""));
+							continue;
+						}
+					}
+					if (args[argc].matches("--interpreter=(tree|bytecode|closure)")) {
+						if (cmdLine.get("--interpreter") == null) {
+							cmdLine.put("--interpreter", args[argc].replaceFirst("^[^=]*=", ""));
+							continue;
+						}
+					}
+					if (args[argc].matches("--max-errors=[1-9][0-9]{0,8}")) {
+						if (cmdLine.get("--max-errors") == null) {
+							cmdLine.put("--max-errors", args[argc].replaceFirst("^[^=]*=", ""));
+							continue;
+						}
+					}
+					if (args[argc].matches("--incremental=.+")) {
+						if (cmdLine.get("--incremental") == null) {
+							cmdLine.put("--incremental", args[argc].replaceFirst("^[^=]*=", ""));
+							continue;
+						}
+					}
 					if (args[argc].matches("--xml=.*")) {
 						if (cmdLine.get("--xml") == null) {
 							cmdLine.put("--xml", args[argc].replaceFirst("^[^=]*=", ""));
 							continue;
 						}
 					}
+					if (args[argc].matches("--stats=.*")) {
+						if (cmdLine.get("--stats") == null) {
+							cmdLine.put("--stats", args[argc].replaceFirst("^[^=]*=", ""));
+							continue;
+						}
+					}
 					if (args[argc].matches("--xsl=.*")) {
 						if (cmdLine.get("--xsl") == null) {
 							cmdLine.put("--xsl", args[argc].replaceFirst("^[^=]*=", ""));
@@ -101,6 +201,12 @@ public class Main {
 			if (cmdLine.get("--target-phase") == null) {
 				cmdLine.put("--target-phase", phases.replaceFirst("^.*\\|", ""));
 			}
+			if (cmdLine.get("--stats") != null) {
+				Stats.enable();
+			}
+			if (cmdLine.get("--max-errors") != null) {
+				Report.maxErrors(Integer.parseInt(cmdLine.get("--max-errors")));
+			}
 
 			// Compile, phase by phase.
 			do {
@@ -116,43 +222,49 @@ public class Main {
 				}
 
 				// Syntax analysis.
+				// (The derivation tree is constructed only if it is logged or the target.)
 				try (SynAn synan = new SynAn()) {
-					synan.parser();
-					SynAn.derTree.accept(new DerLogger(synan.logger), null);
+					if ((synan.logger == null) && !cmdLine.get("--target-phase").equals("synan"))
+						compilation.absTree = synan.absParser();
+					else {
+						synan.parser();
+						compilation.derTree.accept(new DerLogger(synan.logger), null);
+					}
 				}
 				if (cmdLine.get("--target-phase").equals("synan"))
 					break;
 
 				// Abstract syntax.
 				try (Abstr abstr = new Abstr()) {
-					Abstr.absTree = SynAn.derTree.accept(new AbsTreeConstructor(), null);
+					if (compilation.derTree != null)
+						compilation.absTree = compilation.derTree.accept(new AbsTreeConstructor(), null);
 					AbsLogger logger = new AbsLogger(abstr.logger);
-					Abstr.absTree.accept(logger, null);
+					compilation.absTree.accept(logger, null);
 				}
 				if (cmdLine.get("--target-phase").equals("abstr"))
 					break;
 
 				// Semantic analysis.
 				try (SemAn seman = new SemAn()) {
-					Abstr.absTree.accept(new NameResolver(), null);
-					Abstr.absTree.accept(new TypeResolver(), null);
-					Abstr.absTree.accept(new AddrResolver(), null);
+					compilation.absTree.accept(new SemResolver(), null);
 					SemAn.declaredAt.lock();
 					SemAn.declaresType.lock();
 					SemAn.isType.lock();
 					SemAn.ofType.lock();
 					SemAn.isAddr.lock();
 
-					AbsLogger logger = new AbsLogger(seman.logger);
-					logger.addSubvisitor(new SemLogger(seman.logger));
-					Abstr.absTree.accept(logger, null);
+					if (seman.logger != null) {
+						AbsLogger logger = new AbsLogger(seman.logger);
+						logger.addSubvisitor(new SemLogger(seman.logger));
+						compilation.absTree.accept(logger, null);
+					}
 				}
 				if (cmdLine.get("--target-phase").equals("seman"))
 					break;
 
 				// Memory layout, i.e., frames and accesses.
 				try (Frames frames = new Frames()) {
-					Abstr.absTree.accept(new FrmEvaluator(), null);
+					compilation.absTree.accept(new FrmEvaluator(), null);
 					Frames.frames.lock();
 					Frames.accesses.lock();
 					Frames.strings.lock();
@@ -160,14 +272,14 @@ public class Main {
 					AbsLogger logger = new AbsLogger(frames.logger);
 					logger.addSubvisitor(new SemLogger(frames.logger));
 					logger.addSubvisitor(new FrmLogger(frames.logger));
-					Abstr.absTree.accept(logger, null);
+					compilation.absTree.accept(logger, null);
 				}
 				if (cmdLine.get("--target-phase").equals("frames"))
 					break;
 
 				// Intermediate code generation.
 				try (ImcGen imcGen = new ImcGen()) {
-					Abstr.absTree.accept(new CodeGenerator(), new Stack<compiler.data.layout.Frame>());
+					compilation.absTree.accept(new CodeGenerator(), new Stack<compiler.data.layout.Frame>());
 					ImcGen.stmtImCode.lock();
 					ImcGen.exprImCode.lock();
 
@@ -175,17 +287,37 @@ public class Main {
 					logger.addSubvisitor(new SemLogger(imcGen.logger));
 					logger.addSubvisitor(new FrmLogger(imcGen.logger));
 					logger.addSubvisitor(new ImcLogger(imcGen.logger));
-					Abstr.absTree.accept(logger, null);
+					compilation.absTree.accept(logger, null);
 				}
 				if (cmdLine.get("--target-phase").equals("imcgen"))
 					break;
 
+				// Incremental compilation.
+				// (The code is reused only if it is not logged or interpreted.)
+				if ((cmdLine.get("--incremental") != null) && cmdLine.get("--target-phase").equals("all")
+						&& !backEndLogged() && (cmdLine.get("--interpreter") == null)) {
+					try (FunCache cache = new FunCache()) {
+						compilation.funCache = cache;
+						cache.lookup((compiler.data.abstree.AbsSource) compilation.absTree, cmdLine.get("--incremental"));
+					}
+				}
+
 				// Chunks.
 				try (Chunks chunks = new Chunks()) {
-					Abstr.absTree.accept(new ChunkGenerator(), null);
+					compilation.absTree.accept(new ChunkGenerator(), null);
 					Chunks.cleanChunks();
 					chunks.log();
 				}
+				if (cmdLine.get("--interpreter") != null) {
+					long result;
+					if (cmdLine.get("--interpreter").equals("bytecode"))
+						result = new BytecodeInterpreter(compilation.dataChunks, compilation.codeChunks).run("_main");
+					else if (cmdLine.get("--interpreter").equals("closure"))
+						result = new ClosureInterpreter(compilation.dataChunks, compilation.codeChunks).run("_main");
+					else
+						result = new Interpreter(compilation.dataChunks, compilation.codeChunks).run("_main");
+					Report.info("Result: " + result);
+				}
 				if (cmdLine.get("--target-phase").equals("chunks"))
 					break;
 
@@ -219,7 +351,7 @@ public class Main {
 				try(Wrapup wrapup = new Wrapup(ralloc)){
 					wrapup.print();
 				} catch (IOException e) {
-					System.out.println("Could not write to file.");
+					compilation.out.println("Could not write to file.");
 				}
 
 				int endWarnings = Report.numOfWarnings();
@@ -228,8 +360,11 @@ public class Main {
 
 			} while (false);
 
+			done = true;
 			Report.info("Done.");
 		} catch (Report.Error __) {
 		}
+		Stats.write(cmdLine.get("--stats"), cmdLine.get("--src-file-name"), done);
+		return done;
 	}
 }
@@ -0,0 +1,364 @@
+package compiler.bench;
+
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+
+import compiler.*;
+import compiler.common.report.*;
+import compiler.data.layout.*;
+import compiler.data.symbol.*;
+import compiler.phases.lexan.*;
+import compiler.phases.synan.*;
+import compiler.phases.abstr.*;
+import compiler.phases.seman.*;
+import compiler.phases.frames.*;
+import compiler.phases.imcgen.*;
+import compiler.phases.chunks.*;
+import compiler.phases.asmcode.*;
+import compiler.phases.livean.*;
+import compiler.phases.ralloc.*;
+
+/**
+ * A benchmark of the individual phases of the compiler.
+ *
+ * Every program of the corpus is compiled up to and including register
+ * allocation in each iteration and the time and the memory allocated by each
+ * phase are measured separately. Each program is compiled within a
+ * compilation of its own (see {@link Compilation}) so that all programs are
+ * compiled in the same JVM.
+ * Warmup iterations are run first and are not measured.
+ *
+ * Usage: {@code java compiler.bench.PhaseBench [--warmup=N] [--iterations=N]
+ * [--lexer=reader|mapped|threaded] [--parser=derivation|direct]
+ * [--ralloc=graph|linear] [--synthetic=N]... (file|directory)...}
+ *
+ * Each {@code --synthetic=N} adds a program of about {@code N} lines produced
+ * by {@link ProgramGenerator}. The benchmark runs in a thread with a large
+ * stack as the phases are recursive and synthetic programs can be deeply
+ * nested.
+ *
+ * With {@code --parser=direct} (the default, as in {@link Main}) the abstract
+ * syntax tree is constructed by the parser itself and is thus measured as a
+ * part of the syntax analysis, while {@code --parser=derivation} constructs and
+ * measures the derivation tree and the abstract syntax tree separately.
+ *
+ * For each phase, the throughput in programs per second, the allocation rate
+ * and the memory allocated per program are reported as the mean over the
+ * measured iterations with its standard deviation.
+ */
+public class PhaseBench {
+
+	/** The names of the measured phases. */
+	private static final String[] phaseNames = { "lexan", "synan", "abstr", "seman", "frames", "imcgen",
+			"chunks.gen", "chunks.clean", "asmgen", "livean", "ralloc" };
+
+	/** The stack size of the thread running the benchmark. */
+	private static final long STACK_SIZE = 1L << 30;
+
+	private static final int LEXAN = 0;
+	private static final int SYNAN = 1;
+	private static final int ABSTR = 2;
+	private static final int SEMAN = 3;
+	private static final int FRAMES = 4;
+	private static final int IMCGEN = 5;
+	private static final int CHUNKGEN = 6;
+	private static final int CLEANCHUNKS = 7;
+	private static final int ASMGEN = 8;
+	private static final int LIVEAN = 9;
+	private static final int RALLOC = 10;
+
+	/** The source files of the programs in the corpus. */
+	private final Vector<String> corpus;
+
+	/** The time spent in each phase during the current iteration (in ns). */
+	private final long[] nanos = new long[phaseNames.length];
+
+	/** The memory allocated in each phase during the current iteration. */
+	private final long[] bytes = new long[phaseNames.length];
+
+	private final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	private long begNanos;
+
+	private long begBytes;
+
+	/**
+	 * Constructs a new benchmark.
+	 *
+	 * @param corpus The source files of the programs in the corpus.
+	 */
+	public PhaseBench(Vector<String> corpus) {
+		this.corpus = corpus;
+	}
+
+	private long allocatedBytes() {
+		return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private void begin() {
+		begBytes = allocatedBytes();
+		begNanos = System.nanoTime();
+	}
+
+	private void end(int phase) {
+		long endNanos = System.nanoTime();
+		nanos[phase] += endNanos - begNanos;
+		bytes[phase] += allocatedBytes() - begBytes;
+	}
+
+	/**
+	 * Compiles a single program and adds the time and memory used by each phase.
+	 *
+	 * @param srcFileName The source file of the program.
+	 */
+	private void compile(String srcFileName) {
+		Compilation compilation = new Compilation(System.out, System.err);
+		compilation.cmdLine.putAll(Compilation.current().cmdLine);
+		compilation.cmdLine.put("--src-file-name", srcFileName);
+		// The memory allocated by each phase is measured in this thread only.
+		compilation.cmdLine.put("--jobs", "1");
+		compilation.run(() -> {
+			compile(compilation);
+			return true;
+		});
+	}
+
+	/**
+	 * Compiles a single program within its compilation and adds the time and
+	 * memory used by each phase.
+	 *
+	 * @param compilation The compilation of the program.
+	 */
+	private void compile(Compilation compilation) {
+		begin();
+		try (LexAn lexan = new LexAn()) {
+			while (lexan.lexer().token != Symbol.Term.EOF)
+				;
+		}
+		end(LEXAN);
+
+		begin();
+		try (SynAn synan = new SynAn()) {
+			if ("derivation".equals(Main.cmdLineArgValue("--parser")))
+				synan.parser();
+			else
+				compilation.absTree = synan.absParser();
+		}
+		end(SYNAN);
+
+		begin();
+		if (compilation.derTree != null)
+			compilation.absTree = compilation.derTree.accept(new AbsTreeConstructor(), null);
+		end(ABSTR);
+
+		begin();
+		compilation.absTree.accept(new SemResolver(), null);
+		end(SEMAN);
+		SemAn.declaredAt.lock();
+		SemAn.declaresType.lock();
+		SemAn.isType.lock();
+		SemAn.ofType.lock();
+		SemAn.isAddr.lock();
+
+		begin();
+		compilation.absTree.accept(new FrmEvaluator(), null);
+		end(FRAMES);
+		Frames.frames.lock();
+		Frames.accesses.lock();
+		Frames.strings.lock();
+
+		begin();
+		compilation.absTree.accept(new CodeGenerator(), new Stack<Frame>());
+		end(IMCGEN);
+		ImcGen.stmtImCode.lock();
+		ImcGen.exprImCode.lock();
+
+		begin();
+		compilation.absTree.accept(new ChunkGenerator(), null);
+		end(CHUNKGEN);
+		begin();
+		Chunks.cleanChunks();
+		end(CLEANCHUNKS);
+
+		begin();
+		try (AsmGen asmgen = new AsmGen()) {
+			asmgen.genAsmCodes();
+		}
+		end(ASMGEN);
+
+		begin();
+		try (LiveAn livean = new LiveAn()) {
+			livean.chunksLiveness();
+		}
+		end(LIVEAN);
+
+		begin();
+		try (RAlloc ralloc = new RAlloc()) {
+			ralloc.tempsToRegs();
+		}
+		end(RALLOC);
+	}
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param warmup     The number of warmup iterations.
+	 * @param iterations The number of measured iterations.
+	 */
+	public void run(int warmup, int iterations) {
+		// Drop the programs that cannot be compiled.
+		for (Iterator<String> iter = corpus.iterator(); iter.hasNext();) {
+			String srcFileName = iter.next();
+			try {
+				compile(srcFileName);
+			} catch (Report.Error __) {
+				Report.warning("Program '" + srcFileName + "' ignored.");
+				iter.remove();
+			}
+		}
+		if (corpus.isEmpty())
+			throw new Report.Error("No program to benchmark.");
+
+		double[][] opsPerSec = new double[phaseNames.length][iterations];
+		double[][] mbPerSec = new double[phaseNames.length][iterations];
+		double[][] bytesPerOp = new double[phaseNames.length][iterations];
+		for (int iteration = -warmup; iteration < iterations; iteration++) {
+			Arrays.fill(nanos, 0);
+			Arrays.fill(bytes, 0);
+			for (String srcFileName : corpus)
+				compile(srcFileName);
+			if (iteration < 0)
+				continue;
+			for (int phase = 0; phase < phaseNames.length; phase++) {
+				double secs = nanos[phase] / 1e9;
+				opsPerSec[phase][iteration] = corpus.size() / secs;
+				mbPerSec[phase][iteration] = bytes[phase] / secs / (1 << 20);
+				bytesPerOp[phase][iteration] = (double) bytes[phase] / corpus.size();
+			}
+		}
+
+		System.out.printf("%-14s %5s %12s %10s %12s %10s %14s%n", "Phase", "Cnt", "ops/s", "Error", "MB/s",
+				"Error", "B/op");
+		for (int phase = 0; phase < phaseNames.length; phase++) {
+			System.out.printf("%-14s %5d %12.3f %10.3f %12.3f %10.3f %14.0f%n", phaseNames[phase], iterations,
+					mean(opsPerSec[phase]), stdDev(opsPerSec[phase]), mean(mbPerSec[phase]),
+					stdDev(mbPerSec[phase]), mean(bytesPerOp[phase]));
+		}
+	}
+
+	private static double mean(double[] values) {
+		double sum = 0;
+		for (double value : values)
+			sum += value;
+		return sum / values.length;
+	}
+
+	private static double stdDev(double[] values) {
+		if (values.length < 2)
+			return 0;
+		double mean = mean(values);
+		double sum = 0;
+		for (double value : values)
+			sum += (value - mean) * (value - mean);
+		return Math.sqrt(sum / (values.length - 1));
+	}
+
+	/**
+	 * Adds a source file or all source files within a directory to the corpus.
+	 */
+	private static void addToCorpus(Vector<String> corpus, File file) {
+		if (file.isDirectory()) {
+			File[] files = file.listFiles();
+			Arrays.sort(files);
+			for (File f : files)
+				if (f.isDirectory() || f.getName().matches(".*\\.(txt|prev)"))
+					addToCorpus(corpus, f);
+		} else if (file.isFile()) {
+			corpus.add(file.getPath());
+		} else {
+			Report.warning("Source file '" + file + "' does not exist.");
+		}
+	}
+
+	/**
+	 * Adds a synthetic program to the corpus.
+	 */
+	private static void addSyntheticToCorpus(Vector<String> corpus, int numOfLines) {
+		try {
+			File file = File.createTempFile("synthetic", ".txt");
+			file.deleteOnExit();
+			try (Writer out = new BufferedWriter(new FileWriter(file))) {
+				new ProgramGenerator(corpus.size()).generate(out, numOfLines);
+			}
+			corpus.add(file.getPath());
+		} catch (IOException __) {
+			throw new Report.Error("Cannot write a synthetic program.");
+		}
+	}
+
+	/**
+	 * The benchmark's {@code main} method.
+	 *
+	 * @param args Command line arguments.
+	 */
+	public static void main(String[] args) {
+		try {
+			int warmup = 5;
+			int iterations = 10;
+			Vector<String> corpus = new Vector<String>();
+			for (String arg : args) {
+				if (arg.matches("--warmup=[0-9]+")) {
+					warmup = Integer.parseInt(arg.replaceFirst("^[^=]*=", ""));
+					continue;
+				}
+				if (arg.matches("--iterations=[1-9][0-9]*")) {
+					iterations = Integer.parseInt(arg.replaceFirst("^[^=]*=", ""));
+					continue;
+				}
+				if (arg.matches("--ralloc=(graph|linear)")) {
+					Main.cmdLineArgValue("--ralloc", arg.replaceFirst("^[^=]*=", ""));
+					continue;
+				}
+				if (arg.matches("--lexer=(reader|mapped|threaded)")) {
+					Main.cmdLineArgValue("--lexer", arg.replaceFirst("^[^=]*=", ""));
+					continue;
+				}
+				if (arg.matches("--parser=(derivation|direct)")) {
+					Main.cmdLineArgValue("--parser", arg.replaceFirst("^[^=]*=", ""));
+					continue;
+				}
+				if (arg.matches("--synthetic=[1-9][0-9]*")) {
+					addSyntheticToCorpus(corpus, Integer.parseInt(arg.replaceFirst("^[^=]*=", "")));
+					continue;
+				}
+				if (arg.startsWith("--")) {
+					Report.warning("Command line argument '" + arg + "' ignored.");
+					continue;
+				}
+				addToCorpus(corpus, new File(arg));
+			}
+			PhaseBench bench = new PhaseBench(corpus);
+			int numOfWarmups = warmup;
+			int numOfIterations = iterations;
+			boolean[] failed = { false };
+			Thread thread = new Thread(null, () -> {
+				try {
+					bench.run(numOfWarmups, numOfIterations);
+				} catch (Report.Error __) {
+					failed[0] = true;
+				}
+			}, "bench", STACK_SIZE);
+			thread.start();
+			thread.join();
+			if (failed[0])
+				System.exit(1);
+		} catch (Report.Error __) {
+			System.exit(1);
+		} catch (InterruptedException __) {
+			System.exit(1);
+		}
+	}
+
+}
@@ -0,0 +1,722 @@
+package compiler.bench;
+
+import java.io.*;
+import java.util.*;
+
+import compiler.common.report.*;
+
+/**
+ * A generator of synthetic PREV programs for testing the compiler at scale.
+ *
+ * The generated programs follow the grammar in {@code cfg.txt} and are type
+ * correct: they declare records, arrays and pointers that refer to each other,
+ * global variables of these types and functions with nested functions that
+ * access the variables of their enclosing functions, deeply nested while and
+ * if statements and large expressions. The programs are meant to be compiled,
+ * not run, so neither termination nor the absence of runtime errors is
+ * guaranteed. The same seed and parameters always produce the same program.
+ *
+ * Usage: {@code java compiler.bench.ProgramGenerator [--seed=N] [--lines=N]
+ * [--types=N] [--stmts=N] [--depth=N] [--nesting=N] [--expr-size=N]
+ * [--out=file]}
+ *
+ * Note that large or deeply nested programs need a larger stack and heap than
+ * the JVM provides by default in order to be compiled (see {@code -Xss} and
+ * {@code -Xmx}).
+ */
+public class ProgramGenerator {
+
+	private static final int VOID = 0;
+	private static final int INT = 1;
+	private static final int CHAR = 2;
+	private static final int BOOL = 3;
+	private static final int PTR = 4;
+	private static final int ARR = 5;
+	private static final int REC = 6;
+
+	private static final int DEFAULT_TYPES = 20;
+	private static final int DEFAULT_STMTS = 20;
+	private static final int DEFAULT_DEPTH = 6;
+	private static final int DEFAULT_NESTING = 2;
+	private static final int DEFAULT_EXPR_SIZE = 10;
+
+	private static final int INF = Integer.MAX_VALUE / 2;
+
+	/** The maximal number of steps (indexing, component access, dereferencing) of an access. */
+	private static final int MAX_STEPS = 4;
+
+	/** A type of the generated program. */
+	private static class Type {
+
+		final int id;
+
+		final int kind;
+
+		/** The name of a record or an array type. */
+		String name;
+
+		/** The element type of an array or the pointed-to type of a pointer. */
+		Type elem;
+
+		/** The length of an array. */
+		int len;
+
+		final Vector<String> compNames = new Vector<String>();
+
+		final Vector<Type> compTypes = new Vector<Type>();
+
+		/** The pointer to this type or {@code null} if there is none. */
+		Type ptr;
+
+		Type(int id, int kind) {
+			this.id = id;
+			this.kind = kind;
+		}
+
+		boolean isScalar() {
+			return kind == INT || kind == CHAR || kind == BOOL || kind == PTR;
+		}
+
+		@Override
+		public String toString() {
+			switch (kind) {
+			case VOID:
+				return "void";
+			case INT:
+				return "int";
+			case CHAR:
+				return "char";
+			case BOOL:
+				return "bool";
+			case PTR:
+				return "ptr " + elem;
+			default:
+				return name;
+			}
+		}
+
+	}
+
+	private static class Var {
+
+		final String name;
+
+		final Type type;
+
+		Var(String name, Type type) {
+			this.name = name;
+			this.type = type;
+		}
+
+	}
+
+	private static class Fun {
+
+		final String name;
+
+		final Vector<Type> parTypes;
+
+		final Type resType;
+
+		Fun(String name, Vector<Type> parTypes, Type resType) {
+			this.name = name;
+			this.parTypes = parTypes;
+			this.resType = resType;
+		}
+
+	}
+
+	/** A scope of variables and functions, i.e., the global scope or a function. */
+	private static class Scope {
+
+		final Scope outer;
+
+		final Vector<Var> vars = new Vector<Var>();
+
+		/** Functions declared in this scope, listed by the id of their result type. */
+		final HashMap<Integer, Vector<Fun>> funs = new HashMap<Integer, Vector<Fun>>();
+
+		/** The number of enclosing functions. */
+		final int nesting;
+
+		Scope(Scope outer) {
+			this.outer = outer;
+			this.nesting = outer == null ? 0 : outer.nesting + 1;
+		}
+
+		void add(Fun fun) {
+			Vector<Fun> funs = this.funs.get(fun.resType.id);
+			if (funs == null)
+				this.funs.put(fun.resType.id, funs = new Vector<Fun>());
+			funs.add(fun);
+		}
+
+	}
+
+	/** An access to a variable or a part of it. */
+	private static class Access {
+
+		final String text;
+
+		final Type type;
+
+		/** Whether the last step of this access is dereferencing. */
+		final boolean deref;
+
+		Access(String text, Type type, boolean deref) {
+			this.text = text;
+			this.type = type;
+			this.deref = deref;
+		}
+
+	}
+
+	private final Random rnd;
+
+	private final int numOfTypes;
+
+	private final int numOfStmts;
+
+	private final int maxDepth;
+
+	private final int maxNesting;
+
+	private final int exprSize;
+
+	private final Vector<Type> types = new Vector<Type>();
+
+	/** The scalar types, i.e., the types of parameters, results and assignments. */
+	private final Vector<Type> scalarTypes = new Vector<Type>();
+
+	private Type voidType, intType, charType, boolType;
+
+	/** The number of steps needed to access a value of one type within a value of another. */
+	private int[][] dist;
+
+	/** The number of steps needed to access a scalar value within a value of a type. */
+	private int[] scalarDist;
+
+	private int numOfNames = 0;
+
+	/**
+	 * Constructs a new generator.
+	 *
+	 * @param seed       The seed of the random generator.
+	 * @param numOfTypes The number of record and array types.
+	 * @param numOfStmts The number of statements in a function body.
+	 * @param maxDepth   The maximal nesting depth of statements.
+	 * @param maxNesting The maximal nesting depth of functions.
+	 * @param exprSize   The typical number of operands in an expression.
+	 */
+	public ProgramGenerator(long seed, int numOfTypes, int numOfStmts, int maxDepth, int maxNesting, int exprSize) {
+		this.rnd = new Random(seed);
+		this.numOfTypes = numOfTypes;
+		this.numOfStmts = numOfStmts;
+		this.maxDepth = maxDepth;
+		this.maxNesting = maxNesting;
+		this.exprSize = exprSize;
+	}
+
+	/**
+	 * Constructs a new generator with the default parameters.
+	 *
+	 * @param seed The seed of the random generator.
+	 */
+	public ProgramGenerator(long seed) {
+		this(seed, DEFAULT_TYPES, DEFAULT_STMTS, DEFAULT_DEPTH, DEFAULT_NESTING, DEFAULT_EXPR_SIZE);
+	}
+
+	private String newName(String prefix) {
+		return prefix + (numOfNames++);
+	}
+
+	private <T> T pick(List<T> elems) {
+		return elems.get(rnd.nextInt(elems.size()));
+	}
+
+	private Type newType(int kind) {
+		Type type = new Type(types.size(), kind);
+		types.add(type);
+		return type;
+	}
+
+	private Type ptrTo(Type type) {
+		if (type.ptr == null) {
+			type.ptr = newType(PTR);
+			type.ptr.elem = type;
+			scalarTypes.add(type.ptr);
+		}
+		return type.ptr;
+	}
+
+	/**
+	 * Creates all types and computes the distances between them.
+	 */
+	private void genTypes() {
+		voidType = newType(VOID);
+		scalarTypes.add(intType = newType(INT));
+		scalarTypes.add(charType = newType(CHAR));
+		scalarTypes.add(boolType = newType(BOOL));
+		ptrTo(intType);
+
+		// Records and arrays contain earlier records and arrays only, but they
+		// can point to any of them.
+		Vector<Type> compTypes = new Vector<Type>();
+		for (int t = 0; t < numOfTypes; t++) {
+			Type type = newType(rnd.nextInt(2) == 0 ? REC : ARR);
+			type.name = newName("t");
+			ptrTo(type);
+			compTypes.add(type);
+		}
+		for (int t = 0; t < compTypes.size(); t++) {
+			Type type = compTypes.get(t);
+			if (type.kind == ARR) {
+				type.len = 1 + rnd.nextInt(16);
+				type.elem = elemType(compTypes, t);
+			} else {
+				int numOfComps = 1 + rnd.nextInt(6);
+				for (int c = 0; c < numOfComps; c++) {
+					type.compNames.add("c" + c);
+					type.compTypes.add(elemType(compTypes, t));
+				}
+			}
+		}
+
+		int size = types.size();
+		dist = new int[size][size];
+		scalarDist = new int[size];
+		for (Type type : types) {
+			Arrays.fill(dist[type.id], INF);
+			dist[type.id][type.id] = 0;
+			scalarDist[type.id] = type.isScalar() ? 0 : INF;
+		}
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (Type type : types) {
+				for (Type next : steps(type)) {
+					for (int t = 0; t < size; t++) {
+						if (dist[next.id][t] + 1 < dist[type.id][t]) {
+							dist[type.id][t] = dist[next.id][t] + 1;
+							changed = true;
+						}
+					}
+					if (scalarDist[next.id] + 1 < scalarDist[type.id]) {
+						scalarDist[type.id] = scalarDist[next.id] + 1;
+						changed = true;
+					}
+				}
+			}
+		}
+	}
+
+	private Type elemType(Vector<Type> compTypes, int t) {
+		switch (rnd.nextInt(6)) {
+		case 0:
+			return t == 0 ? intType : compTypes.get(rnd.nextInt(t));
+		case 1:
+			return pick(compTypes).ptr;
+		case 2:
+			return ptrTo(intType);
+		default:
+			return scalarTypes.get(rnd.nextInt(3));
+		}
+	}
+
+	/** Returns the types of values directly accessible within a value of a type. */
+	private Vector<Type> steps(Type type) {
+		Vector<Type> steps = new Vector<Type>();
+		switch (type.kind) {
+		case ARR:
+		case PTR:
+			steps.add(type.elem);
+			break;
+		case REC:
+			steps.addAll(type.compTypes);
+			break;
+		}
+		return steps;
+	}
+
+	private int dist(Type from, Type to) {
+		return to == null ? scalarDist[from.id] : dist[from.id][to.id];
+	}
+
+	/**
+	 * Returns an access to a value of the given type or {@code null} if no
+	 * variable in scope contains such value.
+	 *
+	 * @param scope The scope.
+	 * @param type  The type of the value or {@code null} for any scalar type.
+	 */
+	private Access access(Scope scope, Type type) {
+		Vector<Var> vars = new Vector<Var>();
+		for (Scope s = scope; s != null; s = s.outer)
+			for (Var var : s.vars)
+				if (dist(var.type, type) <= MAX_STEPS)
+					vars.add(var);
+		if (vars.isEmpty())
+			return null;
+		Var var = pick(vars);
+		String text = var.name;
+		Type cur = var.type;
+		int steps = 0;
+		boolean deref = false;
+		while (true) {
+			boolean done = type == null ? cur.isScalar() : cur == type;
+			if (done && (steps == MAX_STEPS || rnd.nextInt(3) == 0))
+				return new Access(text, cur, deref);
+			Vector<Integer> nexts = new Vector<Integer>();
+			Vector<Type> curSteps = steps(cur);
+			for (int s = 0; s < curSteps.size(); s++) {
+				int d = dist(curSteps.get(s), type);
+				if (d < dist(cur, type) || (d < INF && steps + 1 + d <= MAX_STEPS))
+					nexts.add(s);
+			}
+			if (nexts.isEmpty())
+				return new Access(text, cur, deref);
+			int comp = pick(nexts);
+			Type next = curSteps.get(comp);
+			switch (cur.kind) {
+			case ARR: {
+				// Indices contain no casts as the types of casts within a component
+				// access are not resolved.
+				Access index = rnd.nextInt(5) == 0 ? access(scope, intType) : null;
+				if (index != null)
+					text = text + "[(" + index.text + " % " + cur.len + ")]";
+				else
+					text = text + "[" + rnd.nextInt(cur.len) + "]";
+				break;
+			}
+			case REC:
+				text = text + "." + cur.compNames.get(comp);
+				break;
+			case PTR:
+				text = "(@" + text + ")";
+				break;
+			}
+			deref = cur.kind == PTR;
+			cur = next;
+			steps++;
+		}
+	}
+
+	private Fun fun(Scope scope, Type resType) {
+		Vector<Vector<Fun>> levels = new Vector<Vector<Fun>>();
+		int numOfFuns = 0;
+		for (Scope s = scope; s != null; s = s.outer) {
+			Vector<Fun> funs = s.funs.get(resType.id);
+			if (funs != null) {
+				levels.add(funs);
+				numOfFuns += funs.size();
+			}
+		}
+		if (numOfFuns == 0)
+			return null;
+		int f = rnd.nextInt(numOfFuns);
+		for (Vector<Fun> funs : levels) {
+			if (f < funs.size())
+				return funs.get(f);
+			f -= funs.size();
+		}
+		return null;
+	}
+
+	private String call(Scope scope, Fun fun, int size) {
+		StringBuilder text = new StringBuilder(fun.name + "(");
+		int argSize = Math.max(1, size / Math.max(1, fun.parTypes.size()));
+		for (int a = 0; a < fun.parTypes.size(); a++)
+			text.append((a > 0 ? ", " : "") + expr(scope, fun.parTypes.get(a), argSize));
+		return text.append(")").toString();
+	}
+
+	/**
+	 * Returns an expression of a scalar type.
+	 *
+	 * @param scope The scope.
+	 * @param type  The type of the expression.
+	 * @param size  The number of operands of the expression.
+	 */
+	private String expr(Scope scope, Type type, int size) {
+		if (size > 1) {
+			// Nearly balanced operands keep large expressions wide rather than deep.
+			int left = Math.max(1, Math.min(size - 1, size / 2 + rnd.nextInt(size / 4 + 1) - size / 8));
+			int right = size - left;
+			int choice = rnd.nextInt(12);
+			if (choice == 0) {
+				Fun fun = fun(scope, type);
+				if (fun != null)
+					return call(scope, fun, size - 1);
+			}
+			switch (type.kind) {
+			case INT:
+				switch (choice) {
+				case 2:
+					return "-(" + expr(scope, intType, size) + ")";
+				case 3:
+					return "(" + expr(scope, charType, size) + " : int)";
+				case 4:
+				case 5:
+					return "(" + expr(scope, intType, size - 1) + (choice == 4 ? " / " : " % ")
+							+ (1 + rnd.nextInt(9)) + ")";
+				case 6:
+					return "(" + expr(scope, charType, left) + " " + "+-".charAt(rnd.nextInt(2)) + " "
+							+ expr(scope, charType, right) + ")";
+				default:
+					return "(" + expr(scope, intType, left) + " " + "+-*".charAt(rnd.nextInt(3)) + " "
+							+ expr(scope, intType, right) + ")";
+				}
+			case CHAR:
+				return "(" + expr(scope, intType, size) + " : char)";
+			case BOOL:
+				switch (choice) {
+				case 2:
+					return "!(" + expr(scope, boolType, size) + ")";
+				case 3:
+				case 4:
+				case 5:
+				case 6: {
+					Type opType = choice == 3 ? charType : (choice == 4 ? pick(scalarTypes) : intType);
+					String oper = opType.kind == PTR || opType.kind == BOOL ? (rnd.nextInt(2) == 0 ? "==" : "!=")
+							: new String[] { "==", "!=", "<", "<=", ">", ">=" }[rnd.nextInt(6)];
+					return "(" + expr(scope, opType, left) + " " + oper + " " + expr(scope, opType, right)
+							+ ")";
+				}
+				default:
+					return "(" + expr(scope, boolType, left) + " " + "&|^".charAt(rnd.nextInt(3)) + " "
+							+ expr(scope, boolType, right) + ")";
+				}
+			case PTR:
+				break;
+			}
+		}
+		if (rnd.nextInt(3) != 0) {
+			Access access = access(scope, type);
+			if (access != null)
+				return access.text;
+		}
+		switch (type.kind) {
+		case INT:
+			return Integer.toString(rnd.nextInt(1000));
+		case CHAR:
+			return "'" + (char) ('a' + rnd.nextInt(26)) + "'";
+		case BOOL:
+			return rnd.nextInt(2) == 0 ? "true" : "false";
+		default:
+			if (rnd.nextInt(2) == 0) {
+				// Taking the address of a dereferenced pointer is not supported.
+				Access access = access(scope, type.elem);
+				if (access != null && !access.deref)
+					return "$" + access.text;
+			}
+			return "new(" + type.elem + ")";
+		}
+	}
+
+	private int exprSize() {
+		// Mostly small expressions with an occasional huge one.
+		if (rnd.nextInt(100) == 0)
+			return exprSize * 20;
+		return 1 + rnd.nextInt(exprSize);
+	}
+
+	private void indent(StringBuilder out, int indent) {
+		for (int i = 0; i < indent; i++)
+			out.append('\t');
+	}
+
+	private void stmts(StringBuilder out, Scope scope, int numOfStmts, int depth, int indent) {
+		for (int s = 0; s < numOfStmts; s++)
+			stmt(out, scope, depth, indent);
+	}
+
+	private void stmt(StringBuilder out, Scope scope, int depth, int indent) {
+		int choice = rnd.nextInt(10);
+		indent(out, indent);
+		if (choice < 2 && depth < maxDepth) {
+			out.append("if " + expr(scope, boolType, exprSize()) + " then\n");
+			stmts(out, scope, 1 + rnd.nextInt(3), depth + 1, indent + 1);
+			if (rnd.nextInt(2) == 0) {
+				indent(out, indent);
+				out.append("else\n");
+				stmts(out, scope, 1 + rnd.nextInt(3), depth + 1, indent + 1);
+			}
+			indent(out, indent);
+			out.append("end;\n");
+			return;
+		}
+		if (choice < 3 && depth < maxDepth) {
+			out.append("while " + expr(scope, boolType, exprSize()) + " do\n");
+			stmts(out, scope, 1 + rnd.nextInt(3), depth + 1, indent + 1);
+			indent(out, indent);
+			out.append("end;\n");
+			return;
+		}
+		if (choice < 4) {
+			Fun fun = fun(scope, choice == 3 ? voidType : pick(scalarTypes));
+			if (fun != null) {
+				out.append(call(scope, fun, exprSize()) + ";\n");
+				return;
+			}
+		}
+		Access dst = access(scope, null);
+		out.append(dst.text + " = " + expr(scope, dst.type, exprSize()) + ";\n");
+	}
+
+	/**
+	 * Generates a function with nested functions.
+	 *
+	 * @param out    The output.
+	 * @param scope  The scope the function is declared in.
+	 * @param fun    The function.
+	 * @param indent The indentation of the declaration.
+	 */
+	private void fun(StringBuilder out, Scope scope, Fun fun, int indent) {
+		Scope body = new Scope(scope);
+		indent(out, indent);
+		out.append("fun " + fun.name + "(");
+		for (int p = 0; p < fun.parTypes.size(); p++) {
+			Var par = new Var(newName("p"), fun.parTypes.get(p));
+			body.vars.add(par);
+			out.append((p > 0 ? ", " : "") + par.name + " : " + par.type);
+		}
+		out.append(") : " + fun.resType + " = {\n");
+
+		int numOfVars = 1 + rnd.nextInt(6);
+		for (int v = 0; v < numOfVars; v++)
+			body.vars.add(new Var(newName("l"), v == 0 ? intType : pick(types.subList(1, types.size()))));
+		StringBuilder nested = new StringBuilder();
+		if (body.nesting <= maxNesting) {
+			int numOfFuns = rnd.nextInt(3);
+			for (int f = 0; f < numOfFuns; f++) {
+				Fun nestedFun = newFun();
+				fun(nested, body, nestedFun, indent + 2);
+				body.add(nestedFun);
+			}
+		}
+
+		stmts(out, body, 1 + rnd.nextInt(numOfStmts), 0, indent + 1);
+		indent(out, indent + 1);
+		out.append(": " + (fun.resType == voidType ? "none" : expr(body, fun.resType, exprSize())) + "\n");
+		indent(out, indent);
+		out.append("where\n");
+		for (Var var : body.vars.subList(fun.parTypes.size(), body.vars.size())) {
+			indent(out, indent + 2);
+			out.append("var " + var.name + " : " + var.type + ";\n");
+		}
+		out.append(nested);
+		indent(out, indent);
+		out.append("};\n");
+	}
+
+	private Fun newFun() {
+		Vector<Type> parTypes = new Vector<Type>();
+		int numOfPars = rnd.nextInt(5);
+		for (int p = 0; p < numOfPars; p++)
+			parTypes.add(pick(scalarTypes));
+		Type resType = rnd.nextInt(4) == 0 ? voidType : pick(scalarTypes);
+		return new Fun(newName("f"), parTypes, resType);
+	}
+
+	/**
+	 * Generates a program.
+	 *
+	 * @param out        The output.
+	 * @param numOfLines The minimal number of lines of the program.
+	 */
+	public void generate(Writer out, int numOfLines) throws IOException {
+		int lines = 0;
+		genTypes();
+		StringBuilder text = new StringBuilder();
+		for (Type type : types) {
+			if (type.kind == ARR)
+				text.append("typ " + type.name + " : arr [" + type.len + "] " + type.elem + ";\n");
+			if (type.kind == REC) {
+				text.append("typ " + type.name + " : rec (");
+				for (int c = 0; c < type.compNames.size(); c++)
+					text.append((c > 0 ? ", " : "") + type.compNames.get(c) + " : " + type.compTypes.get(c));
+				text.append(");\n");
+			}
+		}
+		Scope global = new Scope(null);
+		for (Type type : types.subList(1, types.size())) {
+			Var var = new Var(newName("g"), type);
+			global.vars.add(var);
+			text.append("var " + var.name + " : " + var.type + ";\n");
+		}
+
+		Vector<Fun> funs = new Vector<Fun>();
+		do {
+			Fun fun = newFun();
+			fun(text, global, fun, 0);
+			global.add(fun);
+			funs.add(fun);
+			lines += lines(text);
+			out.write(text.toString());
+			text.setLength(0);
+		} while (lines < numOfLines);
+
+		text.append("fun main() : int = {\n");
+		for (Fun fun : funs.subList(Math.max(0, funs.size() - 10), funs.size()))
+			text.append("\t" + call(global, fun, fun.parTypes.size()) + ";\n");
+		text.append("\t: 0\n};\n");
+		out.write(text.toString());
+	}
+
+	private static int lines(StringBuilder text) {
+		int lines = 0;
+		for (int c = 0; c < text.length(); c++)
+			if (text.charAt(c) == '\n')
+				lines++;
+		return lines;
+	}
+
+	/**
+	 * The generator's {@code main} method.
+	 *
+	 * @param args Command line arguments.
+	 */
+	public static void main(String[] args) {
+		try {
+			long seed = 0;
+			int lines = 10000;
+			int types = DEFAULT_TYPES;
+			int stmts = DEFAULT_STMTS;
+			int depth = DEFAULT_DEPTH;
+			int nesting = DEFAULT_NESTING;
+			int exprSize = DEFAULT_EXPR_SIZE;
+			String outFileName = null;
+			for (String arg : args) {
+				String value = arg.replaceFirst("^[^=]*=", "");
+				if (arg.matches("--seed=-?[0-9]+"))
+					seed = Long.parseLong(value);
+				else if (arg.matches("--lines=[0-9]+"))
+					lines = Integer.parseInt(value);
+				else if (arg.matches("--types=[1-9][0-9]*"))
+					types = Integer.parseInt(value);
+				else if (arg.matches("--stmts=[1-9][0-9]*"))
+					stmts = Integer.parseInt(value);
+				else if (arg.matches("--depth=[0-9]+"))
+					depth = Integer.parseInt(value);
+				else if (arg.matches("--nesting=[0-9]+"))
+					nesting = Integer.parseInt(value);
+				else if (arg.matches("--expr-size=[1-9][0-9]*"))
+					exprSize = Integer.parseInt(value);
+				else if (arg.matches("--out=.+"))
+					outFileName = value;
+				else
+					Report.warning("Command line argument '" + arg + "' ignored.");
+			}
+			ProgramGenerator generator = new ProgramGenerator(seed, types, stmts, depth, nesting, exprSize);
+			try (Writer out = new BufferedWriter(
+					outFileName == null ? new OutputStreamWriter(System.out) : new FileWriter(outFileName))) {
+				generator.generate(out, lines);
+			} catch (IOException __) {
+				throw new Report.Error("Cannot write the program.");
+			}
+		} catch (Report.Error __) {
+			System.exit(1);
+		}
+	}
+
+}
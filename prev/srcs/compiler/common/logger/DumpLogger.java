@@ -0,0 +1,297 @@
+package compiler.common.logger;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import compiler.common.report.*;
+
+/**
+ * A logger producing compact binary dumps of compiler internal data
+ * structures. A dump can be converted to the XML log that {@link Logger} would
+ * have produced using {@link DumpReader}.
+ * 
+ * A dump starts with the magic bytes, the format version, the name of the
+ * phase and the name of the relating XSL file, followed by the sequence of
+ * elements and attributes as they were logged. Each event starts with its
+ * opcode:
+ * 
+ * <ul>
+ * <li>{@code BEG} tag: starts a new element,</li>
+ * <li>{@code END}: ends the active element (the last one ends the element
+ * representing the entire phase),</li>
+ * <li>{@code STR} name value: adds an attribute,</li>
+ * <li>{@code INT} name value: adds an attribute with a decimal integer value
+ * (e.g., node ids, sizes, offsets),</li>
+ * <li>{@code LOC} name begLine begColumn endLine endColumn: adds an attribute
+ * with the value of the form of a {@link Location}.</li>
+ * </ul>
+ * 
+ * All integers are written as (zig-zag encoded) varints. Strings are
+ * referenced through a string table built while the dump is written: a string
+ * is either defined (and added to the table), written as a literal (once the
+ * table is full) or referred to by its index in the table.
+ */
+public class DumpLogger extends Logger {
+
+	/** The magic bytes at the beginning of each dump. */
+	static final byte[] MAGIC = { 'P', 'R', 'E', 'V', 'D', 'U', 'M', 'P' };
+
+	/** The version of the dump format. */
+	static final int VERSION = 1;
+
+	static final int BEG = 0;
+	static final int END = 1;
+	static final int STR = 2;
+	static final int INT = 3;
+	static final int LOC = 4;
+
+	/** The string reference introducing a new string in the string table. */
+	static final int DEFINED = 0;
+
+	/** The string reference introducing a string not in the string table. */
+	static final int LITERAL = 1;
+
+	/** The string reference to the first string in the string table. */
+	static final int FIRST = 2;
+
+	/** The maximal number of strings in the string table. */
+	private static final int MAX_STRINGS = 1 << 16;
+
+	/** The size of the buffer of the dump file. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** The name of the dump file to be produced. */
+	private final String dumpFileName;
+
+	/** The dump file (or {@code null} if it cannot be written). */
+	private FileChannel dumpFile;
+
+	/** The buffer of the dump file. */
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	/** The string table (mapping strings to their indices). */
+	private final HashMap<String, Integer> strings = new HashMap<String, Integer>();
+
+	/** The number of open elements. */
+	private int depth = 1;
+
+	/**
+	 * Constructs a new dump logger.
+	 * 
+	 * @param phaseName    The name of the phase being dumped.
+	 * @param dumpFileName The name of the dump file to be produced.
+	 * @param xslFileName  The name of the relating XSL file.
+	 */
+	public DumpLogger(String phaseName, String dumpFileName, String xslFileName) {
+		super(xslFileName);
+		this.dumpFileName = dumpFileName;
+		try {
+			dumpFile = FileChannel.open(Paths.get(dumpFileName), StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			buffer.put(MAGIC);
+			writeInt(VERSION);
+			writeBytes(phaseName);
+			writeBytes(xslFileName);
+		} catch (IOException | InvalidPathException ex) {
+			Report.warning("Cannot open dump file '" + dumpFileName + "'.");
+			abandon();
+		}
+	}
+
+	@Override
+	public void close() {
+		endElement();
+		if (depth != 0)
+			throw new InternalError();
+		if (dumpFile == null)
+			return;
+		try {
+			flush();
+			dumpFile.close();
+		} catch (IOException ex) {
+			Report.warning("Cannot write dump file '" + dumpFileName + "'.");
+		}
+		dumpFile = null;
+	}
+
+	@Override
+	public void begElement(String tagName) {
+		if (depth == 0)
+			throw new InternalError();
+		depth++;
+		if (dumpFile == null)
+			return;
+		try {
+			writeInt(BEG);
+			writeString(tagName);
+		} catch (IOException ex) {
+			failed();
+		}
+	}
+
+	@Override
+	public void endElement() {
+		if (depth == 0)
+			throw new InternalError();
+		depth--;
+		if (dumpFile == null)
+			return;
+		try {
+			writeInt(END);
+		} catch (IOException ex) {
+			failed();
+		}
+	}
+
+	@Override
+	public void addAttribute(String attrName, String attrValue) {
+		if (depth == 0)
+			throw new InternalError();
+		if (dumpFile == null)
+			return;
+		if (attrValue == null)
+			attrValue = "";
+		try {
+			long[] loc;
+			if (isInteger(attrValue, 0, attrValue.length())) {
+				writeInt(INT);
+				writeString(attrName);
+				writeLong(Long.parseLong(attrValue));
+			} else if ((loc = location(attrValue)) != null) {
+				writeInt(LOC);
+				writeString(attrName);
+				for (long value : loc)
+					writeLong(value);
+			} else {
+				writeInt(STR);
+				writeString(attrName);
+				writeString(attrValue);
+			}
+		} catch (IOException ex) {
+			failed();
+		}
+	}
+
+	/**
+	 * Checks whether a part of a string is the canonical decimal representation of
+	 * an integer that fits in a {@code long}.
+	 */
+	private static boolean isInteger(String string, int beg, int end) {
+		int digits = beg;
+		if ((digits < end) && (string.charAt(digits) == '-'))
+			digits++;
+		int length = end - digits;
+		if ((length == 0) || (length > 18))
+			return false;
+		if ((string.charAt(digits) == '0') && ((length > 1) || (digits > beg)))
+			return false;
+		for (int c = digits; c < end; c++)
+			if ((string.charAt(c) < '0') || (string.charAt(c) > '9'))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Parses a string of the form of a {@link Location}.
+	 * 
+	 * @return The lines and columns of the location or {@code null} if the string
+	 *         is not of the form of a location.
+	 */
+	private static long[] location(String string) {
+		int sep = string.indexOf("--");
+		if (sep < 0)
+			return null;
+		int begDot = string.indexOf('.');
+		int endDot = string.indexOf('.', sep + 2);
+		if ((begDot < 0) || (begDot > sep) || (endDot < 0))
+			return null;
+		if (!isInteger(string, 0, begDot) || !isInteger(string, begDot + 1, sep)
+				|| !isInteger(string, sep + 2, endDot) || !isInteger(string, endDot + 1, string.length()))
+			return null;
+		if ((string.charAt(0) == '-') || (string.charAt(begDot + 1) == '-') || (string.charAt(sep + 2) == '-')
+				|| (string.charAt(endDot + 1) == '-'))
+			return null;
+		return new long[] { Long.parseLong(string.substring(0, begDot)),
+				Long.parseLong(string.substring(begDot + 1, sep)), Long.parseLong(string.substring(sep + 2, endDot)),
+				Long.parseLong(string.substring(endDot + 1)) };
+	}
+
+	/**
+	 * Writes out the buffer to the dump file.
+	 */
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			dumpFile.write(buffer);
+		buffer.clear();
+	}
+
+	private void writeInt(int value) throws IOException {
+		if (buffer.remaining() < 5)
+			flush();
+		while ((value & ~0x7F) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	private void writeLong(long value) throws IOException {
+		if (buffer.remaining() < 10)
+			flush();
+		value = (value << 1) ^ (value >> 63);
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	private void writeBytes(String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		writeInt(bytes.length);
+		for (int offset = 0; offset < bytes.length;) {
+			if (!buffer.hasRemaining())
+				flush();
+			int length = Math.min(buffer.remaining(), bytes.length - offset);
+			buffer.put(bytes, offset, length);
+			offset += length;
+		}
+	}
+
+	private void writeString(String string) throws IOException {
+		Integer index = strings.get(string);
+		if (index != null) {
+			writeInt(FIRST + index);
+		} else if (strings.size() < MAX_STRINGS) {
+			strings.put(string, strings.size());
+			writeInt(DEFINED);
+			writeBytes(string);
+		} else {
+			writeInt(LITERAL);
+			writeBytes(string);
+		}
+	}
+
+	private void failed() {
+		Report.warning("Cannot write dump file '" + dumpFileName + "'.");
+		abandon();
+	}
+
+	/**
+	 * Stops writing the dump out (but keeps track of its structure).
+	 */
+	private void abandon() {
+		if (dumpFile != null) {
+			try {
+				dumpFile.close();
+			} catch (IOException __) {
+			}
+			dumpFile = null;
+		}
+	}
+
+}
@@ -0,0 +1,197 @@
+package compiler.common.logger;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import compiler.common.report.*;
+
+/**
+ * A reader of binary dumps produced by {@link DumpLogger}. A dump is converted
+ * to the XML log that would have been produced by {@link Logger} if the phase
+ * had been logged instead of dumped.
+ *
+ * Usage: {@code java compiler.common.logger.DumpReader [--xsl=dir]
+ * dump-file...}
+ *
+ * The XML log of {@code file.dump} is written to {@code file.xml}. If
+ * {@code --xsl} is used, the XSL file is taken from the specified directory
+ * instead of the one the dump was produced with.
+ */
+public class DumpReader {
+
+	/** The size of the buffer of the dump file. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** The name of the dump file being read. */
+	private final String dumpFileName;
+
+	/** The dump file. */
+	private final InputStream dumpFile;
+
+	/** The string table. */
+	private final Vector<String> strings = new Vector<String>();
+
+	/**
+	 * Constructs a new reader of a dump file.
+	 *
+	 * @param dumpFileName The name of the dump file.
+	 */
+	public DumpReader(String dumpFileName) {
+		this.dumpFileName = dumpFileName;
+		try {
+			dumpFile = new BufferedInputStream(
+					Channels.newInputStream(FileChannel.open(Paths.get(dumpFileName), StandardOpenOption.READ)),
+					BUFFER_SIZE);
+		} catch (IOException | InvalidPathException ex) {
+			throw new Report.Error("Cannot open dump file '" + dumpFileName + "'.");
+		}
+	}
+
+	/**
+	 * Converts the dump to an XML log.
+	 *
+	 * @param xmlFileName The name of the XML file to be produced.
+	 * @param xslDirName  The directory of the XSL file or {@code null} if the XSL
+	 *                    file the dump was produced with should be used.
+	 */
+	public void toXML(String xmlFileName, String xslDirName) {
+		try (InputStream dumpFile = this.dumpFile) {
+			for (byte magic : DumpLogger.MAGIC)
+				if (dumpFile.read() != (magic & 0xFF))
+					throw malformed();
+			if (readInt() != DumpLogger.VERSION)
+				throw new Report.Error("Unsupported version of dump file '" + dumpFileName + "'.");
+			String phaseName = readBytes();
+			String xslFileName = readBytes();
+			if (xslDirName != null)
+				xslFileName = xslDirName + xslFileName.replaceFirst("^.*/", "");
+
+			Logger logger = new Logger(phaseName, xmlFileName, xslFileName);
+			int depth = 1;
+			while (depth > 0) {
+				switch (readInt()) {
+				case DumpLogger.BEG:
+					logger.begElement(readString());
+					depth++;
+					break;
+				case DumpLogger.END:
+					depth--;
+					if (depth == 0)
+						logger.close();
+					else
+						logger.endElement();
+					break;
+				case DumpLogger.STR:
+					logger.addAttribute(readString(), readString());
+					break;
+				case DumpLogger.INT:
+					logger.addAttribute(readString(), Long.toString(readLong()));
+					break;
+				case DumpLogger.LOC:
+					logger.addAttribute(readString(),
+							readLong() + "." + readLong() + "--" + readLong() + "." + readLong());
+					break;
+				default:
+					throw malformed();
+				}
+			}
+			if (dumpFile.read() != -1)
+				throw malformed();
+		} catch (IOException ex) {
+			throw new Report.Error("Cannot read dump file '" + dumpFileName + "'.");
+		} catch (InternalError ex) {
+			throw malformed();
+		}
+	}
+
+	private Report.Error malformed() {
+		return new Report.Error("Malformed dump file '" + dumpFileName + "'.");
+	}
+
+	private int readByte() throws IOException {
+		int b = dumpFile.read();
+		if (b < 0)
+			throw malformed();
+		return b;
+	}
+
+	private int readInt() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = readByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw malformed();
+	}
+
+	private long readLong() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return (value >>> 1) ^ -(value & 1);
+		}
+		throw malformed();
+	}
+
+	private String readBytes() throws IOException {
+		int length = readInt();
+		if (length < 0)
+			throw malformed();
+		byte[] bytes = new byte[length];
+		int offset = 0;
+		while (offset < length) {
+			int read = dumpFile.read(bytes, offset, length - offset);
+			if (read < 0)
+				throw malformed();
+			offset += read;
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private String readString() throws IOException {
+		int index = readInt();
+		switch (index) {
+		case DumpLogger.DEFINED:
+			String string = readBytes();
+			strings.add(string);
+			return string;
+		case DumpLogger.LITERAL:
+			return readBytes();
+		default:
+			if ((index < DumpLogger.FIRST) || (index - DumpLogger.FIRST >= strings.size()))
+				throw malformed();
+			return strings.get(index - DumpLogger.FIRST);
+		}
+	}
+
+	/**
+	 * The dump reader's {@code main} method.
+	 *
+	 * @param args Command line arguments.
+	 */
+	public static void main(String[] args) {
+		try {
+			String xslDirName = null;
+			for (String arg : args) {
+				if (arg.matches("--xsl=.*")) {
+					xslDirName = arg.replaceFirst("^[^=]*=", "");
+					continue;
+				}
+				if (arg.startsWith("--")) {
+					Report.warning("Command line argument '" + arg + "' ignored.");
+					continue;
+				}
+				new DumpReader(arg).toXML(arg.replaceFirst("(\\.dump)?$", ".xml"), xslDirName);
+			}
+		} catch (Report.Error __) {
+			System.exit(1);
+		}
+	}
+
+}
@@ -4,33 +4,56 @@
 package compiler.common.logger;
 
 import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
 import java.util.*;
-import javax.xml.parsers.*;
-import javax.xml.transform.*;
-import javax.xml.transform.dom.*;
-import javax.xml.transform.stream.*;
-import org.w3c.dom.*;
+import javax.xml.stream.*;
 import compiler.common.report.*;
 
 /**
  * A logger used for producing XML/XSL logs of compiler internal data
  * structures.
  * 
+ * The XML document is written out incrementally while it is being constructed,
+ * so only the stack of the open XML elements is kept in memory. The start tag
+ * of the active XML element is written out only once its first child element
+ * is started or once it is ended (so that its attributes can still be added
+ * and elements without children can be written as empty elements). The
+ * attributes of each element are written out sorted by their names.
+ * 
  * @author sliva
  */
 public class Logger implements AutoCloseable {
 
+	/** The size of the buffer of the XML file. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** The XML declaration (written out before the XML document). */
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>";
+
 	/** The name of the XML file to be produced. */
 	private final String xmlFileName;
 
 	/** The name of the relating XSL file (to be included in the XML header). */
 	private final String xslFileName;
 
-	/** The entire XML document being constructed. */
-	private final Document doc;
+	/** The XML file (or {@code null} if it cannot be written). */
+	private OutputStream xmlFile;
 
-	/** The stack of the XML documents (used during construction). */
-	private final Stack<Element> elements = new Stack<Element>();
+	/** The writer of the XML document (or {@code null} if it cannot be written). */
+	private XMLStreamWriter xml;
+
+	/** The stack of the tag names of the open XML elements. */
+	private final Stack<String> elements = new Stack<String>();
+
+	/**
+	 * Whether the start tag of the active XML element is yet to be written out.
+	 */
+	private boolean pending = false;
+
+	/** The attributes of the active XML element if its start tag is pending. */
+	private final TreeMap<String, String> attributes = new TreeMap<String, String>();
 
 	/**
 	 * Constructs a new logger.
@@ -45,41 +68,51 @@ public class Logger implements AutoCloseable {
 
 		// Prepare a new log document.
 		try {
-			doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-		} catch (ParserConfigurationException ex) {
-			throw new Report.InternalError();
+			xmlFile = new BufferedOutputStream(Channels.newOutputStream(FileChannel.open(Paths.get(xmlFileName),
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)),
+					BUFFER_SIZE);
+			xmlFile.write(XML_DECLARATION.getBytes(StandardCharsets.UTF_8));
+			xml = XMLOutputFactory.newInstance().createXMLStreamWriter(xmlFile, "UTF-8");
+
+			// Add XSL declaration.
+			xml.writeProcessingInstruction("xml-stylesheet", "type=\"text/xsl\" href=\"" + this.xslFileName + "\"");
+		} catch (IOException | InvalidPathException | XMLStreamException ex) {
+			Report.warning("Cannot open log file '" + xmlFileName + "'.");
+			abandon();
 		}
 
 		// Create the root element representing the entire phase.
-		Element phase = doc.createElement(phaseName);
-		doc.appendChild(phase);
-		elements.push(phase);
-
-		// Add XSL declaration.
-		ProcessingInstruction xsl = doc.createProcessingInstruction("xml-stylesheet",
-				"type=\"text/xsl\" href=\"" + this.xslFileName + "\"");
-		doc.insertBefore(xsl, phase);
+		elements.push(phaseName);
+		pending = true;
+	}
+
+	/**
+	 * Constructs a new logger that produces no XML file (for subclasses that
+	 * produce logs in other formats).
+	 * 
+	 * @param xslFileName The name of the relating XSL file.
+	 */
+	protected Logger(String xslFileName) {
+		this.xmlFileName = null;
+		this.xslFileName = xslFileName;
 	}
 
 	@Override
 	public void close() {
-		try {
-			elements.pop();
-		} catch (EmptyStackException ex) {
-			throw new InternalError();
-		}
+		endElement();
 		if (!elements.empty())
 			throw new InternalError();
 
-		// Dump the log document out.
+		// Dump the rest of the log document out.
+		if (xml == null)
+			return;
 		try {
-			TransformerFactory transformerFactory = TransformerFactory.newInstance();
-			javax.xml.transform.Transformer transformer = transformerFactory.newTransformer();
-			DOMSource source = new DOMSource(doc);
-			StreamResult result = new StreamResult(new File(xmlFileName));
-			transformer.transform(source, result);
-		} catch (TransformerException ex) {
-			Report.warning("Cannot open log file '" + xmlFileName + "'.");
+			xml.writeEndDocument();
+			xml.close();
+			xmlFile.close();
+		} catch (IOException | XMLStreamException ex) {
+			Report.warning("Cannot write log file '" + xmlFileName + "'.");
+			abandon();
 		}
 	}
 
@@ -90,13 +123,12 @@ public class Logger implements AutoCloseable {
 	 * @param tagName The tag name of a new XML element.
 	 */
 	public void begElement(String tagName) {
-		try {
-			Element element = doc.createElement(tagName);
-			elements.peek().appendChild(element);
-			elements.push(element);
-		} catch (EmptyStackException ex) {
+		if (elements.empty())
 			throw new InternalError();
-		}
+		if (pending)
+			writeStartElement(false);
+		elements.push(tagName);
+		pending = true;
 	}
 
 	/**
@@ -104,24 +136,69 @@ public class Logger implements AutoCloseable {
 	 * XML element can be active at each moment.
 	 */
 	public void endElement() {
-		try {
-			elements.pop();
-		} catch (EmptyStackException ex) {
+		if (elements.empty())
 			throw new InternalError();
+		if (pending)
+			writeStartElement(true);
+		else if (xml != null) {
+			try {
+				xml.writeEndElement();
+			} catch (XMLStreamException ex) {
+				Report.warning("Cannot write log file '" + xmlFileName + "'.");
+				abandon();
+			}
 		}
+		elements.pop();
 	}
 
 	/**
-	 * Adds an attribute to the active XML element.
+	 * Adds an attribute to the active XML element. All attributes must be added
+	 * before the first child element of the active XML element is started.
 	 * 
 	 * @param attrName  The name of an attribute.
 	 * @param attrValue The value of an attribute.
 	 */
 	public void addAttribute(String attrName, String attrValue) {
-		try {
-			elements.peek().setAttribute(attrName, attrValue);
-		} catch (EmptyStackException ex) {
+		if (elements.empty() || !pending)
 			throw new InternalError();
+		attributes.put(attrName, attrValue == null ? "" : attrValue);
+	}
+
+	/**
+	 * Writes out the pending start tag of the active XML element together with its
+	 * attributes.
+	 * 
+	 * @param empty Whether the active XML element has no child elements.
+	 */
+	private void writeStartElement(boolean empty) {
+		pending = false;
+		if (xml != null) {
+			try {
+				if (empty)
+					xml.writeEmptyElement(elements.peek());
+				else
+					xml.writeStartElement(elements.peek());
+				for (Map.Entry<String, String> attribute : attributes.entrySet())
+					xml.writeAttribute(attribute.getKey(), attribute.getValue());
+			} catch (XMLStreamException ex) {
+				Report.warning("Cannot write log file '" + xmlFileName + "'.");
+				abandon();
+			}
+		}
+		attributes.clear();
+	}
+
+	/**
+	 * Stops writing the log document out (but keeps track of its structure).
+	 */
+	private void abandon() {
+		xml = null;
+		if (xmlFile != null) {
+			try {
+				xmlFile.close();
+			} catch (IOException __) {
+			}
+			xmlFile = null;
 		}
 	}
 
@@ -3,15 +3,46 @@
  */
 package compiler.common.report;
 
+import java.io.*;
+
 /**
  * Reporting to the user.
  * 
+ * The messages are printed out to the streams of the current compilation (see
+ * {@link compiler.Compilation}) and counted within it.
+ * 
  * @author sliva
  */
 public class Report {
 
+	/** The stream information messages are printed to. */
+	private final PrintStream out;
+
+	/** The stream warnings and errors are printed to. */
+	private final PrintStream err;
+
+	/**
+	 * Constructs a new reporting for a single compilation.
+	 * 
+	 * @param out The stream information messages are printed to.
+	 * @param err The stream warnings and errors are printed to.
+	 */
+	public Report(PrintStream out, PrintStream err) {
+		this.out = out;
+		this.err = err;
+	}
+
+	/**
+	 * Returns the reporting of the current compilation.
+	 * 
+	 * @return The reporting of the current compilation.
+	 */
+	private static Report current() {
+		return compiler.Compilation.current().report;
+	}
+
 	/** Counter of information messages printed out. */
-	private static int numOfInfos = 0;
+	private int numOfInfos = 0;
 
 	/**
 	 * Returns the number of information messages printed out.
@@ -19,7 +50,7 @@ public class Report {
 	 * @return The number of information messages printed out.
 	 */
 	public static int numOfInfos() {
-		return numOfInfos;
+		return current().numOfInfos;
 	}
 
 	/**
@@ -28,9 +59,10 @@ public class Report {
 	 * @param message The information message to be printed.
 	 */
 	public static void info(String message) {
-		numOfInfos++;
-		System.out.print(":-) ");
-		System.out.println(message);
+		Report report = current();
+		report.numOfInfos++;
+		report.out.print(":-) ");
+		report.out.println(message);
 	}
 
 	/**
@@ -41,14 +73,15 @@ public class Report {
 	 * @param message  The information message to be printed.
 	 */
 	public static void info(Locatable location, String message) {
-		numOfInfos++;
-		System.out.print(":-) ");
-		System.out.print("[" + location.location() + "] ");
-		System.out.println(message);
+		Report report = current();
+		report.numOfInfos++;
+		report.out.print(":-) ");
+		report.out.print("[" + location.location() + "] ");
+		report.out.println(message);
 	}
 
 	/** Counter of warnings printed out. */
-	private static int numOfWarnings = 0;
+	private int numOfWarnings = 0;
 
 	/**
 	 * Returns the number of warnings printed out.
@@ -56,7 +89,7 @@ public class Report {
 	 * @return The number of warnings printed out.
 	 */
 	public static int numOfWarnings() {
-		return numOfWarnings;
+		return current().numOfWarnings;
 	}
 
 	/**
@@ -65,9 +98,10 @@ public class Report {
 	 * @param message The warning message.
 	 */
 	public static void warning(String message) {
-		numOfWarnings++;
-		System.err.print(":-o ");
-		System.err.println(message);
+		Report report = current();
+		report.numOfWarnings++;
+		report.err.print(":-o ");
+		report.err.println(message);
 	}
 
 	/**
@@ -77,10 +111,64 @@ public class Report {
 	 * @param message  The warning message to be printed.
 	 */
 	public static void warning(Locatable location, String message) {
-		numOfWarnings++;
-		System.err.print(":-o ");
-		System.err.print("[" + location.location() + "] ");
-		System.err.println(message);
+		Report report = current();
+		report.numOfWarnings++;
+		report.err.print(":-o ");
+		report.err.print("[" + location.location() + "] ");
+		report.err.println(message);
+	}
+
+	/** Counter of errors printed out (and recovered from). */
+	private int numOfErrors = 0;
+
+	/** The number of errors after which the compilation is stopped. */
+	private int maxErrors = 100;
+
+	/**
+	 * Returns the number of errors printed out (and recovered from).
+	 * 
+	 * @return The number of errors printed out.
+	 */
+	public static int numOfErrors() {
+		return current().numOfErrors;
+	}
+
+	/**
+	 * Sets the number of errors after which the compilation is stopped.
+	 * 
+	 * @param maxErrors The number of errors (at least 1).
+	 */
+	public static void maxErrors(int maxErrors) {
+		current().maxErrors = Math.max(maxErrors, 1);
+	}
+
+	/**
+	 * Prints out an error relating to the specified part of the source file
+	 * without stopping the compilation, i.e., the caller is expected to recover
+	 * from the error and to look for further errors. Once the maximal number of
+	 * errors has been printed out, the compilation is stopped nevertheless.
+	 * 
+	 * @param location Location the error message is related to.
+	 * @param message  The error message to be printed.
+	 */
+	public static void error(Locatable location, String message) {
+		Report report = current();
+		report.numOfErrors++;
+		report.err.print(":-( ");
+		report.err.print("[" + location.location() + "] ");
+		report.err.println(message);
+		if (report.numOfErrors >= report.maxErrors)
+			checkErrors();
+	}
+
+	/**
+	 * Stops the compilation if any errors have been printed out using
+	 * {@link #error(Locatable, String)}.
+	 */
+	public static void checkErrors() {
+		int numOfErrors = current().numOfErrors;
+		if (numOfErrors > 0)
+			throw new Error("Compilation stopped (" + numOfErrors + (numOfErrors == 1 ? " error)." : " errors)."));
 	}
 
 	/**
@@ -101,8 +189,9 @@ public class Report {
 		 * @param message The error message.
 		 */
 		public Error(String message) {
-			System.err.print(":-( ");
-			System.err.println(message);
+			PrintStream err = current().err;
+			err.print(":-( ");
+			err.println(message);
 		}
 
 		/**
@@ -112,9 +201,10 @@ public class Report {
 		 * @param message  The error message.
 		 */
 		public Error(Locatable location, String message) {
-			System.err.print(":-( ");
-			System.err.print("[" + location.location() + "] ");
-			System.err.println(message);
+			PrintStream err = current().err;
+			err.print(":-( ");
+			err.print("[" + location.location() + "] ");
+			err.println(message);
 		}
 
 	}
@@ -135,7 +225,7 @@ public class Report {
 		 */
 		public InternalError() {
 			super("Internal error.");
-			this.printStackTrace();
+			this.printStackTrace(current().err);
 		}
 
 	}
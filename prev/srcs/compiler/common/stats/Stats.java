@@ -0,0 +1,335 @@
+package compiler.common.stats;
+
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+import javax.management.*;
+import javax.management.openmbean.*;
+
+import compiler.common.report.*;
+
+/**
+ * Statistics of compiler phases.
+ *
+ * For each phase, the wall time, the CPU time and the memory allocated by the
+ * compiler thread are measured from the construction of the phase until it is
+ * closed, together with the peak heap usage while the phase is open (the sum
+ * of the usages of all heap memory pools) and any domain specific counters the
+ * phase reports. A phase constructed while another phase is still open (e.g.,
+ * the lexical analysis within the syntax analysis) is nested within the outer
+ * phase and counters are always attributed to the innermost open phase. The
+ * CPU time and the memory allocated by worker threads (see
+ * {@link #work(Runnable)}) are added to all phases open in the compiler thread.
+ *
+ * The peak heap usage is the largest heap usage sampled when the phase is
+ * opened or closed, when a nested phase is opened or closed, or reported as the
+ * usage before a garbage collection that started while the phase was open. The
+ * peak usages of the heap memory pools are never reset, as they are shared by
+ * all compilations running at the same time (see {@link compiler.Batch} and
+ * {@link compiler.Daemon}). The heap usage is that of the whole JVM, so it
+ * includes the usage of any such compilation.
+ *
+ * Statistics are collected only if enabled, otherwise all methods return
+ * immediately. Statistics are collected for the current compilation (see
+ * {@link compiler.Compilation}).
+ */
+public class Stats {
+
+	/** Statistics of a single phase. */
+	private static class Record {
+
+		final String phase;
+
+		final String parent;
+
+		long wallNanos;
+
+		long cpuNanos;
+
+		long allocatedBytes;
+
+		long peakHeapBytes;
+
+		/** The JVM uptime when the phase was opened (in ms). */
+		long begMillis;
+
+		/** The JVM uptime when the phase was closed (in ms). */
+		long endMillis = Long.MAX_VALUE;
+
+		final LinkedHashMap<String, Long> counters = new LinkedHashMap<String, Long>();
+
+		Record(String phase, String parent) {
+			this.phase = phase;
+			this.parent = parent;
+		}
+
+	}
+
+	/** Whether statistics are being collected. */
+	private boolean enabled = false;
+
+	/** Statistics of all phases in the order they were opened. */
+	private final Vector<Record> records = new Vector<Record>();
+
+	/** The currently open phases. */
+	private final Stack<Record> open = new Stack<Record>();
+
+	private static final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	private static final RuntimeMXBean runtimeBean = ManagementFactory.getRuntimeMXBean();
+
+	private static final Vector<MemoryPoolMXBean> heapPools = new Vector<MemoryPoolMXBean>();
+
+	/** The statistics being collected in all compilations. */
+	private static final Set<Stats> enabledStats = Collections
+			.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<Stats, Boolean>()));
+
+	static {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP)
+				heapPools.add(pool);
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+			if (collector instanceof NotificationEmitter)
+				((NotificationEmitter) collector).addNotificationListener(Stats::collected, null, null);
+	}
+
+	/**
+	 * Returns the statistics of the current compilation.
+	 *
+	 * @return The statistics of the current compilation.
+	 */
+	private static Stats current() {
+		return compiler.Compilation.current().stats;
+	}
+
+	/**
+	 * Starts collecting statistics.
+	 */
+	public static void enable() {
+		Stats stats = current();
+		stats.enabled = true;
+		enabledStats.add(stats);
+	}
+
+	/**
+	 * Checks whether statistics are being collected.
+	 *
+	 * @return {@code true} if statistics are being collected, {@code false}
+	 *         otherwise.
+	 */
+	public static boolean enabled() {
+		return current().enabled;
+	}
+
+	/**
+	 * Opens a phase and starts measuring it.
+	 *
+	 * @param phase The name of the phase.
+	 */
+	public static void begin(String phase) {
+		Stats stats = current();
+		if (!stats.enabled)
+			return;
+		long heapBytes = heapBytes();
+		long millis = runtimeBean.getUptime();
+		Record record = new Record(phase, stats.open.isEmpty() ? null : stats.open.peek().phase);
+		record.begMillis = millis;
+		synchronized (stats) {
+			stats.records.add(record);
+			stats.open.push(record);
+			for (Record openRecord : stats.open)
+				openRecord.peakHeapBytes = Math.max(openRecord.peakHeapBytes, heapBytes);
+		}
+		record.allocatedBytes = -allocatedBytes();
+		record.cpuNanos = -threadBean.getCurrentThreadCpuTime();
+		record.wallNanos = -System.nanoTime();
+	}
+
+	/**
+	 * Closes the innermost open phase with the specified name together with all
+	 * phases nested within it.
+	 *
+	 * @param phase The name of the phase.
+	 */
+	public static void end(String phase) {
+		Stats stats = current();
+		if (!stats.enabled)
+			return;
+		long wallNanos = System.nanoTime();
+		long cpuNanos = threadBean.getCurrentThreadCpuTime();
+		long allocatedBytes = allocatedBytes();
+		long heapBytes = heapBytes();
+		long millis = runtimeBean.getUptime();
+		synchronized (stats) {
+			for (Record record : stats.open)
+				record.peakHeapBytes = Math.max(record.peakHeapBytes, heapBytes);
+			while (!stats.open.isEmpty()) {
+				Record record = stats.open.pop();
+				record.wallNanos += wallNanos;
+				record.cpuNanos += cpuNanos;
+				record.allocatedBytes += allocatedBytes;
+				record.endMillis = millis;
+				if (record.phase.equals(phase))
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Adds to a counter of the innermost open phase.
+	 *
+	 * @param counter The name of the counter.
+	 * @param delta   The value added to the counter.
+	 */
+	public static void count(String counter, long delta) {
+		Stats stats = current();
+		if (!stats.enabled)
+			return;
+		synchronized (stats) {
+			if (!stats.open.isEmpty())
+				stats.open.peek().counters.merge(counter, delta, Long::sum);
+		}
+	}
+
+	/**
+	 * Runs a task in a worker thread and adds the CPU time and the memory
+	 * allocated by the task to all open phases.
+	 *
+	 * @param task The task.
+	 */
+	public static void work(Runnable task) {
+		Stats stats = current();
+		if (!stats.enabled) {
+			task.run();
+			return;
+		}
+		long cpuNanos = -threadBean.getCurrentThreadCpuTime();
+		long allocatedBytes = -allocatedBytes();
+		task.run();
+		cpuNanos += threadBean.getCurrentThreadCpuTime();
+		allocatedBytes += allocatedBytes();
+		synchronized (stats) {
+			for (Record record : stats.open) {
+				record.cpuNanos += cpuNanos;
+				record.allocatedBytes += allocatedBytes;
+			}
+		}
+	}
+
+	private static long allocatedBytes() {
+		return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Returns the current heap usage of the whole JVM.
+	 *
+	 * @return The sum of the current usages of all heap memory pools.
+	 */
+	private static long heapBytes() {
+		long heapBytes = 0;
+		for (MemoryPoolMXBean pool : heapPools)
+			heapBytes += pool.getUsage().getUsed();
+		return heapBytes;
+	}
+
+	/**
+	 * Folds the heap usage before a garbage collection into all phases of all
+	 * compilations that were open when the garbage collection started.
+	 *
+	 * Notifications are delivered after the garbage collection has finished, so
+	 * phases that have been closed since are updated as well.
+	 *
+	 * @param notification The notification of a garbage collector.
+	 * @param handback     Not used.
+	 */
+	private static void collected(Notification notification, Object handback) {
+		if (!notification.getType()
+				.equals(com.sun.management.GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+			return;
+		com.sun.management.GcInfo gcInfo = com.sun.management.GarbageCollectionNotificationInfo
+				.from((CompositeData) notification.getUserData()).getGcInfo();
+		Map<String, MemoryUsage> usages = gcInfo.getMemoryUsageBeforeGc();
+		long heapBytes = 0;
+		for (MemoryPoolMXBean pool : heapPools) {
+			MemoryUsage usage = usages.get(pool.getName());
+			if (usage != null)
+				heapBytes += usage.getUsed();
+		}
+		long millis = gcInfo.getStartTime();
+		Stats[] allStats;
+		synchronized (enabledStats) {
+			allStats = enabledStats.toArray(new Stats[0]);
+		}
+		for (Stats stats : allStats) {
+			synchronized (stats) {
+				for (Record record : stats.records)
+					if ((record.begMillis <= millis) && (millis <= record.endMillis))
+						record.peakHeapBytes = Math.max(record.peakHeapBytes, heapBytes);
+			}
+		}
+	}
+
+	/**
+	 * Writes the statistics of all phases to a JSON file. Phases that are still
+	 * open are closed first.
+	 *
+	 * @param statsFileName The name of the JSON file.
+	 * @param srcFileName   The name of the source file.
+	 * @param completed     Whether the compilation completed successfully.
+	 */
+	public static void write(String statsFileName, String srcFileName, boolean completed) {
+		Stats stats = current();
+		if (!stats.enabled)
+			return;
+		if (!stats.open.isEmpty())
+			end(stats.open.firstElement().phase);
+		Vector<Record> records = stats.records;
+		try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(statsFileName)))) {
+			out.println("{");
+			out.println("\t\"source\": " + quote(srcFileName) + ",");
+			out.println("\t\"completed\": " + completed + ",");
+			out.println("\t\"heap\": \"JVM-wide peak usage while each phase is open\",");
+			out.println("\t\"phases\": [");
+			for (int r = 0; r < records.size(); r++) {
+				Record record = records.get(r);
+				out.println("\t\t{");
+				out.println("\t\t\t\"phase\": " + quote(record.phase) + ",");
+				if (record.parent != null)
+					out.println("\t\t\t\"parent\": " + quote(record.parent) + ",");
+				out.println("\t\t\t\"wallNanos\": " + record.wallNanos + ",");
+				out.println("\t\t\t\"cpuNanos\": " + record.cpuNanos + ",");
+				out.println("\t\t\t\"allocatedBytes\": " + record.allocatedBytes + ",");
+				out.println("\t\t\t\"peakHeapBytes\": " + record.peakHeapBytes + ",");
+				out.print("\t\t\t\"counters\": {");
+				String sep = "";
+				for (Map.Entry<String, Long> counter : record.counters.entrySet()) {
+					out.print(sep + "\n\t\t\t\t" + quote(counter.getKey()) + ": " + counter.getValue());
+					sep = ",";
+				}
+				out.println(record.counters.isEmpty() ? "}" : "\n\t\t\t}");
+				out.println("\t\t}" + (r < records.size() - 1 ? "," : ""));
+			}
+			out.println("\t]");
+			out.println("}");
+		} catch (IOException __) {
+			Report.warning("Cannot write statistics to file '" + statsFileName + "'.");
+		}
+	}
+
+	private static String quote(String string) {
+		if (string == null)
+			return "null";
+		StringBuilder quoted = new StringBuilder("\"");
+		for (char c : string.toCharArray()) {
+			if (c == '"' || c == '\\')
+				quoted.append('\\').append(c);
+			else if (c < 32)
+				quoted.append(String.format("\\u%04x", (int) c));
+			else
+				quoted.append(c);
+		}
+		return quoted.append('"').toString();
+	}
+
+}
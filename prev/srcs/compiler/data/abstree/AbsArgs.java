@@ -7,7 +7,7 @@ import java.util.*;
 import compiler.common.report.*;
 import compiler.data.abstree.visitor.*;
 
-public class AbsArgs extends Location implements AbsTree {
+public class AbsArgs extends AbsNode {
 
 	private final Vector<AbsExpr> args;
 
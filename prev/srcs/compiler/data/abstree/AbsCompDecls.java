@@ -7,7 +7,7 @@ import java.util.*;
 import compiler.common.report.*;
 import compiler.data.abstree.visitor.*;
 
-public class AbsCompDecls extends Location implements AbsTree {
+public class AbsCompDecls extends AbsNode {
 
 	private final Vector<AbsCompDecl> compDecls;
 
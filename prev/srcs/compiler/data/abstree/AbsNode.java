@@ -0,0 +1,28 @@
+package compiler.data.abstree;
+
+import compiler.*;
+import compiler.common.report.*;
+
+/**
+ * A node of the abstract syntax tree.
+ * 
+ * Nodes are numbered densely in the order of their construction within each
+ * compilation, so that the values of attributes can be stored in arrays
+ * indexed by node ids (see {@link compiler.data.abstree.attribute.AbsAttribute}).
+ */
+public abstract class AbsNode extends Location implements AbsTree {
+
+	/** The id of this node. */
+	private final int id;
+
+	public AbsNode(Locatable location) {
+		super(location);
+		this.id = Compilation.current().newNodeId();
+	}
+
+	@Override
+	public int id() {
+		return id;
+	}
+
+}
@@ -7,7 +7,7 @@ import java.util.*;
 import compiler.common.report.*;
 import compiler.data.abstree.visitor.*;
 
-public class AbsParDecls extends Location implements AbsTree {
+public class AbsParDecls extends AbsNode {
 
 	private final Vector<AbsParDecl> parDecls;
 
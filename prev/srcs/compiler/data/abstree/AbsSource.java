@@ -9,7 +9,7 @@ import compiler.data.abstree.visitor.*;
 /**
  * @author sliva
  */
-public class AbsSource extends Location implements AbsTree {
+public class AbsSource extends AbsNode {
 
 	public final AbsDecls decls;
 
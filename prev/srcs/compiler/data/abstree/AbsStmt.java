@@ -5,7 +5,7 @@ package compiler.data.abstree;
 
 import compiler.common.report.*;
 
-public abstract class AbsStmt extends Location implements AbsTree {
+public abstract class AbsStmt extends AbsNode {
 
 	public AbsStmt(Locatable location) {
 		super(location);
@@ -13,4 +13,11 @@ public interface AbsTree extends Locatable {
 
 	public abstract <Result, Arg> Result accept(AbsVisitor<Result, Arg> visitor, Arg accArg);
 
+	/**
+	 * Returns the id of this node within its compilation (see {@link AbsNode}).
+	 * 
+	 * @return The id of this node.
+	 */
+	public abstract int id();
+
 }
@@ -10,6 +10,11 @@ import compiler.data.abstree.*;
 /**
  * An attribute of the abstract syntax tree node.
  * 
+ * The values of an attribute belong to the current compilation (see
+ * {@link compiler.Compilation}), i.e., each compilation starts with no values
+ * associated with nodes and with the attribute not locked. The values are
+ * stored in an array indexed by node ids (see {@link AbsTree#id()}).
+ * 
  * @author sliva
  *
  * @param <Node> Nodes that values are associated with.
@@ -17,16 +22,42 @@ import compiler.data.abstree.*;
  */
 public class AbsAttribute<Node extends AbsTree, Value> {
 
-	/** Mapping of nodes to values. */
-	private HashMap<Node, Value> mapping;
+	/** Counter of attributes. */
+	private static int count = 0;
+
+	/** The id of this attribute. */
+	protected final int id;
+
+	/**
+	 * The values of an attribute within a single compilation.
+	 */
+	private static class Values {
+
+		/** The values indexed by node ids ({@code null} if not associated). */
+		Object[] values = new Object[compiler.Compilation.current().numOfNodes()];
+
+		/** The number of nodes associated with values. */
+		int size = 0;
+
+		/** Whether the attribute can no longer be modified or not. */
+		boolean lock = false;
 
-	/** Whether this attribute can no longer be modified or not. */
-	private boolean lock;
+	}
 
 	/** Constructs a new attribute. */
 	public AbsAttribute() {
-		mapping = new HashMap<Node, Value>();
-		lock = false;
+		synchronized (AbsAttribute.class) {
+			id = count++;
+		}
+	}
+
+	/**
+	 * Returns the values of this attribute within the current compilation.
+	 * 
+	 * @return The values of this attribute.
+	 */
+	private Values values() {
+		return (Values) compiler.Compilation.current().attribute(id, Values::new);
 	}
 
 	/**
@@ -37,9 +68,15 @@ public class AbsAttribute<Node extends AbsTree, Value> {
 	 * @return The value.
 	 */
 	public Value put(Node node, Value value) {
-		if (lock)
+		Values values = values();
+		if (values.lock)
 			throw new Report.InternalError();
-		mapping.put(node, value);
+		int id = node.id();
+		if (id >= values.values.length)
+			values.values = Arrays.copyOf(values.values, Math.max(2 * values.values.length, id + 1));
+		if ((values.values[id] == null) != (value == null))
+			values.size += value == null ? -1 : 1;
+		values.values[id] = value;
 		return value;
 	}
 
@@ -49,23 +86,28 @@ public class AbsAttribute<Node extends AbsTree, Value> {
 	 * @param node The specified abstract syntax tree node.
 	 * @return The value.
 	 */
+	@SuppressWarnings("unchecked")
 	public Value get(Node node) {
-		return mapping.get(node);
+		Object[] values = values().values;
+		int id = node.id();
+		return id < values.length ? (Value) values[id] : null;
 	}
 
 	/**
 	 * Prevents further modification of this attribute.
 	 */
 	public void lock() {
-		lock = true;
+		values().lock = true;
 	}
-	
+
 	public String toString() {
+		Values values = values();
 		String elements = "";
-		for(Node n : mapping.keySet()) {
-			elements += "\t" + get(n) + "\n";
+		for (Object value : values.values) {
+			if (value != null)
+				elements += "\t" + value + "\n";
 		}
-		return String.format("%s of length %d \n%s", super.toString(), mapping.keySet().size(), elements);
+		return String.format("%s of length %d \n%s", super.toString(), values.size, elements);
 	}
 
 }
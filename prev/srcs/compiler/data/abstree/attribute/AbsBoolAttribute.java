@@ -0,0 +1,76 @@
+package compiler.data.abstree.attribute;
+
+import java.util.*;
+import compiler.common.report.*;
+import compiler.data.abstree.*;
+
+/**
+ * A boolean attribute of the abstract syntax tree node.
+ * 
+ * The values are stored in two bit sets indexed by node ids, one denoting
+ * which nodes are associated with a value and the other the values
+ * themselves.
+ * 
+ * @param <Node> Nodes that values are associated with.
+ */
+public class AbsBoolAttribute<Node extends AbsTree> extends AbsAttribute<Node, Boolean> {
+
+	/**
+	 * The values of an attribute within a single compilation.
+	 */
+	private static class Values {
+
+		/** The nodes associated with values. */
+		final BitSet defined = new BitSet();
+
+		/** The nodes associated with {@code true}. */
+		final BitSet values = new BitSet();
+
+		/** Whether the attribute can no longer be modified or not. */
+		boolean lock = false;
+
+	}
+
+	/**
+	 * Returns the values of this attribute within the current compilation.
+	 * 
+	 * @return The values of this attribute.
+	 */
+	private Values values() {
+		return (Values) compiler.Compilation.current().attribute(id, Values::new);
+	}
+
+	@Override
+	public Boolean put(Node node, Boolean value) {
+		Values values = values();
+		if (values.lock)
+			throw new Report.InternalError();
+		int id = node.id();
+		values.defined.set(id, value != null);
+		values.values.set(id, (value != null) && value);
+		return value;
+	}
+
+	@Override
+	public Boolean get(Node node) {
+		Values values = values();
+		int id = node.id();
+		return values.defined.get(id) ? values.values.get(id) : null;
+	}
+
+	@Override
+	public void lock() {
+		values().lock = true;
+	}
+
+	@Override
+	public String toString() {
+		Values values = values();
+		String elements = "";
+		for (int id = values.defined.nextSetBit(0); id >= 0; id = values.defined.nextSetBit(id + 1))
+			elements += "\t" + values.values.get(id) + "\n";
+		return String.format("%s of length %d \n%s", getClass().getName() + "@" + Integer.toHexString(hashCode()),
+				values.defined.cardinality(), elements);
+	}
+
+}
@@ -39,6 +39,9 @@ public class Code {
 	 */
 	public final long tempSize;
 
+	/** The control flow graph (built on demand). */
+	private FlowGraph flowGraph = null;
+
 	/**
 	 * Creates a new fragment of code.
 	 * 
@@ -78,4 +81,16 @@ public class Code {
 		this.tempSize = tempSize;
 	}
 
+	/**
+	 * Returns the control flow graph of this fragment of code. The graph is built
+	 * the first time it is requested.
+	 * 
+	 * @return The control flow graph.
+	 */
+	public FlowGraph flowGraph() {
+		if (flowGraph == null)
+			flowGraph = new FlowGraph(instrs);
+		return flowGraph;
+	}
+
 }
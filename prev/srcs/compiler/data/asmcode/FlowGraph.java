@@ -0,0 +1,293 @@
+package compiler.data.asmcode;
+
+import java.util.*;
+import compiler.data.layout.*;
+
+/**
+ * The control flow graph of a fragment of code.
+ *
+ * Instructions are grouped into basic blocks numbered in the order of their
+ * appearance in the fragment of code. A block starts at the first instruction,
+ * at each label and after each instruction that jumps to a label within the
+ * same fragment of code. A block falls through to the next block unless it
+ * ends with an unconditional jump. Jumps to labels outside the fragment of
+ * code (i.e., function calls) do not affect the graph.
+ *
+ * The graph is built once per fragment of code, see {@link Code#flowGraph()}.
+ */
+public class FlowGraph {
+
+	/** Mapping of labels to the indices of their instructions. */
+	private final HashMap<Label, Integer> labels = new HashMap<Label, Integer>();
+
+	/**
+	 * The indices of the first instruction of each block followed by the number
+	 * of instructions.
+	 */
+	private final int[] begs;
+
+	/** The block of each instruction. */
+	private final int[] blockOf;
+
+	/** The successors of each block. */
+	private final int[][] succs;
+
+	/** The predecessors of each block. */
+	private final int[][] preds;
+
+	/** The loop nesting depth of each block (computed on demand). */
+	private int[] loopDepths = null;
+
+	/**
+	 * Constructs the control flow graph of a list of instructions.
+	 *
+	 * @param instrs The instructions.
+	 */
+	public FlowGraph(Vector<AsmInstr> instrs) {
+		int numOfInstrs = instrs.size();
+		Vector<Vector<Label>> jumps = new Vector<Vector<Label>>(numOfInstrs);
+		for (int i = 0; i < numOfInstrs; i++) {
+			AsmInstr instr = instrs.get(i);
+			if (instr instanceof AsmLABEL)
+				labels.put(((AsmLABEL) instr).getLabel(), i);
+			jumps.add(instr.jumps());
+		}
+
+		// Find the beginnings of blocks.
+		blockOf = new int[numOfInstrs];
+		Vector<Integer> blockBegs = new Vector<Integer>();
+		boolean endsBlock = true;
+		for (int i = 0; i < numOfInstrs; i++) {
+			if (endsBlock || instrs.get(i) instanceof AsmLABEL)
+				blockBegs.add(i);
+			blockOf[i] = blockBegs.size() - 1;
+			endsBlock = isUncondJump(instrs.get(i));
+			for (Label label : jumps.get(i))
+				endsBlock |= labels.containsKey(label);
+		}
+		int numOfBlocks = blockBegs.size();
+		begs = new int[numOfBlocks + 1];
+		for (int b = 0; b < numOfBlocks; b++)
+			begs[b] = blockBegs.get(b);
+		begs[numOfBlocks] = numOfInstrs;
+
+		// Connect the blocks.
+		succs = new int[numOfBlocks][];
+		int[] numOfPreds = new int[numOfBlocks];
+		for (int b = 0; b < numOfBlocks; b++) {
+			int last = begs[b + 1] - 1;
+			LinkedHashSet<Integer> blockSuccs = new LinkedHashSet<Integer>();
+			if (b + 1 < numOfBlocks && !isUncondJump(instrs.get(last)))
+				blockSuccs.add(b + 1);
+			for (Label label : jumps.get(last)) {
+				Integer instr = labels.get(label);
+				if (instr != null)
+					blockSuccs.add(blockOf[instr]);
+			}
+			succs[b] = new int[blockSuccs.size()];
+			int s = 0;
+			for (Integer succ : blockSuccs) {
+				succs[b][s++] = succ;
+				numOfPreds[succ]++;
+			}
+		}
+		preds = new int[numOfBlocks][];
+		for (int b = 0; b < numOfBlocks; b++)
+			preds[b] = new int[numOfPreds[b]];
+		for (int b = numOfBlocks - 1; b >= 0; b--)
+			for (int succ : succs[b])
+				preds[succ][--numOfPreds[succ]] = b;
+	}
+
+	/**
+	 * Checks whether an instruction is an unconditional jump, i.e., whether the
+	 * execution never continues with the next instruction.
+	 *
+	 * @param instr The instruction.
+	 * @return {@code true} if the instruction is an unconditional jump.
+	 */
+	public static boolean isUncondJump(AsmInstr instr) {
+		return (instr instanceof AsmOPER) && ((AsmOPER) instr).instr().startsWith("JMP ");
+	}
+
+	/**
+	 * Returns the number of blocks.
+	 *
+	 * @return The number of blocks.
+	 */
+	public int numOfBlocks() {
+		return succs.length;
+	}
+
+	/**
+	 * Returns the index of the first instruction of a block.
+	 *
+	 * @param block The block.
+	 * @return The index of the first instruction of the block.
+	 */
+	public int begInstr(int block) {
+		return begs[block];
+	}
+
+	/**
+	 * Returns the index of the instruction following the last instruction of a
+	 * block.
+	 *
+	 * @param block The block.
+	 * @return The index of the instruction following the block.
+	 */
+	public int endInstr(int block) {
+		return begs[block + 1];
+	}
+
+	/**
+	 * Returns the block an instruction belongs to.
+	 *
+	 * @param instr The index of the instruction.
+	 * @return The block of the instruction.
+	 */
+	public int blockOf(int instr) {
+		return blockOf[instr];
+	}
+
+	/**
+	 * Returns the index of the instruction defining a label.
+	 *
+	 * @param label The label.
+	 * @return The index of the instruction or {@code -1} if the label is not
+	 *         defined within this fragment of code.
+	 */
+	public int instrOf(Label label) {
+		Integer instr = labels.get(label);
+		return instr == null ? -1 : instr;
+	}
+
+	public int[] succs(int block) {
+		return succs[block];
+	}
+
+	public int[] preds(int block) {
+		return preds[block];
+	}
+
+	/**
+	 * Returns the blocks in postorder of the depth-first search from the first
+	 * block, followed by the blocks unreachable from it (in postorder of their
+	 * own searches).
+	 *
+	 * @return The blocks in postorder.
+	 */
+	public int[] postorder() {
+		int numOfBlocks = succs.length;
+		int[] order = new int[numOfBlocks];
+		int numOfOrdered = 0;
+		boolean[] visited = new boolean[numOfBlocks];
+		int[] stack = new int[numOfBlocks];
+		int[] nextSucc = new int[numOfBlocks];
+		for (int root = 0; root < numOfBlocks; root++) {
+			if (visited[root])
+				continue;
+			int top = 0;
+			stack[top] = root;
+			visited[root] = true;
+			while (top >= 0) {
+				int b = stack[top];
+				if (nextSucc[b] < succs[b].length) {
+					int succ = succs[b][nextSucc[b]++];
+					if (!visited[succ]) {
+						visited[succ] = true;
+						stack[++top] = succ;
+					}
+				} else {
+					order[numOfOrdered++] = b;
+					top--;
+				}
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Returns the loop nesting depth of a block, i.e., the number of natural loops
+	 * containing it. Loops are found from the back edges of the depth-first search
+	 * from the first block, i.e., the edges leading to a block still on the search
+	 * stack; loops sharing a header count as a single loop.
+	 *
+	 * @param block The block.
+	 * @return The loop nesting depth of the block.
+	 */
+	public int loopDepth(int block) {
+		if (loopDepths == null)
+			loopDepths = loopDepths();
+		return loopDepths[block];
+	}
+
+	private int[] loopDepths() {
+		int numOfBlocks = succs.length;
+		int[] depths = new int[numOfBlocks];
+
+		// Find back edges, grouped by their headers.
+		Vector<Vector<Integer>> tails = new Vector<Vector<Integer>>(numOfBlocks);
+		for (int b = 0; b < numOfBlocks; b++)
+			tails.add(null);
+		boolean[] visited = new boolean[numOfBlocks];
+		boolean[] onStack = new boolean[numOfBlocks];
+		int[] stack = new int[numOfBlocks];
+		int[] nextSucc = new int[numOfBlocks];
+		for (int root = 0; root < numOfBlocks; root++) {
+			if (visited[root])
+				continue;
+			int top = 0;
+			stack[top] = root;
+			visited[root] = onStack[root] = true;
+			while (top >= 0) {
+				int b = stack[top];
+				if (nextSucc[b] < succs[b].length) {
+					int succ = succs[b][nextSucc[b]++];
+					if (onStack[succ]) {
+						if (tails.get(succ) == null)
+							tails.set(succ, new Vector<Integer>());
+						tails.get(succ).add(b);
+					} else if (!visited[succ]) {
+						visited[succ] = onStack[succ] = true;
+						stack[++top] = succ;
+					}
+				} else {
+					onStack[b] = false;
+					top--;
+				}
+			}
+		}
+
+		// Collect the body of the natural loop of each header.
+		boolean[] inLoop = new boolean[numOfBlocks];
+		int[] work = new int[numOfBlocks];
+		for (int header = 0; header < numOfBlocks; header++) {
+			if (tails.get(header) == null)
+				continue;
+			Arrays.fill(inLoop, false);
+			inLoop[header] = true;
+			int numOfWork = 0;
+			for (int tail : tails.get(header)) {
+				if (!inLoop[tail]) {
+					inLoop[tail] = true;
+					work[numOfWork++] = tail;
+				}
+			}
+			while (numOfWork > 0) {
+				int b = work[--numOfWork];
+				for (int pred : preds[b]) {
+					if (!inLoop[pred]) {
+						inLoop[pred] = true;
+						work[numOfWork++] = pred;
+					}
+				}
+			}
+			for (int b = 0; b < numOfBlocks; b++)
+				if (inLoop[b])
+					depths[b]++;
+		}
+		return depths;
+	}
+
+}
@@ -13,13 +13,9 @@ public class Label {
 	/** The name of a label. */
 	public final String name;
 
-	/** Counter of anonymous labels. */
-	private static long count = 0;
-
-	/** Creates a new anonymous label. */
+	/** Creates a new anonymous label (of the current compilation). */
 	public Label() {
-		this.name = "L" + count;
-		count++;
+		this.name = "L" + compiler.Compilation.current().newLabel();
 	}
 
 	/**
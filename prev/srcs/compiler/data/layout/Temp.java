@@ -13,13 +13,9 @@ public class Temp {
 	/** The name of a temporary variable. */
 	public final long temp;
 
-	/** Counter of temporary variables. */
-	private static long count = 0;
-
-	/** Creates a new temporary variable. */
+	/** Creates a new temporary variable (of the current compilation). */
 	public Temp() {
-		this.temp = count;
-		count++;
+		this.temp = compiler.Compilation.current().newTemp();
 	}
 
 	@Override
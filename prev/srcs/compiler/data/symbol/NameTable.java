@@ -0,0 +1,122 @@
+package compiler.data.symbol;
+
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * A table of names, i.e., of interned identifiers.
+ *
+ * Each distinct name is represented by a single string and is assigned a dense
+ * id in the order of its first occurrence, so that names can be compared by
+ * reference and data indexed by names can be kept in arrays (see
+ * {@link compiler.phases.seman.SymbTable}). The table uses open addressing
+ * with linear probing and the hash of a name equals the hash of its string,
+ * so names can be looked up both as strings and as bytes of the source file
+ * (in ISO-8859-1) without materializing them.
+ */
+public class NameTable {
+
+	/** The names indexed by their ids. */
+	private String[] names = new String[256];
+
+	/** The number of names. */
+	private int size = 0;
+
+	/** The hash table of ids (incremented by one, {@code 0} if empty). */
+	private int[] slots = new int[512];
+
+	/**
+	 * Returns the id of a name, adding the name to the table if it is not there
+	 * yet.
+	 *
+	 * @param name The name.
+	 * @return The id of the name.
+	 */
+	public int id(String name) {
+		int mask = slots.length - 1;
+		for (int slot = spread(name.hashCode()) & mask;; slot = (slot + 1) & mask) {
+			int id = slots[slot] - 1;
+			if (id < 0)
+				return add(name, slot);
+			if ((names[id] == name) || names[id].equals(name))
+				return id;
+		}
+	}
+
+	/**
+	 * Returns the id of a name given as bytes of the source file, adding the name
+	 * to the table if it is not there yet.
+	 *
+	 * @param src    The source file.
+	 * @param pos    The position of the name in the source file.
+	 * @param length The length of the name.
+	 * @return The id of the name.
+	 */
+	public int id(ByteBuffer src, int pos, int length) {
+		int hash = 0;
+		for (int b = 0; b < length; b++)
+			hash = 31 * hash + (src.get(pos + b) & 0xFF);
+		int mask = slots.length - 1;
+		for (int slot = spread(hash) & mask;; slot = (slot + 1) & mask) {
+			int id = slots[slot] - 1;
+			if (id < 0) {
+				byte[] bytes = new byte[length];
+				src.get(pos, bytes);
+				return add(new String(bytes, StandardCharsets.ISO_8859_1), slot);
+			}
+			String name = names[id];
+			if (name.length() != length)
+				continue;
+			int b = 0;
+			while ((b < length) && (name.charAt(b) == (src.get(pos + b) & 0xFF)))
+				b++;
+			if (b == length)
+				return id;
+		}
+	}
+
+	/**
+	 * Returns the name with the specified id.
+	 *
+	 * @param id The id of the name.
+	 * @return The name.
+	 */
+	public String name(int id) {
+		return names[id];
+	}
+
+	/**
+	 * Returns the number of names.
+	 *
+	 * @return The number of names.
+	 */
+	public int size() {
+		return size;
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private int add(String name, int slot) {
+		if (size == names.length)
+			names = Arrays.copyOf(names, 2 * size);
+		int id = size++;
+		names[id] = name;
+		slots[slot] = id + 1;
+		if (2 * size > slots.length) {
+			// Rehash all names into a table twice the size.
+			slots = new int[2 * slots.length];
+			int mask = slots.length - 1;
+			for (int n = 0; n < size; n++) {
+				int s = spread(names[n].hashCode()) & mask;
+				while (slots[s] != 0)
+					s = (s + 1) & mask;
+				slots[s] = n + 1;
+			}
+		}
+		return id;
+	}
+
+}
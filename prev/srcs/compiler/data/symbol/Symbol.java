@@ -29,7 +29,7 @@ public class Symbol implements Locatable, Loggable {
 	public final Term token;
 
 	/** The lexeme. */
-	public final String lexeme;
+	private String lexeme;
 
 	/** The location within a source file. */
 	private Location location;
@@ -47,6 +47,25 @@ public class Symbol implements Locatable, Loggable {
 		this.location = location.location();
 	}
 
+	/**
+	 * Constructs a new symbol whose lexeme and location are provided by a subclass
+	 * (e.g., materialized only once they are needed).
+	 * 
+	 * @param token The token.
+	 */
+	protected Symbol(Term token) {
+		this.token = token;
+	}
+
+	/**
+	 * Returns the lexeme.
+	 * 
+	 * @return The lexeme.
+	 */
+	public String lexeme() {
+		return lexeme;
+	}
+
 	@Override
 	public Location location() {
 		return location;
@@ -58,14 +77,14 @@ public class Symbol implements Locatable, Loggable {
 			return;
 		logger.begElement("term");
 		logger.addAttribute("token", token.toString());
-		logger.addAttribute("lexeme", lexeme);
-		location.log(logger);
+		logger.addAttribute("lexeme", lexeme());
+		location().log(logger);
 		logger.endElement();
 	}
 
 	@Override
 	public String toString() {
-		return lexeme;
+		return lexeme();
 	}
 
 }
@@ -19,6 +19,9 @@ public class SemArrType extends SemType {
 	/** The type of an array element. */
 	public final SemType elemType;
 
+	/** The size of this type (or {@code -1} if not computed yet). */
+	private long size = -1;
+
 	/**
 	 * Constructs a new array type.
 	 * 
@@ -32,7 +35,9 @@ public class SemArrType extends SemType {
 
 	@Override
 	public long size() {
-		return len * elemType.size();
+		if (size < 0)
+			size = len * elemType.size();
+		return size;
 	}
 
 	@Override
@@ -59,11 +64,6 @@ public class SemArrType extends SemType {
 		return true;
 	}
 	
-	@Override
-	protected boolean isInfinite(HashSet<SemNamedType> namedTypes) {
-		return elemType.isInfinite(namedTypes);
-	}
-
 	@Override
 	public void log(Logger logger) {
 		if (logger == null)
@@ -30,11 +30,6 @@ public class SemBoolType extends SemType
 		return that.actualType() instanceof SemBoolType;
 	}
 
-	@Override
-	protected boolean isInfinite(HashSet<SemNamedType> namedTypes) {
-		return false;
-	}
-
 	@Override
 	public void log(Logger logger) {
 		if (logger == null)
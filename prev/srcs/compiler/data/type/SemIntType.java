@@ -30,11 +30,6 @@ public class SemIntType extends SemType implements AssignType, BinArithOperType,
 		return that.actualType() instanceof SemIntType;
 	}
 
-	@Override
-	protected boolean isInfinite(HashSet<SemNamedType> namedTypes) {
-		return false;
-	}
-
 	@Override
 	public void log(Logger logger) {
 		if (logger == null)
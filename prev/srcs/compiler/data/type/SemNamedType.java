@@ -20,6 +20,9 @@ public class SemNamedType extends SemType {
 	/** The type this type is a synonym for. */
 	public SemType type;
 
+	/** The size of this type (or {@code -1} if not computed yet). */
+	private long size = -1;
+
 	/**
 	 * Constructs a new representation of a type synonym.
 	 * 
@@ -43,28 +46,23 @@ public class SemNamedType extends SemType {
 
 	@Override
 	public long size() {
-		return type.size();
+		if (size < 0)
+			size = type.size();
+		return size;
 	}
 
 	@Override
 	public SemType actualType() {
-		return type.actualType();
+		// Like a synonym itself, an undefined synonym has no actual type.
+		return Objects.requireNonNull(TypeTable.actual(this));
 	}
 
 	@Override
 	public boolean matches(SemType that, SemType.TypeMatching matched) {
-		return this.actualType().matches(that, matched);
-	}
-
-	@Override
-	protected boolean isInfinite(HashSet<SemNamedType> namedTypes) {
-		if (namedTypes.contains(this))
-			return true;
-		else {
-			namedTypes.add(this);
-			return type.isInfinite(namedTypes);
-		}
-
+		SemType actType = this.actualType();
+		if (actType instanceof SemNamedType)
+			return actType == that.actualType();
+		return actType.matches(that, matched);
 	}
 
 	@Override
@@ -55,11 +55,6 @@ public class SemPtrType extends SemType
 	}
 	
 
-	@Override
-	protected boolean isInfinite(HashSet<SemNamedType> namedTypes) {
-		return false;
-	}
-
 	@Override
 	public void log(Logger logger) {
 		if (logger == null)
@@ -16,6 +16,9 @@ public class SemRecType extends SemType {
 	/** The types of all components. */
 	private final Vector<SemType> compTypes;
 
+	/** The size of this type (or {@code -1} if not computed yet). */
+	private long size = -1;
+
 	/**
 	 * Constructs a new record type.
 	 * 
@@ -55,11 +58,13 @@ public class SemRecType extends SemType {
 
 	@Override
 	public long size() {
+		if (this.size >= 0)
+			return this.size;
 		long size = 0;
 		for (int comp = 0; comp < compTypes.size(); comp++) {
 			size = size + compTypes.elementAt(comp).size();
 		}
-		return size;
+		return this.size = size;
 	}
 
 	@Override
@@ -87,14 +92,6 @@ public class SemRecType extends SemType {
 		return true;
 	}
 
-	@Override
-	protected boolean isInfinite(HashSet<SemNamedType> namedTypes) {
-		boolean isInfinite = false;
-		for (SemType compType : compTypes)
-			isInfinite |= compType.isInfinite(namedTypes);
-		return isInfinite;
-	}
-
 	@Override
 	public void log(Logger logger) {
 		if (logger == null)
@@ -13,6 +13,21 @@ import compiler.common.logger.*;
  */
 public abstract class SemType implements Loggable {
 
+	/** The canonical type of this type (or {@code null} if not known yet). */
+	SemType canonical = null;
+
+	/**
+	 * Whether any pointer type reachable from this type points to void (known
+	 * for canonical types only).
+	 */
+	boolean voidPtrs = false;
+
+	/**
+	 * Whether this type is infinite, i.e., has no finite size (known for
+	 * canonical types only).
+	 */
+	boolean infinite = false;
+
 	/**
 	 * Returns the size of this type.
 	 * 
@@ -26,20 +41,43 @@ public abstract class SemType implements Loggable {
 	 * Alongside nodes that describe the actual type a representation of a type can
 	 * include nodes describing type synonyms (represented by objects of class
 	 * {@link SemNamedType}). This function returns the top-most node describing the
-	 * actual type by skipping all top-most synonym nodes.
+	 * actual type by skipping all top-most synonym nodes. A cycle of synonym nodes
+	 * describes no actual type and is represented by one of its nodes (see
+	 * {@link TypeTable}).
 	 * 
 	 * @return The top-most non-synonym node of this type representation.
 	 */
 	public abstract SemType actualType();
 
+	/**
+	 * Returns the canonical type of this type, i.e., the type representing all
+	 * types structurally equivalent to this one within the current compilation
+	 * (see {@link TypeTable}).
+	 * 
+	 * @return The canonical type of this type.
+	 */
+	public final SemType canonical() {
+		return compiler.Compilation.current().types.canonical(this);
+	}
+
 	/**
 	 * Checks whether this type matches another type (wrapper for
 	 * {@link matches(SemType, TypeMatching)}).
 	 * 
+	 * Structurally equivalent types match, and as a pointer to void matches any
+	 * pointer, types that are not structurally equivalent match only if a pointer
+	 * to void is reachable from this type.
+	 * 
 	 * @param that A type to be matched.
 	 * @return {@code true} if types match, {@code false} otherwise.
 	 */
 	public final boolean matches(SemType that) {
+		SemType thisType = this.canonical();
+		SemType thatType = that.canonical();
+		if (thisType == thatType)
+			return true;
+		if (!thisType.voidPtrs)
+			return false;
 		return matches(that, new TypeMatching());
 	}
 
@@ -100,21 +138,14 @@ public abstract class SemType implements Loggable {
 	}
 
 	/**
-	 * Checks whether a type is infinite (wrapper for
-	 * {@link isInfinite(HashSet)}.
+	 * Checks whether a type is infinite, i.e., has no finite size as it contains
+	 * itself other than through a pointer, contains an infinite type, or is a
+	 * cycle of type synonyms (see {@link TypeTable}).
 	 * 
 	 * @return {@code true} if the type is infinite, {@code false} otherwise.
 	 */
 	public final boolean isInfinite() {
-		return isInfinite(new HashSet<SemNamedType>());
+		return canonical().infinite;
 	}
 
-	/**
-	 * Checks whether a type is infinite.
-	 * 
-	 * @param namedTypes Named types already encountered during the traversal.
-	 * @return {@code true} if the type is infinite, {@code false} otherwise.
-	 */
-	protected abstract boolean isInfinite(HashSet<SemNamedType> namedTypes);
-
 }
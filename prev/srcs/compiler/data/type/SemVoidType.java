@@ -30,11 +30,6 @@ public class SemVoidType extends SemType implements FunResultType {
 		return that.actualType() instanceof SemVoidType;
 	}
 
-	@Override
-	protected boolean isInfinite(HashSet<SemNamedType> namedTypes) {
-		return false;
-	}
-
 	@Override
 	public void log(Logger logger) {
 		if (logger == null)
@@ -0,0 +1,376 @@
+package compiler.data.type;
+
+import java.util.*;
+
+/**
+ * A table of canonical types.
+ *
+ * Structurally equivalent types, i.e., types that describe the same (possibly
+ * infinite) tree once all type synonyms are skipped, are represented by a
+ * single canonical type, so that structural equivalence of types can be
+ * checked by comparing their canonical types by reference (see
+ * {@link SemType#matches(SemType)}). The canonical type of a type is computed
+ * the first time it is needed, once all type synonyms it depends on have been
+ * defined, and is then kept by the type itself.
+ *
+ * Types are canonicalized by hash-consing: a type is canonicalized after all
+ * types it depends on, and its key, i.e., its kind, its length and the
+ * canonical types of its components, is looked up in the table. Types
+ * depending on one another through type synonyms form strongly connected
+ * components which are canonicalized together: the types within a component
+ * and the canonical types reachable from it are partitioned into classes of
+ * equivalent types by partition refinement. A class containing a canonical
+ * type is represented by it, while any other class is looked up by a key
+ * describing the (minimal) graph of classes reachable from it.
+ *
+ * Whether a type is infinite is determined when the type becomes canonical, as
+ * all types a type contains (other than through a pointer) are within its
+ * strongly connected component or have already been canonicalized. A cycle of
+ * type synonyms is infinite as well.
+ */
+public class TypeTable {
+
+	/** The canonical types indexed by their kinds and their canonical components. */
+	private final HashMap<List<Object>, SemType> canonicalTypes = new HashMap<List<Object>, SemType>();
+
+	/** The recursive canonical types indexed by the graphs reachable from them. */
+	private final HashMap<List<Object>, SemType> cyclicTypes = new HashMap<List<Object>, SemType>();
+
+	/** The types being canonicalized (indexed by their DFS numbers). */
+	private final Vector<SemType> types = new Vector<SemType>();
+
+	/** The DFS numbers of the types being canonicalized. */
+	private final IdentityHashMap<SemType, Integer> numbers = new IdentityHashMap<SemType, Integer>();
+
+	/** The lowest DFS numbers reachable from the types being canonicalized. */
+	private final Vector<Integer> lowLinks = new Vector<Integer>();
+
+	/** The stack of the strongly connected components being discovered. */
+	private final Vector<SemType> stack = new Vector<SemType>();
+
+	/**
+	 * Returns the canonical type of a type.
+	 *
+	 * @param type The type.
+	 * @return The canonical type of the type.
+	 */
+	public SemType canonical(SemType type) {
+		SemType actType = actual(type);
+		if (actType.canonical == null) {
+			if (isPrimitive(actType)) {
+				actType.canonical = canonicalTypes.computeIfAbsent(Arrays.asList(actType.getClass()), __ -> actType);
+				return actType.canonical;
+			}
+			types.clear();
+			numbers.clear();
+			lowLinks.clear();
+			stack.clear();
+			canonicalize(actType);
+		}
+		return actType.canonical;
+	}
+
+	/**
+	 * Returns the actual type of a type, i.e., skips all top-most type synonyms
+	 * (implements {@link SemNamedType#actualType()}).
+	 *
+	 * A cycle of type synonyms, e.g., {@code typ t : t}, describes no actual
+	 * type, so it is represented by one of its type synonyms, which becomes the
+	 * canonical type of all type synonyms of the cycle, is not equivalent to any
+	 * other type and is infinite.
+	 *
+	 * @param type The type.
+	 * @return The actual type of the type or the canonical type of a cycle of
+	 *         type synonyms.
+	 */
+	static SemType actual(SemType type) {
+		// The cycles are detected by Floyd's algorithm.
+		SemType slow = type;
+		SemType fast = type;
+		while (fast instanceof SemNamedType) {
+			fast = ((SemNamedType) fast).type;
+			if (!(fast instanceof SemNamedType))
+				break;
+			fast = ((SemNamedType) fast).type;
+			slow = ((SemNamedType) slow).type;
+			if (fast == slow) {
+				if (slow.canonical == null) {
+					slow.infinite = true;
+					SemType synonym = slow;
+					do {
+						synonym.canonical = slow;
+						synonym = ((SemNamedType) synonym).type;
+					} while (synonym != slow);
+				}
+				return slow.canonical;
+			}
+		}
+		return fast;
+	}
+
+	/**
+	 * Checks whether a type is primitive, i.e., has no components.
+	 *
+	 * @param type The (actual) type.
+	 * @return {@code true} if the type is primitive, {@code false} otherwise.
+	 */
+	private static boolean isPrimitive(SemType type) {
+		return !((type instanceof SemArrType) || (type instanceof SemPtrType) || (type instanceof SemRecType));
+	}
+
+	/**
+	 * Returns the components of a type, i.e., the actual types it directly
+	 * depends on.
+	 *
+	 * @param type The (actual) type.
+	 * @return The actual types of its components.
+	 */
+	private static Vector<SemType> comps(SemType type) {
+		Vector<SemType> comps = new Vector<SemType>();
+		if (type instanceof SemArrType)
+			comps.add(actual(((SemArrType) type).elemType));
+		if (type instanceof SemPtrType)
+			comps.add(actual(((SemPtrType) type).ptdType));
+		if (type instanceof SemRecType) {
+			SemRecType recType = (SemRecType) type;
+			for (int comp = 0; comp < recType.numCompTypes(); comp++)
+				comps.add(actual(recType.compType(comp)));
+		}
+		return comps;
+	}
+
+	/**
+	 * Canonicalizes all types reachable from a type that have not been
+	 * canonicalized yet (Tarjan's algorithm, so that each strongly connected
+	 * component is canonicalized after all components it depends on).
+	 *
+	 * @param type The (actual) type.
+	 * @return The lowest DFS number reachable from the type.
+	 */
+	private int canonicalize(SemType type) {
+		int number = types.size();
+		types.add(type);
+		numbers.put(type, number);
+		lowLinks.add(number);
+		stack.add(type);
+		for (SemType comp : comps(type)) {
+			if (isPrimitive(comp))
+				canonical(comp);
+			if (comp.canonical != null)
+				continue;
+			Integer compNumber = numbers.get(comp);
+			if (compNumber == null)
+				lowLinks.set(number, Math.min(lowLinks.get(number), canonicalize(comp)));
+			else if (stack.contains(comp))
+				lowLinks.set(number, Math.min(lowLinks.get(number), compNumber));
+		}
+		if (lowLinks.get(number) == number) {
+			int beg = stack.lastIndexOf(type);
+			Vector<SemType> component = new Vector<SemType>(stack.subList(beg, stack.size()));
+			stack.setSize(beg);
+			canonicalize(component);
+		}
+		return lowLinks.get(number);
+	}
+
+	/**
+	 * Canonicalizes a strongly connected component of types whose components
+	 * outside the strongly connected component have already been canonicalized.
+	 *
+	 * @param component The types of the strongly connected component.
+	 */
+	private void canonicalize(Vector<SemType> component) {
+		if ((component.size() == 1) && !comps(component.firstElement()).contains(component.firstElement())) {
+			// A type that does not depend on itself.
+			SemType type = component.firstElement();
+			List<Object> key = key(type, new IdentityHashMap<SemType, Integer>());
+			SemType canonicalType = canonicalTypes.get(key);
+			if (canonicalType == null) {
+				canonicalType = type;
+				for (SemType comp : comps(type))
+					if (((type instanceof SemPtrType) && (comp instanceof SemVoidType)) || comp.canonical.voidPtrs)
+						canonicalType.voidPtrs = true;
+				if (!(type instanceof SemPtrType))
+					for (SemType comp : comps(type))
+						if (comp.canonical.infinite)
+							canonicalType.infinite = true;
+				canonicalTypes.put(key, canonicalType);
+			}
+			type.canonical = canonicalType;
+			return;
+		}
+		// The canonical types reachable from the component take part in the
+		// partition refinement as well, so that the types of the component end up
+		// in the same classes as the canonical types they are equivalent to.
+		Vector<SemType> types = new Vector<SemType>(component);
+		IdentityHashMap<SemType, Integer> classes = new IdentityHashMap<SemType, Integer>();
+		for (SemType type : component)
+			classes.put(type, 0);
+		for (int t = 0; t < types.size(); t++) {
+			for (SemType comp : comps(types.get(t))) {
+				SemType node = node(comp);
+				if (!classes.containsKey(node)) {
+					classes.put(node, 0);
+					types.add(node);
+				}
+			}
+		}
+
+		// Partition refinement: the types are split by their kinds and lengths
+		// and then by the classes of their components until no class is split.
+		int numOfClasses = 0;
+		while (true) {
+			HashMap<List<Object>, Integer> signatures = new HashMap<List<Object>, Integer>();
+			IdentityHashMap<SemType, Integer> refined = new IdentityHashMap<SemType, Integer>();
+			for (SemType type : types) {
+				List<Object> signature = key(type, classes);
+				signature.add(0, classes.get(type));
+				Integer newClass = signatures.get(signature);
+				if (newClass == null) {
+					newClass = signatures.size();
+					signatures.put(signature, newClass);
+				}
+				refined.put(type, newClass);
+			}
+			classes = refined;
+			if (signatures.size() == numOfClasses)
+				break;
+			numOfClasses = signatures.size();
+		}
+
+		// The canonical types are not equivalent to one another, so each class
+		// contains at most one of them. The other classes are represented by
+		// types of the component.
+		SemType[] olds = new SemType[numOfClasses];
+		SemType[] reprs = new SemType[numOfClasses];
+		for (SemType type : types) {
+			if (type.canonical != null)
+				olds[classes.get(type)] = type;
+			else if (reprs[classes.get(type)] == null)
+				reprs[classes.get(type)] = type;
+		}
+
+		// Whether any type within the component points to void.
+		boolean voidPtrs = false;
+		for (SemType type : component) {
+			if ((type instanceof SemPtrType) && (actual(((SemPtrType) type).ptdType) instanceof SemVoidType))
+				voidPtrs = true;
+			for (SemType comp : comps(type))
+				if ((comp.canonical != null) && comp.canonical.voidPtrs)
+					voidPtrs = true;
+		}
+
+		// The finite types within the component, i.e., pointers and the types
+		// whose components are all finite.
+		Set<SemType> finite = Collections.newSetFromMap(new IdentityHashMap<SemType, Boolean>());
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (SemType type : component) {
+				if (finite.contains(type))
+					continue;
+				boolean isFinite = true;
+				if (!(type instanceof SemPtrType))
+					for (SemType comp : comps(type))
+						if ((comp.canonical == null) ? !finite.contains(comp) : comp.canonical.infinite)
+							isFinite = false;
+				if (isFinite) {
+					finite.add(type);
+					changed = true;
+				}
+			}
+		}
+
+		// Each class without a canonical type is looked up by the graph of
+		// classes reachable from it.
+		SemType[] canonicalTypes = olds.clone();
+		Vector<SemType> newTypes = new Vector<SemType>();
+		for (int c = 0; c < numOfClasses; c++) {
+			if (olds[c] != null)
+				continue;
+			List<Object> key = new Vector<Object>();
+			key(c, reprs, olds, classes, new HashMap<Integer, Integer>(), key);
+			SemType canonicalType = cyclicTypes.get(key);
+			if (canonicalType == null) {
+				canonicalType = reprs[c];
+				canonicalType.voidPtrs = voidPtrs;
+				canonicalType.infinite = !finite.contains(canonicalType);
+				cyclicTypes.put(key, canonicalType);
+				newTypes.add(canonicalType);
+			}
+			canonicalTypes[c] = canonicalType;
+		}
+		for (SemType type : component)
+			type.canonical = canonicalTypes[classes.get(type)];
+
+		// New canonical types can also be found by the canonical types of their
+		// components.
+		for (SemType type : newTypes)
+			this.canonicalTypes.put(key(type, new IdentityHashMap<SemType, Integer>()), type);
+	}
+
+	/**
+	 * Returns the type that represents a component of a type during partition
+	 * refinement.
+	 *
+	 * @param comp The (actual) type of the component.
+	 * @return The component itself if it is being canonicalized, its canonical
+	 *         type otherwise.
+	 */
+	private static SemType node(SemType comp) {
+		return comp.canonical == null ? comp : comp.canonical;
+	}
+
+	/**
+	 * Returns the key of a type, i.e., its kind, its length (of an array) or the
+	 * number of its components (of a record), and the classes of its components
+	 * or, if not classified, the canonical types of its components. The key of a
+	 * cycle of type synonyms is the cycle itself.
+	 *
+	 * @param type    The (actual) type.
+	 * @param classes The classes of types.
+	 * @return The key of the type.
+	 */
+	private static List<Object> key(SemType type, IdentityHashMap<SemType, Integer> classes) {
+		Vector<SemType> comps = comps(type);
+		List<Object> key = new Vector<Object>();
+		key.add(type instanceof SemNamedType ? type : type.getClass());
+		key.add(type instanceof SemArrType ? ((SemArrType) type).len : comps.size());
+		for (SemType comp : comps) {
+			Integer compClass = classes.get(node(comp));
+			key.add(compClass == null ? comp.canonical : compClass);
+		}
+		return key;
+	}
+
+	/**
+	 * Appends the key of the graph of classes without canonical types reachable
+	 * from a class (in DFS order, with the classes already visited denoted by
+	 * their DFS numbers and the other classes by their canonical types).
+	 *
+	 * @param c       The class.
+	 * @param reprs   The representatives of the classes.
+	 * @param olds    The canonical types of the classes (if any).
+	 * @param classes The classes of types.
+	 * @param visited The DFS numbers of classes already visited.
+	 * @param key     The key.
+	 */
+	private static void key(int c, SemType[] reprs, SemType[] olds, IdentityHashMap<SemType, Integer> classes,
+			HashMap<Integer, Integer> visited, List<Object> key) {
+		visited.put(c, visited.size());
+		SemType type = reprs[c];
+		Vector<SemType> comps = comps(type);
+		key.add(type.getClass());
+		key.add(type instanceof SemArrType ? ((SemArrType) type).len : comps.size());
+		for (SemType comp : comps) {
+			int compClass = classes.get(node(comp));
+			if (olds[compClass] != null)
+				key.add(olds[compClass]);
+			else if (visited.containsKey(compClass))
+				key.add(visited.get(compClass));
+			else
+				key(compClass, reprs, olds, classes, visited, key);
+		}
+	}
+
+}
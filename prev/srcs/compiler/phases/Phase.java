@@ -4,16 +4,20 @@
 package compiler.phases;
 
 import compiler.common.logger.*;
+import compiler.common.stats.*;
 
 /**
  * An abstract compiler phase. All concrete compiler phases should be
  * implemented as a subclass of this class in order to ensure they can be
- * properly logged.
+ * properly logged and measured.
  * 
  * @author sliva
  */
 public abstract class Phase implements AutoCloseable {
 
+	/** The name of this phase. */
+	private final String phaseName;
+
 	/** The logger used to produce the log of this phase. */
 	public final Logger logger;
 
@@ -21,11 +25,17 @@ public abstract class Phase implements AutoCloseable {
 	 * Constructs a new phase of a compiler. If logging of this phase has been
 	 * requested, it prepares a logger using the phase name for naming the XML and
 	 * XSL files as well as for the topmost XML element within the XML file.
+	 * Otherwise, if dumping of this phase has been requested, it prepares a logger
+	 * producing a binary dump instead (see {@link DumpLogger}). If statistics are
+	 * being collected, it starts measuring this phase.
 	 * 
 	 * @param phaseName The phase name.
 	 */
 	protected Phase(String phaseName) {
+		this.phaseName = phaseName;
+		Stats.begin(phaseName);
 		String loggedPhase = compiler.Main.cmdLineArgValue("--logged-phase");
+		String dumpedPhase = compiler.Main.cmdLineArgValue("--dumped-phase");
 		if ((loggedPhase != null) && loggedPhase.matches(phaseName + "|all")) {
 			// Prepare the name of the xml file.
 			String xmlFileName = compiler.Main.cmdLineArgValue("--xml");
@@ -41,6 +51,18 @@ public abstract class Phase implements AutoCloseable {
 			}
 
 			logger = new Logger(phaseName, xmlFileName, xslDirName + phaseName + ".xsl");
+		} else if ((dumpedPhase != null) && dumpedPhase.matches(phaseName + "|all")) {
+			// Prepare the name of the dump file.
+			String dumpFileName = compiler.Main.cmdLineArgValue("--src-file-name").replaceFirst("\\.[^./]*$", "")
+					+ "." + phaseName + ".dump";
+
+			// Prepare the name of the supporting xsl file.
+			String xslDirName = compiler.Main.cmdLineArgValue("--xsl");
+			if (xslDirName == null) {
+				xslDirName = "";
+			}
+
+			logger = new DumpLogger(phaseName, dumpFileName, xslDirName + phaseName + ".xsl");
 		} else {
 			logger = null;
 		}
@@ -50,6 +72,7 @@ public abstract class Phase implements AutoCloseable {
 	public void close() {
 		if (logger != null)
 			logger.close();
+		Stats.end(phaseName);
 	}
 
 }
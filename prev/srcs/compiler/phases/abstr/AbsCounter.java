@@ -0,0 +1,218 @@
+package compiler.phases.abstr;
+
+import compiler.data.abstree.*;
+import compiler.data.abstree.visitor.*;
+
+/**
+ * Counts the nodes of an abstract syntax tree.
+ */
+public class AbsCounter extends AbsFullVisitor<Object, Object> {
+
+	/** The number of nodes visited so far. */
+	private long numOfNodes = 0;
+
+	/**
+	 * Counts the nodes of an abstract syntax tree.
+	 * 
+	 * @param tree The abstract syntax tree.
+	 * @return The number of nodes.
+	 */
+	public static long count(AbsTree tree) {
+		AbsCounter counter = new AbsCounter();
+		tree.accept(counter, null);
+		return counter.numOfNodes;
+	}
+
+	@Override
+	public Object visit(AbsArgs args, Object visArg) {
+		numOfNodes++;
+		return super.visit(args, visArg);
+	}
+
+	@Override
+	public Object visit(AbsArrExpr arrExpr, Object visArg) {
+		numOfNodes++;
+		return super.visit(arrExpr, visArg);
+	}
+
+	@Override
+	public Object visit(AbsArrType arrType, Object visArg) {
+		numOfNodes++;
+		return super.visit(arrType, visArg);
+	}
+
+	@Override
+	public Object visit(AbsAssignStmt assignStmt, Object visArg) {
+		numOfNodes++;
+		return super.visit(assignStmt, visArg);
+	}
+
+	@Override
+	public Object visit(AbsAtomExpr atomExpr, Object visArg) {
+		numOfNodes++;
+		return super.visit(atomExpr, visArg);
+	}
+
+	@Override
+	public Object visit(AbsAtomType atomType, Object visArg) {
+		numOfNodes++;
+		return super.visit(atomType, visArg);
+	}
+
+	@Override
+	public Object visit(AbsBinExpr binExpr, Object visArg) {
+		numOfNodes++;
+		return super.visit(binExpr, visArg);
+	}
+
+	@Override
+	public Object visit(AbsBlockExpr blockExpr, Object visArg) {
+		numOfNodes++;
+		return super.visit(blockExpr, visArg);
+	}
+
+	@Override
+	public Object visit(AbsCastExpr castExpr, Object visArg) {
+		numOfNodes++;
+		return super.visit(castExpr, visArg);
+	}
+
+	@Override
+	public Object visit(AbsCompDecl compDecl, Object visArg) {
+		numOfNodes++;
+		return super.visit(compDecl, visArg);
+	}
+
+	@Override
+	public Object visit(AbsCompDecls compDecls, Object visArg) {
+		numOfNodes++;
+		return super.visit(compDecls, visArg);
+	}
+
+	@Override
+	public Object visit(AbsDecls decls, Object visArg) {
+		numOfNodes++;
+		return super.visit(decls, visArg);
+	}
+
+	@Override
+	public Object visit(AbsDelExpr delExpr, Object visArg) {
+		numOfNodes++;
+		return super.visit(delExpr, visArg);
+	}
+
+	@Override
+	public Object visit(AbsExprStmt exprStmt, Object visArg) {
+		numOfNodes++;
+		return super.visit(exprStmt, visArg);
+	}
+
+	@Override
+	public Object visit(AbsFunDecl funDecl, Object visArg) {
+		numOfNodes++;
+		return super.visit(funDecl, visArg);
+	}
+
+	@Override
+	public Object visit(AbsFunDef funDef, Object visArg) {
+		numOfNodes++;
+		return super.visit(funDef, visArg);
+	}
+
+	@Override
+	public Object visit(AbsFunName funName, Object visArg) {
+		numOfNodes++;
+		return super.visit(funName, visArg);
+	}
+
+	@Override
+	public Object visit(AbsIfStmt ifStmt, Object visArg) {
+		numOfNodes++;
+		return super.visit(ifStmt, visArg);
+	}
+
+	@Override
+	public Object visit(AbsNewExpr newExpr, Object visArg) {
+		numOfNodes++;
+		return super.visit(newExpr, visArg);
+	}
+
+	@Override
+	public Object visit(AbsParDecl parDecl, Object visArg) {
+		numOfNodes++;
+		return super.visit(parDecl, visArg);
+	}
+
+	@Override
+	public Object visit(AbsParDecls parDecls, Object visArg) {
+		numOfNodes++;
+		return super.visit(parDecls, visArg);
+	}
+
+	@Override
+	public Object visit(AbsPtrType ptrType, Object visArg) {
+		numOfNodes++;
+		return super.visit(ptrType, visArg);
+	}
+
+	@Override
+	public Object visit(AbsRecExpr recExpr, Object visArg) {
+		numOfNodes++;
+		return super.visit(recExpr, visArg);
+	}
+
+	@Override
+	public Object visit(AbsRecType recType, Object visArg) {
+		numOfNodes++;
+		return super.visit(recType, visArg);
+	}
+
+	@Override
+	public Object visit(AbsSource source, Object visArg) {
+		numOfNodes++;
+		return super.visit(source, visArg);
+	}
+
+	@Override
+	public Object visit(AbsStmts stmts, Object visArg) {
+		numOfNodes++;
+		return super.visit(stmts, visArg);
+	}
+
+	@Override
+	public Object visit(AbsTypDecl typDecl, Object visArg) {
+		numOfNodes++;
+		return super.visit(typDecl, visArg);
+	}
+
+	@Override
+	public Object visit(AbsTypName typName, Object visArg) {
+		numOfNodes++;
+		return super.visit(typName, visArg);
+	}
+
+	@Override
+	public Object visit(AbsUnExpr unExpr, Object visArg) {
+		numOfNodes++;
+		return super.visit(unExpr, visArg);
+	}
+
+	@Override
+	public Object visit(AbsVarDecl varDecl, Object visArg) {
+		numOfNodes++;
+		return super.visit(varDecl, visArg);
+	}
+
+	@Override
+	public Object visit(AbsVarName varName, Object visArg) {
+		numOfNodes++;
+		return super.visit(varName, visArg);
+	}
+
+	@Override
+	public Object visit(AbsWhileStmt whileStmt, Object visArg) {
+		numOfNodes++;
+		return super.visit(whileStmt, visArg);
+	}
+
+}
@@ -61,16 +61,16 @@ public class AbsTreeConstructor implements DerVisitor<AbsTree, AbsTree> {
 			switch (nodeType.symb.token) {
 			case TYP:{
 				AbsType type = (AbsType) node.subtree(3).accept(this, null);
-				String name = ((DerLeaf)(node.subtree(1))).symb.lexeme;
+				String name = ((DerLeaf)(node.subtree(1))).symb.lexeme();
 				return new AbsTypDecl(new Location(node.subtree(0).location(), node.subtree(4).location()), name, type);
 			}
 			case VAR:{
 				AbsType type = (AbsType) node.subtree(3).accept(this, null);
-				String name = ((DerLeaf)(node.subtree(1))).symb.lexeme;
+				String name = ((DerLeaf)(node.subtree(1))).symb.lexeme();
 				return new AbsVarDecl(new Location(node.subtree(0).location(), node.subtree(4).location()), name, type);
 			}
 			case FUN:
-				String name = ((DerLeaf)(node.subtree(1))).symb.lexeme;
+				String name = ((DerLeaf)(node.subtree(1))).symb.lexeme();
 				AbsParDecls parDecls = (AbsParDecls) node.subtree(3).accept(this, null);
 				AbsType type = (AbsType) node.subtree(6).accept(this, null);
 				if(((DerNode)node.subtree(7)).numSubtrees() == 0) {
@@ -110,7 +110,7 @@ public class AbsTreeConstructor implements DerVisitor<AbsTree, AbsTree> {
 				return new AbsPtrType(new Location(node,node), type);
 			}
 			case IDENTIFIER:{
-				String name = ((DerLeaf)(node.subtree(0))).symb.lexeme;
+				String name = ((DerLeaf)(node.subtree(0))).symb.lexeme();
 				return new AbsTypName(new Location(node, node), name);
 			}
 			case LPARENTHESIS:{
@@ -133,7 +133,7 @@ public class AbsTreeConstructor implements DerVisitor<AbsTree, AbsTree> {
 		}
 		
 		case CompDecl:{
-			String name = ((DerLeaf)(node.subtree(0))).symb.lexeme;
+			String name = ((DerLeaf)(node.subtree(0))).symb.lexeme();
 			AbsType type = (AbsType) node.subtree(2).accept(this, null);
 			return new AbsCompDecl(new Location(node),  name, type);
 		}
@@ -160,7 +160,7 @@ public class AbsTreeConstructor implements DerVisitor<AbsTree, AbsTree> {
 			return new AbsParDecls(new Location(decl, decls == null ? decl : decls), allDecls);
 		}
 		case ParDecl:{
-			String name = ((DerLeaf)(node.subtree(0))).symb.lexeme;
+			String name = ((DerLeaf)(node.subtree(0))).symb.lexeme();
 			AbsType type = (AbsType) node.subtree(2).accept(this, null);
 			return new AbsParDecl(new Location(node),  name, type);
 		}
@@ -376,7 +376,7 @@ public class AbsTreeConstructor implements DerVisitor<AbsTree, AbsTree> {
 				AbsArrExpr arrExpr = new AbsArrExpr(new Location(node.subtree(0), index), (AbsExpr) visArg, index);
 				return node.subtree(3).accept(this, arrExpr);
 			case DOT:
-				String name = ((DerLeaf)node.subtree(1)).symb.lexeme;
+				String name = ((DerLeaf)node.subtree(1)).symb.lexeme();
 				AbsVarName comp = new AbsVarName(new Location(node), name);
 				AbsRecExpr recExpr = new AbsRecExpr(new Location(visArg, comp), (AbsExpr) visArg, comp);
 				return node.subtree(2).accept(this, recExpr);
@@ -404,21 +404,21 @@ public class AbsTreeConstructor implements DerVisitor<AbsTree, AbsTree> {
 		case AtomExpr:{
 			switch(((DerLeaf)node.subtree(0)).symb.token) {
 			case IDENTIFIER:
-				String name = ((DerLeaf)node.subtree(0)).symb.lexeme;
+				String name = ((DerLeaf)node.subtree(0)).symb.lexeme();
 				AbsVarName varName = new AbsVarName(new Location(node), name);
 				return node.subtree(1).accept(this, varName);
 			case INTCONST:
-				return new AbsAtomExpr(new Location(node), AbsAtomExpr.Type.INT, ((DerLeaf)node.subtree(0)).symb.lexeme);
+				return new AbsAtomExpr(new Location(node), AbsAtomExpr.Type.INT, ((DerLeaf)node.subtree(0)).symb.lexeme());
 			case CHARCONST:
-				return new AbsAtomExpr(new Location(node), AbsAtomExpr.Type.CHAR, ((DerLeaf)node.subtree(0)).symb.lexeme);
+				return new AbsAtomExpr(new Location(node), AbsAtomExpr.Type.CHAR, ((DerLeaf)node.subtree(0)).symb.lexeme());
 			case BOOLCONST:
-				return new AbsAtomExpr(new Location(node), AbsAtomExpr.Type.BOOL, ((DerLeaf)node.subtree(0)).symb.lexeme);
+				return new AbsAtomExpr(new Location(node), AbsAtomExpr.Type.BOOL, ((DerLeaf)node.subtree(0)).symb.lexeme());
 			case STRCONST:
-				return new AbsAtomExpr(new Location(node), AbsAtomExpr.Type.STR, ((DerLeaf)node.subtree(0)).symb.lexeme);
+				return new AbsAtomExpr(new Location(node), AbsAtomExpr.Type.STR, ((DerLeaf)node.subtree(0)).symb.lexeme());
 			case VOIDCONST:
-				return new AbsAtomExpr(new Location(node), AbsAtomExpr.Type.VOID, ((DerLeaf)node.subtree(0)).symb.lexeme);
+				return new AbsAtomExpr(new Location(node), AbsAtomExpr.Type.VOID, ((DerLeaf)node.subtree(0)).symb.lexeme());
 			case PTRCONST:
-				return new AbsAtomExpr(new Location(node), AbsAtomExpr.Type.PTR, ((DerLeaf)node.subtree(0)).symb.lexeme);
+				return new AbsAtomExpr(new Location(node), AbsAtomExpr.Type.PTR, ((DerLeaf)node.subtree(0)).symb.lexeme());
 			case LBRACE:
 				AbsStmts stmts = (AbsStmts)node.subtree(1).accept(this, null);
 				
@@ -3,6 +3,8 @@
  */
 package compiler.phases.abstr;
 
+import compiler.*;
+import compiler.common.stats.*;
 import compiler.data.abstree.*;
 import compiler.phases.*;
 
@@ -13,9 +15,6 @@ import compiler.phases.*;
  */
 public class Abstr extends Phase {
 
-	/** The abstract syntax tree of the program being compiled. */
-	public static AbsTree absTree = null;
-
 	/**
 	 * Constructs a new phase of abstract syntax.
 	 */
@@ -23,4 +22,12 @@ public class Abstr extends Phase {
 		super("abstr");
 	}
 
+	@Override
+	public void close() {
+		AbsTree absTree = Compilation.current().absTree;
+		if (Stats.enabled() && absTree != null)
+			Stats.count("abstree.nodes", AbsCounter.count(absTree));
+		super.close();
+	}
+
 }
@@ -4,12 +4,13 @@
 package compiler.phases.asmcode;
 
 import java.util.*;
+import compiler.*;
+import compiler.common.stats.*;
 
 import compiler.data.imcode.*;
 import compiler.data.chunk.*;
 import compiler.data.asmcode.*;
 import compiler.phases.*;
-import compiler.phases.chunks.*;
 
 /**
  * Code generator.
@@ -18,16 +19,22 @@ import compiler.phases.chunks.*;
  */
 public class AsmGen extends Phase {
 
-	public static Vector<Code> codes = new Vector<Code>();
-
 	public AsmGen() {
 		super("asmgen");
 	}
 
+	/**
+	 * Generates the code of all code chunks (in parallel, see
+	 * {@link Compilation#forEach}).
+	 */
 	public void genAsmCodes() {
-		for (CodeChunk codeChunk : Chunks.codeChunks) {
-			Code code = genAsmCode(codeChunk);
-			codes.add(code);
+		Compilation compilation = Compilation.current();
+		Vector<CodeChunk> codeChunks = compilation.codeChunks;
+		Code[] codes = new Code[codeChunks.size()];
+		compilation.forEach(codes.length, c -> codes[c] = genAsmCode(codeChunks.get(c)));
+		for (Code code : codes) {
+			compilation.codes.add(code);
+			Stats.count("asm.instrs", code.instrs.size());
 		}
 	}
 
@@ -42,7 +49,7 @@ public class AsmGen extends Phase {
 	public void log() {
 		if (logger == null)
 			return;
-		for (Code code : AsmGen.codes) {
+		for (Code code : Compilation.current().codes) {
 			logger.begElement("code");
 			logger.addAttribute("entrylabel", code.entryLabel.name);
 			logger.addAttribute("exitlabel", code.exitLabel.name);
@@ -0,0 +1,209 @@
+package compiler.phases.cache;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.*;
+
+import compiler.*;
+import compiler.common.report.*;
+import compiler.common.stats.*;
+import compiler.data.abstree.*;
+import compiler.data.abstree.visitor.*;
+import compiler.data.layout.*;
+import compiler.phases.*;
+import compiler.phases.frames.*;
+import compiler.phases.imcgen.*;
+
+/**
+ * Incremental compilation, i.e., reusing the final code of functions that have
+ * not changed since the previous compilation.
+ *
+ * The final code of each top-level function (together with its nested
+ * functions) is stored in the cache directory under the digest of the
+ * function's frames and intermediate code (see {@link ImcDigest}). As the
+ * intermediate code reflects the function's text as well as everything the
+ * function depends on (types, accesses of global variables, labels and static
+ * links of callees, sizes of frames), the function's final code can be reused
+ * whenever the digest matches. The names of anonymous labels are stored in the
+ * cache as {@code L0}, {@code L1}, ... and renamed to the labels of the current
+ * compilation once the code is reused.
+ */
+public class FunCache extends Phase {
+
+	/** The version of the cached code (to be increased with each change of the back end). */
+	private static final int VERSION = 1;
+
+	/**
+	 * A top-level function together with its nested functions.
+	 */
+	public static class Unit {
+
+		/** The top-level function. */
+		public final AbsFunDef funDef;
+
+		/** The frames of the top-level function and its nested functions. */
+		public final HashSet<Frame> frames = new HashSet<Frame>();
+
+		/** The digest of the frames and the intermediate code. */
+		private String key;
+
+		/** The names of anonymous labels in the order of their first occurrence. */
+		private Vector<String> labels;
+
+		/** The reused final code (or {@code null} if it must be produced). */
+		private String code;
+
+		private Unit(AbsFunDef funDef) {
+			this.funDef = funDef;
+		}
+
+		/**
+		 * Returns the reused final code.
+		 *
+		 * @return The final code or {@code null} if it must be produced.
+		 */
+		public String code() {
+			return code;
+		}
+
+	}
+
+	/** The cache directory. */
+	private Path cacheDir = null;
+
+	/** The top-level functions in the order of their declarations. */
+	public final Vector<Unit> units = new Vector<Unit>();
+
+	/** The functions whose final code is reused. */
+	public final HashSet<AbsFunDef> reused = new HashSet<AbsFunDef>();
+
+	/**
+	 * Constructs a new phase looking up the final code of functions in the cache.
+	 */
+	public FunCache() {
+		super("cache");
+	}
+
+	/**
+	 * Looks up the final code of all top-level functions in the cache.
+	 *
+	 * @param source  The source file.
+	 * @param dirName The name of the cache directory.
+	 */
+	public void lookup(AbsSource source, String dirName) {
+		try {
+			cacheDir = Files.createDirectories(Paths.get(dirName));
+		} catch (IOException | InvalidPathException __) {
+			throw new Report.Error("Cannot create cache directory '" + dirName + "'.");
+		}
+		String config = "prev-" + VERSION + " regs=" + Main.numOfRegs + " ralloc="
+				+ Main.cmdLineArgValue("--ralloc");
+
+		for (AbsDecl decl : source.decls.decls()) {
+			if (!(decl instanceof AbsFunDef))
+				continue;
+			Unit unit = new Unit((AbsFunDef) decl);
+			units.add(unit);
+
+			// Digest all functions of the unit in the order their code is produced in.
+			Vector<AbsFunDef> funDefs = new Vector<AbsFunDef>();
+			unit.funDef.accept(new AbsFullVisitor<Object, Object>() {
+				@Override
+				public Object visit(AbsFunDef funDef, Object visArg) {
+					funDefs.add(funDef);
+					return super.visit(funDef, visArg);
+				}
+			}, null);
+			ImcDigest digest = new ImcDigest(config);
+			for (AbsFunDef funDef : funDefs) {
+				Frame frame = Frames.frames.get(funDef);
+				unit.frames.add(frame);
+				digest.add(frame);
+				ImcGen.exprImCode.get(funDef.value).accept(digest, null);
+			}
+			unit.key = digest.key();
+			unit.labels = digest.labels();
+
+			Path file = cacheDir.resolve(unit.key + ".mms");
+			if (Files.isReadable(file)) {
+				try {
+					String cached = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+					HashMap<String, String> names = new HashMap<String, String>();
+					for (String label : unit.labels)
+						names.put("L" + names.size(), label);
+					unit.code = relabel(cached, name -> names.computeIfAbsent(name, __ -> new Label().name));
+				} catch (IOException __) {
+					unit.code = null;
+				}
+			}
+			if (unit.code != null) {
+				reused.addAll(funDefs);
+				Stats.count("cache.reused", 1);
+			} else
+				Stats.count("cache.compiled", 1);
+		}
+	}
+
+	/**
+	 * Stores the final code of a top-level function in the cache.
+	 *
+	 * @param unit The top-level function.
+	 * @param code The final code of the top-level function and its nested
+	 *             functions.
+	 */
+	public void store(Unit unit, String code) {
+		HashMap<String, String> cachedNames = new HashMap<String, String>();
+		for (String label : unit.labels)
+			cachedNames.put(label, "L" + cachedNames.size());
+		String cached = relabel(code, name -> cachedNames.computeIfAbsent(name, __ -> "L" + cachedNames.size()));
+
+		// Write the file out under a temporary name first so that a partially
+		// written file is never reused.
+		Path file = cacheDir.resolve(unit.key + ".mms");
+		try {
+			Path tmpFile = Files.createTempFile(cacheDir, unit.key, ".tmp");
+			Files.write(tmpFile, cached.getBytes(StandardCharsets.UTF_8));
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException __) {
+			Report.info("Cannot write cache file '" + file + "'.");
+		}
+	}
+
+	/**
+	 * Renames the anonymous labels within the final code.
+	 *
+	 * @param code     The final code.
+	 * @param renaming The renaming of anonymous labels.
+	 * @return The final code with anonymous labels renamed.
+	 */
+	private static String relabel(String code, UnaryOperator<String> renaming) {
+		StringBuilder relabeled = new StringBuilder(code.length());
+		int length = code.length();
+		int pos = 0;
+		int beg = code.indexOf('L');
+		while (beg >= 0) {
+			int end = beg + 1;
+			while ((end < length) && isNameChar(code.charAt(end)))
+				end++;
+			boolean isLabel = (end > beg + 1) && ((beg == 0) || !isNameChar(code.charAt(beg - 1)));
+			for (int digit = beg + 1; isLabel && (digit < end); digit++)
+				isLabel = (code.charAt(digit) >= '0') && (code.charAt(digit) <= '9');
+			if (isLabel) {
+				relabeled.append(code, pos, beg);
+				relabeled.append(renaming.apply(code.substring(beg, end)));
+				pos = end;
+			}
+			beg = code.indexOf('L', end);
+		}
+		relabeled.append(code, pos, length);
+		return relabeled.toString();
+	}
+
+	private static boolean isNameChar(char c) {
+		return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9')) || (c == '_')
+				|| (c == '$');
+	}
+
+}
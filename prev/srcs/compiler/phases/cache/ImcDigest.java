@@ -0,0 +1,259 @@
+package compiler.phases.cache;
+
+import java.nio.charset.*;
+import java.security.*;
+import java.util.*;
+
+import compiler.common.report.*;
+import compiler.data.imcode.*;
+import compiler.data.imcode.visitor.*;
+import compiler.data.layout.*;
+
+/**
+ * Computes the digest of the frames and the intermediate code of a function
+ * (together with its nested functions).
+ *
+ * Anonymous labels and temporary variables are numbered by the order of their
+ * first occurrence, so the digest does not depend on the code of any other
+ * function compiled before. Named labels, i.e., labels of global variables and
+ * top-level functions, are digested by their names.
+ */
+class ImcDigest implements ImcVisitor<Object, Object> {
+
+	/** The tags of frames and intermediate code instructions. */
+	private static final byte FRAME = 0;
+	private static final byte BINOP = 1;
+	private static final byte CALL = 2;
+	private static final byte CJUMP = 3;
+	private static final byte CONST = 4;
+	private static final byte ESTMT = 5;
+	private static final byte JUMP = 6;
+	private static final byte LABEL = 7;
+	private static final byte MEM = 8;
+	private static final byte MOVE = 9;
+	private static final byte NAME = 10;
+	private static final byte SEXPR = 11;
+	private static final byte STMTS = 12;
+	private static final byte TEMP = 13;
+	private static final byte UNOP = 14;
+
+	/** The message digest. */
+	private final MessageDigest digest;
+
+	/** The names of anonymous labels in the order of their first occurrence. */
+	private final Vector<String> labels = new Vector<String>();
+
+	/** Maps names of anonymous labels to their numbers. */
+	private final HashMap<String, Integer> labelNums = new HashMap<String, Integer>();
+
+	/** Maps temporary variables to their numbers. */
+	private final HashMap<Long, Integer> tempNums = new HashMap<Long, Integer>();
+
+	/** The buffer for digesting integer values. */
+	private final byte[] buffer = new byte[8];
+
+	/**
+	 * Constructs a new digest.
+	 *
+	 * @param config The configuration of the back end the code is produced by.
+	 */
+	ImcDigest(String config) {
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException __) {
+			throw new Report.InternalError();
+		}
+		add(config);
+	}
+
+	/**
+	 * Returns the names of anonymous labels in the order of their first
+	 * occurrence.
+	 *
+	 * @return The names of anonymous labels.
+	 */
+	Vector<String> labels() {
+		return labels;
+	}
+
+	/**
+	 * Completes the digest.
+	 *
+	 * @return The digest as a hexadecimal string.
+	 */
+	String key() {
+		StringBuilder key = new StringBuilder();
+		for (byte b : digest.digest())
+			key.append(String.format("%02x", b));
+		return key.toString();
+	}
+
+	/**
+	 * Adds a frame to the digest.
+	 *
+	 * @param frame The frame.
+	 */
+	void add(Frame frame) {
+		add(FRAME);
+		add(frame.label);
+		add(frame.depth);
+		add(frame.locsSize);
+		add(frame.argsSize);
+		add(frame.size);
+		add(frame.FP);
+		add(frame.RV);
+	}
+
+	private void add(String string) {
+		digest.update(string.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	private void add(long value) {
+		for (int b = 0; b < 8; b++)
+			buffer[b] = (byte) (value >>> (8 * b));
+		digest.update(buffer);
+	}
+
+	private void add(byte tag) {
+		digest.update(tag);
+	}
+
+	private void add(Label label) {
+		if (label.name.startsWith("_")) {
+			add((byte) 1);
+			add(label.name);
+			return;
+		}
+		Integer num = labelNums.get(label.name);
+		if (num == null) {
+			num = labels.size();
+			labelNums.put(label.name, num);
+			labels.add(label.name);
+		}
+		add((byte) 0);
+		add(num);
+	}
+
+	private void add(Temp temp) {
+		Integer num = tempNums.get(temp.temp);
+		if (num == null) {
+			num = tempNums.size();
+			tempNums.put(temp.temp, num);
+		}
+		add(num);
+	}
+
+	@Override
+	public Object visit(ImcBINOP binOp, Object visArg) {
+		add(BINOP);
+		add((byte) binOp.oper.ordinal());
+		binOp.fstExpr.accept(this, visArg);
+		binOp.sndExpr.accept(this, visArg);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcCALL call, Object visArg) {
+		add(CALL);
+		add(call.label);
+		Vector<ImcExpr> args = call.args();
+		add(args.size());
+		for (ImcExpr arg : args)
+			arg.accept(this, visArg);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcCJUMP cjump, Object visArg) {
+		add(CJUMP);
+		cjump.cond.accept(this, visArg);
+		add(cjump.posLabel);
+		add(cjump.negLabel);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcCONST constant, Object visArg) {
+		add(CONST);
+		add(constant.value);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcESTMT eStmt, Object visArg) {
+		add(ESTMT);
+		eStmt.expr.accept(this, visArg);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcJUMP jump, Object visArg) {
+		add(JUMP);
+		add(jump.label);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcLABEL label, Object visArg) {
+		add(LABEL);
+		add(label.label);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcMEM mem, Object visArg) {
+		add(MEM);
+		mem.addr.accept(this, visArg);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcMOVE move, Object visArg) {
+		add(MOVE);
+		move.dst.accept(this, visArg);
+		move.src.accept(this, visArg);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcNAME name, Object visArg) {
+		add(NAME);
+		add(name.label);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcSEXPR sExpr, Object visArg) {
+		add(SEXPR);
+		sExpr.stmt.accept(this, visArg);
+		sExpr.expr.accept(this, visArg);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcSTMTS stmts, Object visArg) {
+		add(STMTS);
+		Vector<ImcStmt> allStmts = stmts.stmts();
+		add(allStmts.size());
+		for (ImcStmt stmt : allStmts)
+			stmt.accept(this, visArg);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcTEMP temp, Object visArg) {
+		add(TEMP);
+		add(temp.temp);
+		return null;
+	}
+
+	@Override
+	public Object visit(ImcUNOP unOp, Object visArg) {
+		add(UNOP);
+		add((byte) unOp.oper.ordinal());
+		unOp.subExpr.accept(this, visArg);
+		return null;
+	}
+
+}
@@ -0,0 +1,628 @@
+package compiler.phases.chunks;
+
+import java.io.*;
+import java.util.*;
+import compiler.*;
+import compiler.common.report.*;
+import compiler.data.layout.*;
+import compiler.data.imcode.*;
+import compiler.data.chunk.*;
+
+/**
+ * An interpreter of the intermediate code that translates the statements of
+ * each code chunk into a flat register-based bytecode once and then executes
+ * it in a single switch-dispatch loop.
+ *
+ * The registers of a function are its temporaries, followed by its constants
+ * (including the addresses of data labels) and by the scratch registers
+ * holding intermediate values of expressions. Each call starts with a copy of
+ * the function's initial registers, so constants are never loaded explicitly.
+ * Jumps are resolved to offsets within the bytecode and calls to the indices of
+ * functions or to the opcodes of builtins.
+ *
+ * Memory is handled as by {@link Interpreter}, including the detection of
+ * uninitialized memory locations, but temporaries start out as {@code 0}.
+ */
+public class BytecodeInterpreter {
+
+	// Opcodes (followed by their operands).
+	private static final int MOV = 0; // dst, src
+	private static final int ADD = 1; // dst, fst, snd
+	private static final int SUB = 2; // dst, fst, snd
+	private static final int MUL = 3; // dst, fst, snd
+	private static final int DIV = 4; // dst, fst, snd
+	private static final int MOD = 5; // dst, fst, snd
+	private static final int EQU = 6; // dst, fst, snd
+	private static final int NEQ = 7; // dst, fst, snd
+	private static final int LTH = 8; // dst, fst, snd
+	private static final int GTH = 9; // dst, fst, snd
+	private static final int LEQ = 10; // dst, fst, snd
+	private static final int GEQ = 11; // dst, fst, snd
+	private static final int AND = 12; // dst, fst, snd
+	private static final int IOR = 13; // dst, fst, snd
+	private static final int XOR = 14; // dst, fst, snd
+	private static final int NEG = 15; // dst, src
+	private static final int NOT = 16; // dst, src
+	private static final int LD = 17; // dst, base, offset
+	private static final int ST = 18; // base, offset, src
+	private static final int JMP = 19; // target
+	private static final int CJMP = 20; // cond, posTarget, negTarget
+	private static final int ARG = 21; // offset from SP, src
+	private static final int CALL = 22; // function
+	private static final int RES = 23; // dst
+	private static final int NEW = 24;
+	private static final int DEL = 25;
+	private static final int PUTINT = 26;
+	private static final int PUTCHAR = 27;
+	private static final int PUTSTRING = 28;
+	private static final int UNDEF = 29; // function
+	private static final int RET = 30;
+
+	/** The bytecode of a function. */
+	private static class Function {
+
+		/** The label of the function. */
+		final Label label;
+
+		/** The size of the function's frame. */
+		final long frameSize;
+
+		/** The register holding the frame pointer. */
+		int FP;
+
+		/** The register holding the return value. */
+		int RV;
+
+		/** The initial content of the registers. */
+		long[] regs;
+
+		/** The bytecode. */
+		int[] code;
+
+		/** The offset of the first instruction of the body. */
+		int entry;
+
+		Function(Label label, long frameSize) {
+			this.label = label;
+			this.frameSize = frameSize;
+		}
+
+	}
+
+	/** The stream the output of the program is printed to. */
+	private final PrintStream out = Compilation.current().out;
+
+	/** The stack pointer. */
+	private long SP;
+
+	/** The heap pointer. */
+	private long HP;
+
+	private Memory memory;
+
+	private HashMap<Label, Long> dataLabels;
+
+	/** The functions, indexed by the operands of {@code CALL}. */
+	private Vector<Function> functions;
+
+	/** The called functions that are neither defined nor builtins. */
+	private Vector<Label> undefFunctions;
+
+	public BytecodeInterpreter(Vector<DataChunk> dataChunks, Vector<CodeChunk> codeChunks) {
+		SP = 0xFFFFFFFFFFFFFFF0l;
+		HP = 0x2000000000000000l;
+		this.memory = new Memory(HP, SP);
+
+		this.dataLabels = new HashMap<Label, Long>();
+		for (DataChunk dataChunk : dataChunks) {
+			this.dataLabels.put(dataChunk.label, HP);
+			if (dataChunk.init != null) {
+				for (int c = 0; c < dataChunk.init.length() - 2; c++)
+					memory.st(HP + 8 * c, (long) dataChunk.init.charAt(c + 1));
+				memory.st(HP + 8 * (dataChunk.init.length() - 2), 0L);
+			}
+			HP = HP + dataChunk.size;
+		}
+
+		this.functions = new Vector<Function>();
+		this.undefFunctions = new Vector<Label>();
+		HashMap<Label, Integer> functionIndices = new HashMap<Label, Integer>();
+		for (CodeChunk codeChunk : codeChunks) {
+			functionIndices.put(codeChunk.frame.label, functions.size());
+			functions.add(new Function(codeChunk.frame.label, codeChunk.frame.size));
+		}
+		for (CodeChunk codeChunk : codeChunks) {
+			Function function = functions.get(functionIndices.get(codeChunk.frame.label));
+			new Decoder(codeChunk, functionIndices).decode(function);
+		}
+	}
+
+	/**
+	 * Translates the statements of a single code chunk into bytecode.
+	 */
+	private class Decoder {
+
+		private final CodeChunk chunk;
+
+		private final HashMap<Label, Integer> functionIndices;
+
+		private int[] code = new int[64];
+
+		private int size = 0;
+
+		/** The register of each temporary. */
+		private final HashMap<Temp, Integer> temps = new HashMap<Temp, Integer>();
+
+		/** The register of each constant. */
+		private final LinkedHashMap<Long, Integer> consts = new LinkedHashMap<Long, Integer>();
+
+		/** The number of registers holding temporaries and constants. */
+		private int numOfFixedRegs;
+
+		/** The number of scratch registers in use and the maximal number of them. */
+		private int numOfScratches = 0;
+		private int maxScratches = 0;
+
+		/** The offset of each label within the bytecode. */
+		private final HashMap<Label, Integer> labels = new HashMap<Label, Integer>();
+
+		/** The positions of jump targets within the bytecode and their labels. */
+		private final Vector<Integer> targetPositions = new Vector<Integer>();
+		private final Vector<Label> targetLabels = new Vector<Label>();
+
+		Decoder(CodeChunk chunk, HashMap<Label, Integer> functionIndices) {
+			this.chunk = chunk;
+			this.functionIndices = functionIndices;
+		}
+
+		void decode(Function function) {
+			// Number the temporaries and the constants.
+			temp(chunk.frame.FP);
+			temp(chunk.frame.RV);
+			for (ImcStmt stmt : chunk.realStmts())
+				collect(stmt);
+			collect(new ImcCONST(0));
+			numOfFixedRegs = temps.size();
+			for (Map.Entry<Long, Integer> constant : consts.entrySet())
+				constant.setValue(numOfFixedRegs++);
+
+			// Translate the statements.
+			for (ImcStmt stmt : chunk.realStmts())
+				stmt(stmt);
+			labels.put(chunk.exitLabel, size);
+			emit(RET);
+			for (int t = 0; t < targetPositions.size(); t++) {
+				Integer target = labels.get(targetLabels.get(t));
+				if (target == null)
+					throw new Report.InternalError();
+				code[targetPositions.get(t)] = target;
+			}
+
+			function.FP = temps.get(chunk.frame.FP);
+			function.RV = temps.get(chunk.frame.RV);
+			function.regs = new long[numOfFixedRegs + maxScratches];
+			for (Map.Entry<Long, Integer> constant : consts.entrySet())
+				function.regs[constant.getValue()] = constant.getKey();
+			function.code = Arrays.copyOf(code, size);
+			function.entry = labels.get(chunk.entryLabel);
+		}
+
+		private int temp(Temp temp) {
+			Integer reg = temps.get(temp);
+			if (reg == null) {
+				reg = temps.size();
+				temps.put(temp, reg);
+			}
+			return reg;
+		}
+
+		private long address(Label label) {
+			Long address = dataLabels.get(label);
+			if (address == null)
+				throw new Report.InternalError();
+			return address;
+		}
+
+		private void collect(ImcStmt stmt) {
+			if (stmt instanceof ImcMOVE) {
+				collect(((ImcMOVE) stmt).dst);
+				collect(((ImcMOVE) stmt).src);
+			} else if (stmt instanceof ImcCJUMP)
+				collect(((ImcCJUMP) stmt).cond);
+			else if (stmt instanceof ImcESTMT)
+				collect(((ImcESTMT) stmt).expr);
+		}
+
+		private void collect(ImcExpr expr) {
+			if (expr instanceof ImcTEMP)
+				temp(((ImcTEMP) expr).temp);
+			else if (expr instanceof ImcCONST)
+				consts.put(((ImcCONST) expr).value, -1);
+			else if (expr instanceof ImcNAME)
+				consts.put(address(((ImcNAME) expr).label), -1);
+			else if (expr instanceof ImcMEM)
+				collect(((ImcMEM) expr).addr);
+			else if (expr instanceof ImcBINOP) {
+				collect(((ImcBINOP) expr).fstExpr);
+				collect(((ImcBINOP) expr).sndExpr);
+			} else if (expr instanceof ImcUNOP)
+				collect(((ImcUNOP) expr).subExpr);
+			else if (expr instanceof ImcCALL) {
+				for (ImcExpr arg : ((ImcCALL) expr).args())
+					collect(arg);
+			}
+		}
+
+		private void emit(int... ints) {
+			if (size + ints.length > code.length)
+				code = Arrays.copyOf(code, 2 * code.length + ints.length);
+			for (int i : ints)
+				code[size++] = i;
+		}
+
+		private void emitTarget(Label label) {
+			targetPositions.add(size);
+			targetLabels.add(label);
+			emit(-1);
+		}
+
+		private int scratch() {
+			int reg = numOfFixedRegs + numOfScratches++;
+			maxScratches = Math.max(maxScratches, numOfScratches);
+			return reg;
+		}
+
+		private void stmt(ImcStmt stmt) {
+			if (stmt instanceof ImcLABEL) {
+				labels.put(((ImcLABEL) stmt).label, size);
+				return;
+			}
+			if (stmt instanceof ImcJUMP) {
+				emit(JMP);
+				emitTarget(((ImcJUMP) stmt).label);
+				return;
+			}
+			if (stmt instanceof ImcCJUMP) {
+				ImcCJUMP cjump = (ImcCJUMP) stmt;
+				int cond = expr(cjump.cond, -1);
+				emit(CJMP, cond);
+				emitTarget(cjump.posLabel);
+				emitTarget(cjump.negLabel);
+				numOfScratches = 0;
+				return;
+			}
+			if (stmt instanceof ImcESTMT) {
+				ImcExpr expr = ((ImcESTMT) stmt).expr;
+				if (expr instanceof ImcCALL)
+					call((ImcCALL) expr);
+				else
+					expr(expr, -1);
+				numOfScratches = 0;
+				return;
+			}
+			if (stmt instanceof ImcMOVE) {
+				ImcMOVE move = (ImcMOVE) stmt;
+				if (move.dst instanceof ImcTEMP) {
+					int dst = temps.get(((ImcTEMP) move.dst).temp);
+					if (move.src instanceof ImcCALL) {
+						call((ImcCALL) move.src);
+						emit(RES, dst);
+					} else
+						expr(move.src, dst);
+				} else if (move.dst instanceof ImcMEM) {
+					// The address is computed before the call, as in the tree interpreter.
+					ImcExpr addr = ((ImcMEM) move.dst).addr;
+					int base, offset;
+					if (addr instanceof ImcBINOP && ((ImcBINOP) addr).oper == ImcBINOP.Oper.ADD) {
+						base = expr(((ImcBINOP) addr).fstExpr, -1);
+						offset = expr(((ImcBINOP) addr).sndExpr, -1);
+					} else {
+						base = expr(addr, -1);
+						offset = consts.get(0L);
+					}
+					int src;
+					if (move.src instanceof ImcCALL) {
+						call((ImcCALL) move.src);
+						src = scratch();
+						emit(RES, src);
+					} else
+						src = expr(move.src, -1);
+					emit(ST, base, offset, src);
+				} else
+					throw new Report.InternalError();
+				numOfScratches = 0;
+				return;
+			}
+			throw new Report.InternalError();
+		}
+
+		private void call(ImcCALL call) {
+			long offset = 0;
+			for (ImcExpr arg : call.args()) {
+				int mark = numOfScratches;
+				int src = expr(arg, -1);
+				emit(ARG, (int) offset, src);
+				numOfScratches = mark;
+				offset += 8;
+			}
+			switch (call.label.name) {
+			case "_new":
+				emit(NEW);
+				return;
+			case "_del":
+				emit(DEL);
+				return;
+			case "_putInt":
+				emit(PUTINT);
+				return;
+			case "_putChar":
+				emit(PUTCHAR);
+				return;
+			case "_putString":
+				emit(PUTSTRING);
+				return;
+			}
+			Integer function = functionIndices.get(call.label);
+			if (function != null) {
+				emit(CALL, function);
+				return;
+			}
+			emit(UNDEF, undefFunctions.size());
+			undefFunctions.add(call.label);
+		}
+
+		/**
+		 * Translates an expression.
+		 *
+		 * @param expr The expression.
+		 * @param dst  The register the value must be stored in or {@code -1} if any
+		 *             register will do.
+		 * @return The register holding the value.
+		 */
+		private int expr(ImcExpr expr, int dst) {
+			int src;
+			if (expr instanceof ImcTEMP)
+				src = temps.get(((ImcTEMP) expr).temp);
+			else if (expr instanceof ImcCONST)
+				src = consts.get(((ImcCONST) expr).value);
+			else if (expr instanceof ImcNAME)
+				src = consts.get(address(((ImcNAME) expr).label));
+			else {
+				int mark = numOfScratches;
+				if (expr instanceof ImcMEM) {
+					ImcExpr addr = ((ImcMEM) expr).addr;
+					int base, offset;
+					if (addr instanceof ImcBINOP && ((ImcBINOP) addr).oper == ImcBINOP.Oper.ADD) {
+						base = expr(((ImcBINOP) addr).fstExpr, -1);
+						offset = expr(((ImcBINOP) addr).sndExpr, -1);
+					} else {
+						base = expr(addr, -1);
+						offset = consts.get(0L);
+					}
+					numOfScratches = mark;
+					dst = dst < 0 ? scratch() : dst;
+					emit(LD, dst, base, offset);
+					return dst;
+				}
+				if (expr instanceof ImcBINOP) {
+					ImcBINOP binop = (ImcBINOP) expr;
+					int fst = expr(binop.fstExpr, -1);
+					int snd = expr(binop.sndExpr, -1);
+					numOfScratches = mark;
+					dst = dst < 0 ? scratch() : dst;
+					emit(opcode(binop.oper), dst, fst, snd);
+					return dst;
+				}
+				if (expr instanceof ImcUNOP) {
+					ImcUNOP unop = (ImcUNOP) expr;
+					int sub = expr(unop.subExpr, -1);
+					numOfScratches = mark;
+					dst = dst < 0 ? scratch() : dst;
+					emit(unop.oper == ImcUNOP.Oper.NEG ? NEG : NOT, dst, sub);
+					return dst;
+				}
+				throw new Report.InternalError();
+			}
+			if (dst < 0 || dst == src)
+				return src;
+			emit(MOV, dst, src);
+			return dst;
+		}
+
+		private int opcode(ImcBINOP.Oper oper) {
+			switch (oper) {
+			case IOR:
+				return IOR;
+			case XOR:
+				return XOR;
+			case AND:
+				return AND;
+			case EQU:
+				return EQU;
+			case NEQ:
+				return NEQ;
+			case LEQ:
+				return LEQ;
+			case GEQ:
+				return GEQ;
+			case LTH:
+				return LTH;
+			case GTH:
+				return GTH;
+			case ADD:
+				return ADD;
+			case SUB:
+				return SUB;
+			case MUL:
+				return MUL;
+			case DIV:
+				return DIV;
+			case MOD:
+				return MOD;
+			}
+			throw new Report.InternalError();
+		}
+
+	}
+
+	private void call(Function function) {
+		long[] regs = function.regs.clone();
+		int[] code = function.code;
+		int pc = function.entry;
+
+		/* PROLOGUE */
+		regs[function.FP] = SP;
+		SP = SP - function.frameSize;
+
+		/* BODY */
+		while (true) {
+			switch (code[pc]) {
+			case MOV:
+				regs[code[pc + 1]] = regs[code[pc + 2]];
+				pc += 3;
+				break;
+			case ADD:
+				regs[code[pc + 1]] = regs[code[pc + 2]] + regs[code[pc + 3]];
+				pc += 4;
+				break;
+			case SUB:
+				regs[code[pc + 1]] = regs[code[pc + 2]] - regs[code[pc + 3]];
+				pc += 4;
+				break;
+			case MUL:
+				regs[code[pc + 1]] = regs[code[pc + 2]] * regs[code[pc + 3]];
+				pc += 4;
+				break;
+			case DIV:
+				regs[code[pc + 1]] = regs[code[pc + 2]] / regs[code[pc + 3]];
+				pc += 4;
+				break;
+			case MOD:
+				regs[code[pc + 1]] = regs[code[pc + 2]] % regs[code[pc + 3]];
+				pc += 4;
+				break;
+			case EQU:
+				regs[code[pc + 1]] = regs[code[pc + 2]] == regs[code[pc + 3]] ? 1 : 0;
+				pc += 4;
+				break;
+			case NEQ:
+				regs[code[pc + 1]] = regs[code[pc + 2]] != regs[code[pc + 3]] ? 1 : 0;
+				pc += 4;
+				break;
+			case LTH:
+				regs[code[pc + 1]] = regs[code[pc + 2]] < regs[code[pc + 3]] ? 1 : 0;
+				pc += 4;
+				break;
+			case GTH:
+				regs[code[pc + 1]] = regs[code[pc + 2]] > regs[code[pc + 3]] ? 1 : 0;
+				pc += 4;
+				break;
+			case LEQ:
+				regs[code[pc + 1]] = regs[code[pc + 2]] <= regs[code[pc + 3]] ? 1 : 0;
+				pc += 4;
+				break;
+			case GEQ:
+				regs[code[pc + 1]] = regs[code[pc + 2]] >= regs[code[pc + 3]] ? 1 : 0;
+				pc += 4;
+				break;
+			case AND:
+				regs[code[pc + 1]] = (regs[code[pc + 2]] != 0) & (regs[code[pc + 3]] != 0) ? 1 : 0;
+				pc += 4;
+				break;
+			case IOR:
+				regs[code[pc + 1]] = (regs[code[pc + 2]] != 0) | (regs[code[pc + 3]] != 0) ? 1 : 0;
+				pc += 4;
+				break;
+			case XOR:
+				regs[code[pc + 1]] = (regs[code[pc + 2]] != 0) ^ (regs[code[pc + 3]] != 0) ? 1 : 0;
+				pc += 4;
+				break;
+			case NEG:
+				regs[code[pc + 1]] = -regs[code[pc + 2]];
+				pc += 3;
+				break;
+			case NOT:
+				regs[code[pc + 1]] = regs[code[pc + 2]] == 0 ? 1 : 0;
+				pc += 3;
+				break;
+			case LD:
+				regs[code[pc + 1]] = memory.ld(regs[code[pc + 2]] + regs[code[pc + 3]]);
+				pc += 4;
+				break;
+			case ST:
+				memory.st(regs[code[pc + 1]] + regs[code[pc + 2]], regs[code[pc + 3]]);
+				pc += 4;
+				break;
+			case JMP:
+				pc = code[pc + 1];
+				break;
+			case CJMP:
+				pc = regs[code[pc + 1]] != 0 ? code[pc + 2] : code[pc + 3];
+				break;
+			case ARG:
+				memory.st(SP + code[pc + 1], regs[code[pc + 2]]);
+				pc += 3;
+				break;
+			case CALL:
+				call(functions.get(code[pc + 1]));
+				pc += 2;
+				break;
+			case RES:
+				regs[code[pc + 1]] = memory.ld(SP);
+				pc += 2;
+				break;
+			case NEW: {
+				long size = memory.ld(SP + 1 * 8);
+				long addr = HP;
+				HP = addr + size;
+				memory.st(SP, addr);
+				pc += 1;
+				break;
+			}
+			case DEL:
+				pc += 1;
+				break;
+			case PUTINT:
+				out.print(memory.ld(SP + 1 * 8));
+				pc += 1;
+				break;
+			case PUTCHAR:
+				out.print((char) ((char) memory.ld(SP + 1 * 8) % 0x100));
+				pc += 1;
+				break;
+			case PUTSTRING: {
+				long addr = memory.ld(SP + 1 * 8);
+				do {
+					long c = memory.ld(addr);
+					addr += 8;
+					if (c == 0)
+						break;
+					out.print((char) c);
+				} while (true);
+				pc += 1;
+				break;
+			}
+			case UNDEF:
+				throw new Report.Error("INTERPRETER: Undefined function " + undefFunctions.get(code[pc + 1]).name + ".");
+			case RET:
+				/* EPILOGUE */
+				memory.st(regs[function.FP], regs[function.RV]);
+				SP = SP + function.frameSize;
+				return;
+			default:
+				throw new Report.InternalError();
+			}
+		}
+	}
+
+	public long run(String entryLabel) {
+		for (Function function : functions) {
+			if (function.label.name.equals(entryLabel)) {
+				call(function);
+				return memory.ld(SP);
+			}
+		}
+		throw new Report.InternalError();
+	}
+
+}
@@ -5,11 +5,13 @@ package compiler.phases.chunks;
 
 import java.util.Vector;
 
+import compiler.*;
 import compiler.data.abstree.*;
 import compiler.data.abstree.visitor.*;
 import compiler.data.layout.*;
 import compiler.data.imcode.*;
 import compiler.data.chunk.*;
+import compiler.phases.cache.*;
 import compiler.phases.frames.*;
 import compiler.phases.imcgen.*;
 
@@ -21,6 +23,11 @@ public class ChunkGenerator extends AbsFullVisitor<Object, Object> {
 	
 	@Override
 	public Object visit(AbsFunDef funDef, Object visArg) {		
+		// The code of a function reused from the cache is not produced again.
+		FunCache cache = Compilation.current().funCache;
+		if ((cache != null) && cache.reused.contains(funDef))
+			return super.visit(funDef, visArg);
+
 		Frame funFrame = Frames.frames.get(funDef);
 		
 		ImcExpr bodyExpr = ImcGen.exprImCode.get(funDef.value);
@@ -33,7 +40,7 @@ public class ChunkGenerator extends AbsFullVisitor<Object, Object> {
 		funStmts.addAll(bodyExpr.accept(new StmtCanonizer(), funFrame.RV));
 		funStmts.add(new ImcJUMP(exitLabel));
 				
-		Chunks.codeChunks.add(new CodeChunk(funFrame, funStmts, entryLabel, exitLabel));
+		Compilation.current().codeChunks.add(new CodeChunk(funFrame, funStmts, entryLabel, exitLabel));
 		return super.visit(funDef, visArg);
 	}
 	
@@ -41,7 +48,7 @@ public class ChunkGenerator extends AbsFullVisitor<Object, Object> {
 	public Object visit(AbsAtomExpr atomExpr, Object visArg) {
 		switch(atomExpr.type) {
 		case STR:
-			Chunks.dataChunks.add(new DataChunk(Frames.strings.get(atomExpr)));
+			Compilation.current().dataChunks.add(new DataChunk(Frames.strings.get(atomExpr)));
 			break;
 		default:
 		break;
@@ -52,7 +59,7 @@ public class ChunkGenerator extends AbsFullVisitor<Object, Object> {
 	@Override
 	public Object visit(AbsVarDecl varDecl, Object visArg) {
 		if(Frames.accesses.get(varDecl) instanceof AbsAccess) {
-			Chunks.dataChunks.add(new DataChunk((AbsAccess)Frames.accesses.get(varDecl)));
+			Compilation.current().dataChunks.add(new DataChunk((AbsAccess)Frames.accesses.get(varDecl)));
 		}
 		return super.visit(varDecl, visArg);
 	}
@@ -4,6 +4,8 @@
 package compiler.phases.chunks;
 
 import java.util.*;
+import compiler.*;
+import compiler.common.stats.*;
 import compiler.data.asmcode.Code;
 import compiler.data.chunk.*;
 import compiler.data.imcode.ImcCONST;
@@ -20,29 +22,28 @@ import compiler.phases.*;
  */
 public class Chunks extends Phase {
 
-	public static Vector<DataChunk> dataChunks = new Vector<DataChunk>();
-
-	public static Vector<CodeChunk> codeChunks = new Vector<CodeChunk>();
-
 	public Chunks() {
 		super("chunks");
 	}
 
 	public void log() {
 		ChunkLogger chunkLogger = new ChunkLogger(logger);
-		for (DataChunk dataChunk : dataChunks)
+		Compilation compilation = Compilation.current();
+		for (DataChunk dataChunk : compilation.dataChunks)
 			chunkLogger.log(dataChunk);
-		for (CodeChunk codeChunk : codeChunks)
+		for (CodeChunk codeChunk : compilation.codeChunks)
 			chunkLogger.log(codeChunk);
 	}
 
 	public static void cleanChunks() {
+		Compilation compilation = Compilation.current();
 		Vector<CodeChunk> chunks = new Vector<>();
-		for(CodeChunk codeChunk: codeChunks) {
+		for(CodeChunk codeChunk: compilation.codeChunks) {
 			BasicBlocks bb = new BasicBlocks(codeChunk);
 			chunks.add(bb.getChunk());
+			Stats.count("imc.stmts", chunks.lastElement().stmts().size());
 		}		
-		codeChunks = chunks;
+		compilation.codeChunks = chunks;
 	}
 	
 
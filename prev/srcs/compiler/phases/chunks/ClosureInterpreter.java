@@ -0,0 +1,416 @@
+package compiler.phases.chunks;
+
+import java.io.*;
+import java.util.*;
+import compiler.*;
+import compiler.common.report.*;
+import compiler.data.layout.*;
+import compiler.data.imcode.*;
+import compiler.data.chunk.*;
+
+/**
+ * An interpreter of the intermediate code that compiles each statement and
+ * expression once into a tree of closures.
+ *
+ * Common shapes of expressions get closures of their own, e.g., a temporary
+ * plus a constant or a memory access at a temporary plus a constant, so that
+ * the JIT compiler can inline them. Statements are compiled into an array
+ * per function in which each closure returns the index of the next statement,
+ * with labels resolved to indices. Calls are bound to their callees, i.e.,
+ * functions or builtins, when the code is compiled.
+ *
+ * Memory is handled as by {@link Interpreter}, including the detection of
+ * uninitialized memory locations, but temporaries start out as {@code 0}.
+ */
+public class ClosureInterpreter {
+
+	/** A compiled expression. */
+	private interface Expr {
+		long eval(long[] temps);
+	}
+
+	/** A compiled statement. */
+	private interface Stmt {
+		/** Returns the index of the next statement or {@code -1} at the exit. */
+		int exec(long[] temps);
+	}
+
+	/** A function or a builtin whose arguments are already in memory. */
+	private interface Callee {
+		void call();
+	}
+
+	/** The compiled code of a function. */
+	private static class Function {
+
+		/** The size of the function's frame. */
+		final long frameSize;
+
+		/** The temporary holding the frame pointer. */
+		int FP;
+
+		/** The temporary holding the return value. */
+		int RV;
+
+		/** The number of temporaries. */
+		int numOfTemps;
+
+		/** The statements. */
+		Stmt[] stmts;
+
+		/** The index of the first statement of the body. */
+		int entry;
+
+		Function(long frameSize) {
+			this.frameSize = frameSize;
+		}
+
+	}
+
+	/** The stream the output of the program is printed to. */
+	private final PrintStream out = Compilation.current().out;
+
+	/** The stack pointer. */
+	private long SP;
+
+	/** The heap pointer. */
+	private long HP;
+
+	private Memory memory;
+
+	private HashMap<Label, Long> dataLabels;
+
+	/** The callee of each label, i.e., the functions and the builtins. */
+	private HashMap<String, Callee> callees;
+
+	private HashMap<String, Function> functions;
+
+	public ClosureInterpreter(Vector<DataChunk> dataChunks, Vector<CodeChunk> codeChunks) {
+		SP = 0xFFFFFFFFFFFFFFF0l;
+		HP = 0x2000000000000000l;
+		this.memory = new Memory(HP, SP);
+
+		this.dataLabels = new HashMap<Label, Long>();
+		for (DataChunk dataChunk : dataChunks) {
+			this.dataLabels.put(dataChunk.label, HP);
+			if (dataChunk.init != null) {
+				for (int c = 0; c < dataChunk.init.length() - 2; c++)
+					memory.st(HP + 8 * c, (long) dataChunk.init.charAt(c + 1));
+				memory.st(HP + 8 * (dataChunk.init.length() - 2), 0L);
+			}
+			HP = HP + dataChunk.size;
+		}
+
+		this.functions = new HashMap<String, Function>();
+		this.callees = new HashMap<String, Callee>();
+		for (CodeChunk codeChunk : codeChunks) {
+			Function function = new Function(codeChunk.frame.size);
+			functions.put(codeChunk.frame.label.name, function);
+			callees.put(codeChunk.frame.label.name, () -> call(function));
+		}
+		callees.put("_new", () -> {
+			long size = memory.ld(SP + 1 * 8);
+			long addr = HP;
+			HP = addr + size;
+			memory.st(SP, addr);
+		});
+		callees.put("_del", () -> {
+		});
+		callees.put("_putInt", () -> out.print(memory.ld(SP + 1 * 8)));
+		callees.put("_putChar", () -> out.print((char) ((char) memory.ld(SP + 1 * 8) % 0x100)));
+		callees.put("_putString", () -> {
+			long addr = memory.ld(SP + 1 * 8);
+			do {
+				long c = memory.ld(addr);
+				addr += 8;
+				if (c == 0)
+					break;
+				out.print((char) c);
+			} while (true);
+		});
+
+		for (CodeChunk codeChunk : codeChunks)
+			new Compiler(codeChunk).compile(functions.get(codeChunk.frame.label.name));
+	}
+
+	/**
+	 * Compiles the statements of a single code chunk into closures.
+	 */
+	private class Compiler {
+
+		private final CodeChunk chunk;
+
+		/** The index of each temporary. */
+		private final HashMap<Temp, Integer> temps = new HashMap<Temp, Integer>();
+
+		/** The index of the statement following each label. */
+		private final HashMap<Label, Integer> labels = new HashMap<Label, Integer>();
+
+		Compiler(CodeChunk chunk) {
+			this.chunk = chunk;
+		}
+
+		void compile(Function function) {
+			Vector<ImcStmt> imcStmts = chunk.realStmts();
+			int numOfStmts = 0;
+			for (ImcStmt stmt : imcStmts) {
+				if (stmt instanceof ImcLABEL)
+					labels.put(((ImcLABEL) stmt).label, numOfStmts);
+				else
+					numOfStmts++;
+			}
+			labels.put(chunk.exitLabel, -1);
+
+			function.FP = temp(chunk.frame.FP);
+			function.RV = temp(chunk.frame.RV);
+			function.stmts = new Stmt[numOfStmts];
+			int index = 0;
+			for (ImcStmt stmt : imcStmts) {
+				if (stmt instanceof ImcLABEL)
+					continue;
+				function.stmts[index] = stmt(stmt, index + 1);
+				index++;
+			}
+			function.numOfTemps = temps.size();
+			function.entry = label(chunk.entryLabel);
+		}
+
+		private int temp(Temp temp) {
+			Integer index = temps.get(temp);
+			if (index == null) {
+				index = temps.size();
+				temps.put(temp, index);
+			}
+			return index;
+		}
+
+		private int label(Label label) {
+			Integer index = labels.get(label);
+			if (index == null)
+				throw new Report.InternalError();
+			return index;
+		}
+
+		private Stmt stmt(ImcStmt stmt, int next) {
+			if (stmt instanceof ImcJUMP) {
+				int target = label(((ImcJUMP) stmt).label);
+				return temps -> target;
+			}
+			if (stmt instanceof ImcCJUMP) {
+				ImcCJUMP cjump = (ImcCJUMP) stmt;
+				Expr cond = expr(cjump.cond);
+				int pos = label(cjump.posLabel);
+				int neg = label(cjump.negLabel);
+				return temps -> cond.eval(temps) != 0 ? pos : neg;
+			}
+			if (stmt instanceof ImcESTMT) {
+				Expr value = expr(((ImcESTMT) stmt).expr);
+				return temps -> {
+					value.eval(temps);
+					return next;
+				};
+			}
+			if (stmt instanceof ImcMOVE) {
+				ImcMOVE move = (ImcMOVE) stmt;
+				if (move.dst instanceof ImcTEMP) {
+					int dst = temp(((ImcTEMP) move.dst).temp);
+					Expr src = expr(move.src);
+					return temps -> {
+						temps[dst] = src.eval(temps);
+						return next;
+					};
+				}
+				if (move.dst instanceof ImcMEM) {
+					// The address is computed before the source, as in the tree interpreter.
+					Expr addr = expr(((ImcMEM) move.dst).addr);
+					Expr src = expr(move.src);
+					return temps -> {
+						long dst = addr.eval(temps);
+						memory.st(dst, src.eval(temps));
+						return next;
+					};
+				}
+			}
+			throw new Report.InternalError();
+		}
+
+		/**
+		 * Compiles a call into an expression whose value is the result of the call.
+		 */
+		private Expr call(ImcCALL call) {
+			Vector<ImcExpr> imcArgs = call.args();
+			Expr[] args = new Expr[imcArgs.size()];
+			for (int a = 0; a < args.length; a++)
+				args[a] = expr(imcArgs.get(a));
+			Callee callee = callees.get(call.label.name);
+			if (callee == null) {
+				String name = call.label.name;
+				callee = () -> {
+					throw new Report.Error("INTERPRETER: Undefined function " + name + ".");
+				};
+			}
+			Callee boundCallee = callee;
+			return temps -> {
+				for (int a = 0; a < args.length; a++)
+					memory.st(SP + 8 * a, args[a].eval(temps));
+				boundCallee.call();
+				return memory.ld(SP);
+			};
+		}
+
+		private Expr expr(ImcExpr expr) {
+			if (expr instanceof ImcCONST) {
+				long value = ((ImcCONST) expr).value;
+				return temps -> value;
+			}
+			if (expr instanceof ImcNAME) {
+				Long address = dataLabels.get(((ImcNAME) expr).label);
+				if (address == null)
+					throw new Report.InternalError();
+				long value = address;
+				return temps -> value;
+			}
+			if (expr instanceof ImcTEMP) {
+				int temp = temp(((ImcTEMP) expr).temp);
+				return temps -> temps[temp];
+			}
+			if (expr instanceof ImcMEM)
+				return mem((ImcMEM) expr);
+			if (expr instanceof ImcCALL)
+				return call((ImcCALL) expr);
+			if (expr instanceof ImcBINOP)
+				return binop((ImcBINOP) expr);
+			if (expr instanceof ImcUNOP) {
+				ImcUNOP unop = (ImcUNOP) expr;
+				Expr sub = expr(unop.subExpr);
+				switch (unop.oper) {
+				case NEG:
+					return temps -> -sub.eval(temps);
+				case NOT:
+					return temps -> sub.eval(temps) == 0 ? 1 : 0;
+				}
+			}
+			throw new Report.InternalError();
+		}
+
+		private Expr mem(ImcMEM mem) {
+			if (mem.addr instanceof ImcBINOP) {
+				ImcBINOP addr = (ImcBINOP) mem.addr;
+				if (addr.oper == ImcBINOP.Oper.ADD && addr.sndExpr instanceof ImcCONST) {
+					long offset = ((ImcCONST) addr.sndExpr).value;
+					if (addr.fstExpr instanceof ImcTEMP) {
+						int base = temp(((ImcTEMP) addr.fstExpr).temp);
+						return temps -> memory.ld(temps[base] + offset);
+					}
+					Expr base = expr(addr.fstExpr);
+					return temps -> memory.ld(base.eval(temps) + offset);
+				}
+			}
+			Expr addr = expr(mem.addr);
+			return temps -> memory.ld(addr.eval(temps));
+		}
+
+		private Expr binop(ImcBINOP binop) {
+			if (binop.sndExpr instanceof ImcCONST) {
+				long snd = ((ImcCONST) binop.sndExpr).value;
+				if (binop.fstExpr instanceof ImcTEMP) {
+					int fst = temp(((ImcTEMP) binop.fstExpr).temp);
+					switch (binop.oper) {
+					case ADD:
+						return temps -> temps[fst] + snd;
+					case SUB:
+						return temps -> temps[fst] - snd;
+					case MUL:
+						return temps -> temps[fst] * snd;
+					default:
+						break;
+					}
+				}
+				Expr fst = expr(binop.fstExpr);
+				switch (binop.oper) {
+				case ADD:
+					return temps -> fst.eval(temps) + snd;
+				case SUB:
+					return temps -> fst.eval(temps) - snd;
+				case MUL:
+					return temps -> fst.eval(temps) * snd;
+				case EQU:
+					return temps -> fst.eval(temps) == snd ? 1 : 0;
+				case NEQ:
+					return temps -> fst.eval(temps) != snd ? 1 : 0;
+				case LTH:
+					return temps -> fst.eval(temps) < snd ? 1 : 0;
+				case GTH:
+					return temps -> fst.eval(temps) > snd ? 1 : 0;
+				case LEQ:
+					return temps -> fst.eval(temps) <= snd ? 1 : 0;
+				case GEQ:
+					return temps -> fst.eval(temps) >= snd ? 1 : 0;
+				default:
+					break;
+				}
+			}
+			Expr fst = expr(binop.fstExpr);
+			Expr snd = expr(binop.sndExpr);
+			switch (binop.oper) {
+			case IOR:
+				return temps -> (fst.eval(temps) != 0) | (snd.eval(temps) != 0) ? 1 : 0;
+			case XOR:
+				return temps -> (fst.eval(temps) != 0) ^ (snd.eval(temps) != 0) ? 1 : 0;
+			case AND:
+				return temps -> (fst.eval(temps) != 0) & (snd.eval(temps) != 0) ? 1 : 0;
+			case EQU:
+				return temps -> fst.eval(temps) == snd.eval(temps) ? 1 : 0;
+			case NEQ:
+				return temps -> fst.eval(temps) != snd.eval(temps) ? 1 : 0;
+			case LEQ:
+				return temps -> fst.eval(temps) <= snd.eval(temps) ? 1 : 0;
+			case GEQ:
+				return temps -> fst.eval(temps) >= snd.eval(temps) ? 1 : 0;
+			case LTH:
+				return temps -> fst.eval(temps) < snd.eval(temps) ? 1 : 0;
+			case GTH:
+				return temps -> fst.eval(temps) > snd.eval(temps) ? 1 : 0;
+			case ADD:
+				return temps -> fst.eval(temps) + snd.eval(temps);
+			case SUB:
+				return temps -> fst.eval(temps) - snd.eval(temps);
+			case MUL:
+				return temps -> fst.eval(temps) * snd.eval(temps);
+			case DIV:
+				return temps -> fst.eval(temps) / snd.eval(temps);
+			case MOD:
+				return temps -> fst.eval(temps) % snd.eval(temps);
+			}
+			throw new Report.InternalError();
+		}
+
+	}
+
+	private void call(Function function) {
+		long[] temps = new long[function.numOfTemps];
+		Stmt[] stmts = function.stmts;
+
+		/* PROLOGUE */
+		temps[function.FP] = SP;
+		SP = SP - function.frameSize;
+
+		/* BODY */
+		int next = function.entry;
+		while (next >= 0)
+			next = stmts[next].exec(temps);
+
+		/* EPILOGUE */
+		memory.st(temps[function.FP], temps[function.RV]);
+		SP = SP + function.frameSize;
+	}
+
+	public long run(String entryLabel) {
+		Function function = functions.get(entryLabel);
+		if (function == null)
+			throw new Report.InternalError();
+		call(function);
+		return memory.ld(SP);
+	}
+
+}
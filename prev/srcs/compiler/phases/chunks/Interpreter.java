@@ -3,7 +3,9 @@
  */
 package compiler.phases.chunks;
 
+import java.io.*;
 import java.util.*;
+import compiler.*;
 import compiler.common.report.*;
 import compiler.data.layout.*;
 import compiler.data.imcode.*;
@@ -17,11 +19,31 @@ public class Interpreter {
 
 	private boolean debug = false;
 
-	private Random random;
+	/** The stream the output of the program is printed to. */
+	private final PrintStream out = Compilation.current().out;
 
-	private HashMap<Long, Byte> memory;
+	/** The stack pointer. */
+	private long SP;
 
-	private HashMap<Temp, Long> temps;
+	/** The heap pointer. */
+	private long HP;
+
+	private Memory memory;
+
+	/**
+	 * The dense number of each temporary within its function, indexed by the
+	 * name of the temporary.
+	 */
+	private int[] tempNumbers;
+
+	/** The number of temporaries of each function. */
+	private HashMap<CodeChunk, Integer> numsOfTemps;
+
+	/** The values of the temporaries of the current function. */
+	private long[] temps;
+
+	/** The initialized temporaries of the current function. */
+	private boolean[] tempInits;
 
 	private HashMap<Label, Long> dataLabels;
 
@@ -29,43 +51,35 @@ public class Interpreter {
 
 	private HashMap<Label, CodeChunk> callLabels;
 
-	private Temp SP;
-
 	private Temp FP;
 
 	private Temp RV;
 
-	private Temp HP;
-
 	public Interpreter(Vector<DataChunk> dataChunks, Vector<CodeChunk> codeChunks) {		
-		random = new Random();
-
-		this.memory = new HashMap<Long, Byte>();
-		this.temps = new HashMap<Temp, Long>();
-
-		SP = new Temp();
-		tempST(SP, 0xFFFFFFFFFFFFFFF0l);
-		HP = new Temp();
-		tempST(HP, 0x2000000000000000l);
+		SP = 0xFFFFFFFFFFFFFFF0l;
+		HP = 0x2000000000000000l;
+		this.memory = new Memory(HP, SP);
 
 		this.dataLabels = new HashMap<Label, Long>();
 		for (DataChunk dataChunk : dataChunks) {
 			if (debug) {
-				System.out.printf("### %s @ %d\n", dataChunk.label.name, tempLD(HP, false));
+				out.printf("### %s @ %d\n", dataChunk.label.name, HP);
 			}
-			this.dataLabels.put(dataChunk.label, tempLD(HP, false));
+			this.dataLabels.put(dataChunk.label, HP);
 			if (dataChunk.init != null) {
 				for (int c = 0; c < dataChunk.init.length() - 2; c++)
-					memST(tempLD(HP, false) + 8 * c, (long) dataChunk.init.charAt(c + 1), false);
-				memST(tempLD(HP, false) + 8 * (dataChunk.init.length() - 2), 0L, false);
+					memST(HP + 8 * c, (long) dataChunk.init.charAt(c + 1), false);
+				memST(HP + 8 * (dataChunk.init.length() - 2), 0L, false);
 			}
-			tempST(HP, tempLD(HP, false) + dataChunk.size, true);
+			hpST(HP + dataChunk.size);
 		}
 		if (debug)
-			System.out.printf("###\n");
+			out.printf("###\n");
 
 		this.jumpLabels = new HashMap<Label, Integer>();
 		this.callLabels = new HashMap<Label, CodeChunk>();
+		this.tempNumbers = new int[16];
+		this.numsOfTemps = new HashMap<CodeChunk, Integer>();
 		for (CodeChunk codeChunk : codeChunks) {
 			this.callLabels.put(codeChunk.frame.label, codeChunk);
 			Vector<ImcStmt> stmts = codeChunk.stmts();
@@ -73,111 +87,205 @@ public class Interpreter {
 				if (stmts.get(stmtOffset) instanceof ImcLABEL)
 					jumpLabels.put(((ImcLABEL) stmts.get(stmtOffset)).label, stmtOffset);
 			}
+
+			TempNumberer numberer = new TempNumberer();
+			numberer.number(codeChunk.frame.FP);
+			numberer.number(codeChunk.frame.RV);
+			for (ImcStmt stmt : stmts)
+				stmt.accept(numberer, null);
+			numsOfTemps.put(codeChunk, numberer.numOfTemps);
+		}
+	}
+
+	/**
+	 * Assigns dense numbers to the temporaries of a single function.
+	 */
+	private class TempNumberer implements ImcVisitor<Object, Object> {
+
+		private int numOfTemps = 0;
+
+		private HashSet<Temp> numbered = new HashSet<Temp>();
+
+		private void number(Temp temp) {
+			if (!numbered.add(temp))
+				return;
+			if (temp.temp >= tempNumbers.length)
+				tempNumbers = Arrays.copyOf(tempNumbers, (int) Math.max(2 * tempNumbers.length, temp.temp + 1));
+			tempNumbers[(int) temp.temp] = numOfTemps++;
+		}
+
+		@Override
+		public Object visit(ImcBINOP imcBinop, Object arg) {
+			imcBinop.fstExpr.accept(this, null);
+			imcBinop.sndExpr.accept(this, null);
+			return null;
+		}
+
+		@Override
+		public Object visit(ImcCALL imcCall, Object arg) {
+			for (ImcExpr callArg : imcCall.args())
+				callArg.accept(this, null);
+			return null;
+		}
+
+		@Override
+		public Object visit(ImcCJUMP imcCJump, Object arg) {
+			imcCJump.cond.accept(this, null);
+			return null;
+		}
+
+		@Override
+		public Object visit(ImcCONST imcConst, Object arg) {
+			return null;
+		}
+
+		@Override
+		public Object visit(ImcESTMT imcEStmt, Object arg) {
+			imcEStmt.expr.accept(this, null);
+			return null;
+		}
+
+		@Override
+		public Object visit(ImcJUMP imcJump, Object arg) {
+			return null;
+		}
+
+		@Override
+		public Object visit(ImcLABEL imcLabel, Object arg) {
+			return null;
+		}
+
+		@Override
+		public Object visit(ImcMEM imcMem, Object arg) {
+			imcMem.addr.accept(this, null);
+			return null;
+		}
+
+		@Override
+		public Object visit(ImcMOVE imcMove, Object arg) {
+			imcMove.dst.accept(this, null);
+			imcMove.src.accept(this, null);
+			return null;
+		}
+
+		@Override
+		public Object visit(ImcNAME imcName, Object arg) {
+			return null;
+		}
+
+		@Override
+		public Object visit(ImcSEXPR imcSExpr, Object arg) {
+			imcSExpr.stmt.accept(this, null);
+			imcSExpr.expr.accept(this, null);
+			return null;
+		}
+
+		@Override
+		public Object visit(ImcSTMTS imcStmts, Object arg) {
+			for (ImcStmt stmt : imcStmts.stmts())
+				stmt.accept(this, null);
+			return null;
+		}
+
+		@Override
+		public Object visit(ImcTEMP imcTemp, Object arg) {
+			number(imcTemp.temp);
+			return null;
 		}
+
+		@Override
+		public Object visit(ImcUNOP imcUnop, Object arg) {
+			imcUnop.subExpr.accept(this, null);
+			return null;
+		}
+
 	}
 
-	private void memST(Long address, Long value) {
+	private void memST(long address, long value) {
 		memST(address, value, debug);
 	}
 
-	private void memST(Long address, Long value, boolean debug) {
+	private void memST(long address, long value, boolean debug) {
 		if (debug)
-			System.out.printf("### [%d] <- %d\n", address, value);
-		for (int b = 0; b <= 7; b++) {
-			long longval = value % 0x100;
-			byte byteval = (byte) longval;
-			memory.put(address + b, byteval);
-			value = value >> 8;
-		}
+			out.printf("### [%d] <- %d\n", address, value);
+		memory.st(address, value);
 	}
 
-	private Long memLD(Long address) {
+	private long memLD(long address) {
 		return memLD(address, debug);
 	}
 
-	private Long memLD(Long address, boolean debug) {
-		Long value = 0L;
-		for (int b = 7; b >= 0; b--) {
-			Byte byteval = memory.get(address + b);
-			if (byteval == null) {
-				byteval = (byte) (random.nextLong() / 0x100);
-				throw new Report.Error("INTERPRETER: Uninitialized memory location " + (address + b) + ".");
-			}
-			long longval = (long) byteval;
-			value = (value * 0x100) + (longval < 0 ? longval + 0x100 : longval);
-		}
+	private long memLD(long address, boolean debug) {
+		long value = memory.ld(address);
 		if (debug)
-			System.out.printf("### %d <- [%d]\n", value, address);
+			out.printf("### %d <- [%d]\n", value, address);
 		return value;
 	}
 
-	private void tempST(Temp temp, Long value) {
+	private void tempST(Temp temp, long value) {
 		tempST(temp, value, debug);
 	}
 
-	private void tempST(Temp temp, Long value, boolean debug) {
-		temps.put(temp, value);
+	private void tempST(Temp temp, long value, boolean debug) {
+		int number = tempNumbers[(int) temp.temp];
+		temps[number] = value;
+		tempInits[number] = true;
 		if (debug) {
-			if (temp == SP) {
-				System.out.printf("### SP <- %d\n", value);
-				return;
-			}
 			if (temp == FP) {
-				System.out.printf("### FP <- %d\n", value);
+				out.printf("### FP <- %d\n", value);
 				return;
 			}
 			if (temp == RV) {
-				System.out.printf("### RV <- %d\n", value);
-				return;
-			}
-			if (temp == HP) {
-				System.out.printf("### HP <- %d\n", value);
+				out.printf("### RV <- %d\n", value);
 				return;
 			}
-			System.out.printf("### T%d <- %d\n", temp.temp, value);
+			out.printf("### T%d <- %d\n", temp.temp, value);
 			return;
 		}
 	}
 
-	private Long tempLD(Temp temp) {
+	private long tempLD(Temp temp) {
 		return tempLD(temp, debug);
 	}
 
-	private Long tempLD(Temp temp, boolean debug) {
-		Long value = temps.get(temp);
-		if (value == null) {
-			value = random.nextLong();
+	private long tempLD(Temp temp, boolean debug) {
+		int number = tempNumbers[(int) temp.temp];
+		if (!tempInits[number])
 			throw new Report.Error("Uninitialized temporary variable T" + temp.temp + ".");
-		}
+		long value = temps[number];
 		if (debug) {
-			if (temp == SP) {
-				System.out.printf("### %d <- SP\n", value);
-				return value;
-			}
 			if (temp == FP) {
-				System.out.printf("### %d <- FP\n", value);
+				out.printf("### %d <- FP\n", value);
 				return value;
 			}
 			if (temp == RV) {
-				System.out.printf("### %d <- RV\n", value);
+				out.printf("### %d <- RV\n", value);
 				return value;
 			}
-			if (temp == HP) {
-				System.out.printf("### %d <- HP\n", value);
-				return value;
-			}
-			System.out.printf("### %d <- T%d\n", value, temp.temp);
+			out.printf("### %d <- T%d\n", value, temp.temp);
 			return value;
 		}
 		return value;
 	}
 
+	private void spST(long value) {
+		SP = value;
+		if (debug)
+			out.printf("### SP <- %d\n", value);
+	}
+
+	private void hpST(long value) {
+		HP = value;
+		if (debug)
+			out.printf("### HP <- %d\n", value);
+	}
+
 	private class ExprInterpreter implements ImcVisitor<Long, Object> {
 
 		@Override
 		public Long visit(ImcBINOP imcBinop, Object arg) {
-			Long fstExpr = imcBinop.fstExpr.accept(this, null);
-			Long sndExpr = imcBinop.sndExpr.accept(this, null);
+			long fstExpr = imcBinop.fstExpr.accept(this, null);
+			long sndExpr = imcBinop.sndExpr.accept(this, null);
 			switch (imcBinop.oper) {
 			case IOR:
 				return (fstExpr != 0) | (sndExpr != 0) ? 1L : 0L;
@@ -243,7 +351,7 @@ public class Interpreter {
 
 		@Override
 		public Long visit(ImcUNOP imcUnop, Object arg) {
-			Long subExpr = imcUnop.subExpr.accept(this, null);
+			long subExpr = imcUnop.subExpr.accept(this, null);
 			switch (imcUnop.oper) {
 			case NOT:
 				return (subExpr == 0) ? 1L : 0L;
@@ -260,15 +368,15 @@ public class Interpreter {
 		@Override
 		public Label visit(ImcCJUMP imcCJump, Object arg) {
 			if (debug)
-				System.out.println(imcCJump);
-			Long cond = imcCJump.cond.accept(new ExprInterpreter(), null);
+				out.println(imcCJump);
+			long cond = imcCJump.cond.accept(new ExprInterpreter(), null);
 			return (cond != 0) ? imcCJump.posLabel : imcCJump.negLabel;
 		}
 
 		@Override
 		public Label visit(ImcESTMT imcEStmt, Object arg) {
 			if (debug)
-				System.out.println(imcEStmt);
+				out.println(imcEStmt);
 			if (imcEStmt.expr instanceof ImcCALL) {
 				call((ImcCALL) imcEStmt.expr);
 				return null;
@@ -280,27 +388,27 @@ public class Interpreter {
 		@Override
 		public Label visit(ImcJUMP imcJump, Object arg) {
 			if (debug)
-				System.out.println(imcJump);
+				out.println(imcJump);
 			return imcJump.label;
 		}
 
 		@Override
 		public Label visit(ImcLABEL imcLabel, Object arg) {
 			if (debug)
-				System.out.println(imcLabel);
+				out.println(imcLabel);
 			return null;
 		}
 
 		@Override
 		public Label visit(ImcMOVE imcMove, Object arg) {
 			if (debug)
-				System.out.println(imcMove);
+				out.println(imcMove);
 			if (imcMove.dst instanceof ImcMEM) {
-				Long dst = ((ImcMEM) (imcMove.dst)).addr.accept(new ExprInterpreter(), null);
-				Long src;
+				long dst = ((ImcMEM) (imcMove.dst)).addr.accept(new ExprInterpreter(), null);
+				long src;
 				if (imcMove.src instanceof ImcCALL) {
 					call((ImcCALL) imcMove.src);
-					src = memLD(tempLD(SP));
+					src = memLD(SP);
 				} else
 					src = imcMove.src.accept(new ExprInterpreter(), null);
 				memST(dst, src);
@@ -308,10 +416,10 @@ public class Interpreter {
 			}
 			if (imcMove.dst instanceof ImcTEMP) {
 				ImcTEMP dst = (ImcTEMP) (imcMove.dst);
-				Long src;
+				long src;
 				if (imcMove.src instanceof ImcCALL) {
 					call((ImcCALL) imcMove.src);
-					src = memLD(tempLD(SP));
+					src = memLD(SP);
 				} else
 					src = imcMove.src.accept(new ExprInterpreter(), null);
 				tempST(dst.temp, src);
@@ -323,45 +431,45 @@ public class Interpreter {
 		@Override
 		public Label visit(ImcSTMTS imcStmts, Object arg) {
 			if (debug)
-				System.out.println(imcStmts);
+				out.println(imcStmts);
 			throw new Report.InternalError();
 		}
 
 		private void call(ImcCALL imcCall) {
-			Long offset = 0L;
+			long offset = 0L;
 			for (ImcExpr callArg : imcCall.args()) {
-				Long callValue = callArg.accept(new ExprInterpreter(), null);
-				memST(tempLD(SP) + offset, callValue);
+				long callValue = callArg.accept(new ExprInterpreter(), null);
+				memST(SP + offset, callValue);
 				offset += 8;
 			}
 			if (imcCall.label.name.equals("_new")) {
-				Long size = memLD(tempLD(SP, false) + 1 * 8, false);
-				Long addr = tempLD(HP);
-				tempST(HP, addr + size);
-				memST(tempLD(SP), addr, false);
+				long size = memLD(SP + 1 * 8, false);
+				long addr = HP;
+				hpST(addr + size);
+				memST(SP, addr, false);
 				return;
 			}
 			if (imcCall.label.name.equals("_del")) {
 				return;
 			}
 			if (imcCall.label.name.equals("_putInt")) {
-				Long i = memLD(tempLD(SP, false) + 1 * 8, false);
-				System.out.printf("%d", i);
+				long i = memLD(SP + 1 * 8, false);
+				out.printf("%d", i);
 				return;
 			}
 			if (imcCall.label.name.equals("_putChar")) {
-				Long c = memLD(tempLD(SP, false) + 1 * 8, false);
-				System.out.printf("%c", (char) ((long) c) % 0x100);
+				long c = memLD(SP + 1 * 8, false);
+				out.printf("%c", (char) c % 0x100);
 				return;
 			}
 			if (imcCall.label.name.equals("_putString")) {
-				Long addr = memLD(tempLD(SP, false) + 1 * 8, false);
+				long addr = memLD(SP + 1 * 8, false);
 				do {
 					long c = memLD(addr, false);
 					addr += 8;
 					if (c == 0)
 						break;
-					System.out.printf("%c", (char) c);
+					out.printf("%c", (char) c);
 				} while (true);
 				return;
 			}
@@ -372,31 +480,36 @@ public class Interpreter {
 
 	public void funCall(Label entryLabel) {
 
-		HashMap<Temp, Long> storedTemps;
-		Temp storedFP = null;
-		Temp storedRV = null;
+		long[] storedTemps;
+		boolean[] storedTempInits;
+		Temp storedFP;
+		Temp storedRV;
 
 		CodeChunk chunk = callLabels.get(entryLabel);
+		if (chunk == null)
+			throw new Report.Error("INTERPRETER: Undefined function " + entryLabel.name + ".");
 		Frame frame = chunk.frame;
-		Vector<ImcStmt> stmts = chunk.stmts();
+		Vector<ImcStmt> stmts = chunk.realStmts();
 		int stmtOffset;
 
 		/* PROLOGUE */
 		{
 			if (debug)
-				System.out.printf("###\n### CALL: %s\n", entryLabel.name);
+				out.printf("###\n### CALL: %s\n", entryLabel.name);
 
 			// Store registers and FP.
 			storedTemps = temps;
-			temps = new HashMap<Temp, Long>(temps);
-			//storedFP = FP;
-			//storedRV = RV;
+			storedTempInits = tempInits;
+			temps = new long[numsOfTemps.get(chunk)];
+			tempInits = new boolean[temps.length];
+			storedFP = FP;
+			storedRV = RV;
 			// Store RA.
 			// Create a stack frame.
 			FP = frame.FP;
 			RV = frame.RV;
-			tempST(frame.FP, tempLD(SP));
-			tempST(SP, tempLD(SP) - frame.size);
+			tempST(frame.FP, SP);
+			spST(SP - frame.size);
 			// Jump to the body.
 			stmtOffset = jumpLabels.get(chunk.entryLabel);
 		}
@@ -409,7 +522,7 @@ public class Interpreter {
 			while (label != chunk.exitLabel) {
 				if (debug) {
 					pc++;
-					System.out.printf("### %s (%d):\n", chunk.frame.label.name, pc);
+					out.printf("### %s (%d):\n", chunk.frame.label.name, pc);
 					if (pc == 1000000)
 						break;
 				}
@@ -432,18 +545,17 @@ public class Interpreter {
 			// Store the result.
 			memST(tempLD(frame.FP), tempLD(frame.RV));
 			// Destroy a stack frame.
-			tempST(SP, tempLD(SP) + frame.size);
+			spST(SP + frame.size);
 			// Restore registers and FP.
 			FP = storedFP;
 			RV = storedRV;
-			Long hp = tempLD(HP);
 			temps = storedTemps;
-			tempST(HP, hp);
+			tempInits = storedTempInits;
 			// Restore RA.
 			// Return.
 
 			if (debug)
-				System.out.printf("### RETURN: %s\n###\n", entryLabel.name);
+				out.printf("### RETURN: %s\n###\n", entryLabel.name);
 		}
 
 	}
@@ -452,7 +564,7 @@ public class Interpreter {
 		for (Label label : callLabels.keySet()) {
 			if (label.name.equals(entryLabel)) {
 				funCall(label);
-				return memLD(tempLD(SP));
+				return memLD(SP);
 			}
 		}
 		throw new Report.InternalError();
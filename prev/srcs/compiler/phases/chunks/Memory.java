@@ -0,0 +1,169 @@
+package compiler.phases.chunks;
+
+import java.util.*;
+import compiler.common.report.*;
+
+/**
+ * The memory of the interpreter.
+ *
+ * Memory is divided into pages of 8-byte words stored in arrays of
+ * {@code long}s. The static data and the heap grow up from the heap base and
+ * the stack grows down from the stack base, so the pages of both segments are
+ * kept in arrays indexed by their distance from the respective base. Pages
+ * anywhere else are kept in a map.
+ *
+ * Each page has a shadow bitmap with one bit per byte, set when the byte is
+ * written, so that reading an uninitialized memory location can be reported.
+ * Words are stored with their least significant byte at the lowest address.
+ */
+public class Memory {
+
+	/** The binary logarithm of the number of bytes per page. */
+	private static final int PAGE_SHIFT = 12;
+
+	/** The number of words per page. */
+	private static final int PAGE_WORDS = 1 << (PAGE_SHIFT - 3);
+
+	/** The maximal number of pages of the heap or stack segment. */
+	private static final long MAX_SEGMENT_PAGES = 1L << 20;
+
+	private static class Page {
+
+		/** The words of this page. */
+		final long[] words = new long[PAGE_WORDS];
+
+		/** The initialized bytes of this page, 8 bits per word. */
+		final long[] shadow = new long[PAGE_WORDS / 8];
+
+	}
+
+	/** The number of the first page of the heap segment. */
+	private final long heapPage;
+
+	/** The number of the first (i.e., the highest) page of the stack segment. */
+	private final long stackPage;
+
+	private Page[] heapPages = new Page[16];
+
+	private Page[] stackPages = new Page[16];
+
+	private final HashMap<Long, Page> otherPages = new HashMap<Long, Page>();
+
+	/** The number of the most recently accessed page. */
+	private long lastPageNum = -1;
+
+	/** The most recently accessed page. */
+	private Page lastPage = null;
+
+	/**
+	 * Constructs a new memory without any initialized location.
+	 *
+	 * @param heapBase  The lowest address of the heap segment.
+	 * @param stackBase The highest address of the stack segment.
+	 */
+	public Memory(long heapBase, long stackBase) {
+		this.heapPage = heapBase >>> PAGE_SHIFT;
+		this.stackPage = stackBase >>> PAGE_SHIFT;
+	}
+
+	/**
+	 * Returns the page with the given number.
+	 *
+	 * @param pageNum The number of the page.
+	 * @param create  Whether the page is created if it does not exist yet.
+	 * @return The page or {@code null} if it does not exist and is not created.
+	 */
+	private Page page(long pageNum, boolean create) {
+		if (pageNum == lastPageNum)
+			return lastPage;
+		Page page;
+		long heapIndex = pageNum - heapPage;
+		long stackIndex = stackPage - pageNum;
+		if (pageNum >= heapPage && pageNum <= stackPage && heapIndex <= stackIndex && heapIndex < MAX_SEGMENT_PAGES) {
+			heapPages = pages(heapPages, (int) heapIndex, create);
+			page = heapIndex < heapPages.length ? heapPages[(int) heapIndex] : null;
+			if (page == null && create)
+				page = heapPages[(int) heapIndex] = new Page();
+		} else if (pageNum >= heapPage && pageNum <= stackPage && stackIndex < MAX_SEGMENT_PAGES) {
+			stackPages = pages(stackPages, (int) stackIndex, create);
+			page = stackIndex < stackPages.length ? stackPages[(int) stackIndex] : null;
+			if (page == null && create)
+				page = stackPages[(int) stackIndex] = new Page();
+		} else {
+			page = otherPages.get(pageNum);
+			if (page == null && create)
+				otherPages.put(pageNum, page = new Page());
+		}
+		if (page != null) {
+			lastPageNum = pageNum;
+			lastPage = page;
+		}
+		return page;
+	}
+
+	private Page[] pages(Page[] pages, int index, boolean create) {
+		if (index < pages.length || !create)
+			return pages;
+		return Arrays.copyOf(pages, Math.max(2 * pages.length, index + 1));
+	}
+
+	/**
+	 * Stores an 8-byte value.
+	 *
+	 * @param address The address.
+	 * @param value   The value.
+	 */
+	public void st(long address, long value) {
+		if ((address & 7) != 0) {
+			for (int b = 0; b <= 7; b++)
+				stByte(address + b, (byte) (value >>> (8 * b)));
+			return;
+		}
+		Page page = page(address >>> PAGE_SHIFT, true);
+		int word = (int) (address >>> 3) & (PAGE_WORDS - 1);
+		page.words[word] = value;
+		page.shadow[word >>> 3] |= 0xFFL << ((word & 7) * 8);
+	}
+
+	/**
+	 * Loads an 8-byte value.
+	 *
+	 * @param address The address.
+	 * @return The value.
+	 */
+	public long ld(long address) {
+		if ((address & 7) != 0) {
+			long value = 0;
+			for (int b = 7; b >= 0; b--)
+				value = (value << 8) | (ldByte(address + b) & 0xFF);
+			return value;
+		}
+		Page page = page(address >>> PAGE_SHIFT, false);
+		int word = (int) (address >>> 3) & (PAGE_WORDS - 1);
+		long inits = page == null ? 0 : (page.shadow[word >>> 3] >>> ((word & 7) * 8)) & 0xFF;
+		if (inits != 0xFF) {
+			int b = 7;
+			while ((inits & (1L << b)) != 0)
+				b--;
+			throw new Report.Error("INTERPRETER: Uninitialized memory location " + (address + b) + ".");
+		}
+		return page.words[word];
+	}
+
+	private void stByte(long address, byte value) {
+		Page page = page(address >>> PAGE_SHIFT, true);
+		int word = (int) (address >>> 3) & (PAGE_WORDS - 1);
+		int shift = (int) (address & 7) * 8;
+		page.words[word] = (page.words[word] & ~(0xFFL << shift)) | ((value & 0xFFL) << shift);
+		page.shadow[word >>> 3] |= 1L << ((word & 7) * 8 + (address & 7));
+	}
+
+	private byte ldByte(long address) {
+		Page page = page(address >>> PAGE_SHIFT, false);
+		int word = (int) (address >>> 3) & (PAGE_WORDS - 1);
+		if (page == null || (page.shadow[word >>> 3] & (1L << ((word & 7) * 8 + (address & 7)))) == 0)
+			throw new Report.Error("INTERPRETER: Uninitialized memory location " + address + ".");
+		return (byte) (page.words[word] >>> ((address & 7) * 8));
+	}
+
+}
@@ -5,15 +5,23 @@ package compiler.phases.lexan;
 
 import java.io.*;
 import java.util.HashMap;
+import java.util.Vector;
 
 import compiler.common.report.*;
 import compiler.common.report.Report.Error;
+import compiler.common.stats.*;
 import compiler.data.symbol.*;
 import compiler.phases.*;
 
 /**
  * Lexical analysis.
  * 
+ * The source file is read character by character unless the mapped lexer has
+ * been requested ({@code --lexer=mapped}), in which case it is memory-mapped
+ * and scanned by {@link MappedLexer} into a {@link TokenRing} ahead of the
+ * parser (by a separate thread if {@code --lexer=threaded}). Either way, the
+ * parser can look any number of symbols ahead (see {@link #lookahead(int)}).
+ * 
  * @author sliva
  */
 public class LexAn extends Phase {
@@ -21,17 +29,39 @@ public class LexAn extends Phase {
 	/** The name of the source file. */
 	private final String srcFileName;
 
-	/** The source file reader. */
+	/** The source file reader (or {@code null} if the mapped lexer is used). */
 	private final BufferedReader srcFile;
+
+	/**
+	 * The tokens scanned by the mapped lexer (or {@code null} if the source file
+	 * reader is used).
+	 */
+	private final TokenRing tokens;
+
+	/** The symbols read ahead by the source file reader. */
+	private final Vector<Symbol> lookaheads = new Vector<Symbol>();
 	
+	/** The number of symbols returned so far. */
+	private long numOfTokens = 0;
+
 	private final HashMap<String, Symbol.Term> keywords = new HashMap<String, Symbol.Term>();
 
+	/** The table identifiers are interned into. */
+	private final NameTable names = compiler.Compilation.current().names;
+
 	/**
 	 * Constructs a new phase of lexical analysis.
 	 */
 	public LexAn() {
 		super("lexan");
 		srcFileName = compiler.Main.cmdLineArgValue("--src-file-name");
+		String lexer = compiler.Main.cmdLineArgValue("--lexer");
+		if ("mapped".equals(lexer) || "threaded".equals(lexer)) {
+			srcFile = null;
+			tokens = new TokenRing(new MappedLexer(srcFileName, names), "threaded".equals(lexer));
+			return;
+		}
+		tokens = null;
 		try {
 			srcFile = new BufferedReader(new FileReader(srcFileName));
 		} catch (IOException ___) {
@@ -66,11 +96,15 @@ public class LexAn extends Phase {
 
 	@Override
 	public void close() {
+		if (tokens != null)
+			tokens.close();
 		try {
-			srcFile.close();
+			if (srcFile != null)
+				srcFile.close();
 		} catch (IOException ___) {
 			Report.warning("Cannot close source file '" + this.srcFileName + "'.");
 		}
+		Stats.count("tokens", numOfTokens);
 		super.close();
 	}
 
@@ -79,14 +113,21 @@ public class LexAn extends Phase {
 	 * 
 	 * This method returns the next symbol from the source file. To perform the
 	 * lexical analysis of the entire source file, this method must be called until
-	 * it returns EOF. This method calls {@link #lexify()}, logs its result if
-	 * requested, and returns it.
+	 * it returns EOF. This method calls {@link #lexify()} (or takes the next symbol
+	 * read ahead), logs its result if requested, and returns it.
 	 * 
 	 * @return The next symbol from the source file or EOF if no symbol is available
 	 *         any more.
 	 */
 	public Symbol lexer() {
-		Symbol symb = lexify();
+		Symbol symb;
+		if (tokens != null)
+			symb = tokens.next();
+		else if (!lookaheads.isEmpty())
+			symb = lookaheads.remove(0);
+		else
+			symb = lexify();
+		numOfTokens++;
 		if (symb.token != Symbol.Term.EOF) {
 			symb.log(logger);
 		}
@@ -94,6 +135,29 @@ public class LexAn extends Phase {
 		return symb;
 	}
 
+	/**
+	 * Looks ahead in the source file.
+	 * 
+	 * This method returns the token of the k-th symbol the lexer is going to
+	 * return without consuming any symbol, e.g., {@code lookahead(1)} returns the
+	 * token of the symbol returned by the next call of {@link #lexer()}. With the
+	 * source file reader, a lexical error is reported as soon as the erroneous
+	 * symbol is looked at.
+	 * 
+	 * @param k The position of the symbol ({@code k >= 1}).
+	 * @return The token of the k-th symbol ahead (or EOF if there are fewer
+	 *         symbols left).
+	 */
+	public Symbol.Term lookahead(int k) {
+		if (k < 1)
+			throw new Report.InternalError();
+		if (tokens != null)
+			return tokens.term(k - 1);
+		while (lookaheads.size() < k)
+			lookaheads.add(lexify());
+		return lookaheads.get(k - 1).token;
+	}
+
 	// Returns true if next character is not part of a whitespace
 	private boolean isWhiteSpace(){
 		return cc == ' ' || cc == '\n' || cc == '\r' || cc == '\t';
@@ -323,7 +387,7 @@ public class LexAn extends Phase {
 					}
 					
 					// Else identifier
-					return createSymbol(Symbol.Term.IDENTIFIER, lexeme);
+					return createSymbol(Symbol.Term.IDENTIFIER, names.name(names.id(lexeme)));
 				}
 				
 				break;
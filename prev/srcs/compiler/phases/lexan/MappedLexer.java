@@ -0,0 +1,387 @@
+package compiler.phases.lexan;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+import compiler.common.report.*;
+import compiler.data.symbol.*;
+
+/**
+ * A table-driven lexer over a memory-mapped source file.
+ *
+ * The lexer recognizes exactly the same symbols at exactly the same locations
+ * as the reader-based lexer in {@link LexAn}, but it classifies bytes of the
+ * source file using a table of character classes and recognizes keywords
+ * using a perfect hash of the bytes of an identifier computed while it is
+ * being scanned. Tokens are described by primitive values only (see
+ * {@link TokenRing}); identifiers are interned into the name table of the
+ * compilation while lexemes of literals as well as locations of all symbols
+ * are materialized only once they are needed (see {@link MappedSymbol}).
+ */
+class MappedLexer {
+
+	private static final byte OTHER = 0;
+	private static final byte SPACE = 1;
+	private static final byte TAB = 2;
+	private static final byte CR = 3;
+	private static final byte LF = 4;
+	private static final byte HASH = 5;
+	private static final byte DIGIT = 6;
+	private static final byte ALPHA = 7;
+	private static final byte QUOTE = 8;
+	private static final byte DQUOTE = 9;
+	private static final byte PUNCT = 10;
+
+	/** The character class of each byte. */
+	private static final byte[] classes = new byte[256];
+
+	/** The terminal of each single-character symbol. */
+	private static final Symbol.Term[] puncts = new Symbol.Term[256];
+
+	/** The terminal of each single-character symbol followed by {@code =}. */
+	private static final Symbol.Term[] punctsEqu = new Symbol.Term[256];
+
+	/** The lexeme of each single-character symbol. */
+	private static final String[] punctLexemes = new String[256];
+
+	/** The lexeme of each single-character symbol followed by {@code =}. */
+	private static final String[] punctEquLexemes = new String[256];
+
+	/** The size of the keyword table (a power of 2). */
+	private static final int KEYWORDS_SIZE = 64;
+
+	/** The keywords (indexed by their hashes). */
+	private static final String[] keywords = new String[KEYWORDS_SIZE];
+
+	/** The bytes of the keywords (indexed by their hashes). */
+	private static final byte[][] keywordBytes = new byte[KEYWORDS_SIZE][];
+
+	/** The terminals of the keywords (indexed by their hashes). */
+	private static final Symbol.Term[] keywordTerms = new Symbol.Term[KEYWORDS_SIZE];
+
+	static {
+		classes[' '] = SPACE;
+		classes['\t'] = TAB;
+		classes['\r'] = CR;
+		classes['\n'] = LF;
+		classes['#'] = HASH;
+		for (int c = '0'; c <= '9'; c++)
+			classes[c] = DIGIT;
+		for (int c = 'A'; c <= 'Z'; c++)
+			classes[c] = ALPHA;
+		for (int c = 'a'; c <= 'z'; c++)
+			classes[c] = ALPHA;
+		classes['_'] = ALPHA;
+		classes['\''] = QUOTE;
+		classes['"'] = DQUOTE;
+
+		punct('!', Symbol.Term.NOT, Symbol.Term.NEQ);
+		punct('|', Symbol.Term.IOR, null);
+		punct('^', Symbol.Term.XOR, null);
+		punct('&', Symbol.Term.AND, null);
+		punct('=', Symbol.Term.ASSIGN, Symbol.Term.EQU);
+		punct('<', Symbol.Term.LTH, Symbol.Term.LEQ);
+		punct('>', Symbol.Term.GTH, Symbol.Term.GEQ);
+		punct('+', Symbol.Term.ADD, null);
+		punct('-', Symbol.Term.SUB, null);
+		punct('*', Symbol.Term.MUL, null);
+		punct('/', Symbol.Term.DIV, null);
+		punct('%', Symbol.Term.MOD, null);
+		punct('$', Symbol.Term.ADDR, null);
+		punct('@', Symbol.Term.DATA, null);
+		punct('.', Symbol.Term.DOT, null);
+		punct(',', Symbol.Term.COMMA, null);
+		punct(':', Symbol.Term.COLON, null);
+		punct(';', Symbol.Term.SEMIC, null);
+		punct('[', Symbol.Term.LBRACKET, null);
+		punct(']', Symbol.Term.RBRACKET, null);
+		punct('(', Symbol.Term.LPARENTHESIS, null);
+		punct(')', Symbol.Term.RPARENTHESIS, null);
+		punct('{', Symbol.Term.LBRACE, null);
+		punct('}', Symbol.Term.RBRACE, null);
+
+		keyword("arr", Symbol.Term.ARR);
+		keyword("bool", Symbol.Term.BOOL);
+		keyword("char", Symbol.Term.CHAR);
+		keyword("del", Symbol.Term.DEL);
+		keyword("do", Symbol.Term.DO);
+		keyword("else", Symbol.Term.ELSE);
+		keyword("end", Symbol.Term.END);
+		keyword("fun", Symbol.Term.FUN);
+		keyword("if", Symbol.Term.IF);
+		keyword("int", Symbol.Term.INT);
+		keyword("new", Symbol.Term.NEW);
+		keyword("ptr", Symbol.Term.PTR);
+		keyword("rec", Symbol.Term.REC);
+		keyword("then", Symbol.Term.THEN);
+		keyword("typ", Symbol.Term.TYP);
+		keyword("var", Symbol.Term.VAR);
+		keyword("void", Symbol.Term.VOID);
+		keyword("where", Symbol.Term.WHERE);
+		keyword("while", Symbol.Term.WHILE);
+
+		keyword("none", Symbol.Term.VOIDCONST);
+		keyword("true", Symbol.Term.BOOLCONST);
+		keyword("false", Symbol.Term.BOOLCONST);
+		keyword("null", Symbol.Term.PTRCONST);
+	}
+
+	private static void punct(char c, Symbol.Term term, Symbol.Term termEqu) {
+		classes[c] = PUNCT;
+		puncts[c] = term;
+		punctLexemes[c] = Character.toString(c);
+		if (termEqu != null) {
+			punctsEqu[c] = termEqu;
+			punctEquLexemes[c] = c + "=";
+		}
+	}
+
+	private static void keyword(String keyword, Symbol.Term term) {
+		int hash = 0;
+		for (int c = 0; c < keyword.length(); c++)
+			hash = hash * 5 + keyword.charAt(c);
+		int index = index(hash);
+		if (keywords[index] != null)
+			throw new Report.InternalError();
+		keywords[index] = keyword;
+		keywordBytes[index] = keyword.getBytes(StandardCharsets.US_ASCII);
+		keywordTerms[index] = term;
+	}
+
+	/**
+	 * Returns the index in the keyword table of an identifier with the specified
+	 * hash (the hash function is perfect for the keywords).
+	 */
+	private static int index(int hash) {
+		return (hash >>> 2) & (KEYWORDS_SIZE - 1);
+	}
+
+	/** The source file. */
+	final ByteBuffer src;
+
+	/** The table identifiers are interned into. */
+	private final NameTable names;
+
+	/** The size of the source file. */
+	private final int size;
+
+	/** The position of the next byte in the source file. */
+	private int pos = 0;
+
+	/** The line of the next byte in the source file. */
+	private int line = 1;
+
+	/** The column of the next byte in the source file. */
+	private int column = 1;
+
+	/** The terminal of the scanned token (or {@code null} if it is an error). */
+	Symbol.Term term;
+
+	/**
+	 * The lexeme of the scanned token (or {@code null} if it is to be materialized
+	 * from the source file), or the error message.
+	 */
+	String lexeme;
+
+	/** The position of the scanned token in the source file. */
+	int tokenPos;
+
+	/** The length of the scanned token. */
+	int tokenLength;
+
+	/** The line of the scanned token. */
+	int tokenLine;
+
+	/** The column of the first character of the scanned token. */
+	int tokenColumn;
+
+	/**
+	 * Constructs a new lexer and maps the source file into memory.
+	 *
+	 * @param srcFileName The name of the source file.
+	 * @param names       The table identifiers are interned into.
+	 */
+	MappedLexer(String srcFileName, NameTable names) {
+		this.names = names;
+		try (FileChannel channel = FileChannel.open(Paths.get(srcFileName), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new Report.Error("Source file '" + srcFileName + "' is too large.");
+			size = (int) channel.size();
+			src = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		} catch (IOException | InvalidPathException ___) {
+			throw new Report.Error("Cannot open source file '" + srcFileName + "'.");
+		}
+	}
+
+	/**
+	 * Returns the byte at the specified position or {@code -1} at the end of the
+	 * source file.
+	 */
+	private int at(int pos) {
+		return pos < size ? src.get(pos) & 0xFF : -1;
+	}
+
+	private int classOf(int c) {
+		return c < 0 ? OTHER : classes[c];
+	}
+
+	/**
+	 * Scans the next token of the source file.
+	 *
+	 * Once this method returns, the token is described by {@link #term},
+	 * {@link #lexeme}, {@link #tokenPos}, {@link #tokenLength}, {@link #tokenLine}
+	 * and {@link #tokenColumn}. To perform the lexical analysis of the entire
+	 * source file, this method must be called until it scans EOF or a lexical
+	 * error. A lexical error is only described, not reported.
+	 */
+	void scan() {
+		// A NUL byte right after a symbol is skipped (as by the reader-based lexer).
+		if ((pos > 0) && (at(pos) == 0))
+			pos++;
+
+		// Skip whitespace and comments.
+		while (pos < size) {
+			int c = src.get(pos) & 0xFF;
+			switch (classes[c]) {
+			case SPACE:
+				column++;
+				pos++;
+				continue;
+			case TAB:
+				column += 8;
+				pos++;
+				continue;
+			case CR:
+				pos++;
+				continue;
+			case LF:
+				line++;
+				column = 1;
+				pos++;
+				continue;
+			case HASH:
+				while ((pos < size) && (src.get(pos) != '\n'))
+					pos++;
+				if (pos == size) {
+					token(Symbol.Term.EOF, "", pos, 0);
+					return;
+				}
+				line++;
+				column = 1;
+				pos++;
+				continue;
+			default:
+				break;
+			}
+			break;
+		}
+		if (pos == size) {
+			token(Symbol.Term.EOF, "", pos, 0);
+			return;
+		}
+
+		int beg = pos;
+		int c = src.get(pos) & 0xFF;
+		switch (classes[c]) {
+		case PUNCT:
+			if ((punctsEqu[c] != null) && (at(pos + 1) == '='))
+				token(punctsEqu[c], punctEquLexemes[c], beg, 2);
+			else
+				token(puncts[c], punctLexemes[c], beg, 1);
+			return;
+
+		case DIGIT:
+			pos++;
+			while (classOf(at(pos)) == DIGIT)
+				pos++;
+			token(Symbol.Term.INTCONST, null, beg, pos - beg);
+			return;
+
+		case QUOTE:
+			c = at(pos + 1);
+			if ((c < 32) || (c > 126))
+				error("Character not supported");
+			else if (at(pos + 2) != '\'')
+				error("CHARCONST missing closing '.");
+			else
+				token(Symbol.Term.CHARCONST, null, beg, 3);
+			return;
+
+		case DQUOTE:
+			pos++;
+			while ((c = at(pos)) >= 32 && (c <= 126) && (c != '"'))
+				pos++;
+			if (c != '"') {
+				pos = beg;
+				error("STRCONST missing closing \".");
+			} else
+				token(Symbol.Term.STRCONST, null, beg, pos + 1 - beg);
+			return;
+
+		case ALPHA: {
+			int hash = c;
+			pos++;
+			int cls;
+			while (((cls = classOf(c = at(pos))) == ALPHA) || (cls == DIGIT)) {
+				hash = hash * 5 + c;
+				pos++;
+			}
+			int index = index(hash);
+			byte[] keyword = keywordBytes[index];
+			if ((keyword != null) && (keyword.length == pos - beg)) {
+				int k = 0;
+				while ((k < keyword.length) && (keyword[k] == src.get(beg + k)))
+					k++;
+				if (k == keyword.length) {
+					token(keywordTerms[index], keywords[index], beg, pos - beg);
+					return;
+				}
+			}
+			token(Symbol.Term.IDENTIFIER, names.name(names.id(src, beg, pos - beg)), beg, pos - beg);
+			return;
+		}
+
+		default:
+			error("Unknown character.");
+			return;
+		}
+	}
+
+	/**
+	 * Describes the scanned token and moves past it.
+	 *
+	 * @param term   The terminal.
+	 * @param lexeme The lexeme or {@code null} if it is to be materialized from the
+	 *               source file on demand.
+	 * @param beg    The position of the token in the source file.
+	 * @param length The length of the token.
+	 */
+	private void token(Symbol.Term term, String lexeme, int beg, int length) {
+		this.term = term;
+		this.lexeme = lexeme;
+		tokenPos = beg;
+		tokenLength = length;
+		tokenLine = line;
+		tokenColumn = column;
+		pos = beg + length;
+		column += length;
+	}
+
+	/**
+	 * Describes a lexical error at the current position (without moving on).
+	 *
+	 * @param message The error message.
+	 */
+	private void error(String message) {
+		term = null;
+		lexeme = message;
+		tokenPos = pos;
+		tokenLength = 1;
+		tokenLine = line;
+		tokenColumn = column;
+	}
+
+}
@@ -0,0 +1,76 @@
+package compiler.phases.lexan;
+
+import java.nio.*;
+import java.nio.charset.*;
+
+import compiler.common.report.*;
+import compiler.data.symbol.*;
+
+/**
+ * A symbol recognized by {@link MappedLexer}. The lexeme of an identifier or a
+ * literal is materialized from the memory-mapped source file and the location
+ * is materialized from the line and column only once they are needed.
+ */
+class MappedSymbol extends Symbol {
+
+	/** The source file. */
+	private final ByteBuffer src;
+
+	/** The position of this symbol in the source file. */
+	private final int pos;
+
+	/** The length of this symbol. */
+	private final int length;
+
+	/** The line of this symbol. */
+	private final int line;
+
+	/** The column of the first character of this symbol. */
+	private final int column;
+
+	/** The lexeme (or {@code null} if not materialized yet). */
+	private String lexeme;
+
+	/** The location (or {@code null} if not materialized yet). */
+	private Location location;
+
+	/**
+	 * Constructs a new symbol.
+	 * 
+	 * @param token  The token.
+	 * @param lexeme The lexeme or {@code null} if it is to be materialized from
+	 *               the source file.
+	 * @param src    The source file.
+	 * @param pos    The position of the symbol in the source file.
+	 * @param length The length of the symbol.
+	 * @param line   The line of the symbol.
+	 * @param column The column of the first character of the symbol.
+	 */
+	MappedSymbol(Term token, String lexeme, ByteBuffer src, int pos, int length, int line, int column) {
+		super(token);
+		this.lexeme = lexeme;
+		this.src = src;
+		this.pos = pos;
+		this.length = length;
+		this.line = line;
+		this.column = column;
+	}
+
+	@Override
+	public String lexeme() {
+		if (lexeme == null) {
+			byte[] bytes = new byte[length];
+			src.get(pos, bytes);
+			lexeme = new String(bytes, StandardCharsets.ISO_8859_1);
+		}
+		return lexeme;
+	}
+
+	@Override
+	public Location location() {
+		if (location == null)
+			location = new Location(line, column, line, column + length - 1);
+		return location;
+	}
+
+}
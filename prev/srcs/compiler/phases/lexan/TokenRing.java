@@ -0,0 +1,193 @@
+package compiler.phases.lexan;
+
+import compiler.common.report.*;
+import compiler.data.symbol.*;
+
+/**
+ * A ring buffer of tokens scanned by {@link MappedLexer} ahead of the parser.
+ *
+ * Each token is encoded by primitive values only (its terminal, its position,
+ * length, line and column in the source file and a reference to its constant
+ * lexeme if any) and a {@link Symbol} is created only once the token is
+ * consumed. The buffer is filled either in batches within the consuming thread
+ * or continuously by a separate producer thread.
+ *
+ * The last token in the source file (EOF or a lexical error) is never consumed
+ * but returned over and over again. A lexical error is reported only once the
+ * erroneous token is needed, i.e., exactly when the lexer without the buffer
+ * would have reported it.
+ */
+class TokenRing {
+
+	/** The capacity of the buffer (a power of 2). */
+	static final int CAPACITY = 1 << 12;
+
+	private static final int MASK = CAPACITY - 1;
+
+	/** The encoding of a lexical error in {@link #terms}. */
+	private static final int ERROR = -1;
+
+	private static final Symbol.Term[] allTerms = Symbol.Term.values();
+
+	/** The lexer filling the buffer. */
+	private final MappedLexer lexer;
+
+	/** The terminals (ordinals) of the tokens, or {@link #ERROR}. */
+	private final int[] terms = new int[CAPACITY];
+
+	/** The constant lexemes of the tokens (or error messages). */
+	private final String[] lexemes = new String[CAPACITY];
+
+	/** The positions of the tokens in the source file. */
+	private final int[] poss = new int[CAPACITY];
+
+	/** The lengths of the tokens. */
+	private final int[] lengths = new int[CAPACITY];
+
+	/** The lines of the tokens. */
+	private final int[] lines = new int[CAPACITY];
+
+	/** The columns of the tokens. */
+	private final int[] columns = new int[CAPACITY];
+
+	/** The index of the next token to be consumed. */
+	private volatile long head = 0;
+
+	/** The index of the next token to be scanned. */
+	private volatile long tail = 0;
+
+	/** Whether the last token in the source file has been scanned. */
+	private volatile boolean done = false;
+
+	/** Whether the producer thread has failed. */
+	private volatile boolean failed = false;
+
+	/** Whether the buffer has been closed. */
+	private volatile boolean closed = false;
+
+	/** The producer thread (or {@code null} if filled in batches). */
+	private final Thread producer;
+
+	/**
+	 * Constructs a new buffer.
+	 *
+	 * @param lexer    The lexer filling the buffer.
+	 * @param threaded Whether the buffer is filled by a separate producer thread.
+	 */
+	TokenRing(MappedLexer lexer, boolean threaded) {
+		this.lexer = lexer;
+		if (threaded) {
+			producer = new Thread(this::produce, "lexan");
+			producer.setDaemon(true);
+			producer.start();
+		} else
+			producer = null;
+	}
+
+	/**
+	 * Stops filling the buffer.
+	 */
+	void close() {
+		closed = true;
+		if (producer != null) {
+			try {
+				producer.join();
+			} catch (InterruptedException __) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Scans the next token into the buffer (which must not be full).
+	 */
+	private void scan() {
+		lexer.scan();
+		int slot = (int) (tail & MASK);
+		terms[slot] = (lexer.term == null) ? ERROR : lexer.term.ordinal();
+		lexemes[slot] = lexer.lexeme;
+		poss[slot] = lexer.tokenPos;
+		lengths[slot] = lexer.tokenLength;
+		lines[slot] = lexer.tokenLine;
+		columns[slot] = lexer.tokenColumn;
+		tail = tail + 1;
+		if ((lexer.term == null) || (lexer.term == Symbol.Term.EOF))
+			done = true;
+	}
+
+	/**
+	 * The producer thread: fills the buffer until the last token is scanned or
+	 * the buffer is closed.
+	 */
+	private void produce() {
+		try {
+			while (!done && !closed) {
+				if (tail - head == CAPACITY) {
+					Thread.yield();
+					continue;
+				}
+				scan();
+			}
+		} finally {
+			if (!done) {
+				failed = true;
+				done = true;
+			}
+		}
+	}
+
+	/**
+	 * Returns the slot of the k-th token after the next token to be consumed,
+	 * waiting for it to be scanned if necessary.
+	 */
+	private int slot(int k) {
+		if ((k < 0) || (k >= CAPACITY))
+			throw new Report.InternalError();
+		long index = head + k;
+		while (index >= tail) {
+			if (done) {
+				if (failed)
+					throw new Report.InternalError();
+				index = tail - 1;
+				break;
+			}
+			if (producer == null) {
+				// Fill the buffer in a batch.
+				while (!done && (tail - head < CAPACITY))
+					scan();
+			} else
+				Thread.yield();
+		}
+		int slot = (int) (index & MASK);
+		if (terms[slot] == ERROR)
+			throw new Report.Error(new Location(lines[slot], columns[slot]), lexemes[slot]);
+		return slot;
+	}
+
+	/**
+	 * Returns the terminal of the k-th token after the next token to be
+	 * consumed.
+	 *
+	 * @param k The number of tokens to skip.
+	 * @return The terminal.
+	 */
+	Symbol.Term term(int k) {
+		return allTerms[terms[slot(k)]];
+	}
+
+	/**
+	 * Consumes the next token.
+	 *
+	 * @return The symbol of the consumed token.
+	 */
+	Symbol next() {
+		int slot = slot(0);
+		Symbol.Term term = allTerms[terms[slot]];
+		Symbol symb = new MappedSymbol(term, lexemes[slot], lexer.src, poss[slot], lengths[slot], lines[slot],
+				columns[slot]);
+		if (term != Symbol.Term.EOF)
+			head = head + 1;
+		return symb;
+	}
+
+}
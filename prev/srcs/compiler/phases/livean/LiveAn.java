@@ -4,6 +4,7 @@
 package compiler.phases.livean;
 
 import java.util.*;
+import compiler.*;
 import compiler.data.asmcode.*;
 import compiler.data.layout.*;
 import compiler.phases.*;
@@ -18,80 +19,129 @@ public class LiveAn extends Phase {
 		super("livean");
 	}
 
-	private HashMap<Label, AsmInstr> labels = new HashMap<>();
-	
+	/**
+	 * Computes the sets of temporaries that are live in and out of each
+	 * instruction of a fragment of code. The results are stored back into
+	 * instructions, where they are available through {@link AsmInstr#in()} and
+	 * {@link AsmInstr#out()}. Following the existing convention, the set of
+	 * temporaries live out of an instruction includes the temporaries it defines.
+	 * 
+	 * @param code The fragment of code.
+	 */
 	public void chunkLiveness(Code code) {
-		for(AsmInstr instr: code.instrs) {
-			((AsmOPER)instr).resetInOut();
+		TempNumbering numbering = new TempNumbering(code);
+		FlowGraph graph = code.flowGraph();
+		TempSet[] out = blocksLiveness(code, numbering);
+
+		// Propagate the results to instructions.
+		TempSet live = new TempSet(numbering.size());
+		for (int b = 0; b < graph.numOfBlocks(); b++) {
+			live.copyOf(out[b]);
+			for (int i = graph.endInstr(b) - 1; i >= graph.begInstr(b); i--) {
+				for (int t : numbering.defs(i))
+					live.add(t);
+				AsmOPER instr = (AsmOPER) code.instrs.get(i);
+				instr.resetInOut();
+				instr.addOutTemp(numbering.toTemps(live));
+				for (int t : numbering.defs(i))
+					live.remove(t);
+				for (int t : numbering.uses(i))
+					live.add(t);
+				instr.addInTemps(numbering.toTemps(live));
+			}
 		}
-		
-		boolean changed = true;
-		while(changed) {
-			changed = false;
-			for (int i = code.instrs.size() - 1; i >= 0 ; i--) {
-				AsmInstr inst = code.instrs.get(i);
-				{ // IN
-					HashSet<Temp> newIn = new HashSet<>();
-					newIn.addAll(inst.out());
-					newIn.removeAll(inst.defs());
-					newIn.addAll(inst.uses());
+	}
 
-					if (!newIn.equals(inst.in())){
-						changed = true;
-						inst.addInTemps(newIn);
-					}
+	/**
+	 * Computes the sets of temporaries that are live out of each basic block of a
+	 * fragment of code.
+	 * 
+	 * The data-flow equations are solved for basic blocks of the code's
+	 * {@link FlowGraph} on {@link TempSet}s using a worklist ordered by reverse
+	 * postorder of the reversed graph, i.e., successors are visited before their
+	 * predecessors. The return value temporary is live at the jumps to the
+	 * function's exit label as it is read by the epilogue.
+	 * 
+	 * @param code      The fragment of code.
+	 * @param numbering The numbering of temporaries of the fragment of code.
+	 * @return The sets of temporaries live out of each block.
+	 */
+	public static TempSet[] blocksLiveness(Code code, TempNumbering numbering) {
+		int numOfTemps = numbering.size();
+		FlowGraph graph = code.flowGraph();
+		int numOfBlocks = graph.numOfBlocks();
+		int rv = numbering.number(code.frame.RV);
+
+		// Compute upward exposed uses and definitions of each block.
+		TempSet[] use = new TempSet[numOfBlocks];
+		TempSet[] def = new TempSet[numOfBlocks];
+		for (int b = 0; b < numOfBlocks; b++) {
+			use[b] = new TempSet(numOfTemps);
+			def[b] = new TempSet(numOfTemps);
+			for (int i = graph.endInstr(b) - 1; i >= graph.begInstr(b); i--) {
+				for (int t : numbering.defs(i)) {
+					def[b].add(t);
+					use[b].remove(t);
 				}
-				
-				{ // OUT
-					HashSet<Temp> toAdd = new HashSet<>();
-					toAdd.addAll(inst.defs());
-					
-					// Add from next instruction, unless this is an unconditional jump?
-					if(i != code.instrs.size() - 1) {
-						toAdd.addAll(code.instrs.get(i+1).in());
-					}
-					
-					for(Label l : inst.jumps()) {
-						// Find the instruction we can jump to.
-						AsmInstr succ = null;
-						if(labels.containsKey(l)) {
-							succ = labels.get(l);
-						}else {
-							for (AsmInstr instruction: code.instrs) {
-								if(instruction instanceof AsmLABEL && ((AsmLABEL)instruction).getLabel().equals(l)) {
-									succ = instruction;
-									labels.put(l, succ);
-									break;
-								}
-							}
-						}
-						
-						if(succ != null) {
-							toAdd.addAll(succ.in());
-						}
-					}
+				for (int t : numbering.uses(i))
+					use[b].add(t);
+			}
+		}
 
-					toAdd.removeAll(inst.out());
-					if(toAdd.size() > 0) {
-						changed = true;
-						inst.addOutTemp(toAdd);			
+		// Solve the data-flow equations for blocks.
+		int[] order = graph.postorder();
+		TempSet[] in = new TempSet[numOfBlocks];
+		TempSet[] out = new TempSet[numOfBlocks];
+		boolean[] pending = new boolean[numOfBlocks];
+		for (int b = 0; b < numOfBlocks; b++) {
+			in[b] = new TempSet(numOfTemps);
+			out[b] = new TempSet(numOfTemps);
+			if (code.instrs.get(graph.endInstr(b) - 1).jumps().contains(code.exitLabel))
+				out[b].add(rv);
+			pending[b] = true;
+		}
+		TempSet newIn = new TempSet(numOfTemps);
+		int numOfPending = numOfBlocks;
+		while (numOfPending > 0) {
+			for (int p = 0; p < numOfBlocks; p++) {
+				int b = order[p];
+				if (!pending[b])
+					continue;
+				pending[b] = false;
+				numOfPending--;
+
+				for (int succ : graph.succs(b))
+					out[b].addAll(in[succ]);
+				newIn.copyOf(out[b]);
+				newIn.removeAll(def[b]);
+				newIn.addAll(use[b]);
+				if (in[b].addAll(newIn)) {
+					for (int pred : graph.preds(b)) {
+						if (!pending[pred]) {
+							pending[pred] = true;
+							numOfPending++;
+						}
 					}
-					
 				}
 			}
 		}
+		return out;
 	}
 
+	/**
+	 * Computes the liveness of temporaries in the code of all functions (in
+	 * parallel, see {@link Compilation#forEach}).
+	 */
 	public void chunksLiveness() {
-		for (Code code : AsmGen.codes) {
-			chunkLiveness(code);
-		}
+		Compilation compilation = Compilation.current();
+		Vector<Code> codes = compilation.codes;
+		compilation.forEach(codes.size(), c -> chunkLiveness(codes.get(c)));
 	}
 
 	public void log() {
 		if (logger == null)
 			return;
-		for (Code code : AsmGen.codes) {
+		for (Code code : Compilation.current().codes) {
 			{
 				logger.begElement("code");
 				logger.addAttribute("entrylabel", code.entryLabel.name);
@@ -0,0 +1,123 @@
+package compiler.phases.livean;
+
+import java.util.*;
+import compiler.data.asmcode.*;
+import compiler.data.layout.*;
+
+/**
+ * Dense numbering of the temporaries of a fragment of code.
+ *
+ * Every temporary used or defined by some instruction is assigned a number
+ * between {@code 0} and {@code size() - 1} in the order of its first
+ * appearance. The uses and definitions of each instruction are stored as
+ * arrays of these numbers so that they can be consulted without copying the
+ * vectors returned by {@link AsmInstr#uses()} and {@link AsmInstr#defs()}. The
+ * frame's return value temporary is always numbered as the epilogue reads it.
+ */
+public class TempNumbering {
+
+	/** Mapping of temporaries to their numbers. */
+	private final HashMap<Temp, Integer> numbers = new HashMap<Temp, Integer>();
+
+	/** Mapping of numbers to temporaries. */
+	private final Vector<Temp> temps = new Vector<Temp>();
+
+	/** The numbers of temporaries used by each instruction. */
+	private final int[][] uses;
+
+	/** The numbers of temporaries defined by each instruction. */
+	private final int[][] defs;
+
+	/**
+	 * Numbers all temporaries of a fragment of code.
+	 *
+	 * @param code The fragment of code.
+	 */
+	public TempNumbering(Code code) {
+		int size = code.instrs.size();
+		uses = new int[size][];
+		defs = new int[size][];
+		for (int i = 0; i < size; i++) {
+			AsmInstr instr = code.instrs.get(i);
+			uses[i] = number(instr.uses());
+			defs[i] = number(instr.defs());
+		}
+		add(code.frame.RV);
+	}
+
+	private int[] number(Vector<Temp> temps) {
+		int[] numbers = new int[temps.size()];
+		for (int t = 0; t < numbers.length; t++)
+			numbers[t] = add(temps.get(t));
+		return numbers;
+	}
+
+	/**
+	 * Adds a temporary to this numbering if it has not been numbered yet.
+	 *
+	 * @param temp The temporary.
+	 * @return The number of the temporary.
+	 */
+	private int add(Temp temp) {
+		Integer number = numbers.get(temp);
+		if (number == null) {
+			number = temps.size();
+			numbers.put(temp, number);
+			temps.add(temp);
+		}
+		return number;
+	}
+
+	/**
+	 * Returns the number of a temporary.
+	 *
+	 * @param temp The temporary.
+	 * @return The number of the temporary or {@code -1} if it is not used nor
+	 *         defined in this fragment of code.
+	 */
+	public int number(Temp temp) {
+		Integer number = numbers.get(temp);
+		return number == null ? -1 : number;
+	}
+
+	/**
+	 * Returns the temporary with the given number.
+	 *
+	 * @param number The number of a temporary.
+	 * @return The temporary.
+	 */
+	public Temp temp(int number) {
+		return temps.get(number);
+	}
+
+	/**
+	 * Returns the number of numbered temporaries.
+	 *
+	 * @return The number of numbered temporaries.
+	 */
+	public int size() {
+		return temps.size();
+	}
+
+	public int[] uses(int instr) {
+		return uses[instr];
+	}
+
+	public int[] defs(int instr) {
+		return defs[instr];
+	}
+
+	/**
+	 * Converts a set of temporary numbers back to a set of temporaries.
+	 *
+	 * @param set The set of temporary numbers.
+	 * @return The set of temporaries.
+	 */
+	public HashSet<Temp> toTemps(TempSet set) {
+		HashSet<Temp> temps = new HashSet<Temp>();
+		for (int t = set.next(0); t >= 0; t = set.next(t + 1))
+			temps.add(this.temps.get(t));
+		return temps;
+	}
+
+}
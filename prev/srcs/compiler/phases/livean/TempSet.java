@@ -0,0 +1,125 @@
+package compiler.phases.livean;
+
+import java.util.*;
+
+/**
+ * A set of densely numbered temporaries backed by an array of {@code long}s.
+ *
+ * The numbers are the ones assigned by {@link TempNumbering}; the set itself
+ * knows nothing about {@link compiler.data.layout.Temp} objects.
+ */
+public class TempSet {
+
+	/** The bits of this set, 64 temporaries per word. */
+	private final long[] words;
+
+	/**
+	 * Constructs a new empty set.
+	 *
+	 * @param size The number of temporaries that can be stored in this set.
+	 */
+	public TempSet(int size) {
+		this.words = new long[(size + 63) >>> 6];
+	}
+
+	/**
+	 * Constructs a copy of a set.
+	 *
+	 * @param that The set to be copied.
+	 */
+	public TempSet(TempSet that) {
+		this.words = that.words.clone();
+	}
+
+	public boolean contains(int temp) {
+		return (words[temp >>> 6] & (1L << temp)) != 0;
+	}
+
+	public void add(int temp) {
+		words[temp >>> 6] |= 1L << temp;
+	}
+
+	public void remove(int temp) {
+		words[temp >>> 6] &= ~(1L << temp);
+	}
+
+	public void clear() {
+		Arrays.fill(words, 0);
+	}
+
+	/**
+	 * Adds all temporaries of another set to this set.
+	 *
+	 * @param that The set of temporaries to be added.
+	 * @return {@code true} if this set has changed.
+	 */
+	public boolean addAll(TempSet that) {
+		boolean changed = false;
+		for (int w = 0; w < words.length; w++) {
+			long word = words[w] | that.words[w];
+			if (word != words[w]) {
+				words[w] = word;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Removes all temporaries of another set from this set.
+	 *
+	 * @param that The set of temporaries to be removed.
+	 */
+	public void removeAll(TempSet that) {
+		for (int w = 0; w < words.length; w++)
+			words[w] &= ~that.words[w];
+	}
+
+	/**
+	 * Replaces the content of this set with the content of another set.
+	 *
+	 * @param that The set to be copied.
+	 */
+	public void copyOf(TempSet that) {
+		System.arraycopy(that.words, 0, words, 0, words.length);
+	}
+
+	public int size() {
+		int size = 0;
+		for (long word : words)
+			size += Long.bitCount(word);
+		return size;
+	}
+
+	/**
+	 * Returns the smallest temporary in this set that is greater than or equal to
+	 * the given one.
+	 *
+	 * @param from The temporary the search starts at.
+	 * @return The next temporary in this set or {@code -1} if there is none.
+	 */
+	public int next(int from) {
+		int w = from >>> 6;
+		if (w >= words.length)
+			return -1;
+		long word = words[w] & (-1L << from);
+		while (true) {
+			if (word != 0)
+				return (w << 6) + Long.numberOfTrailingZeros(word);
+			if (++w == words.length)
+				return -1;
+			word = words[w];
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return (obj instanceof TempSet) && Arrays.equals(words, ((TempSet) obj).words);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(words);
+	}
+
+}
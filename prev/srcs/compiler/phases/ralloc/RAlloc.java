@@ -3,12 +3,14 @@
  */
 package compiler.phases.ralloc;
 
+import java.util.Arrays;
 import java.util.Vector;
 
+import compiler.Compilation;
+import compiler.Main;
 import compiler.data.asmcode.AsmInstr;
 import compiler.data.asmcode.Code;
 import compiler.phases.Phase;
-import compiler.phases.asmcode.AsmGen;
 
 /**
  * Register allocation phase.
@@ -24,20 +26,28 @@ public class RAlloc extends Phase {
 	}
 
 	/**
-	 * Computes the mapping of temporary variables to registers for each function.
-	 * If necessary, the code of each function is modified.
+	 * Computes the mapping of temporary variables to registers for each function
+	 * (in parallel, see {@link Compilation#forEach}). If necessary, the code of
+	 * each function is modified.
+	 * 
+	 * Graph coloring is used unless {@code --ralloc=linear} is given, in which
+	 * case the faster linear scan is used instead.
 	 */
 	public void tempsToRegs() {
-		for(Code code : AsmGen.codes) {
-			new RAllocCode(this, code).run();
-		}
-		AsmGen.codes = newCodes;
+		boolean linear = "linear".equals(Main.cmdLineArgValue("--ralloc"));
+		Compilation compilation = Compilation.current();
+		Vector<Code> codes = compilation.codes;
+		Code[] allocated = new Code[codes.size()];
+		compilation.forEach(allocated.length, c -> allocated[c] = linear ? new RAllocLinear(codes.get(c)).run()
+				: new RAllocCode(codes.get(c)).run());
+		newCodes.addAll(Arrays.asList(allocated));
+		compilation.codes = newCodes;
 	}
 
 	public void log() {
 		if (logger == null)
 			return;
-		for (Code code : AsmGen.codes) {
+		for (Code code : Compilation.current().codes) {
 			logger.begElement("code");
 			logger.addAttribute("entrylabel", code.entryLabel.name);
 			logger.addAttribute("exitlabel", code.exitLabel.name);
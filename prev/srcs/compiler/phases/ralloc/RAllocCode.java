@@ -1,273 +1,646 @@
 package compiler.phases.ralloc;
 
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Stack;
 import java.util.Vector;
 
 import compiler.Main;
+import compiler.common.stats.Stats;
 import compiler.data.asmcode.AsmInstr;
-import compiler.data.asmcode.AsmOPER;
+import compiler.data.asmcode.AsmMOVE;
 import compiler.data.asmcode.Code;
+import compiler.data.asmcode.FlowGraph;
 import compiler.data.layout.Temp;
 import compiler.phases.livean.LiveAn;
+import compiler.phases.livean.TempNumbering;
+import compiler.phases.livean.TempSet;
 
-class Node{
-	int reg;
-	Temp temp;
-	HashSet<Node> connections = new HashSet<>(); // Used for selection phase
-	HashSet<Node> neighbours = new HashSet<>(); // Used for coloring
-	
-	public Node(Temp t) {
-		this.temp = t;
-		
-		reg = -1;
+/**
+ * A list of node or move numbers that supports constant time insertion, removal
+ * and membership test.
+ */
+class IndexedList {
+
+	private final int[] items;
+	private final int[] positions;
+	private int size = 0;
+
+	public IndexedList(int capacity) {
+		items = new int[capacity];
+		positions = new int[capacity];
+		Arrays.fill(positions, -1);
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int get(int index) {
+		return items[index];
+	}
+
+	public boolean contains(int item) {
+		return positions[item] >= 0;
+	}
+
+	public void add(int item) {
+		if (positions[item] >= 0)
+			return;
+		positions[item] = size;
+		items[size++] = item;
+	}
+
+	public void remove(int item) {
+		int position = positions[item];
+		if (position < 0)
+			return;
+		int last = items[--size];
+		items[position] = last;
+		positions[last] = position;
+		positions[item] = -1;
+	}
+
+	public int removeLast() {
+		int item = items[size - 1];
+		remove(item);
+		return item;
 	}
+
+}
+
+/**
+ * A growable list of ints.
+ */
+class IntList {
+
+	private int[] items = new int[4];
+	private int size = 0;
+
+	public int size() {
+		return size;
+	}
+
+	public int get(int index) {
+		return items[index];
+	}
+
+	public void add(int item) {
+		if (size == items.length)
+			items = Arrays.copyOf(items, 2 * size);
+		items[size++] = item;
+	}
+
+	public int removeLast() {
+		return items[--size];
+	}
+
+	public void addAll(IntList that) {
+		for (int i = 0; i < that.size; i++)
+			add(that.items[i]);
+	}
+
 }
 
+/**
+ * Register allocation of a single fragment of code by iterated register
+ * coalescing (George and Appel).
+ *
+ * Each round computes liveness, builds the interference graph (an adjacency
+ * bit-matrix for membership tests and adjacency lists for enumeration), and
+ * then simplifies, coalesces, freezes and selects potential spills until the
+ * graph is empty. If some nodes cannot be colored, all of them are spilled to
+ * the frame at once and the next round starts on the rewritten code.
+ *
+ * Moves ({@link AsmMOVE}) whose source and destination end up in the same
+ * register are removed from the code.
+ */
 public class RAllocCode {
 
-	private RAlloc rAlloc;
+	/** The number of registers available for temporaries. */
+	private static final int K = Main.numOfRegs;
+
+	/** The register holding the frame pointer. */
+	private static final int FP_REG = 253;
+
+	/** The register the epilogue expects the return value in. */
+	private static final int RV_REG = 0;
+
+	/** The factor each level of loop nesting multiplies the spill cost by. */
+	private static final double LOOP_WEIGHT = 10.0;
+
+	// Node states, i.e., the worklist or set each node belongs to.
+	private static final int PRECOLORED = 0;
+	private static final int INITIAL = 1;
+	private static final int SIMPLIFY = 2;
+	private static final int FREEZE = 3;
+	private static final int SPILL = 4;
+	private static final int SPILLED = 5;
+	private static final int COALESCED = 6;
+	private static final int COLORED = 7;
+	private static final int SELECTED = 8;
+	private static final int EXCLUDED = 9;
+
+	// Move states.
+	private static final int MOVE_COALESCED = 0;
+	private static final int MOVE_CONSTRAINED = 1;
+	private static final int MOVE_FROZEN = 2;
+	private static final int MOVE_WORKLIST = 3;
+	private static final int MOVE_ACTIVE = 4;
+
 	private Code code;
-	
-	private HashMap<Temp, Node> nodes;
-	private HashMap<Temp, Integer> regs;
-	
-	private Stack<Node> toColor = new Stack<>();
-	private int tempSize = 0;
-	
-	public RAllocCode(RAlloc rAlloc, Code code) {
+
+	/** The spilled temporaries of all rounds. */
+	private SpillCode spillCode = new SpillCode();
+
+	/**
+	 * The spill cost of each node, i.e., the number of its uses and definitions
+	 * weighted by the loop nesting depth of the instructions.
+	 */
+	private double[] spillCost;
+
+	/** The numbering of temporaries in the current round. */
+	private TempNumbering numbering;
+
+	/** The number of nodes in the current round. */
+	private int numOfNodes;
+
+	/** The lower triangle of the adjacency bit-matrix. */
+	private long[] adjMatrix;
+
+	/** The number of edges of the interference graph. */
+	private long numOfEdges;
+
+	private IntList[] adjList;
+	private int[] degree;
+	private IntList[] moveList;
+	private int[] alias;
+	private int[] color;
+	private int[] state;
+
+	private IndexedList simplifyWorklist;
+	private IndexedList freezeWorklist;
+	private IndexedList spillWorklist;
+	private IntList spilledNodes;
+	private IntList coalescedNodes;
+	private IntList selectStack;
+
+	/** The source node of each move. */
+	private int[] moveSrc;
+
+	/** The destination node of each move. */
+	private int[] moveDst;
+
+	private int[] moveState;
+	private IndexedList worklistMoves;
+	private IndexedList activeMoves;
+
+	public RAllocCode(Code code) {
 		this.code = code;
-		this.rAlloc = rAlloc;
 	}
-	
-	public void run() {
-		boolean succeeded = false;
-		while(!succeeded) {
+
+	/**
+	 * Allocates the registers.
+	 * 
+	 * @return The code with the registers allocated.
+	 */
+	public Code run() {
+		while (true) {
+			Stats.count("rounds", 1);
 			build();
-			simplify();
-			succeeded = tryColorOrFix();
-			
-			if(!succeeded) {
-				LiveAn liveAn = new LiveAn();
-				liveAn.chunkLiveness(code);
-				liveAn.log();
+			makeWorklist();
+			while (!simplifyWorklist.isEmpty() || !worklistMoves.isEmpty() || !freezeWorklist.isEmpty()
+					|| !spillWorklist.isEmpty()) {
+				if (!simplifyWorklist.isEmpty())
+					simplify();
+				else if (!worklistMoves.isEmpty())
+					coalesce();
+				else if (!freezeWorklist.isEmpty())
+					freeze();
+				else
+					selectSpill();
+			}
+			assignColors();
+			if (spilledNodes.size() == 0)
+				break;
+			Stats.count("spills", spilledNodes.size());
+			Vector<Temp> spills = new Vector<Temp>();
+			for (int s = 0; s < spilledNodes.size(); s++)
+				spills.add(numbering.temp(spilledNodes.get(s)));
+			code = spillCode.spill(code, spills);
+		}
+
+		HashMap<Temp, Integer> regs = new HashMap<Temp, Integer>();
+		for (int n = 0; n < numOfNodes; n++) {
+			if (state[n] == EXCLUDED)
+				continue;
+			regs.put(numbering.temp(n), color[n]);
+		}
+		regs.put(code.frame.FP, FP_REG);
+
+		// Drop moves between temporaries in the same register.
+		Vector<AsmInstr> instrs = new Vector<AsmInstr>();
+		for (int i = 0; i < code.instrs.size(); i++) {
+			AsmInstr instr = code.instrs.get(i);
+			if (instr instanceof AsmMOVE) {
+				int src = numbering.uses(i)[0];
+				int dst = numbering.defs(i)[0];
+				if (state[src] != EXCLUDED && state[dst] != EXCLUDED && color[src] == color[dst])
+					continue;
 			}
+			instrs.add(instr);
 		}
-		
-		Code newCode = new Code(code.frame, code.entryLabel, code.exitLabel, code.instrs, regs, tempSize);
-		rAlloc.newCodes.add(newCode);
-		
+
+		Stats.count("temps", numOfNodes);
+		Stats.count("interference.edges", numOfEdges);
+
+		return new Code(code.frame, code.entryLabel, code.exitLabel, instrs, regs, spillCode.tempSize());
 	}
-	
+
+	/**
+	 * Builds the interference graph and collects moves.
+	 */
 	private void build() {
-		regs = new HashMap<Temp, Integer>();
-		
-		nodes = new HashMap<Temp, Node>();
-		// Add all temps to graph
-		for(AsmInstr inst: code.instrs) {
-			for(Temp t: inst.in()) {
-				if(!nodes.containsKey(t)) {
-					nodes.put(t, new Node(t));
-				}
-			}
-			for(Temp t: inst.out()) {
-				if(!nodes.containsKey(t)) {
-					nodes.put(t, new Node(t));
-				}
+		numbering = new TempNumbering(code);
+		numOfNodes = numbering.size();
+		numOfEdges = 0;
+		TempSet[] liveOut = LiveAn.blocksLiveness(code, numbering);
+		FlowGraph graph = code.flowGraph();
+
+		adjMatrix = new long[(int) (((long) numOfNodes * (numOfNodes - 1) / 2 + 63) >>> 6)];
+		adjList = new IntList[numOfNodes];
+		degree = new int[numOfNodes];
+		moveList = new IntList[numOfNodes];
+		alias = new int[numOfNodes];
+		color = new int[numOfNodes];
+		state = new int[numOfNodes];
+		for (int n = 0; n < numOfNodes; n++) {
+			adjList[n] = new IntList();
+			moveList[n] = new IntList();
+			alias[n] = n;
+			color[n] = -1;
+			state[n] = INITIAL;
+		}
+		int fp = numbering.number(code.frame.FP);
+		if (fp >= 0)
+			state[fp] = EXCLUDED;
+		int rv = numbering.number(code.frame.RV);
+		state[rv] = PRECOLORED;
+		color[rv] = RV_REG;
+		degree[rv] = Integer.MAX_VALUE / 2;
+
+		simplifyWorklist = new IndexedList(numOfNodes);
+		freezeWorklist = new IndexedList(numOfNodes);
+		spillWorklist = new IndexedList(numOfNodes);
+		spilledNodes = new IntList();
+		coalescedNodes = new IntList();
+		selectStack = new IntList();
+
+		int numOfInstrs = code.instrs.size();
+		moveSrc = new int[numOfInstrs];
+		moveDst = new int[numOfInstrs];
+		moveState = new int[numOfInstrs];
+		worklistMoves = new IndexedList(numOfInstrs);
+		activeMoves = new IndexedList(numOfInstrs);
+
+		spillCost = new double[numOfNodes];
+		for (int b = 0; b < graph.numOfBlocks(); b++) {
+			double weight = Math.pow(LOOP_WEIGHT, graph.loopDepth(b));
+			for (int i = graph.begInstr(b); i < graph.endInstr(b); i++) {
+				for (int u : numbering.uses(i))
+					spillCost[u] += weight;
+				for (int d : numbering.defs(i))
+					spillCost[d] += weight;
 			}
-			for(Temp t: inst.defs()) {
-				if(!nodes.containsKey(t)) {
-					nodes.put(t, new Node(t));
+		}
+		for (int n = 0; n < numOfNodes; n++)
+			if (spillCode.neverSpill(numbering.temp(n)))
+				spillCost[n] = Double.POSITIVE_INFINITY;
+
+		TempSet live = new TempSet(numOfNodes);
+		for (int b = 0; b < graph.numOfBlocks(); b++) {
+			live.copyOf(liveOut[b]);
+			for (int i = graph.endInstr(b) - 1; i >= graph.begInstr(b); i--) {
+				int[] uses = numbering.uses(i);
+				int[] defs = numbering.defs(i);
+				if (isMove(i)) {
+					for (int u : uses)
+						live.remove(u);
+					moveSrc[i] = uses[0];
+					moveDst[i] = defs[0];
+					moveList[uses[0]].add(i);
+					if (defs[0] != uses[0])
+						moveList[defs[0]].add(i);
+					moveState[i] = MOVE_WORKLIST;
+					worklistMoves.add(i);
 				}
+				for (int d : defs)
+					live.add(d);
+				for (int d : defs)
+					for (int l = live.next(0); l >= 0; l = live.next(l + 1))
+						addEdge(l, d);
+				for (int d : defs)
+					live.remove(d);
+				for (int u : uses)
+					live.add(u);
 			}
 		}
+	}
 
-		// FP is harcoded
-		nodes.remove(code.frame.FP);
-		regs.put(code.frame.FP, 253);
-		
-		// Insert connections
-		for(AsmInstr inst: code.instrs) {
-			// Two in the same in
-			for(Temp t1 :inst.in()) {
-				for(Temp t2 :inst.in()) {
-					if(t1.equals(code.frame.FP) || t2.equals(code.frame.FP))
-						continue;
-					if(t1 != t2) {
-						nodes.get(t1).connections.add(nodes.get(t2));
-						nodes.get(t2).connections.add(nodes.get(t1));
-						
-						nodes.get(t1).neighbours.add(nodes.get(t2));
-						nodes.get(t2).neighbours.add(nodes.get(t1));
-					}
-				}	
-			}
-			
-			// Two in the same out
-			for(Temp t1 :inst.out()) {
-				for(Temp t2 :inst.out()) {
-					if(t1.equals(code.frame.FP) || t2.equals(code.frame.FP))
-						continue;
-					if(t1 != t2) {
-						nodes.get(t1).connections.add(nodes.get(t2));
-						nodes.get(t2).connections.add(nodes.get(t1));
-						
-						nodes.get(t1).neighbours.add(nodes.get(t2));
-						nodes.get(t2).neighbours.add(nodes.get(t1));
-					}
-				}	
+	private boolean isMove(int instr) {
+		if (!(code.instrs.get(instr) instanceof AsmMOVE))
+			return false;
+		return state[numbering.uses(instr)[0]] != EXCLUDED && state[numbering.defs(instr)[0]] != EXCLUDED;
+	}
+
+	private long adjIndex(int u, int v) {
+		if (u < v) {
+			int t = u;
+			u = v;
+			v = t;
+		}
+		return (long) u * (u - 1) / 2 + v;
+	}
+
+	private boolean adjacent(int u, int v) {
+		long index = adjIndex(u, v);
+		return (adjMatrix[(int) (index >>> 6)] & (1L << index)) != 0;
+	}
+
+	private void addEdge(int u, int v) {
+		if (u == v || state[u] == EXCLUDED || state[v] == EXCLUDED || adjacent(u, v))
+			return;
+		long index = adjIndex(u, v);
+		adjMatrix[(int) (index >>> 6)] |= 1L << index;
+		numOfEdges++;
+		if (state[u] != PRECOLORED) {
+			adjList[u].add(v);
+			degree[u]++;
+		}
+		if (state[v] != PRECOLORED) {
+			adjList[v].add(u);
+			degree[v]++;
+		}
+	}
+
+	private void makeWorklist() {
+		for (int n = 0; n < numOfNodes; n++) {
+			if (state[n] != INITIAL)
+				continue;
+			if (degree[n] >= K) {
+				state[n] = SPILL;
+				spillWorklist.add(n);
+			} else if (moveRelated(n)) {
+				state[n] = FREEZE;
+				freezeWorklist.add(n);
+			} else {
+				state[n] = SIMPLIFY;
+				simplifyWorklist.add(n);
 			}
 		}
 	}
-	
-	// Returns true if it succeeded
+
+	/**
+	 * Checks whether a node is still in the graph, i.e., neither selected for
+	 * coloring nor coalesced.
+	 */
+	private boolean inGraph(int n) {
+		return state[n] != SELECTED && state[n] != COALESCED;
+	}
+
+	private boolean moveRelated(int n) {
+		IntList moves = moveList[n];
+		for (int m = 0; m < moves.size(); m++) {
+			int move = moves.get(m);
+			if (moveState[move] == MOVE_ACTIVE || moveState[move] == MOVE_WORKLIST)
+				return true;
+		}
+		return false;
+	}
+
 	private void simplify() {
-		Node toRemove = null;
-		while(nodes.size() > 0 && (toRemove = nodeToRemove()) != null) {
-			toColor.push(toRemove);
-			
-			// Remove the node from the graph
-			for(Node n: nodes.values()) {
-				n.connections.remove(toRemove);
+		int n = simplifyWorklist.removeLast();
+		state[n] = SELECTED;
+		selectStack.add(n);
+		IntList adj = adjList[n];
+		for (int a = 0; a < adj.size(); a++)
+			if (inGraph(adj.get(a)))
+				decrementDegree(adj.get(a));
+	}
+
+	private void decrementDegree(int m) {
+		int d = degree[m];
+		degree[m] = d - 1;
+		if (d == K && state[m] != PRECOLORED) {
+			enableMoves(m);
+			IntList adj = adjList[m];
+			for (int a = 0; a < adj.size(); a++)
+				if (inGraph(adj.get(a)))
+					enableMoves(adj.get(a));
+			spillWorklist.remove(m);
+			if (moveRelated(m)) {
+				state[m] = FREEZE;
+				freezeWorklist.add(m);
+			} else {
+				state[m] = SIMPLIFY;
+				simplifyWorklist.add(m);
 			}
-			nodes.remove(toRemove.temp);
 		}
 	}
-	
-	private Node nodeToRemove() {
-		for(Node n: nodes.values()) {
-			if(n.connections.size() < Main.numOfRegs) {
-				return n;
+
+	private void enableMoves(int n) {
+		IntList moves = moveList[n];
+		for (int m = 0; m < moves.size(); m++) {
+			int move = moves.get(m);
+			if (moveState[move] == MOVE_ACTIVE) {
+				activeMoves.remove(move);
+				moveState[move] = MOVE_WORKLIST;
+				worklistMoves.add(move);
 			}
 		}
-		Node spill = spill();
+	}
+
+	private void coalesce() {
+		int move = worklistMoves.removeLast();
+		int x = getAlias(moveSrc[move]);
+		int y = getAlias(moveDst[move]);
+		int u, v;
+		if (state[y] == PRECOLORED) {
+			u = y;
+			v = x;
+		} else {
+			u = x;
+			v = y;
+		}
+		if (u == v) {
+			moveState[move] = MOVE_COALESCED;
+			addWorkList(u);
+		} else if (state[v] == PRECOLORED || adjacent(u, v)) {
+			moveState[move] = MOVE_CONSTRAINED;
+			addWorkList(u);
+			addWorkList(v);
+		} else if (state[u] == PRECOLORED ? georgeTest(u, v) : briggsTest(u, v)) {
+			moveState[move] = MOVE_COALESCED;
+			combine(u, v);
+			addWorkList(u);
+		} else {
+			moveState[move] = MOVE_ACTIVE;
+			activeMoves.add(move);
+		}
+	}
 
-		// If none was found return spill
-		return spill;
+	private void addWorkList(int u) {
+		if (state[u] == FREEZE && !moveRelated(u) && degree[u] < K) {
+			freezeWorklist.remove(u);
+			state[u] = SIMPLIFY;
+			simplifyWorklist.add(u);
+		}
 	}
-	
-	private Node spill() {
 
-		Vector<Node> spills = new Vector<>();
-		for(Node n: nodes.values()) {
-			if(spills.isEmpty() || n.connections.size() > spills.get(0).connections.size()) {
-				spills.clear();
-				spills.add(n);
-			}
+	/**
+	 * Checks whether every neighbour of {@code v} is of insignificant degree,
+	 * precolored or already adjacent to the precolored node {@code u}.
+	 */
+	private boolean georgeTest(int u, int v) {
+		IntList adj = adjList[v];
+		for (int a = 0; a < adj.size(); a++) {
+			int t = adj.get(a);
+			if (!inGraph(t))
+				continue;
+			if (degree[t] >= K && state[t] != PRECOLORED && !adjacent(t, u))
+				return false;
 		}
-		
-		Node maxDeg = null;
-		int maxD = 0;
-		for(Node n: spills) {
-			int start = Integer.MAX_VALUE;
-			int end = 0;
-			for(int i = 0; i < code.instrs.size();i++) {
-				AsmInstr instr = code.instrs.get(i);
-				if(instr.defs().contains(n.temp)) {
-					start = Math.min(start, i);
-				}
-				if(instr.uses().contains(n.temp)) {
-					end = Math.max(end, i);
-				}
-			}
-			int d = end - start;
-			if(d > maxD) {
-				maxD = d;
-				maxDeg = n;
+		return true;
+	}
+
+	/**
+	 * Checks whether the node combined from {@code u} and {@code v} would have
+	 * fewer than {@code K} neighbours of significant degree.
+	 */
+	private boolean briggsTest(int u, int v) {
+		int k = 0;
+		IntList adj = adjList[u];
+		for (int a = 0; a < adj.size(); a++) {
+			int t = adj.get(a);
+			if (inGraph(t) && degree[t] >= K)
+				k++;
+		}
+		adj = adjList[v];
+		for (int a = 0; a < adj.size(); a++) {
+			int t = adj.get(a);
+			if (inGraph(t) && degree[t] >= K && !adjacent(t, u))
+				k++;
+		}
+		return k < K;
+	}
+
+	private int getAlias(int n) {
+		while (state[n] == COALESCED)
+			n = alias[n];
+		return n;
+	}
+
+	private void combine(int u, int v) {
+		if (state[v] == FREEZE)
+			freezeWorklist.remove(v);
+		else
+			spillWorklist.remove(v);
+		state[v] = COALESCED;
+		coalescedNodes.add(v);
+		alias[v] = u;
+		moveList[u].addAll(moveList[v]);
+		enableMoves(v);
+		IntList adj = adjList[v];
+		for (int a = 0; a < adj.size(); a++) {
+			int t = adj.get(a);
+			if (!inGraph(t))
+				continue;
+			addEdge(t, u);
+			decrementDegree(t);
+		}
+		if (degree[u] >= K && state[u] == FREEZE) {
+			freezeWorklist.remove(u);
+			state[u] = SPILL;
+			spillWorklist.add(u);
+		}
+	}
+
+	private void freeze() {
+		int u = freezeWorklist.removeLast();
+		state[u] = SIMPLIFY;
+		simplifyWorklist.add(u);
+		freezeMoves(u);
+	}
+
+	private void freezeMoves(int u) {
+		IntList moves = moveList[u];
+		for (int m = 0; m < moves.size(); m++) {
+			int move = moves.get(m);
+			if (moveState[move] != MOVE_ACTIVE && moveState[move] != MOVE_WORKLIST)
+				continue;
+			int x = moveSrc[move];
+			int y = moveDst[move];
+			int v = getAlias(y) == getAlias(u) ? getAlias(x) : getAlias(y);
+			activeMoves.remove(move);
+			worklistMoves.remove(move);
+			moveState[move] = MOVE_FROZEN;
+			if (state[v] == FREEZE && !moveRelated(v) && degree[v] < K) {
+				freezeWorklist.remove(v);
+				state[v] = SIMPLIFY;
+				simplifyWorklist.add(v);
 			}
+		}
+	}
 
+	/**
+	 * Selects a potential spill, i.e., the node with the lowest ratio of its spill
+	 * cost to its degree. Temporaries introduced by spilling are selected only if
+	 * nothing else is left.
+	 */
+	private void selectSpill() {
+		int m = spillWorklist.get(0);
+		for (int s = 1; s < spillWorklist.size(); s++) {
+			int n = spillWorklist.get(s);
+			if (spillCost[m] == Double.POSITIVE_INFINITY) {
+				if (spillCost[n] != Double.POSITIVE_INFINITY || degree[n] > degree[m])
+					m = n;
+			} else if (spillCost[n] / degree[n] < spillCost[m] / degree[m])
+				m = n;
 		}
-		if(maxDeg == null)
-			return spills.get(0);
-		
-		return maxDeg;
-	}
-	
-	private boolean tryColorOrFix() {
-		boolean succeeded = true;
-		while(toColor.size() > 0) {
-			Node current = toColor.pop();
-			for(int color = 0; color < Main.numOfRegs; color++){
-				boolean availableColor = true;
-				for(Node neighbour : current.neighbours) {
-					if(neighbour.reg == color) {
-						availableColor = false;
-					}
-				}
-				if(availableColor) {
-					current.reg = color;
-					regs.put(current.temp, color);
-					break;
-				}
+		spillWorklist.remove(m);
+		state[m] = SIMPLIFY;
+		simplifyWorklist.add(m);
+		freezeMoves(m);
+	}
+
+	private void assignColors() {
+		boolean[] okColors = new boolean[K];
+		while (selectStack.size() > 0) {
+			int n = selectStack.removeLast();
+			Arrays.fill(okColors, true);
+			IntList adj = adjList[n];
+			for (int a = 0; a < adj.size(); a++) {
+				int w = getAlias(adj.get(a));
+				if ((state[w] == COLORED || state[w] == PRECOLORED) && color[w] < K)
+					okColors[color[w]] = false;
 			}
-			if(current.reg == -1) {
-				modifyCodeToSpill(current.temp);
-				succeeded = false;
-				break;
+			int c = 0;
+			while (c < K && !okColors[c])
+				c++;
+			if (c == K) {
+				state[n] = SPILLED;
+				spilledNodes.add(n);
+			} else {
+				state[n] = COLORED;
+				color[n] = c;
 			}
 		}
-		return succeeded;
-	}
-	
-	private void modifyCodeToSpill(Temp t) {
-		tempSize += 8;
-				
-		Vector<AsmInstr> newInstrs = new Vector<>();
-		
-		for(AsmInstr instr : code.instrs) {
-			boolean inUses = instr.uses().contains(t);
-			boolean inDefs = instr.defs().contains(t);
-			if(inDefs || inUses) {
-				// Handle it properly
-				long offset = code.frame.locsSize + 16 + tempSize;
-
-				// Load address into a new temp
-				Temp addressTemp = new Temp();
-				Vector<Temp> defs, uses;				
-				
-				defs = new Vector<>();
-				defs.addElement(addressTemp);
-				newInstrs.add(new AsmOPER("SETL `d0," + offset, null, defs, null));
-
-				uses = new Vector<>();
-				uses.add(addressTemp);
-				newInstrs.add(new AsmOPER("SUB `d0,$253,`s0", uses, defs, null)); // Harcoded FP
-				
-				Temp valueTemp = new Temp();
-				
-				// If the instruction uses the temp, load it
-				if (inUses) {
-					defs = new Vector<>();
-					defs.add(valueTemp);
-					uses = new Vector<>();
-					uses.add(addressTemp);
-					newInstrs.add(new AsmOPER("LDO `d0,`s0,0", uses, defs, null));
-				}
-				
-				//newInstrs.add(instr);
-				AsmOPER oper = (AsmOPER) instr;
-				Vector<Temp> operUses = oper.uses();
-				Vector<Temp> operDefs = oper.defs();
-				Collections.replaceAll(operUses, t, valueTemp);
-				Collections.replaceAll(operDefs, t, valueTemp);
-				newInstrs.add(new AsmOPER(oper.instr(), uses, defs, oper.jumps()));
-				
-				// Save the temp if it was defined (as in, changed)
-				if(inDefs) {					
-					uses = new Vector<>();
-					uses.add(valueTemp);
-					uses.add(addressTemp);
-					newInstrs.add(new AsmOPER("STO `s0,`s1,0", uses, null, null));
-				}
-				
-			}else {
-				newInstrs.add(instr);
-			}
+		for (int i = 0; i < coalescedNodes.size(); i++) {
+			int n = coalescedNodes.get(i);
+			color[n] = color[getAlias(n)];
 		}
-		
-		//System.out.println("Updating instructions, now with " + newInstrs.size() + " previous: " + code.instrs.size());
-		code = new Code(code.frame, code.entryLabel, code.exitLabel, newInstrs);
 	}
 }
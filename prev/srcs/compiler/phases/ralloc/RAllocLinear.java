@@ -0,0 +1,249 @@
+package compiler.phases.ralloc;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Vector;
+
+import compiler.Main;
+import compiler.common.stats.Stats;
+import compiler.data.asmcode.AsmInstr;
+import compiler.data.asmcode.AsmMOVE;
+import compiler.data.asmcode.Code;
+import compiler.data.asmcode.FlowGraph;
+import compiler.data.layout.Temp;
+import compiler.phases.livean.LiveAn;
+import compiler.phases.livean.TempNumbering;
+import compiler.phases.livean.TempSet;
+
+/**
+ * Register allocation of a single fragment of code by linear scan (Poletto and
+ * Sarkar) with second-chance spilling.
+ *
+ * Instructions are numbered in the order of their appearance, each instruction
+ * {@code i} having a use position {@code 2i} and a definition position
+ * {@code 2i+1}. The live interval of a temporary spans from its first to its
+ * last position, where positions are taken from the uses and definitions and
+ * from the live-in and live-out sets of the blocks computed by {@link LiveAn}.
+ * Intervals are scanned by increasing start; when no register is free, the
+ * interval reaching furthest is spilled.
+ *
+ * Spilled temporaries are rewritten as in {@link RAllocCode}, i.e., each use
+ * and definition gets its own short interval, and these intervals are given a
+ * second chance for a register in the next round.
+ */
+public class RAllocLinear {
+
+	/** The number of registers available for temporaries. */
+	private static final int K = Main.numOfRegs;
+
+	/** The register holding the frame pointer. */
+	private static final int FP_REG = 253;
+
+	/** The register the epilogue expects the return value in. */
+	private static final int RV_REG = 0;
+
+	private Code code;
+
+	/** The spilled temporaries of all rounds. */
+	private SpillCode spillCode = new SpillCode();
+
+	/** The numbering of temporaries in the current round. */
+	private TempNumbering numbering;
+
+	/** The first position of each interval or {@code -1} if the interval is empty. */
+	private int[] start;
+
+	/** The last position of each interval. */
+	private int[] end;
+
+	/**
+	 * The source of the move each interval starts with or {@code -1} if it does
+	 * not start with a move.
+	 */
+	private int[] hint;
+
+	/** The register of each temporary or {@code -1} if it is spilled. */
+	private int[] reg;
+
+	public RAllocLinear(Code code) {
+		this.code = code;
+	}
+
+	/**
+	 * Allocates the registers.
+	 * 
+	 * @return The code with the registers allocated.
+	 */
+	public Code run() {
+		while (true) {
+			Stats.count("rounds", 1);
+			buildIntervals();
+			Vector<Temp> spills = scan();
+			if (spills.size() == 0)
+				break;
+			Stats.count("spills", spills.size());
+			code = spillCode.spill(code, spills);
+		}
+
+		int fp = numbering.number(code.frame.FP);
+		HashMap<Temp, Integer> regs = new HashMap<Temp, Integer>();
+		for (int t = 0; t < numbering.size(); t++) {
+			if (t == fp)
+				continue;
+			regs.put(numbering.temp(t), reg[t] < 0 ? RV_REG : reg[t]);
+		}
+		regs.put(code.frame.FP, FP_REG);
+		Stats.count("temps", numbering.size());
+
+		// Drop moves between temporaries in the same register.
+		Vector<AsmInstr> instrs = new Vector<AsmInstr>();
+		for (int i = 0; i < code.instrs.size(); i++) {
+			AsmInstr instr = code.instrs.get(i);
+			if (instr instanceof AsmMOVE) {
+				int src = numbering.uses(i)[0];
+				int dst = numbering.defs(i)[0];
+				if (src != fp && dst != fp && reg[src] == reg[dst])
+					continue;
+			}
+			instrs.add(instr);
+		}
+
+		return new Code(code.frame, code.entryLabel, code.exitLabel, instrs, regs, spillCode.tempSize());
+	}
+
+	/**
+	 * Computes the live interval of each temporary.
+	 */
+	private void buildIntervals() {
+		numbering = new TempNumbering(code);
+		int numOfTemps = numbering.size();
+		TempSet[] liveOut = LiveAn.blocksLiveness(code, numbering);
+		FlowGraph graph = code.flowGraph();
+
+		start = new int[numOfTemps];
+		end = new int[numOfTemps];
+		hint = new int[numOfTemps];
+		Arrays.fill(start, -1);
+		Arrays.fill(hint, -1);
+
+		TempSet live = new TempSet(numOfTemps);
+		for (int b = 0; b < graph.numOfBlocks(); b++) {
+			int beg = graph.begInstr(b);
+			int last = graph.endInstr(b) - 1;
+			live.copyOf(liveOut[b]);
+			for (int t = live.next(0); t >= 0; t = live.next(t + 1))
+				extend(t, 2 * last + 1);
+			for (int i = last; i >= beg; i--) {
+				for (int d : numbering.defs(i)) {
+					extend(d, 2 * i + 1);
+					live.remove(d);
+				}
+				for (int u : numbering.uses(i)) {
+					extend(u, 2 * i);
+					live.add(u);
+				}
+			}
+			for (int t = live.next(0); t >= 0; t = live.next(t + 1))
+				extend(t, 2 * beg);
+		}
+
+		for (int i = 0; i < code.instrs.size(); i++) {
+			if (!(code.instrs.get(i) instanceof AsmMOVE))
+				continue;
+			int dst = numbering.defs(i)[0];
+			if (start[dst] == 2 * i + 1)
+				hint[dst] = numbering.uses(i)[0];
+		}
+	}
+
+	private void extend(int temp, int pos) {
+		if (start[temp] < 0) {
+			start[temp] = pos;
+			end[temp] = pos;
+		} else {
+			start[temp] = Math.min(start[temp], pos);
+			end[temp] = Math.max(end[temp], pos);
+		}
+	}
+
+	private boolean overlap(int t1, int t2) {
+		return start[t1] <= end[t2] && start[t2] <= end[t1];
+	}
+
+	/**
+	 * Assigns registers to intervals in the order of their starts.
+	 *
+	 * @return The temporaries that must be spilled.
+	 */
+	private Vector<Temp> scan() {
+		int numOfTemps = numbering.size();
+		int fp = numbering.number(code.frame.FP);
+		int rv = numbering.number(code.frame.RV);
+		reg = new int[numOfTemps];
+		Arrays.fill(reg, -1);
+
+		// Sort the intervals by their starts.
+		long[] order = new long[numOfTemps];
+		int numOfIntervals = 0;
+		for (int t = 0; t < numOfTemps; t++)
+			if (t != fp && start[t] >= 0)
+				order[numOfIntervals++] = ((long) start[t] << 32) | t;
+		Arrays.sort(order, 0, numOfIntervals);
+
+		// The interval occupying each register.
+		int[] active = new int[K];
+		Arrays.fill(active, -1);
+
+		Vector<Temp> spills = new Vector<Temp>();
+		for (int o = 0; o < numOfIntervals; o++) {
+			int cur = (int) order[o];
+
+			// Expire the intervals that end before the current one starts.
+			for (int r = 0; r < K; r++)
+				if (active[r] >= 0 && end[active[r]] < start[cur])
+					active[r] = -1;
+
+			if (cur == rv) {
+				// No other interval overlapping the return value is ever given its register.
+				reg[cur] = RV_REG;
+				active[RV_REG] = cur;
+				continue;
+			}
+			boolean rvFree = start[rv] < 0 || !overlap(cur, rv);
+
+			// Prefer the register of the source of the move the interval starts with.
+			int free = -1;
+			if (hint[cur] >= 0 && reg[hint[cur]] >= 0 && active[reg[hint[cur]]] < 0
+					&& (reg[hint[cur]] != RV_REG || rvFree))
+				free = reg[hint[cur]];
+			for (int r = 0; free < 0 && r < K; r++)
+				if (active[r] < 0 && (r != RV_REG || rvFree))
+					free = r;
+			if (free >= 0) {
+				reg[cur] = free;
+				active[free] = cur;
+				continue;
+			}
+
+			// Spill the interval reaching furthest, preferring the ones that may be spilled.
+			int victim = cur;
+			for (int r = 0; r < K; r++) {
+				int t = active[r];
+				if (t < 0 || t == rv || (r == RV_REG && !rvFree))
+					continue;
+				if (spillCode.neverSpill(numbering.temp(t)) == spillCode.neverSpill(numbering.temp(victim))
+						? end[t] > end[victim]
+						: spillCode.neverSpill(numbering.temp(victim)))
+					victim = t;
+			}
+			if (victim != cur) {
+				reg[cur] = reg[victim];
+				active[reg[victim]] = cur;
+				reg[victim] = -1;
+			}
+			spills.add(numbering.temp(victim));
+		}
+		return spills;
+	}
+
+}
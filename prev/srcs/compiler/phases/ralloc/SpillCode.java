@@ -0,0 +1,138 @@
+package compiler.phases.ralloc;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Vector;
+
+import compiler.data.asmcode.AsmInstr;
+import compiler.data.asmcode.AsmMOVE;
+import compiler.data.asmcode.AsmOPER;
+import compiler.data.asmcode.Code;
+import compiler.data.layout.Temp;
+
+/**
+ * Spilling of temporaries of a single fragment of code to its frame.
+ *
+ * Each use of a spilled temporary is preceded by a load into a new temporary
+ * and each definition is followed by a store from a new temporary. The slots
+ * of spilled temporaries are allocated below the local variables and the
+ * saved registers, see {@link Code#tempSize}.
+ */
+class SpillCode {
+
+	/** The size of all spilled temporaries in the frame. */
+	private int tempSize = 0;
+
+	/**
+	 * Temporaries introduced by spilling. They live across a single instruction
+	 * only, so spilling them would not reduce register pressure.
+	 */
+	private final HashSet<Temp> neverSpill = new HashSet<Temp>();
+
+	public int tempSize() {
+		return tempSize;
+	}
+
+	public boolean neverSpill(Temp temp) {
+		return neverSpill.contains(temp);
+	}
+
+	/**
+	 * Spills temporaries to the frame.
+	 *
+	 * @param code  The fragment of code.
+	 * @param temps The temporaries to be spilled.
+	 * @return The rewritten fragment of code.
+	 */
+	public Code spill(Code code, Collection<Temp> temps) {
+		LinkedHashMap<Temp, Long> offsets = new LinkedHashMap<Temp, Long>();
+		for (Temp temp : temps) {
+			tempSize += 8;
+			offsets.put(temp, code.frame.locsSize + 16 + tempSize);
+		}
+
+		Vector<AsmInstr> newInstrs = new Vector<>();
+		for (AsmInstr instr : code.instrs) {
+			Vector<Temp> operUses = instr.uses();
+			Vector<Temp> operDefs = instr.defs();
+			Vector<AsmInstr> loads = new Vector<>();
+			Vector<AsmInstr> stores = new Vector<>();
+			HashMap<Temp, Temp> replaced = new HashMap<Temp, Temp>();
+			for (Temp t : offsets.keySet()) {
+				boolean inDefs = operDefs.contains(t);
+				boolean inUses = operUses.contains(t) || (inDefs && isCondSet(instr));
+				if (!inUses && !inDefs)
+					continue;
+
+				// Load address into a new temp
+				Temp addressTemp = new Temp();
+				neverSpill.add(addressTemp);
+				Vector<Temp> defs, uses;
+
+				defs = new Vector<>();
+				defs.add(addressTemp);
+				loads.add(new AsmOPER("SETL `d0," + offsets.get(t), null, defs, null));
+
+				uses = new Vector<>();
+				uses.add(addressTemp);
+				loads.add(new AsmOPER("SUB `d0,$253,`s0", uses, defs, null)); // Harcoded FP
+
+				Temp valueTemp = new Temp();
+				neverSpill.add(valueTemp);
+				replaced.put(t, valueTemp);
+
+				// If the instruction uses the temp, load it
+				if (inUses) {
+					defs = new Vector<>();
+					defs.add(valueTemp);
+					uses = new Vector<>();
+					uses.add(addressTemp);
+					loads.add(new AsmOPER("LDO `d0,`s0,0", uses, defs, null));
+				}
+
+				// Save the temp if it was defined (as in, changed)
+				if (inDefs) {
+					uses = new Vector<>();
+					uses.add(valueTemp);
+					uses.add(addressTemp);
+					stores.add(new AsmOPER("STO `s0,`s1,0", uses, null, null));
+				}
+			}
+			if (replaced.isEmpty()) {
+				newInstrs.add(instr);
+				continue;
+			}
+
+			for (int u = 0; u < operUses.size(); u++)
+				if (replaced.containsKey(operUses.get(u)))
+					operUses.set(u, replaced.get(operUses.get(u)));
+			for (int d = 0; d < operDefs.size(); d++) {
+				if (replaced.containsKey(operDefs.get(d))) {
+					if (isCondSet(instr))
+						operUses.add(replaced.get(operDefs.get(d)));
+					operDefs.set(d, replaced.get(operDefs.get(d)));
+				}
+			}
+			AsmOPER oper = (AsmOPER) instr;
+			newInstrs.addAll(loads);
+			if (instr instanceof AsmMOVE)
+				newInstrs.add(new AsmMOVE(oper.instr(), operUses, operDefs));
+			else
+				newInstrs.add(new AsmOPER(oper.instr(), operUses, operDefs, oper.jumps()));
+			newInstrs.addAll(stores);
+		}
+
+		return new Code(code.frame, code.entryLabel, code.exitLabel, newInstrs);
+	}
+
+	/**
+	 * Checks whether an instruction is a conditional set, i.e., whether it keeps
+	 * the old value of its destination if the condition does not hold.
+	 */
+	private static boolean isCondSet(AsmInstr instr) {
+		return (instr instanceof AsmOPER) && ((AsmOPER) instr).instr().startsWith("CS");
+	}
+
+}
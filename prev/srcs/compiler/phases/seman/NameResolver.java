@@ -1,197 +0,0 @@
-/**
- * @author sliva
- */
-package compiler.phases.seman;
-
-import compiler.common.report.*;
-import compiler.data.abstree.*;
-import compiler.data.abstree.visitor.*;
-import compiler.phases.seman.SymbTable.CannotFndNameException;
-import compiler.phases.seman.SymbTable.CannotInsNameException;
-
-/**
- * Name resolving: the result is stored in {@link SemAn#declaredAt}.
- * 
- * @author sliva
- */
-public class NameResolver extends AbsFullVisitor<Object, Object> {
-
-	private enum Mode {
-		NAME_FIND, NAME_RESOLVE, ADD_FUN_PARAMS
-	}
-
-	/** Symbol table. */
-	private final SymbTable symbTable = new SymbTable();
-
-	@Override
-	public Object visit(AbsDecls decls, Object visArg) {
-		// 1st pass NAME_FIND
-		super.visit(decls, Mode.NAME_FIND);
-
-		// 2nd pass NAME_RESOLVE
-		super.visit(decls, Mode.NAME_RESOLVE);
-
-		return null;
-	}
-
-	@Override
-	public Object visit(AbsTypDecl typDecl, Object visArg) {
-		if (visArg == Mode.NAME_FIND) {
-			try {				
-				symbTable.ins(typDecl.name, typDecl);
-			} catch (CannotInsNameException e) {
-				throw new Report.Error("[nameResolution] " + typDecl.location() + " Could not insert " + typDecl.name);
-			}
-			return null;
-		} else {
-			return super.visit(typDecl, visArg);
-		}
-	}
-
-	@Override
-	public Object visit(AbsVarDecl varDecl, Object visArg) {
-		if (visArg == Mode.NAME_FIND) {
-			try {
-				symbTable.ins(varDecl.name, varDecl);
-			} catch (CannotInsNameException e) {
-				throw new Report.Error("[nameResolution] " + varDecl.location() + " Could not insert " + varDecl.name);
-			}
-			return null;
-		} else {
-			return super.visit(varDecl, visArg);
-		}
-	}
-
-	@Override
-	public Object visit(AbsTypName typDecl, Object visArg) {
-		try {
-			AbsDecl decl = symbTable.fnd(typDecl.name);
-			if (decl instanceof AbsTypDecl) {
-				SemAn.declaredAt.put(typDecl, decl);
-			} else {
-				throw new Report.Error(typDecl.location(), String.format("[nameResolution] Type name %s is not a type.", typDecl.name));
-			}
-		} catch (CannotFndNameException e) {
-			throw new Report.Error(typDecl.location(), String.format("[nameResolution] Type name %s not found.", typDecl.name));
-		}
-		return super.visit(typDecl, visArg);
-	}
-
-	@Override
-	public Object visit(AbsVarName varDecl, Object visArg) {
-		try {
-			AbsDecl decl = symbTable.fnd(varDecl.name);
-			if (decl instanceof AbsVarDecl || decl instanceof AbsParDecl) {
-				SemAn.declaredAt.put(varDecl, decl);
-			} else {
-				throw new Report.Error(varDecl.location(), String.format("[nameResolution] Variable name %s is not a variable or parameter.", varDecl.name));
-			}
-		} catch (CannotFndNameException e) {
-			throw new Report.Error(varDecl.location(), String.format("[nameResolution] Variable name %s not found.", varDecl.name));
-		}
-		return super.visit(varDecl, visArg);
-	}
-
-	@Override
-	// fun test (a:int) : char;
-	public Object visit(AbsFunDecl funDecl, Object visArg) {
-		if (visArg == Mode.NAME_FIND) {
-			try {
-				symbTable.ins(funDecl.name, funDecl);
-			} catch (CannotInsNameException e) {
-				throw new Report.Error("[nameResolution] " + funDecl.location() + " Could not insert " + funDecl.name);
-			}
-			return null;
-		} else {
-			// Find the type
-			funDecl.type.accept(this, visArg);
-
-			// Create new scope
-			symbTable.newScope();
-
-			// Somehow add parameters
-			funDecl.parDecls.accept(this, Mode.ADD_FUN_PARAMS);
-
-			symbTable.oldScope();	
-
-			return null;
-		}
-	}
-
-	@Override
-	// fun test (a:int) : char = expr;
-	public Object visit(AbsFunDef funDef, Object visArg) {
-		if (visArg == Mode.NAME_FIND) {
-			try {
-				symbTable.ins(funDef.name, funDef);
-			} catch (CannotInsNameException e) {
-				throw new Report.Error("[nameResolution] " + funDef.location() + " Could not insert " + funDef.name);
-			}
-			return null;
-		} else {
-			// Find the type
-			funDef.type.accept(this, visArg);
-
-			// Create new scope
-			symbTable.newScope();
-
-			// Somehow add parameters
-			funDef.parDecls.accept(this, Mode.ADD_FUN_PARAMS);
-			funDef.value.accept(this, null);
-
-			symbTable.oldScope();	
-
-			return null;
-		}
-	}
-
-	// Create a new scope. But only if you did not come from a function
-	@Override
-	public Object visit(AbsBlockExpr blockExpr, Object visArg) {
-		// Create new scope
-		symbTable.newScope();
-		
-		
-		// Clear the argument when going in
-		super.visit(blockExpr, null);
-		
-		// Exit new scope
-		symbTable.oldScope();
-		
-		return null;
-	}
-	
-	@Override
-	public Object visit(AbsFunName funName, Object visArg) {
-		try {
-			AbsDecl decl = symbTable.fnd(funName.name);
-			if (decl instanceof AbsFunDecl || decl instanceof AbsFunDef) {
-				SemAn.declaredAt.put(funName, decl);
-			} else {
-				throw new Report.Error(funName.location(), String.format("[nameResolution] Variable name %s is not a variable or parameter.", funName.name));
-			}
-		} catch (CannotFndNameException e) {
-			throw new Report.Error(funName.location(), String.format("[nameResolution] Variable name %s not found.", funName.name));
-		}
-		return super.visit(funName, visArg);
-	}
-
-	@Override
-	public Object visit(AbsParDecl parDecl, Object visArg) {
-		if (visArg == Mode.ADD_FUN_PARAMS) {
-			try {
-				symbTable.ins(parDecl.name, parDecl);
-			} catch (CannotInsNameException e) {
-				throw new Report.Error("[nameResolution] " + parDecl.location() + " Could not insert " + parDecl.name);
-			}
-		}
-		return super.visit(parDecl, visArg);
-	}
-	
-	@Override
-	public Object visit(AbsRecExpr recExpr, Object visArg) {
-		recExpr.record.accept(this, visArg);
-		return null;
-	}
-
-}
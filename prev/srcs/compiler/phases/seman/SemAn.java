@@ -28,7 +28,7 @@ public class SemAn extends Phase {
 	public static final AbsAttribute<AbsExpr, SemType> ofType = new AbsAttribute<AbsExpr, SemType>();
 
 	/** Denotes whether a value expression can denote an address. */
-	public static final AbsAttribute<AbsExpr, Boolean> isAddr = new AbsAttribute<AbsExpr, Boolean>();
+	public static final AbsBoolAttribute<AbsExpr> isAddr = new AbsBoolAttribute<AbsExpr>();
 
 	/**
 	 * Constructs a new phase of semantic analysis.
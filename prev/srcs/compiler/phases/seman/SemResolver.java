@@ -0,0 +1,740 @@
+package compiler.phases.seman;
+
+import java.util.*;
+
+import compiler.common.report.*;
+import compiler.data.abstree.*;
+import compiler.data.abstree.AbsUnExpr.Oper;
+import compiler.data.abstree.visitor.*;
+import compiler.data.type.*;
+import compiler.phases.seman.SymbTable.CannotFndNameException;
+import compiler.phases.seman.SymbTable.CannotInsNameException;
+
+/**
+ * Semantic analysis, i.e., name resolving, type resolving and determining
+ * which value expression can denote an address: the result is stored in
+ * {@link SemAn#declaredAt}, {@link SemAn#declaresType}, {@link SemAn#isType},
+ * {@link SemAn#ofType} and {@link SemAn#isAddr}.
+ *
+ * Declarations are resolved one scope at a time: all declarations of a scope
+ * are first entered into the symbol table, then the names within the types of
+ * the declarations are resolved, the types are linked and checked, and
+ * finally the body of each function of the scope is resolved. All value
+ * expressions of a body are resolved in a single traversal, i.e., the name,
+ * the type and the addressability of an expression are all determined when it
+ * is visited, and so are the declarations of each nested scope.
+ */
+public class SemResolver extends AbsFullVisitor<SemType, SemResolver.Mode> {
+
+	enum Mode {
+		NAME_RESOLVE, TYPE_LINK, TYPE_CHECK, EXPR_LINK
+	}
+
+	/** Symbol table. */
+	private final SymbTable symbTable = new SymbTable();
+
+	/** Symbol tables of individual record types. */
+	private final HashMap<SemRecType, SymbTable> symbTables = new HashMap<SemRecType, SymbTable>();
+
+	@Override
+	public SemType visit(AbsSource source, Mode visArg) {
+		return source.decls.accept(this, Mode.EXPR_LINK);
+	}
+
+	@Override
+	public SemType visit(AbsDecls decls, Mode visArg) {
+		for (AbsDecl decl : decls.decls()) {
+			try {
+				symbTable.ins(decl.name, decl);
+			} catch (CannotInsNameException e) {
+				throw new Report.Error("[nameResolution] " + decl.location() + " Could not insert " + decl.name);
+			}
+		}
+		for (AbsDecl decl : decls.decls()) {
+			if (decl instanceof AbsTypDecl)
+				SemAn.declaresType.put((AbsTypDecl) decl, new SemNamedType(decl.name));
+		}
+		for (AbsDecl decl : decls.decls())
+			decl.accept(this, Mode.NAME_RESOLVE);
+		for (AbsDecl decl : decls.decls())
+			decl.accept(this, Mode.TYPE_LINK);
+		for (AbsDecl decl : decls.decls())
+			decl.accept(this, Mode.TYPE_CHECK);
+		for (AbsDecl decl : decls.decls())
+			decl.accept(this, Mode.EXPR_LINK);
+		return null;
+	}
+
+	// DECLARATIONS
+
+	@Override
+	public SemType visit(AbsTypDecl typDecl, Mode visArg) {
+		switch (visArg) {
+		case NAME_RESOLVE:
+			typDecl.type.accept(this, visArg);
+			break;
+		case TYPE_CHECK:
+			typDecl.type.accept(this, visArg);
+			if (SemAn.declaresType.get(typDecl).isInfinite())
+				throw new Report.Error(typDecl.location(), "[typeResolving] Type " + typDecl.name + " is infinite.");
+			break;
+		case TYPE_LINK:
+			SemAn.declaresType.get(typDecl).define(typDecl.type.accept(this, visArg));
+			break;
+		default:
+			break;
+		}
+		return null;
+	}
+
+	@Override
+	public SemType visit(AbsVarDecl varDecl, Mode visArg) {
+		if (visArg == Mode.EXPR_LINK)
+			return null;
+		SemType type = varDecl.type.accept(this, visArg);
+		if ((visArg == Mode.TYPE_CHECK) && (SemAn.isType.get(varDecl.type) instanceof SemVoidType))
+			throw new Report.Error(varDecl.location(), "[typeResolving] Variable may not be of type void");
+		return type;
+	}
+
+	@Override
+	public SemType visit(AbsFunDecl funDecl, Mode visArg) {
+		if (visArg != Mode.EXPR_LINK)
+			resolveHeader(funDecl, visArg);
+		return null;
+	}
+
+	@Override
+	public SemType visit(AbsFunDef funDef, Mode visArg) {
+		if (visArg != Mode.EXPR_LINK) {
+			resolveHeader(funDef, visArg);
+			return null;
+		}
+
+		symbTable.newScope();
+		for (AbsParDecl parDecl : funDef.parDecls.parDecls())
+			insert(parDecl);
+		SemType exprType = funDef.value.accept(this, visArg).actualType();
+		symbTable.oldScope();
+
+		SemType returnType = SemAn.isType.get(funDef.type).actualType();
+		if (!exprType.matches(returnType)) {
+			throw new Report.Error(funDef.location(), "[typeResolving] Function body type does not match return type.");
+		}
+		return null;
+	}
+
+	/**
+	 * Resolves the types of the parameters and the result of a function.
+	 *
+	 * The names within the type of each parameter are resolved within the scope
+	 * of the function with the parameter and all preceding parameters already
+	 * declared.
+	 *
+	 * @param funDecl The function declaration.
+	 * @param visArg  The mode (anything but {@link Mode#EXPR_LINK}).
+	 */
+	private void resolveHeader(AbsFunDecl funDecl, Mode visArg) {
+		funDecl.type.accept(this, visArg);
+		if (visArg == Mode.NAME_RESOLVE) {
+			symbTable.newScope();
+			for (AbsParDecl parDecl : funDecl.parDecls.parDecls()) {
+				insert(parDecl);
+				parDecl.type.accept(this, visArg);
+			}
+			symbTable.oldScope();
+			return;
+		}
+		for (AbsParDecl parDecl : funDecl.parDecls.parDecls())
+			parDecl.type.accept(this, visArg);
+		if (visArg != Mode.TYPE_CHECK)
+			return;
+
+		for (AbsParDecl parDecl : funDecl.parDecls.parDecls()) {
+			SemType parType = SemAn.isType.get(parDecl.type).actualType();
+			if(!( parType instanceof SemBoolType
+					|| parType instanceof SemCharType
+					|| parType instanceof SemIntType
+					|| parType instanceof SemPtrType )) {
+				throw new Report.Error(funDecl.location(), "[typeResolving] Parameter type not allowed.");
+			}
+		}
+		SemType returnType = SemAn.isType.get(funDecl.type).actualType();
+		if(!( returnType instanceof SemVoidType
+				|| returnType instanceof SemBoolType
+				|| returnType instanceof SemCharType
+				|| returnType instanceof SemIntType
+				|| returnType instanceof SemPtrType )) {
+			throw new Report.Error(funDecl.location(), "[typeResolving] Return type of function not allowed.");
+		}
+	}
+
+	/**
+	 * Declares a parameter within the current scope.
+	 *
+	 * @param parDecl The parameter declaration.
+	 */
+	private void insert(AbsParDecl parDecl) {
+		try {
+			symbTable.ins(parDecl.name, parDecl);
+		} catch (CannotInsNameException e) {
+			throw new Report.Error("[nameResolution] " + parDecl.location() + " Could not insert " + parDecl.name);
+		}
+	}
+
+	// TYPES
+
+	/**
+	 * Resolves a type expression within the body of a function.
+	 *
+	 * @param type The type expression.
+	 * @return The type.
+	 */
+	private SemType resolve(AbsType type) {
+		type.accept(this, Mode.NAME_RESOLVE);
+		type.accept(this, Mode.TYPE_LINK);
+		type.accept(this, Mode.TYPE_CHECK);
+		return type.accept(this, Mode.EXPR_LINK);
+	}
+
+	@Override
+	public SemType visit(AbsAtomType atomType, Mode visArg) {
+		if (visArg == Mode.TYPE_LINK) {
+			SemType newType = null;
+			switch (atomType.type) {
+			case INT:
+				newType = new SemIntType();
+				break;
+			case BOOL:
+				newType = new SemBoolType();
+				break;
+			case CHAR:
+				newType = new SemCharType();
+				break;
+			case VOID:
+				newType = new SemVoidType();
+				break;
+			}
+			SemAn.isType.put(atomType, newType);
+			return newType;
+		}
+		return SemAn.isType.get(atomType);
+	}
+
+	@Override
+	public SemType visit(AbsArrType arrType, Mode visArg) {
+		switch (visArg) {
+		case NAME_RESOLVE:
+			arrType.elemType.accept(this, visArg);
+			return null;
+		case TYPE_LINK:
+			if (!(arrType.len instanceof AbsAtomExpr))
+				throw new Report.Error(arrType, String.format("[typeResolving] Array length must be a constant."));
+			SemAn.isAddr.put(arrType.len, false);
+			try {
+				int len = Integer.parseInt(((AbsAtomExpr) arrType.len).expr);
+				SemType elementType = arrType.elemType.accept(this, visArg).actualType();
+
+				if (elementType instanceof SemVoidType) {
+					throw new Report.Error(arrType, String.format("[typeResolving] Void type not allowed in array."));
+				}
+				SemType newType = new SemArrType(len, elementType);
+				SemAn.isType.put(arrType, newType);
+				return newType;
+			} catch (Exception e) {
+				throw new Report.Error(arrType, String.format("[typeResolving] Array length must be a constant."));
+			}
+		case TYPE_CHECK:
+			if (((SemArrType) SemAn.isType.get(arrType)).elemType.matches(new SemVoidType())) {
+				throw new Report.Error(arrType, String.format("[typeResolving] Void type not allowed in array."));
+			}
+			arrType.elemType.accept(this, visArg);
+			return null;
+		default:
+			return SemAn.isType.get(arrType);
+		}
+	}
+
+	@Override
+	public SemType visit(AbsPtrType ptrType, Mode visArg) {
+		switch (visArg) {
+		case NAME_RESOLVE:
+		case TYPE_CHECK:
+			ptrType.ptdType.accept(this, visArg);
+			return null;
+		case TYPE_LINK:
+			SemType newType = new SemPtrType(ptrType.ptdType.accept(this, visArg));
+			SemAn.isType.put(ptrType, newType);
+			return newType;
+		default:
+			return SemAn.isType.get(ptrType);
+		}
+	}
+
+	@Override
+	public SemType visit(AbsRecType recType, Mode visArg) {
+		switch (visArg) {
+		case NAME_RESOLVE:
+			recType.compDecls.accept(this, visArg);
+			return null;
+		case TYPE_LINK:
+			Vector<SemType> compTypes = new Vector<>();
+			for (AbsCompDecl decl : recType.compDecls.compDecls()) {
+				SemType elementType = decl.accept(this, visArg);
+				if (elementType instanceof SemVoidType) {
+					throw new Report.Error(recType, String.format("[typeResolving] Void type not allowed in record."));
+				}
+				compTypes.add(elementType);
+			}
+			SemRecType newType = new SemRecType(compTypes);
+			SemAn.isType.put(recType, newType);
+
+			// add to symbol array
+			SymbTable recTable = new SymbTable();
+			for (AbsCompDecl decl : recType.compDecls.compDecls()) {
+				try {
+					recTable.ins(decl.name, decl);
+				} catch (CannotInsNameException e) {
+					throw new Report.Error("[nameResolution] " + recType.location() + " Could not insert " + decl.name + " into a rector declaration.");
+				}
+			}
+			symbTables.put(newType, recTable);
+
+			return newType;
+		case TYPE_CHECK:
+			SemRecType rec = (SemRecType) SemAn.isType.get(recType);
+			for (SemType elementType : rec.compTypes()) {
+				if (elementType.matches(new SemVoidType())) {
+					throw new Report.Error(recType, String.format("[typeResolving] Void type not allowed in record."));
+				}
+			}
+			recType.compDecls.accept(this, visArg);
+			return null;
+		default:
+			return SemAn.isType.get(recType);
+		}
+	}
+
+	@Override
+	public SemType visit(AbsCompDecl compDecl, Mode visArg) {
+		return compDecl.type.accept(this, visArg);
+	}
+
+	@Override
+	public SemType visit(AbsTypName typName, Mode visArg) {
+		switch (visArg) {
+		case NAME_RESOLVE:
+			try {
+				AbsDecl decl = symbTable.fnd(typName.name);
+				if (decl instanceof AbsTypDecl) {
+					SemAn.declaredAt.put(typName, decl);
+				} else {
+					throw new Report.Error(typName.location(), String.format("[nameResolution] Type name %s is not a type.", typName.name));
+				}
+			} catch (CannotFndNameException e) {
+				throw new Report.Error(typName.location(), String.format("[nameResolution] Type name %s not found.", typName.name));
+			}
+			return null;
+		case TYPE_LINK:
+			SemType newType = SemAn.declaresType.get((AbsTypDecl) SemAn.declaredAt.get(typName));
+			SemAn.isType.put(typName, newType);
+			return newType;
+		case TYPE_CHECK:
+			return null;
+		default:
+			return SemAn.isType.get(typName);
+		}
+	}
+
+	// VALUE EXPRESSIONS (resolved in mode EXPR_LINK only)
+
+	@Override
+	public SemType visit(AbsVarName varName, Mode visArg) {
+		AbsDecl decl;
+		try {
+			decl = symbTable.fnd(varName.name);
+			if (!(decl instanceof AbsVarDecl || decl instanceof AbsParDecl)) {
+				throw new Report.Error(varName.location(), String.format("[nameResolution] Variable name %s is not a variable or parameter.", varName.name));
+			}
+		} catch (CannotFndNameException e) {
+			throw new Report.Error(varName.location(), String.format("[nameResolution] Variable name %s not found.", varName.name));
+		}
+		SemAn.declaredAt.put(varName, decl);
+
+		SemType type = SemAn.isType.get(decl instanceof AbsVarDecl ? ((AbsVarDecl) decl).type : ((AbsParDecl) decl).type);
+		SemAn.ofType.put(varName, type);
+		SemAn.isAddr.put(varName, true);
+		return type;
+	}
+
+	@Override
+	public SemType visit(AbsAtomExpr atomExpr, Mode visArg) {
+		SemType newType = null;
+		switch (atomExpr.type) {
+		case VOID:
+			newType = new SemVoidType();
+			break;
+		case PTR:
+			newType = new SemPtrType(new SemVoidType());
+			break;
+		case BOOL:
+			newType = new SemBoolType();
+			break;
+		case CHAR:
+			newType = new SemCharType();
+			break;
+		case INT:
+			newType = new SemIntType();
+			break;
+		case STR:
+			newType = new SemPtrType(new SemCharType());
+			break;
+		}
+		SemAn.ofType.put(atomExpr, newType);
+		SemAn.isAddr.put(atomExpr, false);
+		return newType;
+	}
+
+	@Override
+	public SemType visit(AbsUnExpr unExpr, Mode visArg) {
+		SemType it = unExpr.subExpr.accept(this, visArg).actualType();
+		SemAn.isAddr.put(unExpr, unExpr.oper == Oper.DATA);
+
+		switch (unExpr.oper) {
+		case NOT:{
+			if(!(it instanceof SemBoolType)) {
+				throw new Report.Error(unExpr.location(), String.format("[typeResolving] Expression after unary ! must be of type bool."));
+			}
+			SemType thisType = new SemBoolType();
+			SemAn.ofType.put(unExpr, thisType);
+			return thisType;
+		}
+		case SUB:
+		case ADD:{
+			if(!(it instanceof SemIntType)) {
+				throw new Report.Error(unExpr.location(), String.format("[typeResolving] Expression after unary +,- must be of type int."));
+			}
+			SemType thisType = new SemIntType();
+			SemAn.ofType.put(unExpr, thisType);
+			return thisType;
+		}
+		case ADDR:{// $
+			if(it instanceof SemVoidType) {
+				throw new Report.Error(unExpr.location(), String.format("[typeResolving] Expression after unary $ must not be of type void."));
+			}
+			SemType thisType = new SemPtrType(it);
+			SemAn.ofType.put(unExpr, thisType);
+			return thisType;
+		}
+		case DATA:{// @
+			if(!(it instanceof SemPtrType)) {
+				throw new Report.Error(unExpr.location(), String.format("[typeResolving] Expression after unary @ must be a pointer."));
+			}
+			SemPtrType ptrType = (SemPtrType) it;
+			if(ptrType.ptdType instanceof SemVoidType) {
+				throw new Report.Error(unExpr.location(), String.format("[typeResolving] Expression after unary @ must not be void pointer."));
+			}
+
+			SemType thisType = ptrType.ptdType;
+			SemAn.ofType.put(unExpr, thisType);
+			return thisType;
+		}
+		}
+
+		return null;
+	}
+
+	@Override
+	public SemType visit(AbsBinExpr binExpr, Mode visArg) {
+		SemType it1 = binExpr.fstExpr.accept(this, visArg).actualType();
+		SemType it2 = binExpr.sndExpr.accept(this, visArg).actualType();
+		SemAn.isAddr.put(binExpr, false);
+
+		switch (binExpr.oper) {
+		case AND:
+		case IOR:
+		case XOR:{
+			if(!(it1 instanceof SemBoolType) || !(it2 instanceof SemBoolType)) {
+				throw new Report.Error(binExpr.location(), "[typeResolving] Expressions around &, | or ^ must be of type bool.");
+			}
+			SemType thisType = new SemBoolType();
+			SemAn.ofType.put(binExpr, thisType);
+			return thisType;
+		}
+		case ADD:
+		case SUB:
+		case MUL:
+		case DIV:
+		case MOD:{
+			if(!( (it1 instanceof SemIntType && it2 instanceof SemIntType)
+					|| (it1 instanceof SemCharType && it2 instanceof SemCharType) )) {
+				throw new Report.Error(binExpr.location(), "[typeResolving] Expressions around +,-,*,/,% must be of type int or char. The two types must be the same.");
+			}
+			SemType thisType = new SemIntType();
+			SemAn.ofType.put(binExpr, thisType);
+			return thisType;
+		}
+		case EQU:
+		case NEQ:{
+			if(!( (it1 instanceof SemBoolType && it2 instanceof SemBoolType)
+					|| (it1 instanceof SemCharType && it2 instanceof SemCharType)
+					|| (it1 instanceof SemIntType && it2 instanceof SemIntType)
+					|| (it1 instanceof SemPtrType && it2 instanceof SemPtrType && ((SemPtrType)it1).matches((SemPtrType) it2)))) {
+				throw new Report.Error(binExpr.location(), "[typeResolving] Expressions around ==,!= must be of type int, char, bool or ptr. The two types must be the same.");
+			}
+			SemType thisType = new SemBoolType();
+			SemAn.ofType.put(binExpr, thisType);
+			return thisType;
+		}
+		case GEQ:
+		case GTH:
+		case LEQ:
+		case LTH:{
+			if(!( (it1 instanceof SemCharType && it2 instanceof SemCharType)
+					|| (it1 instanceof SemIntType && it2 instanceof SemIntType)
+					|| (it1 instanceof SemPtrType && it2 instanceof SemPtrType && ((SemPtrType)it1).matches((SemPtrType) it2)))) {
+				throw new Report.Error(binExpr.location(), "[typeResolving] Expressions around <,<=,>,>= must be of type int, char or ptr. The two types must be the same.");
+			}
+			SemType thisType = new SemBoolType();
+			SemAn.ofType.put(binExpr, thisType);
+			return thisType;
+		}
+		}
+
+		return null;
+	}
+
+	@Override
+	public SemType visit(AbsNewExpr newExpr, Mode visArg) {
+		SemType it = resolve(newExpr.type).actualType();
+		SemAn.isAddr.put(newExpr, false);
+
+		if(it instanceof SemVoidType) {
+			throw new Report.Error(newExpr.location(), String.format("[typeResolving] Expression in statement new must not be of type void."));
+		}
+		SemType thisType = new SemPtrType(it);
+		SemAn.ofType.put(newExpr, thisType);
+
+		return thisType;
+	}
+
+	@Override
+	public SemType visit(AbsDelExpr delExpr, Mode visArg) {
+		SemType it = delExpr.expr.accept(this, visArg).actualType();
+		SemAn.isAddr.put(delExpr, false);
+
+		if(!(it instanceof SemPtrType)) {
+			throw new Report.Error(delExpr.location(), String.format("[typeResolving] Expression in statement new must be a pointer."));
+		}
+		SemPtrType ptrType = (SemPtrType) it;
+		if(ptrType.ptdType instanceof SemVoidType) {
+			throw new Report.Error(delExpr.location(), String.format("[typeResolving] Expression in statement new must not be of type void."));
+		}
+
+		SemType thisType = new SemVoidType();
+		SemAn.ofType.put(delExpr, thisType);
+		return thisType;
+	}
+
+	@Override
+	public SemType visit(AbsArrExpr arrExpr, Mode visArg) {
+		SemType arrayType = arrExpr.array.accept(this, visArg).actualType();
+		SemType index = arrExpr.index.accept(this, visArg).actualType();
+		SemAn.isAddr.put(arrExpr, SemAn.isAddr.get(arrExpr.array));
+
+		if(!(arrayType instanceof SemArrType)) {
+			throw new Report.Error(arrExpr.location(), String.format("[typeResolving] Expression before [] must be of type array."));
+		}
+
+		if(!(index instanceof SemIntType)) {
+			throw new Report.Error(arrExpr.location(), String.format("[typeResolving] Expression for array index must be of type int."));
+		}
+
+		SemType thisType = ((SemArrType)arrayType).elemType;
+		SemAn.ofType.put(arrExpr, thisType);
+		return thisType;
+	}
+
+	@Override
+	public SemType visit(AbsRecExpr recExpr, Mode visArg) {
+		// First perform a name check for the record name
+		SemType type = recExpr.record.accept(this, visArg).actualType();
+		SemAn.isAddr.put(recExpr, SemAn.isAddr.get(recExpr.record));
+		SemRecType recType = null;
+		if(type instanceof SemRecType) {
+			recType = (SemRecType) type;
+		} else {
+			throw new Report.Error(recExpr.location(), "[nameResolution] Record type does not exist.");
+		}
+
+		SymbTable table = symbTables.get(recType);
+
+		AbsDecl compDecl = null;
+		try {
+			compDecl = table.fnd(recExpr.comp.name);
+			SemAn.declaredAt.put(recExpr.comp, compDecl);
+		} catch (CannotFndNameException e) {
+			throw new Report.Error(recExpr.location(), "[nameResolution] Record does not cotain compoment " + recExpr.comp.name);
+		}
+
+		// Then connect the type
+		SemType thisType = SemAn.isType.get(((AbsCompDecl) compDecl).type).actualType();
+		SemAn.ofType.put(recExpr, thisType);
+		SemAn.ofType.put(recExpr.comp, thisType);
+		SemAn.isAddr.put(recExpr.comp, true);
+		return thisType;
+	}
+
+	@Override
+	public SemType visit(AbsFunName funName, Mode visArg) {
+		AbsDecl decl;
+		try {
+			decl = symbTable.fnd(funName.name);
+			if (!(decl instanceof AbsFunDecl)) {
+				throw new Report.Error(funName.location(), String.format("[nameResolution] Variable name %s is not a variable or parameter.", funName.name));
+			}
+		} catch (CannotFndNameException e) {
+			throw new Report.Error(funName.location(), String.format("[nameResolution] Variable name %s not found.", funName.name));
+		}
+		SemAn.declaredAt.put(funName, decl);
+		AbsFunDecl funDecl = (AbsFunDecl) decl;
+
+		Vector<AbsExpr> args = funName.args.args();
+		Vector<AbsParDecl> pars = funDecl.parDecls.parDecls();
+		if(args.size() != pars.size()) {
+			throw new Report.Error(funName.location(), "[typeResolving] Number of function parameters does not match.");
+		}
+
+		for (int i = 0; i < args.size(); i++) {
+			AbsExpr arg = args.get(i);
+			AbsParDecl par = pars.get(i);
+
+			SemType argType = arg.accept(this, visArg).actualType();
+			SemType parType = SemAn.isType.get(par.type).actualType();
+
+			if(!( (argType instanceof SemBoolType && parType instanceof SemBoolType)
+					|| (argType instanceof SemCharType && parType instanceof SemCharType)
+					|| (argType instanceof SemIntType && parType instanceof SemIntType)
+					|| (argType instanceof SemPtrType && parType instanceof SemPtrType && ((SemPtrType)argType).matches((SemPtrType) parType)))) {
+				throw new Report.Error(funName.location(), "[typeResolving] Parameter or argument type not allowed or does not match function definition.");
+			}
+
+			if(!argType.matches(parType)) {
+				throw new Report.Error(funName.location(), "[typeResolving] Parameter types do not match.");
+			}
+		}
+
+		// Return type
+		SemType returnType = SemAn.isType.get(funDecl.type).actualType();
+		if(!( returnType instanceof SemVoidType
+				|| returnType instanceof SemBoolType
+				|| returnType instanceof SemCharType
+				|| returnType instanceof SemIntType
+				|| returnType instanceof SemPtrType )) {
+			throw new Report.Error(funName.location(), "[typeResolving] Return type of function not allowed.");
+		}
+
+		SemAn.ofType.put(funName, returnType);
+		return returnType;
+	}
+
+	@Override
+	public SemType visit(AbsBlockExpr blockExpr, Mode visArg) {
+		symbTable.newScope();
+		blockExpr.decls.accept(this, visArg);
+		blockExpr.stmts.accept(this, visArg);
+		SemType type = blockExpr.expr.accept(this, visArg);
+		symbTable.oldScope();
+
+		SemAn.ofType.put(blockExpr, type);
+		SemAn.isAddr.put(blockExpr, false);
+		return type;
+	}
+
+	@Override
+	public SemType visit(AbsCastExpr castExpr, Mode visArg) {
+		SemType eType = castExpr.expr.accept(this, visArg).actualType();
+		SemType tType = resolve(castExpr.type).actualType();
+		SemAn.isAddr.put(castExpr, false);
+		if(!(eType instanceof SemCharType
+				|| eType instanceof SemIntType
+				|| eType instanceof SemPtrType )) {
+			throw new Report.Error(castExpr.location(), "[typeResolving] Expression type in cast not allowed.");
+		}
+		if(!(tType instanceof SemCharType
+				|| tType instanceof SemIntType
+				|| tType instanceof SemPtrType )) {
+			throw new Report.Error(castExpr.location(), "[typeResolving] Cast to specified type not allowed.");
+		}
+
+		SemAn.ofType.put(castExpr, tType);
+		return tType;
+	}
+
+	// STATEMENTS
+
+	@Override
+	public SemType visit(AbsAssignStmt assignStmt, Mode visArg) {
+		SemType dstType = assignStmt.dst.accept(this, visArg).actualType();
+		SemType srcType = assignStmt.src.accept(this, visArg).actualType();
+		if(!dstType.matches(srcType)) {
+			throw new Report.Error(assignStmt.location(), "[typeResolving] Assign statement types don't match.");
+		}
+		if(!(srcType instanceof SemBoolType
+				|| srcType instanceof SemCharType
+				|| srcType instanceof SemIntType
+				|| srcType instanceof SemPtrType )) {
+			throw new Report.Error(assignStmt.location(), "[typeResolving] Type not allowed in assignment.");
+		}
+		if(!Boolean.TRUE.equals(SemAn.isAddr.get(assignStmt.dst))) {
+			throw new Report.Error(assignStmt.location(), "[AddrResolver] LValue is not an address!");
+		}
+
+		return new SemVoidType();
+	}
+
+	@Override
+	public SemType visit(AbsStmts stmts, Mode visArg) {
+		super.visit(stmts, visArg);
+		return new SemVoidType();
+	}
+
+	@Override
+	public SemType visit(AbsIfStmt ifStmt, Mode visArg) {
+		SemType condType = ifStmt.cond.accept(this, visArg).actualType();
+		SemType thenType = ifStmt.thenStmts.accept(this, visArg).actualType();
+		SemType elseType = null;
+		if(ifStmt.elseStmts != null) {
+			 elseType = ifStmt.elseStmts.accept(this, visArg).actualType();
+		}
+
+		if(!(condType instanceof SemBoolType)) {
+			throw new Report.Error(ifStmt.location(), "[typeResolving] Condition must be of type bool.");
+		}
+		if(!(thenType instanceof SemVoidType)) {
+			throw new Report.Error(ifStmt.location(), "[typeResolving] Then statements must be of type void.");
+		}
+		if(elseType != null) {
+			if(!(elseType instanceof SemVoidType)) {
+				throw new Report.Error(ifStmt.location(), "[typeResolving] Else statements must be of type void.");
+			}
+		}
+
+		return new SemVoidType();
+	}
+
+	@Override
+	public SemType visit(AbsWhileStmt whileStmt, Mode visArg) {
+		SemType condType = whileStmt.cond.accept(this, visArg).actualType();
+		SemType doType = whileStmt.stmts.accept(this, visArg).actualType();
+
+		if(!(condType instanceof SemBoolType)) {
+			throw new Report.Error(whileStmt.location(), "[typeResolving] Condition must be of type bool.");
+		}
+		if(!(doType instanceof SemVoidType)) {
+			throw new Report.Error(whileStmt.location(), "[typeResolving] Do statements must be of type void.");
+		}
+		return new SemVoidType();
+	}
+
+}
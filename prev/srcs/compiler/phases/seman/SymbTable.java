@@ -6,58 +6,56 @@ package compiler.phases.seman;
 import java.util.*;
 import compiler.common.report.*;
 import compiler.data.abstree.*;
+import compiler.data.symbol.*;
 
 /**
  * Symbol table.
  * 
+ * Names are represented by their ids in the name table of the compilation
+ * (see {@link NameTable}), so the visible declaration of each name is found by
+ * indexing an array, and all declarations are kept in a single log that is
+ * truncated whenever a scope is destroyed.
+ * 
  * @author sliva
  *
  */
 public class SymbTable {
 
+	/** The table of names the declared names are interned into. */
+	private final NameTable names = compiler.Compilation.current().names;
+
 	/**
-	 * A symbol table record denoting a declaration of a name within a certain
-	 * scope.
-	 * 
-	 * @author sliva
-	 *
+	 * The log of all declarations within currently active scopes in the order of
+	 * their insertion, i.e., the declarations of each scope follow the
+	 * declarations of its enclosing scope. Once a scope is destroyed, its
+	 * declarations are removed from the end of the log and the declarations they
+	 * have hidden become visible again.
 	 */
-	private class ScopedDecl {
-
-		/** The depth of the scope the declaration belongs to. */
-		public final int depth;
+	private AbsDecl[] logDecls = new AbsDecl[16];
 
-		/** The declaration. */
-		public final AbsDecl decl;
+	/** The id of the declared name of each declaration in the log. */
+	private int[] logNames = new int[16];
 
-		/**
-		 * Constructs a new record denoting a declaration of a name within a certain
-		 * scope.
-		 * 
-		 * @param depth The depth of the scope the declaration belongs to.
-		 * @param decl  The declaration.
-		 */
-		public ScopedDecl(int depth, AbsDecl decl) {
-			this.depth = depth;
-			this.decl = decl;
-		}
-
-	}
+	/** The depth of the scope of each declaration in the log. */
+	private int[] logDepths = new int[16];
 
 	/**
-	 * A mapping of names into lists of records denoting declarations at different
-	 * scopes. At each moment during the lifetime of a symbol table, the declaration
-	 * list corresponding to a particular name contains all declarations that name
-	 * within currently active scopes: the declaration at the inner most scope is
-	 * the first in the list and is visible, the other declarations are hidden.
+	 * The declaration of the same name each declaration in the log hides (its
+	 * index in the log incremented by one, {@code 0} if none).
 	 */
-	private final HashMap<String, LinkedList<ScopedDecl>> allDeclsOfAllNames;
+	private int[] logHidden = new int[16];
+
+	/** The number of declarations in the log. */
+	private int logSize;
 
 	/**
-	 * The list of scopes. Each scope is represented by a list of names declared
-	 * within it.
+	 * The visible declaration of each name (its index in the log incremented by
+	 * one, {@code 0} if none), indexed by name ids.
 	 */
-	private final LinkedList<LinkedList<String>> scopes;
+	private int[] visible = new int[0];
+
+	/** The size of the log at the beginning of each scope, indexed by depths. */
+	private int[] scopeStarts = new int[16];
 
 	/** The depth of the currently active scope. */
 	private int currDepth;
@@ -69,8 +67,7 @@ public class SymbTable {
 	 * Constructs a new symbol table.
 	 */
 	public SymbTable() {
-		allDeclsOfAllNames = new HashMap<String, LinkedList<ScopedDecl>>();
-		scopes = new LinkedList<LinkedList<String>>();
+		logSize = 0;
 		currDepth = 0;
 		lock = false;
 		newScope();
@@ -100,20 +97,24 @@ public class SymbTable {
 		if (lock)
 			throw new Report.InternalError();
 
-		LinkedList<ScopedDecl> allDeclsOfName = allDeclsOfAllNames.get(name);
-		if (allDeclsOfName == null) {
-			allDeclsOfName = new LinkedList<ScopedDecl>();
-			allDeclsOfAllNames.put(name, allDeclsOfName);
+		int id = names.id(name);
+		if (id >= visible.length)
+			visible = Arrays.copyOf(visible, Math.max(2 * visible.length, id + 1));
+		int hidden = visible[id];
+		if ((hidden != 0) && (logDepths[hidden - 1] == currDepth))
+			throw new CannotInsNameException();
+
+		if (logSize == logDecls.length) {
+			logDecls = Arrays.copyOf(logDecls, 2 * logSize);
+			logNames = Arrays.copyOf(logNames, 2 * logSize);
+			logDepths = Arrays.copyOf(logDepths, 2 * logSize);
+			logHidden = Arrays.copyOf(logHidden, 2 * logSize);
 		}
-
-		if (!allDeclsOfName.isEmpty()) {
-			ScopedDecl declOfName = allDeclsOfName.getFirst();
-			if (declOfName.depth == currDepth)
-				throw new CannotInsNameException();
-		}
-
-		allDeclsOfName.addFirst(new ScopedDecl(currDepth, decl));
-		scopes.getFirst().addFirst(name);
+		logDecls[logSize] = decl;
+		logNames[logSize] = id;
+		logDepths[logSize] = currDepth;
+		logHidden[logSize] = hidden;
+		visible[id] = ++logSize;
 	}
 
 	/**
@@ -129,14 +130,11 @@ public class SymbTable {
 	 *                                it.
 	 */
 	public AbsDecl fnd(String name) throws CannotFndNameException {
-		LinkedList<ScopedDecl> allDeclsOfName = allDeclsOfAllNames.get(name);
-		if (allDeclsOfName == null)
-			throw new CannotFndNameException();
-
-		if (allDeclsOfName.isEmpty())
+		int id = names.id(name);
+		if ((id >= visible.length) || (visible[id] == 0))
 			throw new CannotFndNameException();
 
-		return allDeclsOfName.getFirst().decl;
+		return logDecls[visible[id] - 1];
 	}
 
 	/**
@@ -148,7 +146,9 @@ public class SymbTable {
 			throw new Report.InternalError();
 
 		currDepth++;
-		scopes.addFirst(new LinkedList<String>());
+		if (currDepth == scopeStarts.length)
+			scopeStarts = Arrays.copyOf(scopeStarts, 2 * currDepth);
+		scopeStarts[currDepth] = logSize;
 	}
 
 	/**
@@ -163,10 +163,11 @@ public class SymbTable {
 		if (currDepth == 0)
 			throw new Report.InternalError();
 
-		for (String name : scopes.getFirst()) {
-			allDeclsOfAllNames.get(name).removeFirst();
+		while (logSize > scopeStarts[currDepth]) {
+			logSize--;
+			visible[logNames[logSize]] = logHidden[logSize];
+			logDecls[logSize] = null;
 		}
-		scopes.removeFirst();
 		currDepth--;
 	}
 
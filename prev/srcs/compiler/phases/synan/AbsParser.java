@@ -0,0 +1,1068 @@
+package compiler.phases.synan;
+
+import java.util.*;
+
+import compiler.common.report.*;
+import compiler.data.symbol.*;
+import compiler.data.symbol.Symbol.Term;
+import compiler.data.abstree.*;
+import compiler.data.abstree.AbsBinExpr.Oper;
+import compiler.phases.lexan.*;
+
+/**
+ * A recursive descent parser constructing the abstract syntax tree directly,
+ * i.e., without constructing the derivation tree first.
+ *
+ * The parser follows the same LL(1) grammar as the parser in {@link SynAn},
+ * takes the same decisions and reports the same errors, and produces the same
+ * abstract syntax tree (including the locations of all nodes) as
+ * {@link compiler.phases.abstr.AbsTreeConstructor} does from the derivation
+ * tree. The span of a derivation tree node is therefore reconstructed from the
+ * first and the last symbol consumed while parsing it. The right recursive
+ * rules for lists and for the rest of binary and postfix expressions are
+ * parsed iteratively. Syntax errors are recovered from exactly as in
+ * {@link SynAn} (the abstract syntax tree is incomplete then).
+ */
+class AbsParser {
+
+	/** The location of an empty list. */
+	private static final Location NOWHERE = new Location(1, 1, 1, 1);
+
+	/** The lexical analyzer used by this parser. */
+	private final LexAn lexAn;
+
+	/** The lookahead buffer (of length 1). */
+	private Symbol currSymb = null;
+
+	/** The symbol consumed last. */
+	private Symbol prevSymb = null;
+
+	/**
+	 * Whether a syntax error has been reported and no symbol has been accepted
+	 * since (further errors are not reported until then).
+	 */
+	private boolean recovering = false;
+
+	/**
+	 * Constructs a new parser.
+	 *
+	 * @param lexAn The lexical analyzer used by this parser.
+	 */
+	AbsParser(LexAn lexAn) {
+		this.lexAn = lexAn;
+	}
+
+	/**
+	 * The parser.
+	 *
+	 * @return The abstract syntax tree of the program in the source file.
+	 */
+	AbsSource parser() {
+		currSymb = lexAn.lexer();
+		AbsSource source = parseSource();
+		while (currSymb.token != Symbol.Term.EOF) {
+			syntaxError("Unexpected '" + currSymb + "' at the end of a program.");
+			currSymb = lexAn.lexer();
+			parseDeclsRest(new Vector<AbsDecl>());
+		}
+		return source;
+	}
+
+	/**
+	 * If the current symbol is the expected terminal, replaces it with the next
+	 * input symbol. Otherwise, produces the error message.
+	 *
+	 * @param token The expected terminal.
+	 * @return The symbol consumed.
+	 */
+	private Symbol skip(Symbol.Term token) {
+		if (currSymb.token != token)
+			throw syntaxError(String.format("Expected symbol %s, but received %s.", token, currSymb.token));
+		prevSymb = currSymb;
+		currSymb = lexAn.lexer();
+		recovering = false;
+		return prevSymb;
+	}
+
+	/**
+	 * Reports a syntax error at the current symbol unless the parser is already
+	 * recovering from one.
+	 *
+	 * @param errorMsg The error message.
+	 * @return The syntax error to be thrown.
+	 */
+	private SyntaxError syntaxError(String errorMsg) {
+		if (!recovering) {
+			recovering = true;
+			Report.error(currSymb, errorMsg);
+		}
+		return new SyntaxError();
+	}
+
+	/**
+	 * Reports the current symbol not being expected.
+	 *
+	 * @param method The name of the method of {@link SynAn} reporting the error.
+	 * @return The syntax error to be thrown.
+	 */
+	private SyntaxError unexpected(String method) {
+		return syntaxError(String.format("[%s] Symbol %s (%s) not expected.", method, currSymb, currSymb.token));
+	}
+
+	/**
+	 * Skips symbols after a syntax error (see {@link SynAn}).
+	 *
+	 * @param sync The synchronizing symbols.
+	 * @return The terminal of the current symbol after skipping.
+	 */
+	private Symbol.Term recover(EnumSet<Symbol.Term> sync) {
+		int depth = 0;
+		while (true) {
+			switch (currSymb.token) {
+			case EOF:
+				return currSymb.token;
+			case LPARENTHESIS:
+			case LBRACKET:
+			case LBRACE:
+				depth++;
+				break;
+			case RPARENTHESIS:
+			case RBRACKET:
+			case RBRACE:
+				if (depth == 0)
+					return currSymb.token;
+				depth--;
+				break;
+			default:
+				if ((depth == 0) && sync.contains(currSymb.token))
+					return currSymb.token;
+			}
+			currSymb = lexAn.lexer();
+		}
+	}
+
+	private boolean recoverDecl() {
+		switch (recover(SyntaxError.declSync)) {
+		case SEMIC:
+			currSymb = lexAn.lexer();
+			return true;
+		case TYP:
+		case VAR:
+		case FUN:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private boolean recoverStmt() {
+		if (recover(SyntaxError.stmtSync) == Symbol.Term.SEMIC) {
+			currSymb = lexAn.lexer();
+			return true;
+		}
+		return false;
+	}
+
+	private boolean recoverListElem() {
+		return recover(SyntaxError.listSync) == Symbol.Term.COMMA;
+	}
+
+	/**
+	 * Returns the location of a list (which is empty only after a syntax error).
+	 */
+	private static Location location(Vector<? extends Locatable> list) {
+		return list.isEmpty() ? NOWHERE : new Location(list.firstElement(), list.lastElement());
+	}
+
+	// source -> decls
+	private AbsSource parseSource() {
+		AbsDecls decls = parseDecls();
+		return new AbsSource(decls, decls);
+	}
+
+	private AbsDecls parseDecls() {
+		Vector<AbsDecl> decls = new Vector<AbsDecl>();
+		try {
+			decls.add(parseDecl());
+		} catch (SyntaxError __) {
+			if (!recoverDecl())
+				return new AbsDecls(location(decls), decls);
+		}
+		parseDeclsRest(decls);
+		return new AbsDecls(location(decls), decls);
+	}
+
+	private void parseDeclsRest(Vector<AbsDecl> decls) {
+		while (true) {
+			switch (currSymb.token) {
+			case RBRACE:
+			case EOF:
+				return;
+			default:
+				try {
+					decls.add(parseDecl());
+				} catch (SyntaxError __) {
+					if (!recoverDecl())
+						return;
+				}
+			}
+		}
+	}
+
+	private AbsDecl parseDecl() {
+		switch (currSymb.token) {
+		case TYP: {
+			Symbol begSymb = skip(Term.TYP);
+			String name = skip(Term.IDENTIFIER).lexeme();
+			skip(Term.COLON);
+			AbsType type = parseType();
+			skip(Term.SEMIC);
+			return new AbsTypDecl(new Location(begSymb, prevSymb), name, type);
+		}
+		case VAR: {
+			Symbol begSymb = skip(Term.VAR);
+			String name = skip(Term.IDENTIFIER).lexeme();
+			skip(Term.COLON);
+			AbsType type = parseType();
+			skip(Term.SEMIC);
+			return new AbsVarDecl(new Location(begSymb, prevSymb), name, type);
+		}
+		case FUN: {
+			Symbol begSymb = skip(Term.FUN);
+			String name = skip(Term.IDENTIFIER).lexeme();
+			skip(Term.LPARENTHESIS);
+			AbsParDecls parDecls = parseParDeclsEps();
+			skip(Term.RPARENTHESIS);
+			skip(Term.COLON);
+			AbsType type = parseType();
+			AbsExpr expr = parseBody();
+			skip(Term.SEMIC);
+			if (expr == null)
+				return new AbsFunDecl(new Location(begSymb, prevSymb), name, parDecls, type);
+			return new AbsFunDef(new Location(begSymb, prevSymb), name, parDecls, type, expr);
+		}
+		default:
+			throw unexpected("parseDecl");
+		}
+	}
+
+	private AbsExpr parseBody() {
+		switch (currSymb.token) {
+		case SEMIC:
+			return null;
+		case ASSIGN:
+			skip(Term.ASSIGN);
+			return parseExpr();
+		default:
+			throw syntaxError(String.format("[parseBody] Symbol %s not expected.", currSymb));
+		}
+	}
+
+	private AbsStmt parseAssign(AbsExpr dst) {
+		switch (currSymb.token) {
+		case SEMIC:
+			return new AbsExprStmt(new Location(dst), dst);
+		case ASSIGN:
+			skip(Term.ASSIGN);
+			AbsExpr src = parseExpr();
+			return new AbsAssignStmt(new Location(dst, src), dst, src);
+		default:
+			throw syntaxError(String.format("[parseBody] Symbol %s not expected.", currSymb));
+		}
+	}
+
+	private AbsParDecl parseParDecl() {
+		switch (currSymb.token) {
+		case IDENTIFIER:
+			Symbol nameSymb = skip(Term.IDENTIFIER);
+			skip(Term.COLON);
+			AbsType type = parseType();
+			return new AbsParDecl(new Location(nameSymb, prevSymb), nameSymb.lexeme(), type);
+		default:
+			throw unexpected("parseArg");
+		}
+	}
+
+	private void parseParDeclRest(Vector<AbsParDecl> parDecls) {
+		while (true) {
+			switch (currSymb.token) {
+			case COMMA:
+				skip(Term.COMMA);
+				try {
+					parDecls.add(parseParDecl());
+				} catch (SyntaxError __) {
+					if (!recoverListElem())
+						return;
+				}
+				break;
+			case RPARENTHESIS:
+				return;
+			default:
+				unexpected("parseArgsRest");
+				if (!recoverListElem())
+					return;
+			}
+		}
+	}
+
+	private AbsParDecls parseParDeclsEps() {
+		switch (currSymb.token) {
+		case IDENTIFIER:
+			Vector<AbsParDecl> parDecls = new Vector<AbsParDecl>();
+			try {
+				parDecls.add(parseParDecl());
+			} catch (SyntaxError __) {
+				if (!recoverListElem())
+					return new AbsParDecls(location(parDecls), parDecls);
+			}
+			parseParDeclRest(parDecls);
+			return new AbsParDecls(location(parDecls), parDecls);
+		case RPARENTHESIS:
+			return new AbsParDecls(NOWHERE, new Vector<AbsParDecl>());
+		default:
+			throw unexpected("parseArgs");
+		}
+	}
+
+	private AbsCompDecl parseCompDecl() {
+		switch (currSymb.token) {
+		case IDENTIFIER:
+			Symbol nameSymb = skip(Term.IDENTIFIER);
+			skip(Term.COLON);
+			AbsType type = parseType();
+			return new AbsCompDecl(new Location(nameSymb, prevSymb), nameSymb.lexeme(), type);
+		default:
+			throw unexpected("parseArg");
+		}
+	}
+
+	private void parseCompDeclRest(Vector<AbsCompDecl> compDecls) {
+		while (true) {
+			switch (currSymb.token) {
+			case COMMA:
+				skip(Term.COMMA);
+				try {
+					compDecls.add(parseCompDecl());
+				} catch (SyntaxError __) {
+					if (!recoverListElem())
+						return;
+				}
+				break;
+			case RPARENTHESIS:
+				return;
+			default:
+				unexpected("parseArgsRest");
+				if (!recoverListElem())
+					return;
+			}
+		}
+	}
+
+	private AbsCompDecls parseCompDecls() {
+		switch (currSymb.token) {
+		case IDENTIFIER:
+			Vector<AbsCompDecl> compDecls = new Vector<AbsCompDecl>();
+			try {
+				compDecls.add(parseCompDecl());
+			} catch (SyntaxError __) {
+				if (!recoverListElem())
+					return new AbsCompDecls(location(compDecls), compDecls);
+			}
+			parseCompDeclRest(compDecls);
+			return new AbsCompDecls(location(compDecls), compDecls);
+		default:
+			throw unexpected("parseArgs");
+		}
+	}
+
+	private AbsType parseType() {
+		switch (currSymb.token) {
+		case IDENTIFIER: {
+			Symbol nameSymb = skip(Term.IDENTIFIER);
+			return new AbsTypName(new Location(nameSymb), nameSymb.lexeme());
+		}
+		case LPARENTHESIS: {
+			skip(Term.LPARENTHESIS);
+			AbsType type = parseType();
+			skip(Term.RPARENTHESIS);
+			return type;
+		}
+		case VOID:
+			return new AbsAtomType(new Location(skip(Term.VOID)), AbsAtomType.Type.VOID);
+		case BOOL:
+			return new AbsAtomType(new Location(skip(Term.BOOL)), AbsAtomType.Type.BOOL);
+		case CHAR:
+			return new AbsAtomType(new Location(skip(Term.CHAR)), AbsAtomType.Type.CHAR);
+		case INT:
+			return new AbsAtomType(new Location(skip(Term.INT)), AbsAtomType.Type.INT);
+		case ARR: {
+			Symbol begSymb = skip(Term.ARR);
+			skip(Term.LBRACKET);
+			AbsExpr len = parseExpr();
+			skip(Term.RBRACKET);
+			AbsType elemType = parseType();
+			return new AbsArrType(new Location(begSymb, prevSymb), len, elemType);
+		}
+		case REC: {
+			Symbol begSymb = skip(Term.REC);
+			skip(Term.LPARENTHESIS);
+			AbsCompDecls compDecls = parseCompDecls();
+			skip(Term.RPARENTHESIS);
+			return new AbsRecType(new Location(begSymb, prevSymb), compDecls);
+		}
+		case PTR: {
+			Symbol begSymb = skip(Term.PTR);
+			AbsType subType = parseType();
+			return new AbsPtrType(new Location(begSymb, prevSymb), subType);
+		}
+		default:
+			throw unexpected("parseType");
+		}
+	}
+
+	private AbsStmt parseStmt() {
+		switch (currSymb.token) {
+		case IF: {
+			Symbol begSymb = skip(Term.IF);
+			AbsExpr cond = parseExpr();
+			skip(Term.THEN);
+			AbsStmts thenStmts = parseStmts();
+			AbsStmts elseStmts = parseElse();
+			skip(Term.END);
+			skip(Term.SEMIC);
+			return new AbsIfStmt(new Location(begSymb, prevSymb), cond, thenStmts, elseStmts);
+		}
+		case WHILE: {
+			Symbol begSymb = skip(Term.WHILE);
+			AbsExpr cond = parseExpr();
+			skip(Term.DO);
+			AbsStmts stmts = parseStmts();
+			skip(Term.END);
+			skip(Term.SEMIC);
+			return new AbsWhileStmt(new Location(begSymb, prevSymb), cond, stmts);
+		}
+		case IDENTIFIER:
+		case LPARENTHESIS:
+		case LBRACE:
+		case ADD:
+		case SUB:
+		case NOT:
+		case DATA:
+		case ADDR:
+		case NEW:
+		case DEL:
+		case VOIDCONST:
+		case BOOLCONST:
+		case INTCONST:
+		case PTRCONST:
+		case STRCONST:
+		case CHARCONST: {
+			AbsStmt stmt = parseAssign(parseExpr());
+			skip(Term.SEMIC);
+			return stmt;
+		}
+		default:
+			throw unexpected("parseStmt");
+		}
+	}
+
+	private void parseStmtsRest(Vector<AbsStmt> stmts) {
+		while (true) {
+			switch (currSymb.token) {
+			case IDENTIFIER:
+			case LPARENTHESIS:
+			case LBRACE:
+			case IF:
+			case WHILE:
+			case ADD:
+			case SUB:
+			case NOT:
+			case DATA:
+			case ADDR:
+			case NEW:
+			case DEL:
+			case VOIDCONST:
+			case BOOLCONST:
+			case INTCONST:
+			case PTRCONST:
+			case STRCONST:
+			case CHARCONST:
+				try {
+					stmts.add(parseStmt());
+				} catch (SyntaxError __) {
+					if (!recoverStmt())
+						return;
+				}
+				break;
+			case COLON:
+			case END:
+			case ELSE:
+				return;
+			default:
+				unexpected("parseStmtsRest");
+				if (!recoverStmt())
+					return;
+			}
+		}
+	}
+
+	private AbsStmts parseStmts() {
+		switch (currSymb.token) {
+		case IDENTIFIER:
+		case LPARENTHESIS:
+		case LBRACE:
+		case IF:
+		case WHILE:
+		case ADD:
+		case SUB:
+		case NOT:
+		case DATA:
+		case ADDR:
+		case NEW:
+		case DEL:
+		case VOIDCONST:
+		case BOOLCONST:
+		case INTCONST:
+		case PTRCONST:
+		case STRCONST:
+		case CHARCONST:
+			Vector<AbsStmt> stmts = new Vector<AbsStmt>();
+			try {
+				stmts.add(parseStmt());
+			} catch (SyntaxError __) {
+				if (!recoverStmt())
+					return new AbsStmts(location(stmts), stmts);
+			}
+			parseStmtsRest(stmts);
+			return new AbsStmts(location(stmts), stmts);
+		default:
+			throw unexpected("parseStmts");
+		}
+	}
+
+	private AbsStmts parseElse() {
+		switch (currSymb.token) {
+		case END:
+			return new AbsStmts(NOWHERE, new Vector<AbsStmt>());
+		case ELSE:
+			skip(Term.ELSE);
+			return parseStmts();
+		default:
+			throw unexpected("parseElse");
+		}
+	}
+
+	private AbsArgs parseArgsEps() {
+		switch (currSymb.token) {
+		case RPARENTHESIS:
+			return new AbsArgs(NOWHERE, new Vector<AbsExpr>());
+		default:
+			Symbol begSymb = currSymb;
+			Vector<AbsExpr> args = new Vector<AbsExpr>();
+			try {
+				args.add(parseExpr());
+			} catch (SyntaxError __) {
+				if (!recoverListElem())
+					return new AbsArgs(new Location(begSymb, prevSymb), args);
+			}
+			parseArgsRest(args);
+			return new AbsArgs(new Location(begSymb, prevSymb), args);
+		}
+	}
+
+	private void parseArgsRest(Vector<AbsExpr> args) {
+		while (true) {
+			switch (currSymb.token) {
+			case COMMA:
+				skip(Term.COMMA);
+				try {
+					args.add(parseExpr());
+				} catch (SyntaxError __) {
+					if (!recoverListElem())
+						return;
+				}
+				break;
+			case RPARENTHESIS:
+				return;
+			default:
+				unexpected("parseArgsFunRest");
+				if (!recoverListElem())
+					return;
+			}
+		}
+	}
+
+	private AbsDecls parseWhereEps() {
+		switch (currSymb.token) {
+		case WHERE:
+			Symbol begSymb = skip(Term.WHERE);
+			Vector<AbsDecl> decls = new Vector<AbsDecl>();
+			try {
+				decls.add(parseDecl());
+			} catch (SyntaxError __) {
+				if (!recoverDecl())
+					return new AbsDecls(new Location(begSymb, prevSymb), decls);
+			}
+			parseDeclsRest(decls);
+			return new AbsDecls(new Location(begSymb, prevSymb), decls);
+		case RBRACE:
+			return new AbsDecls(NOWHERE, new Vector<AbsDecl>());
+		default:
+			throw unexpected("parseWhereEps");
+		}
+	}
+
+	// Entry for expressions
+	private AbsExpr parseExpr() {
+		return parseDisjExpr();
+	}
+
+	private AbsExpr parseDisjExpr() {
+		AbsExpr fstExpr = parseConjExpr();
+		while (true) {
+			Oper oper;
+			switch (currSymb.token) {
+			case COLON:
+			case SEMIC:
+			case RPARENTHESIS:
+			case ASSIGN:
+			case COMMA:
+			case RBRACKET:
+			case THEN:
+			case DO:
+			case WHERE:
+			case RBRACE:
+				return fstExpr;
+			case IOR:
+				skip(Term.IOR);
+				oper = Oper.IOR;
+				break;
+			case XOR:
+				skip(Term.XOR);
+				oper = Oper.XOR;
+				break;
+			default:
+				throw unexpected("parseDisjExprRest");
+			}
+			AbsExpr sndExpr = parseConjExpr();
+			fstExpr = new AbsBinExpr(new Location(fstExpr, sndExpr), oper, fstExpr, sndExpr);
+		}
+	}
+
+	private AbsExpr parseConjExpr() {
+		AbsExpr fstExpr = parseRelExpr();
+		while (true) {
+			switch (currSymb.token) {
+			case COLON:
+			case SEMIC:
+			case RPARENTHESIS:
+			case ASSIGN:
+			case COMMA:
+			case RBRACKET:
+			case THEN:
+			case DO:
+			case WHERE:
+			case RBRACE:
+			case IOR:
+			case XOR:
+				return fstExpr;
+			case AND:
+				skip(Term.AND);
+				break;
+			default:
+				throw unexpected("parseConjExprRest");
+			}
+			AbsExpr sndExpr = parseRelExpr();
+			fstExpr = new AbsBinExpr(new Location(fstExpr, sndExpr), Oper.AND, fstExpr, sndExpr);
+		}
+	}
+
+	private AbsExpr parseRelExpr() {
+		AbsExpr fstExpr = parseAddExpr();
+		Oper oper;
+		switch (currSymb.token) {
+		case COLON:
+		case SEMIC:
+		case RPARENTHESIS:
+		case ASSIGN:
+		case COMMA:
+		case RBRACKET:
+		case THEN:
+		case DO:
+		case WHERE:
+		case RBRACE:
+		case IOR:
+		case XOR:
+		case AND:
+			return fstExpr;
+		case EQU:
+			skip(Term.EQU);
+			oper = Oper.EQU;
+			break;
+		case NEQ:
+			skip(Term.NEQ);
+			oper = Oper.NEQ;
+			break;
+		case LTH:
+			skip(Term.LTH);
+			oper = Oper.LTH;
+			break;
+		case GTH:
+			skip(Term.GTH);
+			oper = Oper.GTH;
+			break;
+		case GEQ:
+			skip(Term.GEQ);
+			oper = Oper.GEQ;
+			break;
+		case LEQ:
+			skip(Term.LEQ);
+			oper = Oper.LEQ;
+			break;
+		default:
+			throw unexpected("parseRelExprRest");
+		}
+		AbsExpr sndExpr = parseAddExpr();
+		return new AbsBinExpr(new Location(fstExpr, sndExpr), oper, fstExpr, sndExpr);
+	}
+
+	private AbsExpr parseAddExpr() {
+		AbsExpr fstExpr = parseMulExpr();
+		while (true) {
+			Oper oper;
+			switch (currSymb.token) {
+			case COLON:
+			case SEMIC:
+			case RPARENTHESIS:
+			case ASSIGN:
+			case COMMA:
+			case RBRACKET:
+			case THEN:
+			case DO:
+			case WHERE:
+			case RBRACE:
+			case IOR:
+			case XOR:
+			case AND:
+			case EQU:
+			case NEQ:
+			case LTH:
+			case GTH:
+			case GEQ:
+			case LEQ:
+				return fstExpr;
+			case ADD:
+				skip(Term.ADD);
+				oper = Oper.ADD;
+				break;
+			case SUB:
+				skip(Term.SUB);
+				oper = Oper.SUB;
+				break;
+			default:
+				throw unexpected("parseAddExprRest");
+			}
+			AbsExpr sndExpr = parseMulExpr();
+			fstExpr = new AbsBinExpr(new Location(fstExpr, sndExpr), oper, fstExpr, sndExpr);
+		}
+	}
+
+	private AbsExpr parseMulExpr() {
+		AbsExpr fstExpr = parsePrefExpr();
+		while (true) {
+			Oper oper;
+			switch (currSymb.token) {
+			case COLON:
+			case SEMIC:
+			case RPARENTHESIS:
+			case ASSIGN:
+			case COMMA:
+			case RBRACKET:
+			case THEN:
+			case DO:
+			case WHERE:
+			case RBRACE:
+			case IOR:
+			case XOR:
+			case AND:
+			case EQU:
+			case NEQ:
+			case LTH:
+			case GTH:
+			case GEQ:
+			case LEQ:
+			case ADD:
+			case SUB:
+				return fstExpr;
+			case MUL:
+				skip(Term.MUL);
+				oper = Oper.MUL;
+				break;
+			case DIV:
+				skip(Term.DIV);
+				oper = Oper.DIV;
+				break;
+			case MOD:
+				skip(Term.MOD);
+				oper = Oper.MOD;
+				break;
+			default:
+				throw unexpected("parseMulExprRest");
+			}
+			AbsExpr sndExpr = parsePrefExpr();
+			fstExpr = new AbsBinExpr(new Location(fstExpr, sndExpr), oper, fstExpr, sndExpr);
+		}
+	}
+
+	private AbsExpr parsePrefExpr() {
+		AbsUnExpr.Oper oper;
+		switch (currSymb.token) {
+		case LPARENTHESIS:
+		case IDENTIFIER:
+		case LBRACE:
+		case VOIDCONST:
+		case BOOLCONST:
+		case INTCONST:
+		case PTRCONST:
+		case STRCONST:
+		case CHARCONST:
+			return parsePstfExpr();
+		case ADD:
+			oper = AbsUnExpr.Oper.ADD;
+			break;
+		case SUB:
+			oper = AbsUnExpr.Oper.SUB;
+			break;
+		case NOT:
+			oper = AbsUnExpr.Oper.NOT;
+			break;
+		case DATA:
+			oper = AbsUnExpr.Oper.DATA;
+			break;
+		case ADDR:
+			oper = AbsUnExpr.Oper.ADDR;
+			break;
+		case NEW: {
+			Symbol begSymb = skip(Term.NEW);
+			skip(Term.LPARENTHESIS);
+			AbsType type = parseType();
+			skip(Term.RPARENTHESIS);
+			return new AbsNewExpr(new Location(begSymb, type), type);
+		}
+		case DEL: {
+			Symbol begSymb = skip(Term.DEL);
+			skip(Term.LPARENTHESIS);
+			AbsExpr expr = parseExpr();
+			skip(Term.RPARENTHESIS);
+			return new AbsDelExpr(new Location(begSymb, expr), expr);
+		}
+		default:
+			throw unexpected("parsePrefExpr");
+		}
+		Symbol operSymb = skip(currSymb.token);
+		AbsExpr expr = parsePrefExpr();
+		return new AbsUnExpr(new Location(operSymb, expr), oper, expr);
+	}
+
+	private AbsExpr parsePstfExpr() {
+		switch (currSymb.token) {
+		case LPARENTHESIS:
+		case IDENTIFIER:
+		case LBRACE:
+		case VOIDCONST:
+		case BOOLCONST:
+		case INTCONST:
+		case PTRCONST:
+		case STRCONST:
+		case CHARCONST:
+			return parsePstfExprRest(parseCastExpr());
+		default:
+			throw unexpected("parsePstfExpr");
+		}
+	}
+
+	/**
+	 * Parses the postfix operators following an expression.
+	 *
+	 * The location of a component name spans from its dot to the end of the
+	 * entire rest of the postfix expression (as the location of the derivation
+	 * tree node the name is taken from does). Hence the operators are collected
+	 * first and the expressions are constructed once the end is known.
+	 */
+	private AbsExpr parsePstfExprRest(AbsExpr expr) {
+		Vector<Symbol> operSymbs = null;
+		Vector<Object> operands = null;
+		loop: while (true) {
+			switch (currSymb.token) {
+			case COLON:
+			case SEMIC:
+			case RPARENTHESIS:
+			case ASSIGN:
+			case COMMA:
+			case RBRACKET:
+			case THEN:
+			case DO:
+			case WHERE:
+			case RBRACE:
+			case IOR:
+			case XOR:
+			case AND:
+			case EQU:
+			case NEQ:
+			case LTH:
+			case GTH:
+			case GEQ:
+			case LEQ:
+			case ADD:
+			case SUB:
+			case MUL:
+			case DIV:
+			case MOD:
+				break loop;
+			case DOT:
+				if (operSymbs == null) {
+					operSymbs = new Vector<Symbol>();
+					operands = new Vector<Object>();
+				}
+				operSymbs.add(skip(Term.DOT));
+				operands.add(skip(Term.IDENTIFIER).lexeme());
+				break;
+			case LBRACKET:
+				if (operSymbs == null) {
+					operSymbs = new Vector<Symbol>();
+					operands = new Vector<Object>();
+				}
+				operSymbs.add(skip(Term.LBRACKET));
+				operands.add(parseExpr());
+				skip(Term.RBRACKET);
+				break;
+			default:
+				throw syntaxError(String.format("[parsePstfExprRest] ExprSymbol %s (%s) not expected.",
+						currSymb, currSymb.token));
+			}
+		}
+		if (operSymbs == null)
+			return expr;
+
+		Symbol endSymb = prevSymb;
+		for (int oper = 0; oper < operSymbs.size(); oper++) {
+			Symbol operSymb = operSymbs.get(oper);
+			if (operSymb.token == Term.LBRACKET) {
+				AbsExpr index = (AbsExpr) operands.get(oper);
+				expr = new AbsArrExpr(new Location(operSymb, index), expr, index);
+			} else {
+				AbsVarName comp = new AbsVarName(new Location(operSymb, endSymb), (String) operands.get(oper));
+				expr = new AbsRecExpr(new Location(expr, comp), expr, comp);
+			}
+		}
+		return expr;
+	}
+
+	private AbsExpr parseCastExpr() {
+		switch (currSymb.token) {
+		case IDENTIFIER:
+		case LBRACE:
+		case VOIDCONST:
+		case BOOLCONST:
+		case INTCONST:
+		case PTRCONST:
+		case STRCONST:
+		case CHARCONST:
+			return parseAtomExpr();
+		case LPARENTHESIS:
+			skip(Term.LPARENTHESIS);
+			return parseCastEps(parseExpr());
+		default:
+			throw unexpected("parseCastExpr");
+		}
+	}
+
+	private AbsExpr parseAtomExpr() {
+		switch (currSymb.token) {
+		case IDENTIFIER:
+			return parseCallEps(skip(Term.IDENTIFIER));
+		case VOIDCONST:
+			return parseConst(Term.VOIDCONST, AbsAtomExpr.Type.VOID);
+		case BOOLCONST:
+			return parseConst(Term.BOOLCONST, AbsAtomExpr.Type.BOOL);
+		case INTCONST:
+			return parseConst(Term.INTCONST, AbsAtomExpr.Type.INT);
+		case PTRCONST:
+			return parseConst(Term.PTRCONST, AbsAtomExpr.Type.PTR);
+		case STRCONST:
+			return parseConst(Term.STRCONST, AbsAtomExpr.Type.STR);
+		case CHARCONST:
+			return parseConst(Term.CHARCONST, AbsAtomExpr.Type.CHAR);
+		case LBRACE:
+			Symbol begSymb = skip(Term.LBRACE);
+			AbsStmts stmts = parseStmts();
+			skip(Term.COLON);
+			AbsExpr expr = parseExpr();
+			AbsDecls decls = parseWhereEps();
+			skip(Term.RBRACE);
+			return new AbsBlockExpr(new Location(begSymb, prevSymb), decls, stmts, expr);
+		default:
+			throw unexpected("parseAtomExpr");
+		}
+	}
+
+	private AbsExpr parseConst(Symbol.Term token, AbsAtomExpr.Type type) {
+		Symbol constSymb = skip(token);
+		return new AbsAtomExpr(new Location(constSymb), type, constSymb.lexeme());
+	}
+
+	private AbsExpr parseCastEps(AbsExpr expr) {
+		switch (currSymb.token) {
+		case COLON:
+			skip(Term.COLON);
+			AbsType type = parseType();
+			skip(Term.RPARENTHESIS);
+			return new AbsCastExpr(new Location(expr, type), expr, type);
+		case RPARENTHESIS:
+			skip(Term.RPARENTHESIS);
+			return expr;
+		default:
+			throw unexpected("parseCastEps");
+		}
+	}
+
+	private AbsExpr parseCallEps(Symbol nameSymb) {
+		switch (currSymb.token) {
+		case COLON:
+		case SEMIC:
+		case RPARENTHESIS:
+		case ASSIGN:
+		case COMMA:
+		case RBRACKET:
+		case THEN:
+		case DO:
+		case WHERE:
+		case RBRACE:
+		case IOR:
+		case XOR:
+		case AND:
+		case EQU:
+		case NEQ:
+		case LTH:
+		case GTH:
+		case GEQ:
+		case LEQ:
+		case ADD:
+		case SUB:
+		case MUL:
+		case DIV:
+		case MOD:
+		case DOT:
+		case LBRACKET:
+			return new AbsVarName(new Location(nameSymb), nameSymb.lexeme());
+		case LPARENTHESIS:
+			skip(Term.LPARENTHESIS);
+			AbsArgs args = parseArgsEps();
+			skip(Term.RPARENTHESIS);
+			return new AbsFunName(new Location(nameSymb, prevSymb), nameSymb.lexeme(), args);
+		default:
+			throw unexpected("parseCallEps");
+		}
+	}
+
+}
@@ -3,9 +3,14 @@
  */
 package compiler.phases.synan;
 
+import java.util.*;
+
+import compiler.*;
 import compiler.common.report.*;
+import compiler.common.stats.*;
 import compiler.data.symbol.*;
 import compiler.data.symbol.Symbol.Term;
+import compiler.data.abstree.*;
 import compiler.data.dertree.*;
 import compiler.data.dertree.DerNode.Nont;
 import compiler.phases.*;
@@ -18,9 +23,6 @@ import compiler.phases.lexan.*;
  */
 public class SynAn extends Phase {
 
-	/** The derivation tree of the program being compiled. */
-	public static DerTree derTree = null;
-
 	/** The lexical analyzer used by this syntax analyzer. */
 	private final LexAn lexAn;
 
@@ -35,26 +37,164 @@ public class SynAn extends Phase {
 	@Override
 	public void close() {
 		lexAn.close();
+		DerTree derTree = Compilation.current().derTree;
+		if (Stats.enabled() && derTree != null)
+			Stats.count("dertree.nodes", numOfNodes(derTree));
 		super.close();
 	}
 
+	private static long numOfNodes(DerTree tree) {
+		long numOfNodes = 1;
+		if (tree instanceof DerNode)
+			for (DerTree subtree : ((DerNode) tree).subtrees())
+				numOfNodes += numOfNodes(subtree);
+		return numOfNodes;
+	}
+
 	/**
 	 * The parser.
 	 * 
 	 * This method constructs a derivation tree of the program in the source file.
 	 * It calls method {@link #parseSource()} that starts a recursive descent parser
-	 * implementation of an LL(1) parsing algorithm.
+	 * implementation of an LL(1) parsing algorithm. Syntax errors are reported
+	 * and recovered from (see {@link SyntaxError}) so that all of them are found
+	 * in a single run; if any, the compilation is stopped once the whole source
+	 * file has been parsed.
 	 */
 	public void parser() {
 		currSymb = lexAn.lexer();
-		derTree = parseSource();
-		if (currSymb.token != Symbol.Term.EOF)
-			throw new Report.Error(currSymb, "Unexpected '" + currSymb + "' at the end of a program.");
+		Compilation.current().derTree = parseSource();
+		while (currSymb.token != Symbol.Term.EOF) {
+			syntaxError("Unexpected '" + currSymb + "' at the end of a program.");
+			currSymb = lexAn.lexer();
+			parseDeclsRest();
+		}
+		Report.checkErrors();
 	}
 
-	/** The lookahead buffer (of length 1). */
+	/**
+	 * The parser constructing the abstract syntax tree directly.
+	 * 
+	 * This method accepts the same programs and reports the same errors as
+	 * {@link #parser()}, but instead of the derivation tree it constructs the
+	 * abstract syntax tree that {@link compiler.phases.abstr.AbsTreeConstructor}
+	 * would construct from the derivation tree (see {@link AbsParser}). It is
+	 * meant to be used whenever the derivation tree is neither logged nor needed
+	 * otherwise.
+	 * 
+	 * @return The abstract syntax tree of the program in the source file.
+	 */
+	public AbsSource absParser() {
+		Compilation.current().derTree = null;
+		AbsSource absTree = new AbsParser(lexAn).parser();
+		Report.checkErrors();
+		return absTree;
+	}
+
+	/**
+	 * The lookahead buffer (of length 1, the symbols following it can be looked at
+	 * using {@link LexAn#lookahead(int)}).
+	 */
 	private Symbol currSymb = null;
 
+	/**
+	 * Whether a syntax error has been reported and no symbol has been accepted
+	 * since (further errors are not reported until then).
+	 */
+	private boolean recovering = false;
+
+	/**
+	 * Reports a syntax error at the current symbol unless the parser is already
+	 * recovering from one.
+	 * 
+	 * @param errorMsg The error message.
+	 * @return The syntax error to be thrown.
+	 */
+	private SyntaxError syntaxError(String errorMsg) {
+		if (!recovering) {
+			recovering = true;
+			Report.error(currSymb, errorMsg);
+		}
+		return new SyntaxError();
+	}
+
+	/**
+	 * Skips symbols after a syntax error until a synchronizing symbol is found
+	 * outside of any parenthesized, bracketed or braced part of the input
+	 * skipped, or until a closing parenthesis, bracket or brace of an enclosing
+	 * construct or the end of the file is found.
+	 * 
+	 * @param sync The synchronizing symbols.
+	 * @return The terminal of the current symbol after skipping.
+	 */
+	private Symbol.Term recover(EnumSet<Symbol.Term> sync) {
+		int depth = 0;
+		while (true) {
+			switch (currSymb.token) {
+			case EOF:
+				return currSymb.token;
+			case LPARENTHESIS:
+			case LBRACKET:
+			case LBRACE:
+				depth++;
+				break;
+			case RPARENTHESIS:
+			case RBRACKET:
+			case RBRACE:
+				if (depth == 0)
+					return currSymb.token;
+				depth--;
+				break;
+			default:
+				if ((depth == 0) && sync.contains(currSymb.token))
+					return currSymb.token;
+			}
+			currSymb = lexAn.lexer();
+		}
+	}
+
+	/**
+	 * Recovers from a syntax error in a list of declarations.
+	 * 
+	 * @return {@code true} if the list continues, {@code false} otherwise.
+	 */
+	private boolean recoverDecl() {
+		switch (recover(SyntaxError.declSync)) {
+		case SEMIC:
+			currSymb = lexAn.lexer();
+			return true;
+		case TYP:
+		case VAR:
+		case FUN:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Recovers from a syntax error in a list of statements.
+	 * 
+	 * @return {@code true} if the list continues, {@code false} otherwise.
+	 */
+	private boolean recoverStmt() {
+		if (recover(SyntaxError.stmtSync) == Symbol.Term.SEMIC) {
+			currSymb = lexAn.lexer();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Recovers from a syntax error in a list of parameters, components or
+	 * arguments.
+	 * 
+	 * @return {@code true} if the list continues, {@code false} otherwise.
+	 */
+	private boolean recoverListElem() {
+		return recover(SyntaxError.listSync) == Symbol.Term.COMMA;
+	}
+
 /*	*//**
 	 * Appends the current symbol in the lookahead buffer to a derivation tree node
 	 * (typically the node of the derivation tree that is currently being expanded
@@ -89,8 +229,9 @@ public class SynAn extends Phase {
 		if (currSymb.token == token) {
 			node.add(new DerLeaf(currSymb));
 			currSymb = lexAn.lexer();
+			recovering = false;
 		} else
-			throw new Report.Error(currSymb, errorMsg);
+			throw syntaxError(errorMsg);
 	}
 
 	// source -> decls
@@ -104,7 +245,12 @@ public class SynAn extends Phase {
 		DerNode declsNode = new DerNode(DerNode.Nont.Decls);
 		switch (currSymb.token) {
 			default:		
-				declsNode.add(parseDecl());
+				try {
+					declsNode.add(parseDecl());
+				} catch (SyntaxError __) {
+					if (!recoverDecl())
+						return declsNode;
+				}
 				declsNode.add(parseDeclsRest());
 				return declsNode;
 		}
@@ -117,7 +263,12 @@ public class SynAn extends Phase {
 			case EOF:
 				return declsNode;
 			default:		
-				declsNode.add(parseDecl());
+				try {
+					declsNode.add(parseDecl());
+				} catch (SyntaxError __) {
+					if (!recoverDecl())
+						return declsNode;
+				}
 				declsNode.add(parseDeclsRest());
 				return declsNode;
 		}
@@ -156,7 +307,7 @@ public class SynAn extends Phase {
 				break;
 			}	
 			default:
-				throw new Report.Error(currSymb, String.format("[parseDecl] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+				throw syntaxError(String.format("[parseDecl] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 		return declNode;
 	}
@@ -171,7 +322,7 @@ public class SynAn extends Phase {
 			bodyNode.add(parseExpr());
 			return bodyNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseBody] Symbol %s not expected.", currSymb));
+			throw syntaxError(String.format("[parseBody] Symbol %s not expected.", currSymb));
 		}
 	}
 	
@@ -186,7 +337,7 @@ public class SynAn extends Phase {
 			bodyNode.add(parseExpr());
 			return bodyNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseBody] Symbol %s not expected.", currSymb));
+			throw syntaxError(String.format("[parseBody] Symbol %s not expected.", currSymb));
 		}
 	}
 	
@@ -200,7 +351,7 @@ public class SynAn extends Phase {
 			argNode.add(parseType());
 			return argNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseArg] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parseArg] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 	
@@ -210,13 +361,22 @@ public class SynAn extends Phase {
 		switch (currSymb.token) {
 		case COMMA:
 			add(argsNode, Term.COMMA, String.format("Expected symbol %s, but received %s.", Term.COMMA, currSymb.token));
-			argsNode.add(parseParDecl(rec));
+			try {
+				argsNode.add(parseParDecl(rec));
+			} catch (SyntaxError __) {
+				if (!recoverListElem())
+					return argsNode;
+			}
 			argsNode.add(parseParDeclRest(rec));
 			return argsNode;
 		case RPARENTHESIS:
 			return argsNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseArgsRest] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			syntaxError(String.format("[parseArgsRest] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			if (!recoverListElem())
+				return argsNode;
+			argsNode.add(parseParDeclRest(rec));
+			return argsNode;
 		}
 	}
 	
@@ -225,11 +385,16 @@ public class SynAn extends Phase {
 		if(rec) argsNode = new DerNode(Nont.CompDecls);
 		switch (currSymb.token) {
 		case IDENTIFIER:
-			argsNode.add(parseParDecl(rec));
+			try {
+				argsNode.add(parseParDecl(rec));
+			} catch (SyntaxError __) {
+				if (!recoverListElem())
+					return argsNode;
+			}
 			argsNode.add(parseParDeclRest(rec));
 			return argsNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseArgs] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parseArgs] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 	
@@ -238,13 +403,18 @@ public class SynAn extends Phase {
 		switch (currSymb.token) {
 		case IDENTIFIER:
 			// We know we are in a function parameters
-			argsNode.add(parseParDecl(false));
+			try {
+				argsNode.add(parseParDecl(false));
+			} catch (SyntaxError __) {
+				if (!recoverListElem())
+					return argsNode;
+			}
 			argsNode.add(parseParDeclRest(false));
 			return argsNode;
 		case RPARENTHESIS:
 			return argsNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseArgs] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parseArgs] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 	
@@ -294,7 +464,7 @@ public class SynAn extends Phase {
 				return typeNode;
 			}
 		default:
-			throw new Report.Error(currSymb, String.format("[parseType] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parseType] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 	
@@ -340,7 +510,7 @@ public class SynAn extends Phase {
 			return stmtNode;
 			
 		default:
-			throw new Report.Error(currSymb, String.format("[parseStmt] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parseStmt] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 		
 	}
@@ -366,7 +536,12 @@ public class SynAn extends Phase {
 		case PTRCONST:
 		case STRCONST:
 		case CHARCONST:
-			stmtNode.add(parseStmt());
+			try {
+				stmtNode.add(parseStmt());
+			} catch (SyntaxError __) {
+				if (!recoverStmt())
+					return stmtNode;
+			}
 			stmtNode.add(parseStmtsRest());
 			return stmtNode;	
 			
@@ -375,7 +550,11 @@ public class SynAn extends Phase {
 		case ELSE:
 			return stmtNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseStmtsRest] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			syntaxError(String.format("[parseStmtsRest] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			if (!recoverStmt())
+				return stmtNode;
+			stmtNode.add(parseStmtsRest());
+			return stmtNode;
 		}
 	}
 	
@@ -400,11 +579,16 @@ public class SynAn extends Phase {
 		case PTRCONST:
 		case STRCONST:
 		case CHARCONST:
-			stmtNode.add(parseStmt());
+			try {
+				stmtNode.add(parseStmt());
+			} catch (SyntaxError __) {
+				if (!recoverStmt())
+					return stmtNode;
+			}
 			stmtNode.add(parseStmtsRest());
 			return stmtNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseStmts] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parseStmts] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 	
@@ -418,7 +602,7 @@ public class SynAn extends Phase {
 			elseNode.add(parseStmts());
 			return elseNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseElse] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parseElse] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 
@@ -434,7 +618,12 @@ public class SynAn extends Phase {
 		case RPARENTHESIS:
 			return argsFunNode;
 		default:
-			argsFunNode.add(parseArg());
+			try {
+				argsFunNode.add(parseArg());
+			} catch (SyntaxError __) {
+				if (!recoverListElem())
+					return argsFunNode;
+			}
 			argsFunNode.add(parseArgsRest());
 			return argsFunNode;
 		}
@@ -445,13 +634,22 @@ public class SynAn extends Phase {
 		switch (currSymb.token) {
 		case COMMA:
 			add(argsFunNode, Term.COMMA, String.format("Expected symbol %s, but received %s.", Term.COMMA, currSymb.token));
-			argsFunNode.add(parseArg());
+			try {
+				argsFunNode.add(parseArg());
+			} catch (SyntaxError __) {
+				if (!recoverListElem())
+					return argsFunNode;
+			}
 			argsFunNode.add(parseArgsRest());
 			return argsFunNode;		
 		case RPARENTHESIS:
 				return argsFunNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseArgsFunRest] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			syntaxError(String.format("[parseArgsFunRest] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			if (!recoverListElem())
+				return argsFunNode;
+			argsFunNode.add(parseArgsRest());
+			return argsFunNode;
 		}
 	}
 	
@@ -460,13 +658,18 @@ public class SynAn extends Phase {
 		switch (currSymb.token) {
 		case WHERE:
 			add(whereEpsNode, Term.WHERE, String.format("Expected symbol %s, but received %s.", Term.WHERE, currSymb.token));
-			whereEpsNode.add(parseDecl());
+			try {
+				whereEpsNode.add(parseDecl());
+			} catch (SyntaxError __) {
+				if (!recoverDecl())
+					return whereEpsNode;
+			}
 			whereEpsNode.add(parseDeclsRest());
 			return whereEpsNode;		
 		case RBRACE:
 			return whereEpsNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseWhereEps] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parseWhereEps] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 	
@@ -510,7 +713,7 @@ public class SynAn extends Phase {
 			exprNode.add(parseDisjExprRest());
 			return exprNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseDisjExprRest] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parseDisjExprRest] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 	
@@ -543,7 +746,7 @@ public class SynAn extends Phase {
 			exprNode.add(parseConjExprRest());
 			return exprNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseConjExprRest] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parseConjExprRest] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 	
@@ -596,7 +799,7 @@ public class SynAn extends Phase {
 			exprNode.add(parseAddExpr());
 			return exprNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseRelExprRest] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parseRelExprRest] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 	
@@ -641,7 +844,7 @@ public class SynAn extends Phase {
 			exprNode.add(parseAddExprRest());
 			return exprNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseAddExprRest] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parseAddExprRest] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 	
@@ -693,7 +896,7 @@ public class SynAn extends Phase {
 			exprNode.add(parseMulExprRest());
 			return exprNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseMulExprRest] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parseMulExprRest] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 	
@@ -746,7 +949,7 @@ public class SynAn extends Phase {
 			add(exprNode, Term.RPARENTHESIS, String.format("Expected symbol %s, but received %s.", Term.RPARENTHESIS, currSymb.token));
 			return exprNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parsePrefExpr] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parsePrefExpr] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 	
@@ -766,7 +969,7 @@ public class SynAn extends Phase {
 			exprNode.add(parsePstfExprRest());
 			return exprNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parsePstfExpr] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parsePstfExpr] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 	
@@ -810,7 +1013,7 @@ public class SynAn extends Phase {
 			exprNode.add(parsePstfExprRest());
 			return exprNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parsePstfExprRest] ExprSymbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parsePstfExprRest] ExprSymbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 	
@@ -833,7 +1036,7 @@ public class SynAn extends Phase {
 			exprNode.add(parseCastEps());
 			return exprNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseCastExpr] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parseCastExpr] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 	
@@ -872,7 +1075,7 @@ public class SynAn extends Phase {
 			add(exprNode, Term.RBRACE, String.format("Expected symbol %s, but received %s.", Term.RBRACE, currSymb.token));
 			return exprNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseAtomExpr] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parseAtomExpr] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 	
@@ -888,7 +1091,7 @@ public class SynAn extends Phase {
 			add(exprNode, Term.RPARENTHESIS, String.format("Expected symbol %s, but received %s.", Term.RPARENTHESIS, currSymb.token));
 			return exprNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseCastEps] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parseCastEps] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 	
@@ -928,7 +1131,7 @@ public class SynAn extends Phase {
 			add(exprNode, Term.RPARENTHESIS, String.format("Expected symbol %s, but received %s.", Term.RPARENTHESIS, currSymb.token));
 			return exprNode;
 		default:
-			throw new Report.Error(currSymb, String.format("[parseCallEps] Symbol %s (%s) not expected.", currSymb, currSymb.token));
+			throw syntaxError(String.format("[parseCallEps] Symbol %s (%s) not expected.", currSymb, currSymb.token));
 		}
 	}
 }
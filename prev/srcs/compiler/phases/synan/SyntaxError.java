@@ -0,0 +1,36 @@
+package compiler.phases.synan;
+
+import java.util.*;
+
+import compiler.data.symbol.Symbol.Term;
+
+/**
+ * A syntax error the parser recovers from.
+ *
+ * It is thrown once the error has been reported (see
+ * {@link compiler.common.report.Report#error}) and caught by the parser where
+ * parsing can be resumed, i.e., in lists of declarations, statements,
+ * parameters, components and arguments. There the symbols are skipped
+ * (together with any complete parenthesized, bracketed or braced part of the
+ * input) until a synchronizing symbol of the list, a closing parenthesis,
+ * bracket or brace of an enclosing construct or the end of the file is
+ * reached.
+ */
+@SuppressWarnings("serial")
+class SyntaxError extends RuntimeException {
+
+	/** The synchronizing symbols of lists of declarations. */
+	static final EnumSet<Term> declSync = EnumSet.of(Term.SEMIC, Term.TYP, Term.VAR, Term.FUN);
+
+	/** The synchronizing symbols of lists of statements. */
+	static final EnumSet<Term> stmtSync = EnumSet.of(Term.SEMIC, Term.END, Term.ELSE, Term.COLON, Term.TYP,
+			Term.VAR, Term.FUN);
+
+	/** The synchronizing symbols of lists of parameters, components or arguments. */
+	static final EnumSet<Term> listSync = EnumSet.of(Term.COMMA, Term.SEMIC, Term.TYP, Term.VAR, Term.FUN);
+
+	SyntaxError() {
+		super(null, null, false, false);
+	}
+
+}
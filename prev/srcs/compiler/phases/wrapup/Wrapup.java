@@ -3,14 +3,17 @@ package compiler.phases.wrapup;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 
+import compiler.Compilation;
 import compiler.Main;
 import compiler.data.asmcode.AsmInstr;
 import compiler.data.asmcode.AsmLABEL;
 import compiler.data.asmcode.Code;
+import compiler.data.asmcode.FlowGraph;
 import compiler.data.chunk.DataChunk;
 import compiler.phases.Phase;
-import compiler.phases.chunks.Chunks;
+import compiler.phases.cache.FunCache;
 import compiler.phases.ralloc.RAlloc;
 
 public class Wrapup extends Phase{
@@ -24,7 +27,7 @@ public class Wrapup extends Phase{
 		try {	
 			 writer = new PrintWriter(Main.cmdLineArgValue("--src-file-name").replace(".txt", ".mms"), "UTF-8");
 		} catch (IOException e) {
-			System.out.println("Could not write to file.");
+			Compilation.current().out.println("Could not write to file.");
 		}
 	} 
 	
@@ -47,7 +50,7 @@ public class Wrapup extends Phase{
 				"		OCTA 0,0,0,0,0,0,0,0,0,0,0 % Print space");
 		
 		int size = 184;
-		for(DataChunk chunk : Chunks.dataChunks) {
+		for(DataChunk chunk : Compilation.current().dataChunks) {
 			if(size >= 256) {
 				size = 0;
 				writer.println("\tGREG @");
@@ -89,73 +92,27 @@ public class Wrapup extends Phase{
 		writer.println("% Functions");
 		writer.println();
 
-		for(Code code : ralloc.newCodes) {
-			writer.println("% fun: " + code.frame.label.name);
-
-
-			writer.println("% - Prologue");
-			writer.println(code.frame.label.name + "\tSET $0,0 ");
-			
-			//System.out.println(code.frame.locsSize);
-			//System.out.println(code.frame.argsSize);
-			//System.out.println(code.frame.size);
-			
-			// Save the old FP
-			writer.println("\tSET $0,$252");
-			writer.println("\tSETL $2,"+ (code.frame.locsSize + 8));
-			writer.println("\tSUB $0,$0,$2" );
-			writer.println("\tSTO $253,$0,0");
-			
-			// Save the return address
-			writer.println("\tSUB $0,$0," + 8);
-			writer.println("\tGET $1,rJ");
-			writer.println("\tSTO $1,$0,0");
-			
-			// Increase FP and SP
-			writer.println("\tSET $253,$252");
-			writer.println("\tSETL $2,"+ code.frame.size);
-			writer.println("\tSUB $252,$252,$2");
-			
-			// Jump to body
-			writer.println("\tJMP " + code.entryLabel.name);
-					
-
-			
-			writer.println("% - Body");
-			for(int i = 0; i < code.instrs.size(); i++) {
-				AsmInstr instr = code.instrs.get(i);
-				if(instr instanceof AsmLABEL) {
-					AsmLABEL label = (AsmLABEL) instr;
-					instr = code.instrs.get(i+1);
-					writer.println(label.getLabel().name + "\t" + instr.toString(code.regs));
-					i+=1;
-				}else {
-					writer.println("\t" + instr.toString(code.regs));
+		FunCache cache = Compilation.current().funCache;
+		if (cache == null) {
+			for (Code code : ralloc.newCodes)
+				print(writer, code);
+		} else {
+			// The code of a top-level function and its nested functions is either
+			// reused or produced (and stored in the cache).
+			int c = 0;
+			for (FunCache.Unit unit : cache.units) {
+				if (unit.code() != null) {
+					writer.print(unit.code());
+					continue;
 				}
+				StringWriter code = new StringWriter();
+				PrintWriter codeWriter = new PrintWriter(code);
+				while ((c < ralloc.newCodes.size()) && unit.frames.contains(ralloc.newCodes.get(c).frame))
+					print(codeWriter, ralloc.newCodes.get(c++));
+				codeWriter.flush();
+				writer.print(code.toString());
+				cache.store(unit, code.toString());
 			}
-			
-			
-			writer.println("% - Epilogue");
-			writer.println(code.exitLabel.name + "\tSTO $0,$253,0"); // Write return value to frame
-
-			writer.println("\tSET $0,$253");
-			writer.println("\tSETL $2,"+ (code.frame.locsSize + 8));
-			writer.println("\tSUB $0,$0,$2");
-			writer.println("\tLDO $1,$0,0"); // load old FP
-			
-			// Move SP and FP
-			writer.println("\tSET $252,$253");
-			writer.println("\tSET $253,$1");
-			
-			// Restore rJ
-			writer.println("\tSUB $0,$0," + 8);
-			writer.println("\tLDO $1,$0,0");
-			writer.println("\tPUT rJ,$1");
-
-			writer.println("\tPOP");
-			
-			writer.println();
-			writer.println();
 		}
 		
 		// New, del, etc.
@@ -271,4 +228,84 @@ public class Wrapup extends Phase{
 		writer.close();
 	}
 	
+	/**
+	 * Prints the prologue, the body and the epilogue of a function.
+	 * 
+	 * @param writer The writer.
+	 * @param code   The function's code.
+	 */
+	private void print(PrintWriter writer, Code code) {
+		writer.println("% fun: " + code.frame.label.name);
+
+
+		writer.println("% - Prologue");
+		writer.println(code.frame.label.name + "\tSET $0,0 ");
+		
+		//System.out.println(code.frame.locsSize);
+		//System.out.println(code.frame.argsSize);
+		//System.out.println(code.frame.size);
+		
+		// Save the old FP
+		writer.println("\tSET $0,$252");
+		writer.println("\tSETL $2,"+ (code.frame.locsSize + 8));
+		writer.println("\tSUB $0,$0,$2" );
+		writer.println("\tSTO $253,$0,0");
+		
+		// Save the return address
+		writer.println("\tSUB $0,$0," + 8);
+		writer.println("\tGET $1,rJ");
+		writer.println("\tSTO $1,$0,0");
+		
+		// Increase FP and SP
+		writer.println("\tSET $253,$252");
+		writer.println("\tSETL $2,"+ (code.frame.size + code.tempSize));
+		writer.println("\tSUB $252,$252,$2");
+		
+		// Jump to body
+		writer.println("\tJMP " + code.entryLabel.name);
+				
+
+		
+		writer.println("% - Body");
+		FlowGraph graph = code.flowGraph();
+		for(int i = 0; i < code.instrs.size(); i++) {
+			AsmInstr instr = code.instrs.get(i);
+			if(FlowGraph.isUncondJump(instr) && graph.instrOf(instr.jumps().get(0)) == i + 1) {
+				// Jump to the next instruction
+				continue;
+			}
+			if(instr instanceof AsmLABEL) {
+				AsmLABEL label = (AsmLABEL) instr;
+				instr = code.instrs.get(i+1);
+				writer.println(label.getLabel().name + "\t" + instr.toString(code.regs));
+				i+=1;
+			}else {
+				writer.println("\t" + instr.toString(code.regs));
+			}
+		}
+		
+		
+		writer.println("% - Epilogue");
+		writer.println(code.exitLabel.name + "\tSTO $0,$253,0"); // Write return value to frame
+
+		writer.println("\tSET $0,$253");
+		writer.println("\tSETL $2,"+ (code.frame.locsSize + 8));
+		writer.println("\tSUB $0,$0,$2");
+		writer.println("\tLDO $1,$0,0"); // load old FP
+		
+		// Move SP and FP
+		writer.println("\tSET $252,$253");
+		writer.println("\tSET $253,$1");
+		
+		// Restore rJ
+		writer.println("\tSUB $0,$0," + 8);
+		writer.println("\tLDO $1,$0,0");
+		writer.println("\tPUT rJ,$1");
+
+		writer.println("\tPOP");
+		
+		writer.println();
+		writer.println();
+	}
+	
 }